@@ -0,0 +1,79 @@
+package it.bancaditalia.oss.sdmx.bench;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
+import it.bancaditalia.oss.sdmx.api.Dataflow;
+import it.bancaditalia.oss.sdmx.parser.v21.CompactDataParser;
+import it.bancaditalia.oss.sdmx.parser.v21.DataParsingResult;
+import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
+import it.bancaditalia.oss.sdmx.util.XmlStreams;
+
+/**
+ * Throughput of {@link CompactDataParser} on the data fixtures. Each operation is one observation, so the score is in
+ * observations per second and, with {@code -prof gc}, {@code gc.alloc.rate.norm} is the heap allocated per observation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+public class CompactDataParserBenchmark
+{
+	private DataFlowStructure	dsd;
+	private Dataflow			dataflow;
+	private String				small;
+	private String				medium;
+	private String				huge;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		dsd = Fixtures.dsd();
+		dataflow = Fixtures.dataflow();
+		small = Fixtures.load("data-small");
+		medium = Fixtures.load("data-medium");
+		huge = Fixtures.load("data-huge");
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(Fixtures.SMALL_OBSERVATIONS)
+	public DataParsingResult small() throws Exception
+	{
+		return parse(small);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(Fixtures.MEDIUM_OBSERVATIONS)
+	public DataParsingResult medium() throws Exception
+	{
+		return parse(medium);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(Fixtures.HUGE_OBSERVATIONS)
+	public DataParsingResult huge() throws Exception
+	{
+		return parse(huge);
+	}
+
+	private DataParsingResult parse(String message) throws Exception
+	{
+		return new CompactDataParser(dsd, dataflow, true)
+				.parse(XmlStreams.createStreamReader(new StringReader(message)), LanguagePriorityList.ANY);
+	}
+}
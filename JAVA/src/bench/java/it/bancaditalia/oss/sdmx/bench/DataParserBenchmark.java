@@ -0,0 +1,79 @@
+package it.bancaditalia.oss.sdmx.bench;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
+import it.bancaditalia.oss.sdmx.api.Dataflow;
+import it.bancaditalia.oss.sdmx.parser.v21.CompactDataParser;
+import it.bancaditalia.oss.sdmx.parser.v21.CsvDataParser;
+import it.bancaditalia.oss.sdmx.parser.v21.DataParsingResult;
+import it.bancaditalia.oss.sdmx.parser.v21.JsonDataParser;
+import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
+import it.bancaditalia.oss.sdmx.util.XmlStreams;
+
+/**
+ * Latency of the data parsers on the same data fixture, encoded in SDMX-ML ({@link CompactDataParser}), SDMX-CSV
+ * ({@link CsvDataParser}) and SDMX-JSON ({@link JsonDataParser}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+public class DataParserBenchmark
+{
+	@Param({ "small", "medium", "huge" })
+	public String				size;
+
+	private DataFlowStructure	dsd;
+	private Dataflow			dataflow;
+	private String				xml;
+	private String				csv;
+	private String				json;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		dsd = Fixtures.dsd();
+		dataflow = Fixtures.dataflow();
+		xml = Fixtures.load("data-" + size);
+		csv = Fixtures.csv(xml);
+		json = Fixtures.json(xml);
+	}
+
+	@Benchmark
+	public DataParsingResult sdmxMl() throws Exception
+	{
+		return new CompactDataParser(dsd, dataflow, true).parse(XmlStreams.createStreamReader(new StringReader(xml)),
+				LanguagePriorityList.ANY);
+	}
+
+	@Benchmark
+	public DataParsingResult sdmxCsv() throws Exception
+	{
+		return new CsvDataParser(dsd, dataflow, true).parse(new BufferedReader(new StringReader(csv)),
+				LanguagePriorityList.ANY);
+	}
+
+	@Benchmark
+	public DataParsingResult sdmxJson() throws Exception
+	{
+		return new JsonDataParser(dsd, dataflow, true).parse(new BufferedReader(new StringReader(json)),
+				LanguagePriorityList.ANY);
+	}
+}
@@ -0,0 +1,275 @@
+package it.bancaditalia.oss.sdmx.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
+import it.bancaditalia.oss.sdmx.api.Dataflow;
+import it.bancaditalia.oss.sdmx.api.Dimension;
+import it.bancaditalia.oss.sdmx.api.DoubleTimeSeries;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.api.SdmxAttribute;
+import it.bancaditalia.oss.sdmx.api.SdmxAttribute.AttachmentLevel;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.parser.v21.CompactDataParser;
+import it.bancaditalia.oss.sdmx.parser.v21.DataStructureParser;
+import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
+import it.bancaditalia.oss.sdmx.util.SdmxGenerator;
+import it.bancaditalia.oss.sdmx.util.XmlStreams;
+
+/**
+ * The synthetic SDMX-ML messages of the benchmarks. All the data messages use the BENCH_DSD structure, with three
+ * dimensions, two series attributes and two observation attributes, and mix annual, quarterly and monthly series.
+ * The structure messages only differ in the size of the CL_SERIES codelist, which comes first.
+ * <p>
+ * The small fixtures are resources written by {@link SdmxGenerator}, with the default seed:
+ * 
+ * <pre>
+ * SdmxGenerator -c 100 -m structure structure-small.xml
+ * SdmxGenerator -n 10 -o 100 -m data data-small.xml
+ * </pre>
+ * 
+ * The medium and huge ones are generated in the setup of the benchmarks, with the same seed:
+ * 
+ * <pre>
+ * SdmxGenerator -c 5000 -m structure structure-medium.xml.gz
+ * SdmxGenerator -c 100000 -m structure structure-huge.xml.gz
+ * SdmxGenerator -n 100 -o 500 -m data data-medium.xml.gz
+ * SdmxGenerator -n 1000 -o 500 -m data data-huge.xml.gz
+ * SdmxGenerator -d 5000 -m dataflows dataflows-medium.xml.gz
+ * </pre>
+ * 
+ * The SDMX-CSV and SDMX-JSON forms of a data fixture are rendered from its parsed series, and hold the same series.
+ */
+final class Fixtures
+{
+	// data-small.xml: 10 series of 100 observations
+	static final int	SMALL_OBSERVATIONS	= 1000;
+	// data-medium: 100 series of 500 observations
+	static final int	MEDIUM_OBSERVATIONS	= 50000;
+	// data-huge: 1000 series of 500 observations
+	static final int	HUGE_OBSERVATIONS	= 500000;
+
+	private Fixtures()
+	{
+	}
+
+	/**
+	 * Returns the text of a fixture, read or generated in memory, so that the benchmarks do not measure any I/O.
+	 */
+	static String load(String name) throws IOException
+	{
+		InputStream stream = Fixtures.class.getResourceAsStream(name + ".xml");
+		if (stream != null)
+			try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8))
+			{
+				StringBuilder text = new StringBuilder();
+				char[] buffer = new char[1 << 16];
+				for (int read = reader.read(buffer); read >= 0; read = reader.read(buffer))
+					text.append(buffer, 0, read);
+				return text.toString();
+			}
+
+		StringWriter text = new StringWriter();
+		switch (name)
+		{
+			case "structure-medium":
+				new SdmxGenerator().setCodes(5000).writeStructure(text);
+				break;
+			case "structure-huge":
+				new SdmxGenerator().setCodes(100000).writeStructure(text);
+				break;
+			case "data-medium":
+				new SdmxGenerator().setSeries(100).setObservations(500).writeData(text);
+				break;
+			case "data-huge":
+				new SdmxGenerator().setSeries(1000).setObservations(500).writeData(text);
+				break;
+			case "dataflows-medium":
+				new SdmxGenerator().setDataflows(5000).writeDataflows(text);
+				break;
+			default:
+				throw new IOException("Missing benchmark fixture " + name);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Renders a data fixture as an SDMX-CSV message, with a row for each observation.
+	 */
+	static String csv(String message) throws Exception
+	{
+		DataFlowStructure dsd = dsd();
+		List<String> columns = new ArrayList<>();
+		columns.add("DATAFLOW");
+		for (Dimension dimension : dsd.getDimensions())
+			columns.add(dimension.getId());
+		columns.add(dsd.getTimeDimension());
+		columns.add(dsd.getMeasure());
+		List<String> seriesAttributes = attributes(dsd, true);
+		List<String> obsAttributes = attributes(dsd, false);
+		columns.addAll(obsAttributes);
+		columns.addAll(seriesAttributes);
+
+		StringBuilder csv = new StringBuilder(message.length() / 2);
+		csv.append(join(columns)).append('\n');
+		String flow = dataflow().getAgency() + ":" + dataflow().getId() + "(" + dataflow().getVersion() + ")";
+		for (DoubleTimeSeries ts : parse(message, dsd))
+		{
+			StringBuilder key = new StringBuilder(flow);
+			for (Dimension dimension : dsd.getDimensions())
+				key.append(',').append(ts.getDimension(dimension.getId()));
+			StringBuilder attributes = new StringBuilder();
+			for (String attribute : seriesAttributes)
+				attributes.append(',').append(orEmpty(ts.getAttribute(attribute)));
+
+			for (int i = 0; i < ts.size(); i++)
+			{
+				csv.append(key).append(',').append(ts.getTimeslotAt(i)).append(',');
+				if (!ts.isMissing(i))
+					csv.append(ts.getValueAt(i));
+				for (String attribute : obsAttributes)
+					csv.append(',').append(orEmpty(ts.getAttributeAt(i, attribute)));
+				csv.append(attributes).append('\n');
+			}
+		}
+		return csv.toString();
+	}
+
+	/**
+	 * Renders a data fixture as an SDMX-JSON message, with the series dimensions and the time dimension indexed by
+	 * position.
+	 */
+	static String json(String message) throws Exception
+	{
+		DataFlowStructure dsd = dsd();
+		List<Dimension> dimensions = dsd.getDimensions();
+		List<String> seriesAttributes = attributes(dsd, true);
+		List<String> obsAttributes = attributes(dsd, false);
+		// key: component --> its values, by index
+		Map<String, Map<String, Integer>> values = new LinkedHashMap<>();
+
+		StringBuilder series = new StringBuilder(message.length());
+		for (DoubleTimeSeries ts : parse(message, dsd))
+		{
+			series.append(series.length() > 0 ? ",\"" : "\"");
+			for (int d = 0; d < dimensions.size(); d++)
+				series.append(d > 0 ? ":" : "").append(index(values, dimensions.get(d).getId(), ts.getDimension(dimensions.get(d).getId())));
+			series.append("\":{\"attributes\":[");
+			for (int a = 0; a < seriesAttributes.size(); a++)
+				series.append(a > 0 ? "," : "").append(index(values, seriesAttributes.get(a), ts.getAttribute(seriesAttributes.get(a))));
+			series.append("],\"observations\":{");
+			for (int i = 0; i < ts.size(); i++)
+			{
+				series.append(i > 0 ? ",\"" : "\"").append(index(values, dsd.getTimeDimension(), ts.getTimeslotAt(i)));
+				series.append("\":[").append(ts.isMissing(i) ? "null" : Double.toString(ts.getValueAt(i)));
+				for (String attribute : obsAttributes)
+					series.append(',').append(index(values, attribute, ts.getAttributeAt(i, attribute)));
+				series.append(']');
+			}
+			series.append("}}");
+		}
+
+		StringBuilder json = new StringBuilder(series.length() + 1024);
+		json.append("{\"dataSets\":[{\"action\":\"Replace\",\"series\":{").append(series).append("}}],");
+		json.append("\"structure\":{\"dimensions\":{\"series\":[");
+		for (int d = 0; d < dimensions.size(); d++)
+			component(json.append(d > 0 ? "," : ""), dimensions.get(d).getId(), null, values);
+		component(json.append("],\"observation\":["), dsd.getTimeDimension(), "time", values);
+		json.append("]},\"attributes\":{\"series\":[");
+		for (int a = 0; a < seriesAttributes.size(); a++)
+			component(json.append(a > 0 ? "," : ""), seriesAttributes.get(a), null, values);
+		json.append("],\"observation\":[");
+		for (int a = 0; a < obsAttributes.size(); a++)
+			component(json.append(a > 0 ? "," : ""), obsAttributes.get(a), null, values);
+		return json.append("]}}}").toString();
+	}
+
+	private static List<DoubleTimeSeries> parse(String message, DataFlowStructure dsd) throws Exception
+	{
+		List<DoubleTimeSeries> result = new ArrayList<>();
+		for (PortableTimeSeries<Double> ts : new CompactDataParser(dsd, dataflow(), true)
+				.parse(XmlStreams.createStreamReader(new StringReader(message)), LanguagePriorityList.ANY))
+			result.add((DoubleTimeSeries) ts);
+		return result;
+	}
+
+	// the attributes attached to the series, or to the observations
+	private static List<String> attributes(DataFlowStructure dsd, boolean series)
+	{
+		List<String> result = new ArrayList<>();
+		for (SdmxAttribute attribute : dsd.getAttributes())
+			if ((attribute.getAttachmentLevel() == AttachmentLevel.OBSERVATION) != series)
+				result.add(attribute.getId());
+		return result;
+	}
+
+	// the index of a value of a component, or null if the value is missing
+	private static Integer index(Map<String, Map<String, Integer>> values, String component, String value)
+	{
+		if (!values.containsKey(component))
+			values.put(component, new LinkedHashMap<String, Integer>());
+		if (value == null)
+			return null;
+		Map<String, Integer> indexes = values.get(component);
+		if (!indexes.containsKey(value))
+			indexes.put(value, indexes.size());
+		return indexes.get(value);
+	}
+
+	private static void component(StringBuilder json, String id, String role, Map<String, Map<String, Integer>> values)
+	{
+		json.append("{\"id\":\"").append(id).append('"');
+		if (role != null)
+			json.append(",\"role\":\"").append(role).append('"');
+		json.append(",\"values\":[");
+		boolean first = true;
+		if (values.containsKey(id))
+			for (String value : values.get(id).keySet())
+			{
+				json.append(first ? "{\"id\":\"" : ",{\"id\":\"").append(value).append("\"}");
+				first = false;
+			}
+		json.append("]}");
+	}
+
+	private static String join(List<String> fields)
+	{
+		StringBuilder line = new StringBuilder();
+		for (String field : fields)
+			line.append(line.length() > 0 ? "," : "").append(field);
+		return line.toString();
+	}
+
+	private static String orEmpty(String value)
+	{
+		return value != null ? value : "";
+	}
+
+	static DataFlowStructure dsd() throws IOException, XMLStreamException, SdmxException
+	{
+		List<DataFlowStructure> structures = new DataStructureParser().parse(
+				XmlStreams.createStreamReader(new StringReader(load("structure-small"))), LanguagePriorityList.ANY);
+		return structures.get(0);
+	}
+
+	static Dataflow dataflow()
+	{
+		Dataflow dataflow = new Dataflow();
+		dataflow.setId("BENCH");
+		dataflow.setAgency("BENCH");
+		dataflow.setVersion("1.0");
+		return dataflow;
+	}
+}
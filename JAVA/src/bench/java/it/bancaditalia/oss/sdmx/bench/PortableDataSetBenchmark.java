@@ -0,0 +1,101 @@
+package it.bancaditalia.oss.sdmx.bench;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import it.bancaditalia.oss.sdmx.api.PortableDataSet;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.parser.v21.CompactDataParser;
+import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
+import it.bancaditalia.oss.sdmx.util.XmlStreams;
+
+/**
+ * Throughput of building a {@link PortableDataSet} from parsed series and of dumping it, in observations per second.
+ * The series are parsed once in the setup, so only the data model is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+public class PortableDataSetBenchmark
+{
+	private List<PortableTimeSeries<Double>>	medium;
+	private List<PortableTimeSeries<Double>>	huge;
+	private PortableDataSet<Double>				mediumDataSet;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		medium = parse("data-medium");
+		huge = parse("data-huge");
+		mediumDataSet = new PortableDataSet<>(medium);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(Fixtures.MEDIUM_OBSERVATIONS)
+	public PortableDataSet<Double> buildMedium() throws Exception
+	{
+		return new PortableDataSet<>(medium);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(Fixtures.HUGE_OBSERVATIONS)
+	public PortableDataSet<Double> buildHuge() throws Exception
+	{
+		return new PortableDataSet<>(huge);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(Fixtures.MEDIUM_OBSERVATIONS)
+	public void writeMedium(final Blackhole blackhole) throws IOException
+	{
+		mediumDataSet.writeTo(new Writer() {
+			@Override
+			public void write(char[] buffer, int offset, int length)
+			{
+				blackhole.consume(buffer);
+			}
+
+			@Override
+			public Writer append(CharSequence text)
+			{
+				blackhole.consume(text);
+				return this;
+			}
+
+			@Override
+			public void flush()
+			{
+			}
+
+			@Override
+			public void close()
+			{
+			}
+		});
+	}
+
+	private static List<PortableTimeSeries<Double>> parse(String name) throws Exception
+	{
+		return new CompactDataParser(Fixtures.dsd(), Fixtures.dataflow(), true).parse(
+				XmlStreams.createStreamReader(new StringReader(Fixtures.load(name))), LanguagePriorityList.ANY);
+	}
+}
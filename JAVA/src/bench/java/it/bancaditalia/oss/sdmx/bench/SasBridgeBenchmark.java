@@ -0,0 +1,141 @@
+package it.bancaditalia.oss.sdmx.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.client.SASClientHandler;
+import it.bancaditalia.oss.sdmx.client.SdmxClientHandler;
+import it.bancaditalia.oss.sdmx.util.SdmxGenerator;
+
+/**
+ * Latency of importing a query into SAS through {@link SASClientHandler}, on generated messages read by a local
+ * provider: filling the caches, then reading them back with one call per cell, as the data step of gettimeseries.sas
+ * did, and with one call per block of rows, as it does now; then reading the query a page at a time while it is
+ * parsed. The caches are filled once in the setup, and each benchmark runs in its own fork, because the handler keeps
+ * them in static fields.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+public class SasBridgeBenchmark
+{
+	private static final String	PROVIDER	= "SAS_BENCH";
+	private static final String	QUERY		= "BENCH/all";
+	private static final int	BLOCK_ROWS	= 1000;
+	private static final int	PAGE_ROWS	= 10000;
+
+	@Param({ "200" })
+	public int					series;
+
+	@Param({ "1000" })
+	public int					observations;
+
+	@Param({ "0.5" })
+	public double				density;
+
+	private File				directory;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		directory = Files.createTempDirectory("sdmx-sas").toFile();
+		new SdmxGenerator().setSeries(series).setObservations(observations).setAttributeDensity(density)
+				.writeFiles(directory);
+		SdmxClientHandler.addLocalProvider(PROVIDER, directory.getPath(), "Synthetic messages");
+		SASClientHandler.makeGetTimeSeries(PROVIDER, QUERY, null, null);
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		for (File file : directory.listFiles())
+			file.delete();
+		directory.delete();
+	}
+
+	@Benchmark
+	public List<PortableTimeSeries<Double>> parsingOnly() throws Exception
+	{
+		return SdmxClientHandler.getTimeSeries(PROVIDER, QUERY, null, null);
+	}
+
+	@Benchmark
+	public int makeGetTimeSeries() throws Exception
+	{
+		return SASClientHandler.makeGetTimeSeries(PROVIDER, QUERY, null, null);
+	}
+
+	@Benchmark
+	public void callPerCell(Blackhole blackhole) throws Exception
+	{
+		for (int i = 0; i < SASClientHandler.getNumberOfData(); i++)
+		{
+			blackhole.consume(SASClientHandler.getDataName(i));
+			blackhole.consume(SASClientHandler.getDataTimestamp(i));
+			blackhole.consume(SASClientHandler.getDataObservation(i));
+		}
+		for (int i = 0; i < SASClientHandler.getNumberOfMeta(); i++)
+		{
+			blackhole.consume(SASClientHandler.getMetaName(i));
+			blackhole.consume(SASClientHandler.getMetaKey(i));
+			blackhole.consume(SASClientHandler.getMetaValue(i));
+			blackhole.consume(SASClientHandler.getMetaType(i));
+		}
+		for (int i = 0; i < SASClientHandler.getNumberOfObsMeta(); i++)
+		{
+			blackhole.consume(SASClientHandler.getObsMetaName(i));
+			blackhole.consume(SASClientHandler.getObsMetaKey(i));
+			blackhole.consume(SASClientHandler.getObsMetaValue(i));
+			blackhole.consume(SASClientHandler.getObsMetaDate(i));
+		}
+	}
+
+	@Benchmark
+	public void callPerBlock(Blackhole blackhole) throws Exception
+	{
+		for (int i = 0; i < SASClientHandler.getNumberOfData();)
+			i += rows(SASClientHandler.getDataBlock(i, BLOCK_ROWS), blackhole);
+		for (int i = 0; i < SASClientHandler.getNumberOfMeta();)
+			i += rows(SASClientHandler.getMetaBlock(i, BLOCK_ROWS), blackhole);
+		for (int i = 0; i < SASClientHandler.getNumberOfObsMeta();)
+			i += rows(SASClientHandler.getObsMetaBlock(i, BLOCK_ROWS), blackhole);
+	}
+
+	@Benchmark
+	public void pages(Blackhole blackhole) throws Exception
+	{
+		SASClientHandler.openTimeSeries(PROVIDER, QUERY, null, null);
+		while (SASClientHandler.fetchPage(PAGE_ROWS) > 0)
+			for (int i = 0; i < SASClientHandler.getNumberOfData();)
+				i += rows(SASClientHandler.getDataBlock(i, BLOCK_ROWS), blackhole);
+	}
+
+	private static int rows(String block, Blackhole blackhole)
+	{
+		blackhole.consume(block);
+		int rows = 0;
+		for (int i = block.indexOf('\n'); i >= 0; i = block.indexOf('\n', i + 1))
+			rows++;
+		return rows;
+	}
+}
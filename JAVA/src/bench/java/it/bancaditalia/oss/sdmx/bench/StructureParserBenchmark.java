@@ -0,0 +1,62 @@
+package it.bancaditalia.oss.sdmx.bench;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.bancaditalia.oss.sdmx.api.Codelist;
+import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
+import it.bancaditalia.oss.sdmx.parser.v21.CodelistParser;
+import it.bancaditalia.oss.sdmx.parser.v21.DataStructureParser;
+import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
+import it.bancaditalia.oss.sdmx.util.XmlStreams;
+
+/**
+ * Latency of {@link DataStructureParser} and {@link CodelistParser} on the structure fixtures, whose CL_SERIES
+ * codelist has 100 (small), 5000 (medium) or 100000 (huge) codes. The codelist parser stops after CL_SERIES.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StructureParserBenchmark
+{
+	@Param({ "small", "medium", "huge" })
+	public String	size;
+
+	private String	message;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		message = Fixtures.load("structure-" + size);
+	}
+
+	@Benchmark
+	public List<DataFlowStructure> dataStructure() throws Exception
+	{
+		return new DataStructureParser().parse(XmlStreams.createStreamReader(new StringReader(message)),
+				LanguagePriorityList.ANY);
+	}
+
+	@Benchmark
+	public Codelist codelist() throws Exception
+	{
+		return new CodelistParser().parse(XmlStreams.createStreamReader(new StringReader(message)),
+				LanguagePriorityList.ANY);
+	}
+}
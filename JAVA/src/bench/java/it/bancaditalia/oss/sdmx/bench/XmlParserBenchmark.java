@@ -0,0 +1,82 @@
+package it.bancaditalia.oss.sdmx.bench;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLInputFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.bancaditalia.oss.sdmx.client.Parser;
+import it.bancaditalia.oss.sdmx.parser.v21.CodelistParser;
+import it.bancaditalia.oss.sdmx.parser.v21.CompactDataParser;
+import it.bancaditalia.oss.sdmx.parser.v21.DataStructureParser;
+import it.bancaditalia.oss.sdmx.parser.v21.DataflowParser;
+import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
+import it.bancaditalia.oss.sdmx.util.XmlStreams;
+
+/**
+ * Latency of the SDMX-ML parsers on the medium fixtures when they read a message with the StAX event API, through a
+ * new factory as {@code RestSdmxClient} did, and with the cursor API through the shared factory. With
+ * {@code -prof gc}, {@code gc.alloc.rate.norm} compares the heap allocated per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+public class XmlParserBenchmark
+{
+	@Param({ "data", "codelist", "datastructure", "dataflow" })
+	public String		parser;
+
+	private Parser<?>	instance;
+	private String		message;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		switch (parser)
+		{
+			case "data":
+				instance = new CompactDataParser(Fixtures.dsd(), Fixtures.dataflow(), true);
+				message = Fixtures.load("data-medium");
+				break;
+			case "codelist":
+				instance = new CodelistParser();
+				message = Fixtures.load("structure-medium");
+				break;
+			case "datastructure":
+				instance = new DataStructureParser();
+				message = Fixtures.load("structure-medium");
+				break;
+			default:
+				instance = new DataflowParser();
+				message = Fixtures.load("dataflows-medium");
+		}
+	}
+
+	@Benchmark
+	public Object events() throws Exception
+	{
+		XMLInputFactory factory = XMLInputFactory.newFactory();
+		return instance.parse(factory.createXMLEventReader(new StringReader(message)), LanguagePriorityList.ANY);
+	}
+
+	@Benchmark
+	public Object cursor() throws Exception
+	{
+		return instance.parse(XmlStreams.createStreamReader(new StringReader(message)), LanguagePriorityList.ANY);
+	}
+}
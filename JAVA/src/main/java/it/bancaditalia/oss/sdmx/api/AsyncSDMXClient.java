@@ -0,0 +1,97 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.api;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Asynchronous counterpart of {@link GenericSDMXClient}. Each method submits the corresponding blocking call to the
+ * executor of this client and returns immediately. Any {@link it.bancaditalia.oss.sdmx.exceptions.SdmxException}
+ * raised by the call is reported as the cause of the {@link java.util.concurrent.ExecutionException} thrown by
+ * {@link Future#get()}.
+ * 
+ * @see GenericSDMXClient
+ */
+public interface AsyncSDMXClient
+{
+	/**
+	 * <p>Sets the executor that runs the queries of this client
+	 * @param executor a non-null executor
+	 */
+	public void setExecutor(ExecutorService executor);
+
+	/**
+	 * @return the executor that runs the queries of this client
+	 */
+	public ExecutorService getExecutor();
+
+	/**
+	 * <p>Gets all the dataflows from this provider
+	 * @return the future result of {@link GenericSDMXClient#getDataflows()}
+	 */
+	public Future<Map<String, Dataflow>> getDataflowsAsync();
+
+	/**
+	 * <p>Gets the dataflow information for the given dataflow id
+	 * @param dataFlow name of the dataflow
+	 * @param agency name of the agency
+	 * @param version dataflow version
+	 * @return the future result of {@link GenericSDMXClient#getDataflow(String, String, String)}
+	 */
+	public Future<Dataflow> getDataflowAsync(String dataFlow, String agency, String version);
+
+	/**
+	 * <p>Gets the basic dsd structure for the given dataflow
+	 * @param dsd a non-null dsd identifier
+	 * @param full if true, for 2.1 providers it retrieves the full dsd, with all the codelists.
+	 * @return the future result of {@link GenericSDMXClient#getDataFlowStructure(DSDIdentifier, boolean)}
+	 */
+	public Future<DataFlowStructure> getDataFlowStructureAsync(DSDIdentifier dsd, boolean full);
+
+	/**
+	 * <p>Gets all the codes from this provider for the specified codelist
+	 * @param codeList name of the codelist to get
+	 * @param agency agency of the codelist to get
+	 * @param version version of the codelist to get
+	 * @return the future result of {@link GenericSDMXClient#getCodes(String, String, String)}
+	 */
+	public Future<Map<String, String>> getCodesAsync(String codeList, String agency, String version);
+
+	/**
+	 * <p>Gets a time series list with the specified classification keys.
+	 * 
+	 * @param dataflow the dataflow of the time series to be gathered
+	 * @param dsd the structure of the dataflow of the time series to be gathered
+	 * @param resource the id of the time series
+	 * @param startTime start time of the observations to be gathered
+	 * @param endTime end time of the observations to be gathered
+	 * @param seriesKeyOnly boolean flag for disabling data and attributes processing
+	 * @param updatedAfter if set, only data updated after the given date will be retrieved (e.g. '2014-01-01')
+	 * @param includeHistory boolean flag for enabling getting the history of revisions
+	 * @return the future result of
+	 *         {@link GenericSDMXClient#getTimeSeries(Dataflow, DataFlowStructure, String, String, String, boolean, String, boolean)}
+	 */
+	public Future<List<PortableTimeSeries<Double>>> getTimeSeriesAsync(Dataflow dataflow, DataFlowStructure dsd, String resource,
+			String startTime, String endTime, boolean seriesKeyOnly, String updatedAfter, boolean includeHistory);
+}
@@ -6,6 +6,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+import it.bancaditalia.oss.sdmx.util.TimePeriod;
 import it.bancaditalia.oss.sdmx.util.Utils.BiFunction;
 import it.bancaditalia.oss.sdmx.util.Utils.Function;
 
@@ -24,6 +25,8 @@ public abstract class BaseObservation<T> implements Serializable, Comparable<Bas
 
 	protected final String				timeslot;
 	protected final Map<String, String>	obsAttributes;
+	// the encoded timeslot, computed at the first comparison (0 is never a valid code)
+	private transient long				period;
 
 	/**
 	 * Creates an immutable observation from given values.
@@ -151,7 +154,14 @@ public abstract class BaseObservation<T> implements Serializable, Comparable<Bas
 	@Override
 	public int compareTo(BaseObservation<?> other)
 	{
-		return timeslot.compareToIgnoreCase(other.timeslot);
+		return TimePeriod.compare(getPeriod(), timeslot, other.getPeriod(), other.timeslot);
+	}
+
+	private long getPeriod()
+	{
+		if (period == 0)
+			period = TimePeriod.encode(timeslot);
+		return period;
 	}
 
 }
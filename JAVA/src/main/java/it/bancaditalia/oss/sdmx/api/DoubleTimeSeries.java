@@ -0,0 +1,573 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.api;
+
+import java.io.Serializable;
+import java.security.InvalidParameterException;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import it.bancaditalia.oss.sdmx.util.TimePeriod;
+
+/**
+ * A time series of {@code double} values stored by column: the values are kept in a {@code double[]} with a bitmap
+ * of the missing ones, and the timeslots in a {@code String[]}. Observation-level attributes are kept in one column
+ * per attribute name, holding codes into a dictionary of the distinct values of this series. Observations are built
+ * only when the series is accessed through its {@link java.util.List} view, so the primitive accessors should be
+ * preferred.
+ */
+public class DoubleTimeSeries extends PortableTimeSeries<Double>
+{
+	private static final long	serialVersionUID	= 1L;
+
+	private final Observations	columns;
+
+	/**
+	 * Creates an empty time series, ready to be populated
+	 */
+	public DoubleTimeSeries()
+	{
+		this(new Observations());
+	}
+
+	/**
+	 * Build an empty series which has the same attributes and dimensions as another non-null series
+	 * 
+	 * @param other The original series to copy
+	 */
+	public DoubleTimeSeries(PortableTimeSeries<?> other)
+	{
+		this(other, new Observations());
+	}
+
+	/**
+	 * @return A copy of this series and of its observations, that can be changed independently of it.
+	 */
+	public DoubleTimeSeries copy()
+	{
+		return new DoubleTimeSeries(this, columns.copy());
+	}
+
+	private DoubleTimeSeries(Observations columns)
+	{
+		super(columns);
+		this.columns = columns;
+	}
+
+	private DoubleTimeSeries(PortableTimeSeries<?> other, Observations columns)
+	{
+		super(other, columns);
+		this.columns = columns;
+	}
+
+	/**
+	 * Appends an observation without creating an observation object.
+	 * 
+	 * @param timeslot The timestamp of the observation, not null or empty.
+	 * @param value The value of the observation
+	 * @param obsAttributes The observation-level attributes, or null.
+	 */
+	public void add(String timeslot, double value, Map<String, String> obsAttributes)
+	{
+		columns.insert(columns.size, timeslot, value, false, obsAttributes);
+	}
+
+	/**
+	 * Appends an observation whose value is missing. Its value is {@link Double#NaN}.
+	 * 
+	 * @param timeslot The timestamp of the observation, not null or empty.
+	 * @param obsAttributes The observation-level attributes, or null.
+	 */
+	public void addMissing(String timeslot, Map<String, String> obsAttributes)
+	{
+		columns.insert(columns.size, timeslot, Double.NaN, true, obsAttributes);
+	}
+
+	/**
+	 * @param index The index of an observation.
+	 * @return The value of the observation.
+	 */
+	public double getValueAt(int index)
+	{
+		columns.check(index);
+		return columns.values[index];
+	}
+
+	/**
+	 * @param index The index of an observation.
+	 * @return True if the value of the observation is missing.
+	 */
+	public boolean isMissing(int index)
+	{
+		columns.check(index);
+		return columns.missing.get(index);
+	}
+
+	/**
+	 * @param index The index of an observation.
+	 * @return The timeslot of the observation.
+	 */
+	public String getTimeslotAt(int index)
+	{
+		columns.check(index);
+		return columns.timeslots[index];
+	}
+
+	/**
+	 * @param index The index of an observation.
+	 * @return The attributes of the observation, never null.
+	 */
+	public Map<String, String> getAttributesAt(int index)
+	{
+		columns.check(index);
+		return columns.attributes(index);
+	}
+
+	/**
+	 * @param index The index of an observation.
+	 * @param name The name of an observation-level attribute.
+	 * @return The value of the attribute for the observation, or null.
+	 */
+	public String getAttributeAt(int index, String name)
+	{
+		columns.check(index);
+		return columns.attribute(index, name);
+	}
+
+	/**
+	 * Sets an observation-level attribute of an observation, without creating a map of attributes.
+	 * 
+	 * @param index The index of an observation.
+	 * @param name The name of an observation-level attribute.
+	 * @param value The value of the attribute, or null to remove it.
+	 */
+	public void setAttributeAt(int index, String name, String value)
+	{
+		columns.check(index);
+		columns.setAttribute(index, name, value);
+	}
+
+	/**
+	 * @return A copy of the values of this series, in the same order as the observations.
+	 */
+	public double[] getValues()
+	{
+		return Arrays.copyOf(columns.values, columns.size);
+	}
+
+	/**
+	 * @return A copy of the timeslots of this series, in the same order as the observations.
+	 */
+	public String[] getTimeslots()
+	{
+		return Arrays.copyOf(columns.timeslots, columns.size);
+	}
+
+	/**
+	 * Sorts the observations by timeslot, with the same ordering as {@link BaseObservation#compareTo(BaseObservation)},
+	 * without building the observation objects.
+	 */
+	public void sortByTime()
+	{
+		columns.sort();
+	}
+
+	@Override
+	public Set<String> getObsLevelAttributesNames()
+	{
+		Set<String> result = new LinkedHashSet<>();
+		for (int a = 0; a < columns.attributeCount; a++)
+			for (int i = 0; i < columns.size; i++)
+				if (columns.codes[a][i] != 0)
+				{
+					result.add(columns.names[a]);
+					break;
+				}
+		return result;
+	}
+
+	@Override
+	public List<String> getObsLevelAttributes(String attributeName)
+	{
+		final Integer a = columns.attributeIndex.get(attributeName);
+		return new AbstractList<String>() {
+			@Override
+			public String get(int index)
+			{
+				columns.check(index);
+				return a == null ? null : columns.decode(columns.codes[a][index]);
+			}
+
+			@Override
+			public int size()
+			{
+				return columns.size;
+			}
+		};
+	}
+
+	// the columns, seen as a list of observations
+	private static class Observations extends AbstractList<BaseObservation<? extends Double>> implements RandomAccess, Serializable
+	{
+		private static final long				serialVersionUID	= 1L;
+		private static final int[]				NO_CODES			= new int[0];
+
+		private int								size				= 0;
+		private double[]						values				= new double[16];
+		private String[]						timeslots			= new String[16];
+		private BitSet							missing				= new BitSet();
+
+		// attribute names and their columns of codes; 0 means absent, n the n-th value of the dictionary
+		private int								attributeCount		= 0;
+		private String[]						names				= new String[0];
+		private int[][]							codes				= new int[0][];
+		private final Map<String, Integer>		attributeIndex		= new HashMap<>();
+		// append only, so that the observations built from the columns stay valid
+		private String[]						dictionary			= new String[8];
+		private int								dictionarySize		= 0;
+		private final Map<String, Integer>		dictionaryIndex		= new HashMap<>();
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+
+		@Override
+		public BaseObservation<? extends Double> get(int index)
+		{
+			check(index);
+			if (missing.get(index))
+				return new MissingObservation(timeslots[index], attributes(index));
+			return new DoubleObservation(timeslots[index], values[index], attributes(index));
+		}
+
+		@Override
+		public BaseObservation<? extends Double> set(int index, BaseObservation<? extends Double> element)
+		{
+			BaseObservation<? extends Double> old = get(index);
+			timeslots[index] = element.getTimeslot();
+			values[index] = element.getValueAsDouble();
+			missing.set(index, element instanceof MissingObservation);
+			setAttributes(index, element.obsAttributes);
+			return old;
+		}
+
+		@Override
+		public void add(int index, BaseObservation<? extends Double> element)
+		{
+			if (index < 0 || index > size)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			insert(index, element.getTimeslot(), element.getValueAsDouble(), element instanceof MissingObservation,
+					element.obsAttributes);
+		}
+
+		@Override
+		public BaseObservation<? extends Double> remove(int index)
+		{
+			BaseObservation<? extends Double> old = get(index);
+			int moved = size - index - 1;
+			System.arraycopy(values, index + 1, values, index, moved);
+			System.arraycopy(timeslots, index + 1, timeslots, index, moved);
+			for (int a = 0; a < attributeCount; a++)
+			{
+				System.arraycopy(codes[a], index + 1, codes[a], index, moved);
+				codes[a][size - 1] = 0;
+			}
+			for (int i = index; i < size - 1; i++)
+				missing.set(i, missing.get(i + 1));
+			missing.clear(size - 1);
+			size--;
+			timeslots[size] = null;
+			modCount++;
+			return old;
+		}
+
+		@Override
+		public void clear()
+		{
+			Arrays.fill(timeslots, 0, size, null);
+			for (int a = 0; a < attributeCount; a++)
+				Arrays.fill(codes[a], 0, size, 0);
+			missing.clear();
+			size = 0;
+			modCount++;
+		}
+
+		private Observations copy()
+		{
+			Observations copy = new Observations();
+			copy.size = size;
+			copy.values = values.clone();
+			copy.timeslots = timeslots.clone();
+			copy.missing = (BitSet) missing.clone();
+			copy.attributeCount = attributeCount;
+			copy.names = names.clone();
+			copy.codes = new int[attributeCount][];
+			for (int a = 0; a < attributeCount; a++)
+				copy.codes[a] = codes[a].clone();
+			copy.attributeIndex.putAll(attributeIndex);
+			copy.dictionary = dictionary.clone();
+			copy.dictionarySize = dictionarySize;
+			copy.dictionaryIndex.putAll(dictionaryIndex);
+			return copy;
+		}
+
+		private void insert(int index, String timeslot, double value, boolean isMissing, Map<String, String> obsAttributes)
+		{
+			if (timeslot == null || timeslot.isEmpty())
+				throw new InvalidParameterException("The timeslot for an observation cannot be null or empty.");
+
+			if (size == values.length)
+			{
+				int capacity = size * 2;
+				values = Arrays.copyOf(values, capacity);
+				timeslots = Arrays.copyOf(timeslots, capacity);
+				for (int a = 0; a < attributeCount; a++)
+					codes[a] = Arrays.copyOf(codes[a], capacity);
+			}
+			if (index < size)
+			{
+				int moved = size - index;
+				System.arraycopy(values, index, values, index + 1, moved);
+				System.arraycopy(timeslots, index, timeslots, index + 1, moved);
+				for (int a = 0; a < attributeCount; a++)
+					System.arraycopy(codes[a], index, codes[a], index + 1, moved);
+				for (int i = size; i > index; i--)
+					missing.set(i, missing.get(i - 1));
+			}
+			values[index] = value;
+			timeslots[index] = timeslot;
+			missing.set(index, isMissing);
+			size++;
+			setAttributes(index, obsAttributes);
+			modCount++;
+		}
+
+		private void setAttributes(int index, Map<String, String> obsAttributes)
+		{
+			for (int a = 0; a < attributeCount; a++)
+				codes[a][index] = 0;
+			if (obsAttributes != null)
+				for (Entry<String, String> entry : obsAttributes.entrySet())
+					setAttribute(index, entry.getKey(), entry.getValue());
+		}
+
+		private void setAttribute(int index, String name, String value)
+		{
+			Integer a = attributeIndex.get(name);
+			if (a == null)
+			{
+				if (value == null)
+					return;
+				a = attributeCount++;
+				names = Arrays.copyOf(names, attributeCount);
+				codes = Arrays.copyOf(codes, attributeCount);
+				codes[a] = new int[values.length];
+				names[a] = name;
+				attributeIndex.put(name, a);
+			}
+			codes[a][index] = encode(value);
+		}
+
+		private int encode(String value)
+		{
+			if (value == null)
+				return 0;
+			Integer code = dictionaryIndex.get(value);
+			if (code == null)
+			{
+				if (dictionarySize == dictionary.length)
+					dictionary = Arrays.copyOf(dictionary, dictionarySize * 2);
+				dictionary[dictionarySize++] = value;
+				code = dictionarySize;
+				dictionaryIndex.put(value, code);
+			}
+			return code;
+		}
+
+		private String decode(int code)
+		{
+			return code == 0 ? null : dictionary[code - 1];
+		}
+
+		private String attribute(int index, String name)
+		{
+			Integer a = attributeIndex.get(name);
+			return a == null ? null : decode(codes[a][index]);
+		}
+
+		private Map<String, String> attributes(int index)
+		{
+			int[] row = NO_CODES;
+			for (int a = attributeCount - 1; a >= 0; a--)
+				if (codes[a][index] != 0)
+				{
+					if (row == NO_CODES)
+						row = new int[a + 1];
+					row[a] = codes[a][index];
+				}
+			return new Attributes(names, dictionary, row);
+		}
+
+		private void check(int index)
+		{
+			if (index < 0 || index >= size)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+
+		private void sort()
+		{
+			int[] order = TimePeriod.sortOrder(timeslots, size);
+			if (order == null)
+				return;
+
+			double[] sortedValues = new double[values.length];
+			String[] sortedTimeslots = new String[timeslots.length];
+			BitSet sortedMissing = new BitSet();
+			for (int i = 0; i < size; i++)
+			{
+				sortedValues[i] = values[order[i]];
+				sortedTimeslots[i] = timeslots[order[i]];
+				sortedMissing.set(i, missing.get(order[i]));
+			}
+			for (int a = 0; a < attributeCount; a++)
+			{
+				int[] sortedCodes = new int[codes[a].length];
+				for (int i = 0; i < size; i++)
+					sortedCodes[i] = codes[a][order[i]];
+				codes[a] = sortedCodes;
+			}
+			values = sortedValues;
+			timeslots = sortedTimeslots;
+			missing = sortedMissing;
+			modCount++;
+		}
+	}
+
+	// the attributes of an observation, decoded from a snapshot of its codes when they are read
+	private static class Attributes extends AbstractMap<String, String> implements Serializable
+	{
+		private static final long	serialVersionUID	= 1L;
+
+		private final String[]		names;
+		private final String[]		dictionary;
+		private final int[]			codes;
+
+		private Attributes(String[] names, String[] dictionary, int[] codes)
+		{
+			this.names = names;
+			this.dictionary = dictionary;
+			this.codes = codes;
+		}
+
+		@Override
+		public String get(Object key)
+		{
+			for (int a = 0; a < codes.length; a++)
+				if (codes[a] != 0 && names[a].equals(key))
+					return dictionary[codes[a] - 1];
+			return null;
+		}
+
+		@Override
+		public boolean containsKey(Object key)
+		{
+			return get(key) != null;
+		}
+
+		@Override
+		public Set<Entry<String, String>> entrySet()
+		{
+			return new AbstractSet<Entry<String, String>>() {
+				@Override
+				public Iterator<Entry<String, String>> iterator()
+				{
+					return new Iterator<Entry<String, String>>() {
+						private int next = advance(0);
+
+						@Override
+						public boolean hasNext()
+						{
+							return next < codes.length;
+						}
+
+						@Override
+						public Entry<String, String> next()
+						{
+							if (!hasNext())
+								throw new NoSuchElementException();
+							Entry<String, String> entry = new SimpleImmutableEntry<>(names[next], dictionary[codes[next] - 1]);
+							next = advance(next + 1);
+							return entry;
+						}
+
+						@Override
+						public void remove()
+						{
+							throw new UnsupportedOperationException();
+						}
+
+						private int advance(int from)
+						{
+							while (from < codes.length && codes[from] == 0)
+								from++;
+							return from;
+						}
+					};
+				}
+
+				@Override
+				public int size()
+				{
+					int count = 0;
+					for (int code : codes)
+						if (code != 0)
+							count++;
+					return count;
+				}
+			};
+		}
+	}
+
+	// an observation whose value is missing, so that it can be told apart from a NaN value when it is set back
+	private static class MissingObservation extends DoubleObservation
+	{
+		private static final long serialVersionUID = 1L;
+
+		private MissingObservation(String timeslot, Map<String, String> obsAttributes)
+		{
+			super(timeslot, Double.NaN, obsAttributes);
+		}
+	}
+}
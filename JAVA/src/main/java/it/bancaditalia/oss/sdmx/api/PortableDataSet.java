@@ -20,29 +20,37 @@
 */
 package it.bancaditalia.oss.sdmx.api;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.text.NumberFormat;
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.logging.Logger;
 
-import javax.swing.table.DefaultTableModel;
-
 import it.bancaditalia.oss.sdmx.exceptions.DataStructureException;
 import it.bancaditalia.oss.sdmx.util.Configuration;
+import it.bancaditalia.oss.sdmx.util.Utils;
 
 /**
  * Java container for a dataset/table. In the various statistical tools it will be transformed by a converter into a
  * native dataset.
+ * <p>
+ * The table is stored by column: numeric observations in a {@code double[]}, series-level metadata as runs of equal
+ * values, and everything else in an {@code Object[]}. Columns are looked up by name through a hash index.
  * 
  * @author Attilio Mattiocco
  *
  */
 public class PortableDataSet<T> implements Serializable
 {
-	private static final long serialVersionUID = 1L;
+	private static final long serialVersionUID = 2L;
 	
 	public static final String	TIME_LABEL		= "TIME_PERIOD";
 	public static final String	OBS_LABEL		= "OBS_VALUE";
@@ -55,14 +63,15 @@ public class PortableDataSet<T> implements Serializable
 	private boolean				numeric			= false;
 	private String				errorObjects	= null;
 
-	private DefaultTableModel	model			= null;
+	private final List<Column>			columns			= new ArrayList<>();
+	private final Map<String, Integer>	columnIndexes	= new HashMap<>();
+	private int							rows			= 0;
 
 	/**
 	 * Creates an empty dataset.
 	 */
 	public PortableDataSet()
 	{
-		model = new DefaultTableModel();
 	}
 
 	/**
@@ -86,14 +95,9 @@ public class PortableDataSet<T> implements Serializable
 	 */
 	public int getColumnIndex(String name) throws DataStructureException
 	{
-		int n = model.getColumnCount();
-		for (int i = 0; i < n; i++)
-		{
-			if (model.getColumnName(i).equals(name))
-			{
-				return (i);
-			}
-		}
+		Integer index = columnIndexes.get(name);
+		if (index != null)
+			return index;
 		throw new DataStructureException("Error: column " + name + " does not exist.");
 	}
 
@@ -102,7 +106,7 @@ public class PortableDataSet<T> implements Serializable
 	 */
 	public int getRowCount()
 	{
-		return model.getRowCount();
+		return rows;
 	}
 
 	/**
@@ -110,7 +114,7 @@ public class PortableDataSet<T> implements Serializable
 	 */
 	public int getColumnCount()
 	{
-		return model.getColumnCount();
+		return columns.size();
 	}
 
 	/**
@@ -124,7 +128,7 @@ public class PortableDataSet<T> implements Serializable
 	{
 		if (idx >= 0 && idx < getColumnCount())
 		{
-			return model.getColumnName(idx);
+			return columns.get(idx).name;
 		}
 		else
 		{
@@ -144,7 +148,7 @@ public class PortableDataSet<T> implements Serializable
 	{
 		if (row >= 0 && column >= 0 && row < getRowCount() && column < getColumnCount())
 		{
-			return model.getValueAt(row, column);
+			return columns.get(column).get(row);
 		}
 		else
 		{
@@ -158,14 +162,9 @@ public class PortableDataSet<T> implements Serializable
 	 */
 	public String[] getTimeStamps() throws DataStructureException
 	{
-		int rows = getRowCount();
 		String[] result = new String[rows];
-		int timeCol = getColumnIndex(TIME_LABEL);
-		for (int i = 0; i < rows; i++)
-		{
-			result[i] = (String) getValueAt(i, timeCol);
-		}
-		return (result);
+		columns.get(getColumnIndex(TIME_LABEL)).copyTo(result);
+		return result;
 	}
 
 	/**
@@ -174,13 +173,8 @@ public class PortableDataSet<T> implements Serializable
 	 */
 	public Object[] getObservations() throws DataStructureException
 	{
-		int rows = getRowCount();
 		Object[] result = new Object[rows];
-		int obsCol = getColumnIndex(OBS_LABEL);
-		for (int i = 0; i < rows; i++)
-		{
-			result[i] = getValueAt(i, obsCol);
-		}
+		columns.get(getColumnIndex(OBS_LABEL)).copyTo(result);
 		return result;
 	}
 
@@ -191,21 +185,13 @@ public class PortableDataSet<T> implements Serializable
 	 */
 	public String[] getMetadata(String name)
 	{
-		int rows = getRowCount();
+		Integer index = columnIndexes.get(name);
+		if (index == null)
+			return new String[0];
+
 		String[] result = new String[rows];
-		try
-		{
-			int obsCol = getColumnIndex(name);
-			for (int i = 0; i < rows; i++)
-			{
-				result[i] = (String) getValueAt(i, obsCol);
-			}
-		}
-		catch (DataStructureException e)
-		{
-			result = new String[0];
-		}
-		return (result);
+		columns.get(index).copyTo(result);
+		return result;
 	}
 
 	/**
@@ -257,29 +243,12 @@ public class PortableDataSet<T> implements Serializable
 	 */
 	public void addValue(int row, String columnName, Object value) throws DataStructureException
 	{
-		if (row >= model.getRowCount())
-		{
-			model.setRowCount(row + 1);
-		}
-		int idx = -1;
-		try
-		{
-			idx = getColumnIndex(columnName);
-		}
-		catch (DataStructureException e)
-		{
-			model.addColumn(columnName);
-			try
-			{
-				idx = getColumnIndex(columnName);
-			}
-			catch (DataStructureException e1)
-			{
-				logger.severe(e1.getMessage());
-				throw new DataStructureException("Unexpected error while adding column: " + columnName);
-			}
-		}
-		model.setValueAt(value, row, idx);
+		if (row < 0)
+			throw new DataStructureException("Error: negative row index " + row);
+		if (row >= rows)
+			rows = row + 1;
+		int idx = getOrAddColumn(columnName, new ObjectColumn(columnName));
+		columns.set(idx, columns.get(idx).fill(row, 1, value));
 	}
 
 	/**
@@ -341,41 +310,68 @@ public class PortableDataSet<T> implements Serializable
 	@Override
 	public String toString()
 	{
-		int rows = model.getRowCount();
-		int cols = model.getColumnCount();
-		String buffer = "";
+		StringBuilder buffer = new StringBuilder();
+		try
+		{
+			writeTo(buffer);
+		}
+		catch (IOException e)
+		{
+			// not thrown by a StringBuilder
+			throw new IllegalStateException(e);
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * Writes this dataset as text, one row per line with the column names on the first line, in the same format as
+	 * {@link #toString()}. Rows are written as they are read, so that large tables need not fit in a string.
+	 * 
+	 * @param out The destination of the text.
+	 * @throws IOException if out throws it.
+	 */
+	public void writeTo(Appendable out) throws IOException
+	{
+		writeTo(out, ";", null);
+	}
+
+	/**
+	 * Writes this dataset as text, one row per line with the column names on the first line.
+	 * 
+	 * @param out The destination of the text.
+	 * @param separator The separator of the fields.
+	 * @param format The format of the numeric values, or null to print them with {@link Object#toString()}.
+	 * @throws IOException if out throws it.
+	 */
+	public void writeTo(Appendable out, String separator, NumberFormat format) throws IOException
+	{
+		int cols = getColumnCount();
 		for (int j = 0; j < cols; j++)
 		{
 			if (j != 0)
-			{
-				buffer += ";";
-			}
-			buffer += model.getColumnName(j);
+				out.append(separator);
+			out.append(columns.get(j).name);
 		}
-		buffer += "\n";
+		out.append('\n');
 		for (int i = 0; i < rows; i++)
 		{
 			if (i != 0)
-			{
-				buffer += "\n";
-			}
+				out.append('\n');
 			for (int j = 0; j < cols; j++)
 			{
 				if (j != 0)
-				{
-					buffer += ";";
-				}
-				buffer += model.getValueAt(i, j);
+					out.append(separator);
+				out.append(Utils.format(columns.get(j).get(i), format));
 			}
 		}
-		return buffer;
 	}
 
 	private void putTimeSeries(PortableTimeSeries<?> ts, boolean allNumeric) throws DataStructureException
 	{
 		final String sourceMethod = "putTimeSeries";
 		logger.entering(sourceClass, sourceMethod);
-		int row = model.getRowCount();
+		int row = rows;
+		int size = ts.size();
 		setNumeric(allNumeric);
 
 		Set<String> attrNames = ts.getObsLevelAttributesNames();
@@ -388,33 +384,85 @@ public class PortableDataSet<T> implements Serializable
 			addErrorObjects(tsName);
 		}
 
-		// model.setRowCount(row + n);
+		if (size == 0)
+		{
+			logger.exiting(sourceClass, sourceMethod);
+			return;
+		}
+		rows += size;
+
+		// observation-level columns, one value per row
+		int timeCol = getOrAddColumn(TIME_LABEL, new ObjectColumn(TIME_LABEL));
+		boolean numericValues = allNumeric && ts.isNumeric();
+		int obsCol = getOrAddColumn(OBS_LABEL, numericValues ? new DoubleColumn(OBS_LABEL) : new ObjectColumn(OBS_LABEL));
+		if (tsName != null && !tsName.isEmpty())
+			fillColumn(ID_LABEL, row, size, tsName);
+		int[] attrCols = new int[attrNames.size()];
+		int i = 0;
+		for (String attrName : attrNames)
+			attrCols[i++] = getOrAddColumn(attrName, new ObjectColumn(attrName));
+
+		// series-level columns, one run per series
+		for (Entry<String, String> dim : ts.getDimensionsMap().entrySet())
+			fillColumn(dim.getKey(), row, size, dim.getValue());
+		for (Entry<String, String> dim : ts.getAttributesMap().entrySet())
+			fillColumn(dim.getKey(), row, size, dim.getValue());
+
+		Column time = columns.get(timeCol);
+		Column values = columns.get(obsCol);
+		Column[] attrs = new Column[attrCols.length];
+		for (i = 0; i < attrCols.length; i++)
+			attrs[i] = columns.get(attrCols[i]);
+
+		boolean bulkValues = values instanceof DoubleColumn && ts instanceof DoubleTimeSeries;
+		if (bulkValues)
+			((DoubleColumn) values).set(row, ((DoubleTimeSeries) ts).getValues());
 		for (BaseObservation<?> obs : ts)
 		{
-			Object val = allNumeric && ts.isNumeric() ? obs.getValueAsDouble() : obs.getValue();
-
-			addValue(row, TIME_LABEL, obs.getTimeslot());
-			addValue(row, OBS_LABEL, val);
-			if (tsName != null && !tsName.isEmpty())
-				addValue(row, ID_LABEL, tsName);
+			time = time.fill(row, 1, obs.getTimeslot());
+			if (values instanceof DoubleColumn)
+			{
+				if (!bulkValues)
+					((DoubleColumn) values).set(row, obs.getValueAsDouble());
+			}
+			else
+				values = values.fill(row, 1, numericValues ? obs.getValueAsDouble() : obs.getValue());
 
-			// set obs level attributes
+			i = 0;
 			for (String attrName : attrNames)
-				addValue(row, attrName, obs.getAttributeValue(attrName));
-
-			// set dimensions
-			for (Entry<String, String> dim : ts.getDimensionsMap().entrySet())
-				addValue(row, dim.getKey(), dim.getValue());
-
-			// set attributes
-			for (Entry<String, String> dim : ts.getAttributesMap().entrySet())
-				addValue(row, dim.getKey(), dim.getValue());
+			{
+				attrs[i] = attrs[i].fill(row, 1, obs.getAttributeValue(attrName));
+				i++;
+			}
 
 			row++;
 		}
+		columns.set(timeCol, time);
+		columns.set(obsCol, values);
+		for (i = 0; i < attrCols.length; i++)
+			columns.set(attrCols[i], attrs[i]);
 
 		logger.exiting(sourceClass, sourceMethod);
 	}
+
+	// sets the same value on a range of rows of a column, adding it as run-length encoded if missing
+	private void fillColumn(String name, int row, int count, Object value)
+	{
+		int idx = getOrAddColumn(name, new RunColumn(name));
+		columns.set(idx, columns.get(idx).fill(row, count, value));
+	}
+
+	private int getOrAddColumn(String name, Column column)
+	{
+		Integer idx = columnIndexes.get(name);
+		if (idx == null)
+		{
+			idx = columns.size();
+			columns.add(column);
+			columnIndexes.put(name, idx);
+		}
+		return idx;
+	}
 	
 	/**
 	 * @return a view of this table as a list of columns
@@ -431,13 +479,13 @@ public class PortableDataSet<T> implements Serializable
 					@Override
 					public Object get(final int row)
 					{
-						return (Object) model.getValueAt(row, col);
+						return columns.get(col).get(row);
 					}
 
 					@Override
 					public int size()
 					{
-						return model.getRowCount();
+						return rows;
 					}
 				};
 			}
@@ -445,7 +493,7 @@ public class PortableDataSet<T> implements Serializable
 			@Override
 			public int size()
 			{
-				return model.getColumnCount();
+				return columns.size();
 			}
 		};
 	}
@@ -465,13 +513,13 @@ public class PortableDataSet<T> implements Serializable
 					@Override
 					public Object get(final int col)
 					{
-						return model.getValueAt(row, col);
+						return columns.get(col).get(row);
 					}
 
 					@Override
 					public int size()
 					{
-						return model.getColumnCount();
+						return columns.size();
 					}
 				};
 			}
@@ -479,8 +527,195 @@ public class PortableDataSet<T> implements Serializable
 			@Override
 			public int size()
 			{
-				return model.getRowCount();
+				return rows;
 			}
 		};
 	}
+
+	// a column of the table; rows that were never set are null
+	private static abstract class Column implements Serializable
+	{
+		private static final long	serialVersionUID	= 1L;
+
+		protected final String		name;
+
+		protected Column(String name)
+		{
+			this.name = name;
+		}
+
+		protected abstract Object get(int row);
+
+		/**
+		 * Sets a value on count rows starting from row.
+		 * 
+		 * @return this column, or a more general one holding the same values if this one could not store the value.
+		 */
+		protected abstract Column fill(int row, int count, Object value);
+
+		protected void copyTo(Object[] target)
+		{
+			for (int i = 0; i < target.length; i++)
+				target[i] = get(i);
+		}
+	}
+
+	// a column of arbitrary objects
+	private static class ObjectColumn extends Column
+	{
+		private static final long	serialVersionUID	= 1L;
+
+		private Object[]			values				= new Object[16];
+
+		private ObjectColumn(String name)
+		{
+			super(name);
+		}
+
+		// copies another column
+		private ObjectColumn(Column other, int length)
+		{
+			super(other.name);
+			values = new Object[Math.max(length, 16)];
+			for (int i = 0; i < length; i++)
+				values[i] = other.get(i);
+		}
+
+		@Override
+		protected Object get(int row)
+		{
+			return row < values.length ? values[row] : null;
+		}
+
+		@Override
+		protected Column fill(int row, int count, Object value)
+		{
+			if (row + count > values.length)
+				values = Arrays.copyOf(values, Math.max(row + count, values.length * 2));
+			Arrays.fill(values, row, row + count, value);
+			return this;
+		}
+
+		@Override
+		protected void copyTo(Object[] target)
+		{
+			System.arraycopy(values, 0, target, 0, Math.min(values.length, target.length));
+		}
+	}
+
+	// a column of doubles; any other value turns it into an ObjectColumn
+	private static class DoubleColumn extends Column
+	{
+		private static final long	serialVersionUID	= 1L;
+
+		private double[]			values				= new double[16];
+		private final BitSet		present				= new BitSet();
+
+		private DoubleColumn(String name)
+		{
+			super(name);
+		}
+
+		@Override
+		protected Object get(int row)
+		{
+			return present.get(row) ? values[row] : null;
+		}
+
+		@Override
+		protected Column fill(int row, int count, Object value)
+		{
+			if (value != null && !(value instanceof Double))
+				return new ObjectColumn(this, present.length()).fill(row, count, value);
+
+			ensureCapacity(row + count);
+			if (value != null)
+			{
+				Arrays.fill(values, row, row + count, (Double) value);
+				present.set(row, row + count);
+			}
+			else
+				present.clear(row, row + count);
+			return this;
+		}
+
+		private void set(int row, double value)
+		{
+			ensureCapacity(row + 1);
+			values[row] = value;
+			present.set(row);
+		}
+
+		private void set(int row, double[] source)
+		{
+			ensureCapacity(row + source.length);
+			System.arraycopy(source, 0, values, row, source.length);
+			present.set(row, row + source.length);
+		}
+
+		private void ensureCapacity(int capacity)
+		{
+			if (capacity > values.length)
+				values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+		}
+	}
+
+	// a run-length encoded column, for values repeated on consecutive rows; it can only be filled in row order
+	private static class RunColumn extends Column
+	{
+		private static final long	serialVersionUID	= 1L;
+
+		private int[]				starts				= new int[16];
+		private Object[]			values				= new Object[16];
+		private int					runs				= 0;
+		private int					end					= 0;
+
+		private RunColumn(String name)
+		{
+			super(name);
+		}
+
+		@Override
+		protected Object get(int row)
+		{
+			if (row >= end)
+				return null;
+			int run = Arrays.binarySearch(starts, 0, runs, row);
+			return values[run >= 0 ? run : -run - 2];
+		}
+
+		@Override
+		protected Column fill(int row, int count, Object value)
+		{
+			if (row < end)
+				return new ObjectColumn(this, end).fill(row, count, value);
+
+			if (row > end)
+				append(end, null);
+			append(row, value);
+			end = row + count;
+			return this;
+		}
+
+		@Override
+		protected void copyTo(Object[] target)
+		{
+			for (int run = 0; run < runs; run++)
+				Arrays.fill(target, starts[run], Math.min(run + 1 < runs ? starts[run + 1] : end, target.length),
+						values[run]);
+		}
+
+		private void append(int start, Object value)
+		{
+			if (runs > 0 && (value == null ? values[runs - 1] == null : value.equals(values[runs - 1])))
+				return;
+			if (runs == starts.length)
+			{
+				starts = Arrays.copyOf(starts, runs * 2);
+				values = Arrays.copyOf(values, runs * 2);
+			}
+			starts[runs] = start;
+			values[runs++] = value;
+		}
+	}
 }
@@ -67,7 +67,7 @@ public class PortableTimeSeries<T> implements List<BaseObservation<? extends T>>
 	// Map each dimension to its content representation (list of codes)
 	// TODO: implement a Code class and use Map<Dimension, List<Code>>.
 	private final Map<String, Entry<String, String>>	dimensions				= new LinkedHashMap<>();
-	private final List<BaseObservation<? extends T>>	observations			= new ArrayList<>();
+	private final List<BaseObservation<? extends T>>	observations;
 	private final Map<String, String>					attributes				= new HashMap<>();
 
 	private boolean										errorFlag				= false;
@@ -105,7 +105,17 @@ public class PortableTimeSeries<T> implements List<BaseObservation<? extends T>>
 	 */
 	public PortableTimeSeries()
 	{
+		this(new ArrayList<BaseObservation<? extends T>>());
+	}
 
+	/**
+	 * Creates an empty time series whose observations are kept in the given list.
+	 * 
+	 * @param observations The empty list that will store the observations
+	 */
+	protected PortableTimeSeries(List<BaseObservation<? extends T>> observations)
+	{
+		this.observations = observations;
 	}
 
 	/**
@@ -115,6 +125,19 @@ public class PortableTimeSeries<T> implements List<BaseObservation<? extends T>>
 	 */
 	public PortableTimeSeries(PortableTimeSeries<?> other)
 	{
+		this(other, new ArrayList<BaseObservation<? extends T>>());
+	}
+
+	/**
+	 * Build an empty series which has the same attributes and dimensions as another non-null series, whose observations
+	 * are kept in the given list.
+	 * 
+	 * @param other The original series to copy
+	 * @param observations The empty list that will store the observations
+	 */
+	protected PortableTimeSeries(PortableTimeSeries<?> other, List<BaseObservation<? extends T>> observations)
+	{
+		this.observations = observations;
 		errorFlag = other.errorFlag;
 		numeric = other.numeric;
 		errorMessage = other.errorMessage;
@@ -21,6 +21,26 @@
 package it.bancaditalia.oss.sdmx.api;
 
 
-
 public class SdmxAttribute extends SdmxMetaElement{
+
+	/**
+	 * The level to which an attribute is attached in a data message.
+	 */
+	public static enum AttachmentLevel { DATASET, GROUP, SERIES, OBSERVATION }
+
+	private AttachmentLevel attachmentLevel = null;
+
+	/**
+	 * @return The attachment level of this attribute, or null if not known.
+	 */
+	public AttachmentLevel getAttachmentLevel() {
+		return attachmentLevel;
+	}
+
+	/**
+	 * @param attachmentLevel The attachment level of this attribute
+	 */
+	public void setAttachmentLevel(AttachmentLevel attachmentLevel) {
+		this.attachmentLevel = attachmentLevel;
+	}
 }
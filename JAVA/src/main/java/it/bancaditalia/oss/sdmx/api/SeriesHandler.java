@@ -0,0 +1,43 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.api;
+
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+
+/**
+ * Receives the time series of a data query one at a time, as soon as each of them has been parsed.
+ * 
+ * @see StreamingSDMXClient#getTimeSeries(Dataflow, DataFlowStructure, String, String, String, boolean, String, boolean, SeriesHandler)
+ */
+public interface SeriesHandler
+{
+	/**
+	 * Called for each complete time series of the response, in document order. The series is not referenced by the
+	 * client after this method returns. The connection to the provider stays open until the last call returns.
+	 * <p>
+	 * A series that the provider splits over consecutive chunks is delivered once. A key is delivered again only if
+	 * the provider interleaves its chunks with other series.
+	 * 
+	 * @param series a time series, with its observations ordered by time
+	 * @throws SdmxException to stop the processing of the response
+	 */
+	public void onSeries(PortableTimeSeries<Double> series) throws SdmxException;
+}
@@ -0,0 +1,54 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.api;
+
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+
+/**
+ * Streaming counterpart of {@link GenericSDMXClient}, implemented by the clients that can pass the time series of a
+ * query to a {@link SeriesHandler} as soon as each of them has been parsed, so that the whole result is never held in
+ * memory.
+ * 
+ * @see GenericSDMXClient
+ */
+public interface StreamingSDMXClient
+{
+	/**
+	 * Gets the time series of a query like {@link GenericSDMXClient#getTimeSeries(Dataflow, DataFlowStructure, String, String, String, boolean, String, boolean)},
+	 * but passes each series to the handler as soon as it has been parsed.
+	 * A series that a provider splits over consecutive parts of the response is delivered once, with all its
+	 * observations.
+	 * 
+	 * @param dataflow the dataflow of the time series to be gathered
+	 * @param dsd the structure of the dataflow of the time series to be gathered
+	 * @param resource the id of the time series
+	 * @param startTime start time of the observations to be gathered
+	 * @param endTime end time of the observations to be gathered
+	 * @param seriesKeyOnly boolean flag for disabling data and attributes processing (usually for getting the only dataflow contents)
+	 * @param updatedAfter if set, only data updated after the given date will be retrieved (e.g. '2014-01-01')
+	 * @param includeHistory boolean flag for enabling getting the history of revisions
+	 * @param handler the handler that receives the time series
+	 * @throws SdmxException 
+	 */
+	public void getTimeSeries(Dataflow dataflow, DataFlowStructure dsd, String resource, 
+			String startTime, String endTime, 
+			boolean seriesKeyOnly, String updatedAfter, boolean includeHistory, SeriesHandler handler) throws SdmxException;
+}
@@ -0,0 +1,491 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import it.bancaditalia.oss.sdmx.util.Configuration;
+
+/**
+ * An on-disk cache of the responses of the providers, used to issue conditional requests.
+ * <p>
+ * Each entry is a single file holding the validators of the response ({@code ETag} and {@code Last-Modified}), the
+ * time it was last validated and the decoded body. Bodies are written to a temporary file while they are parsed and
+ * committed only when the parsing succeeds; failing to write them never fails the query. When the cache grows beyond its maximum size, the least recently used
+ * entries are evicted.
+ */
+public class HttpResponseCache
+{
+	private static final String			sourceClass	= HttpResponseCache.class.getSimpleName();
+	protected static final Logger		logger		= Configuration.getSdmxLogger();
+
+	private static final int			MAGIC		= 0x53444d59;
+	private static final String			SUFFIX		= ".cache";
+	private static final String			TEMP_SUFFIX	= ".tmp";
+	private static final FileFilter		ENTRIES		= new FileFilter() {
+														@Override
+														public boolean accept(File file)
+														{
+															return file.getName().endsWith(SUFFIX);
+														}
+													};
+	private static final FileFilter		TEMPS		= new FileFilter() {
+														@Override
+														public boolean accept(File file)
+														{
+															return file.getName().endsWith(TEMP_SUFFIX);
+														}
+													};
+
+	private static HttpResponseCache	instance	= null;
+
+	private final File					directory;
+	private final long					maxSize;
+
+	/**
+	 * Creates a cache, deleting the bodies left behind by downloads that never completed (e.g. of a killed JVM).
+	 * 
+	 * @param directory the directory holding the entries, created if needed
+	 * @param maxSize the maximum size of the cache in bytes
+	 */
+	public HttpResponseCache(File directory, long maxSize)
+	{
+		this.directory = directory;
+		this.maxSize = maxSize;
+
+		File[] temps = directory.listFiles(TEMPS);
+		if (temps != null)
+			for (File temp : temps)
+				if (temp.delete())
+					logger.finer("Deleted incomplete cache entry " + temp);
+	}
+
+	/**
+	 * @return The cache configured with {@link Configuration#getHttpCacheDir()} and
+	 *         {@link Configuration#getHttpCacheMaxSize()}.
+	 */
+	public static synchronized HttpResponseCache getInstance()
+	{
+		if (instance == null)
+			instance = new HttpResponseCache(Configuration.getHttpCacheDir(), Configuration.getHttpCacheMaxSize());
+		return instance;
+	}
+
+	/**
+	 * Builds the key of an entry.
+	 *
+	 * @param parts the values identifying a response (e.g. query URL and request headers), null values allowed
+	 * @return a key suitable as a file name
+	 */
+	public static String key(Object... parts)
+	{
+		try
+		{
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			for (Object part : parts)
+			{
+				digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+			}
+			StringBuilder key = new StringBuilder();
+			for (byte b : digest.digest())
+				key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			return key.toString();
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			// SHA-1 is mandatory for every JRE
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @param key the key of the entry
+	 * @return The entry, or null if it is not cached or cannot be read.
+	 */
+	public Entry get(String key)
+	{
+		File file = new File(directory, key + SUFFIX);
+		if (!file.isFile())
+			return null;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+		{
+			if (in.readInt() != MAGIC)
+				throw new IOException("Not a cache entry");
+			long validated = in.readLong();
+			String etag = in.readUTF();
+			String lastModified = in.readUTF();
+			String contentType = in.readUTF();
+			return new Entry(file, validated, etag.isEmpty() ? null : etag, lastModified.isEmpty() ? null : lastModified,
+					contentType.isEmpty() ? null : contentType);
+		}
+		catch (IOException e)
+		{
+			logger.logp(Level.FINE, sourceClass, "get", "Discarding cache entry " + file + ": " + e.getMessage());
+			file.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * Wraps a response body so that it is stored in the cache while it is read. The entry replaces the previous one
+	 * with the same key only if {@link CachingInputStream#complete()} is called before the stream is closed.
+	 *
+	 * @param key the key of the entry
+	 * @param etag the ETag of the response, nullable
+	 * @param lastModified the Last-Modified header of the response, nullable
+	 * @param contentType the Content-Type header of the response, nullable
+	 * @param body the decoded response body
+	 * @return the wrapped body
+	 * @throws IOException if the cache directory cannot be written
+	 */
+	public CachingInputStream store(String key, String etag, String lastModified, String contentType, InputStream body) throws IOException
+	{
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Cannot create the cache directory " + directory);
+
+		File temp = File.createTempFile(key, TEMP_SUFFIX, directory);
+		DataOutputStream out = null;
+		try
+		{
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			out.writeInt(MAGIC);
+			out.writeLong(System.currentTimeMillis());
+			out.writeUTF(etag == null ? "" : etag);
+			out.writeUTF(lastModified == null ? "" : lastModified);
+			out.writeUTF(contentType == null ? "" : contentType);
+		}
+		catch (IOException e)
+		{
+			if (out != null)
+				try
+				{
+					out.close();
+				}
+				catch (IOException e1)
+				{
+					// the write error is reported
+				}
+			temp.delete();
+			throw e;
+		}
+		return new CachingInputStream(body, out, temp, new File(directory, key + SUFFIX));
+	}
+
+	// deletes the least recently used entries until the cache fits its maximum size
+	private synchronized void evict()
+	{
+		File[] files = directory.listFiles(ENTRIES);
+		if (files == null)
+			return;
+
+		long size = 0;
+		for (File file : files)
+			size += file.length();
+		if (size <= maxSize)
+			return;
+
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File o1, File o2)
+			{
+				return Long.compare(o1.lastModified(), o2.lastModified());
+			}
+		});
+		for (int i = 0; i < files.length && size > maxSize; i++)
+		{
+			long length = files[i].length();
+			if (files[i].delete())
+			{
+				logger.finer("Evicted cache entry " + files[i]);
+				size -= length;
+			}
+		}
+	}
+
+	/**
+	 * A cached response.
+	 */
+	public static class Entry
+	{
+		private final File		file;
+		private final long		validated;
+		private final String	etag;
+		private final String	lastModified;
+		private final String	contentType;
+
+		private Entry(File file, long validated, String etag, String lastModified, String contentType)
+		{
+			this.file = file;
+			this.validated = validated;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.contentType = contentType;
+		}
+
+		/**
+		 * @return The ETag of the cached response, or null.
+		 */
+		public String getEtag()
+		{
+			return etag;
+		}
+
+		/**
+		 * @return The Last-Modified header of the cached response, or null.
+		 */
+		public String getLastModified()
+		{
+			return lastModified;
+		}
+
+		/**
+		 * @return The Content-Type header of the cached response, or null.
+		 */
+		public String getContentType()
+		{
+			return contentType;
+		}
+
+		/**
+		 * @param ttl the time to live of the entry in milliseconds
+		 * @return true if the entry was validated less than ttl milliseconds ago.
+		 */
+		public boolean isFresh(long ttl)
+		{
+			return System.currentTimeMillis() - validated < ttl;
+		}
+
+		/**
+		 * @return true if the entry can be revalidated with a conditional request.
+		 */
+		public boolean hasValidators()
+		{
+			return etag != null || lastModified != null;
+		}
+
+		/**
+		 * Records that the provider confirmed the entry is still valid. This also marks the entry as recently used.
+		 */
+		public void revalidated()
+		{
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+			{
+				raf.seek(4);
+				raf.writeLong(System.currentTimeMillis());
+			}
+			catch (IOException e)
+			{
+				logger.logp(Level.FINE, sourceClass, "revalidated", "Cannot update cache entry " + file + ": " + e.getMessage());
+			}
+		}
+
+		/**
+		 * @return The cached response body.
+		 * @throws IOException if the entry cannot be read
+		 */
+		public InputStream open() throws IOException
+		{
+			file.setLastModified(System.currentTimeMillis());
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try
+			{
+				in.readInt();
+				in.readLong();
+				in.readUTF();
+				in.readUTF();
+				in.readUTF();
+				return in;
+			}
+			catch (IOException e)
+			{
+				in.close();
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * A response body that is copied to the cache while it is read. After the first write error (e.g. a full disk) the
+	 * body is still read, but no longer copied, and the entry is not committed.
+	 */
+	public class CachingInputStream extends FilterInputStream
+	{
+		private final DataOutputStream	out;
+		private final File				temp;
+		private final File				target;
+		private boolean					complete	= false;
+		private boolean					failed		= false;
+		private boolean					closed		= false;
+
+		private CachingInputStream(InputStream in, DataOutputStream out, File temp, File target)
+		{
+			super(in);
+			this.out = out;
+			this.temp = temp;
+			this.target = target;
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			int b = super.read();
+			if (b >= 0 && !failed)
+				try
+				{
+					out.write(b);
+				}
+				catch (IOException e)
+				{
+					fail(e);
+				}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			int n = super.read(b, off, len);
+			if (n > 0 && !failed)
+				try
+				{
+					out.write(b, off, n);
+				}
+				catch (IOException e)
+				{
+					fail(e);
+				}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException
+		{
+			byte[] buf = new byte[(int) Math.min(n, 4096)];
+			long skipped = 0;
+			int i;
+			while (skipped < n && (i = read(buf, 0, (int) Math.min(buf.length, n - skipped))) > 0)
+				skipped += i;
+			return skipped;
+		}
+
+		@Override
+		public boolean markSupported()
+		{
+			return false;
+		}
+
+		/**
+		 * Marks the response as successfully processed, so that it is committed to the cache when the stream is
+		 * closed.
+		 */
+		public void complete()
+		{
+			complete = true;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if (closed)
+				return;
+			closed = true;
+
+			boolean commit = complete && !failed;
+			try
+			{
+				if (commit)
+				{
+					// copy what the parser did not need (e.g. trailing blanks)
+					byte[] buf = new byte[4096];
+					while (read(buf, 0, buf.length) >= 0)
+						;
+				}
+			}
+			catch (IOException e)
+			{
+				commit = false;
+				throw e;
+			}
+			finally
+			{
+				try
+				{
+					super.close();
+				}
+				finally
+				{
+					finish(commit && !failed);
+				}
+			}
+		}
+
+		// stops copying the body, which is still passed to the parser
+		private void fail(IOException e)
+		{
+			failed = true;
+			logger.logp(Level.FINE, sourceClass, "read", "Cannot store cache entry " + target + ": " + e.getMessage());
+		}
+
+		private void finish(boolean commit)
+		{
+			try
+			{
+				out.close();
+				if (commit)
+				{
+					Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+					logger.finer("Stored cache entry " + target);
+					evict();
+				}
+			}
+			catch (IOException e)
+			{
+				logger.logp(Level.FINE, sourceClass, "close", "Cannot store cache entry " + target + ": " + e.getMessage());
+			}
+			finally
+			{
+				temp.delete();
+			}
+		}
+	}
+}
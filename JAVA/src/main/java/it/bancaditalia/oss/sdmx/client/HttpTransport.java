@@ -0,0 +1,66 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Proxy;
+import java.net.URL;
+import java.net.URLConnection;
+
+/**
+ * The transport used by {@link RestSdmxClient} to open connections towards a provider and to give them back once a
+ * response has been consumed. Request headers, timeouts and SSL settings are still applied by the client on the
+ * returned connection.
+ *
+ * @see SimpleHttpTransport
+ * @see PooledHttpTransport
+ */
+public interface HttpTransport
+{
+	/**
+	 * Opens a connection to the given url. Every connection returned by this method must be given back with
+	 * {@link #release(URLConnection)}.
+	 *
+	 * @param url a non-null url
+	 * @param proxy a non-null proxy (possibly {@link Proxy#NO_PROXY})
+	 * @param timeout the connect timeout of the client in milliseconds, 0 if it has none
+	 * @return a non-null connection, not yet connected
+	 * @throws IOException if the connection cannot be opened
+	 */
+	public URLConnection open(URL url, Proxy proxy, int timeout) throws IOException;
+
+	/**
+	 * Returns the body of a response. The returned stream must be closed by the caller.
+	 *
+	 * @param conn a connection obtained from {@link #open(URL, Proxy, int)}
+	 * @return the (still encoded) response body
+	 * @throws IOException if the body cannot be read
+	 */
+	public InputStream body(URLConnection conn) throws IOException;
+
+	/**
+	 * Gives back a connection when the caller is done with it, both on success and on failure.
+	 *
+	 * @param conn a connection obtained from {@link #open(URL, Proxy, int)}
+	 */
+	public void release(URLConnection conn);
+}
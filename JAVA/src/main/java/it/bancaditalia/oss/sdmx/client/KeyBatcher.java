@@ -0,0 +1,267 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.client;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import it.bancaditalia.oss.sdmx.api.Dimension;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+
+/**
+ * Merges the keys of a dataflow into fewer SDMX 2.1 key expressions, using the OR ({@code +}) operator.
+ * <p>
+ * Two keys are merged only when they differ in a single dimension, so that a merged expression selects exactly the
+ * union of the series selected by its keys. Merging is repeated over all the dimensions until no more keys can be
+ * merged, without exceeding the maximum length of an expression once URL-encoded, as each {@code +} goes on the wire
+ * as {@code %2B}. The series returned by a merged query are assigned
+ * back to the original keys with {@link #matches(int, PortableTimeSeries)}.
+ */
+public class KeyBatcher
+{
+	private final List<String>			dimensions	= new ArrayList<>();
+	private final int					maxLength;
+	// for each key, the codes selected in each dimension (empty when all codes are selected), null if not a valid key
+	private final List<List<Set<String>>>	keys		= new ArrayList<>();
+
+	/**
+	 * @param dimensions the dimensions of the dataflow, in DSD order
+	 * @param keys the keys to batch, without the dataflow
+	 * @param maxLength the maximum length of a merged key expression, once URL-encoded
+	 */
+	public KeyBatcher(List<Dimension> dimensions, List<String> keys, int maxLength)
+	{
+		for (Dimension dimension : dimensions)
+			this.dimensions.add(dimension.getId());
+		this.maxLength = maxLength;
+		for (String key : keys)
+			this.keys.add(parse(key));
+	}
+
+	/**
+	 * @return The batches covering all the keys, in the order of their first key. Keys that cannot be parsed get their
+	 *         own batch.
+	 */
+	public List<Batch> batch()
+	{
+		List<Batch> batches = new ArrayList<>();
+		List<Batch> mergeable = new ArrayList<>();
+		for (int i = 0; i < keys.size(); i++)
+			if (keys.get(i) != null)
+			{
+				Batch batch = new Batch(keys.get(i), i);
+				mergeable.add(batch);
+				batches.add(batch);
+			}
+			else
+				batches.add(new Batch(null, i));
+
+		boolean merged = true;
+		while (merged)
+		{
+			merged = false;
+			for (int dim = 0; dim < dimensions.size(); dim++)
+			{
+				// key: codes of all the other dimensions --> batches differing only in this dimension
+				Map<List<Set<String>>, List<Batch>> groups = new LinkedHashMap<>();
+				for (Batch batch : mergeable)
+				{
+					List<Set<String>> others = new ArrayList<>(batch.codes);
+					others.set(dim, null);
+					List<Batch> group = groups.get(others);
+					if (group == null)
+						groups.put(others, group = new ArrayList<>());
+					group.add(batch);
+				}
+
+				for (List<Batch> group : groups.values())
+				{
+					Batch current = group.get(0);
+					for (Batch next : group.subList(1, group.size()))
+						if (current.tryMerge(next, dim))
+						{
+							mergeable.remove(next);
+							batches.remove(next);
+							merged = true;
+						}
+						else
+							current = next;
+				}
+			}
+		}
+
+		Collections.sort(batches);
+		return batches;
+	}
+
+	/**
+	 * Checks if a series was requested by a key.
+	 * 
+	 * @param key the index of the key
+	 * @param series a series returned by a query
+	 * @return true if the series is selected by the key
+	 */
+	public boolean matches(int key, PortableTimeSeries<?> series)
+	{
+		List<Set<String>> codes = keys.get(key);
+		if (codes == null)
+			return true;
+		for (int dim = 0; dim < dimensions.size(); dim++)
+			if (!codes.get(dim).isEmpty() && !codes.get(dim).contains(series.getDimension(dimensions.get(dim))))
+				return false;
+		return true;
+	}
+
+	private List<Set<String>> parse(String key)
+	{
+		String[] tokens = key.trim().split("\\.", -1);
+		if (tokens.length != dimensions.size())
+			return null;
+
+		List<Set<String>> codes = new ArrayList<>();
+		for (String token : tokens)
+		{
+			Set<String> dimCodes = new LinkedHashSet<>();
+			if (!token.isEmpty())
+				for (String code : token.split("\\+"))
+					if (code.isEmpty())
+						return null;
+					else
+						dimCodes.add(code);
+			codes.add(dimCodes);
+		}
+		return codes;
+	}
+
+	/**
+	 * @param expression a key expression
+	 * @return The length of the expression in the path of a data query.
+	 */
+	static int encodedLength(String expression)
+	{
+		try
+		{
+			return URLEncoder.encode(expression, "UTF-8").length();
+		}
+		catch (UnsupportedEncodingException e)
+		{
+			// UTF-8 is always supported
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String format(List<Set<String>> codes)
+	{
+		StringBuilder key = new StringBuilder();
+		for (int dim = 0; dim < codes.size(); dim++)
+		{
+			if (dim > 0)
+				key.append('.');
+			boolean first = true;
+			for (String code : codes.get(dim))
+			{
+				if (!first)
+					key.append('+');
+				key.append(code);
+				first = false;
+			}
+		}
+		return key.toString();
+	}
+
+	/**
+	 * A key expression covering one or more of the original keys.
+	 */
+	public class Batch implements Comparable<Batch>
+	{
+		private List<Set<String>>	codes;
+		private String				resource;
+		private final List<Integer>	keyIndexes	= new ArrayList<>();
+
+		private Batch(List<Set<String>> codes, int key)
+		{
+			this.codes = codes;
+			this.keyIndexes.add(key);
+		}
+
+		/**
+		 * @param originalKeys the keys given to the batcher
+		 * @return The key expression of this batch.
+		 */
+		public String getResource(List<String> originalKeys)
+		{
+			if (keyIndexes.size() == 1)
+				return originalKeys.get(keyIndexes.get(0));
+			if (resource == null)
+				resource = format(codes);
+			return resource;
+		}
+
+		/**
+		 * @return The indexes of the original keys covered by this batch, in ascending order.
+		 */
+		public List<Integer> getKeys()
+		{
+			return keyIndexes;
+		}
+
+		// merges another batch differing only in the given dimension, if the result is short enough
+		private boolean tryMerge(Batch other, int dim)
+		{
+			List<Set<String>> union = new ArrayList<>(codes);
+			Set<String> dimCodes = new LinkedHashSet<>();
+			// selecting all the codes wins over selecting some of them
+			if (!codes.get(dim).isEmpty() && !other.codes.get(dim).isEmpty())
+			{
+				dimCodes.addAll(codes.get(dim));
+				dimCodes.addAll(other.codes.get(dim));
+			}
+			union.set(dim, dimCodes);
+			if (encodedLength(format(union)) > maxLength)
+				return false;
+
+			codes = union;
+			resource = null;
+			keyIndexes.addAll(other.keyIndexes);
+			Collections.sort(keyIndexes);
+			return true;
+		}
+
+		@Override
+		public int compareTo(Batch o)
+		{
+			return Integer.compare(keyIndexes.get(0), o.keyIndexes.get(0));
+		}
+
+		@Override
+		public String toString()
+		{
+			return codes == null ? "Batch" + keyIndexes : format(codes) + " " + keyIndexes;
+		}
+	}
+}
@@ -2,11 +2,20 @@ package it.bancaditalia.oss.sdmx.client;
 
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
 import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
+import it.bancaditalia.oss.sdmx.util.XmlStreams;
 
 public interface Parser<T> 
 {
 	public T parse(XMLEventReader eventReader, LanguagePriorityList languages) throws XMLStreamException, SdmxException;
+
+	/**
+	 * Parses a message with the StAX cursor API, which does not allocate an event for every node. This is the method
+	 * used by {@link RestSdmxClient}. Parsers that work on events can implement it with
+	 * {@link XmlStreams#toEventReader(XMLStreamReader)}.
+	 */
+	public T parse(XMLStreamReader reader, LanguagePriorityList languages) throws XMLStreamException, SdmxException;
 }
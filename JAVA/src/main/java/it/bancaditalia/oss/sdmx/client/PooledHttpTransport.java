@@ -0,0 +1,222 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.client;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import it.bancaditalia.oss.sdmx.util.Configuration;
+
+/**
+ * A transport that keeps the sockets towards a provider alive between queries.
+ * <p>
+ * Connections are never disconnected: once a response has been read and closed, the JDK puts the socket back in
+ * its keep-alive cache (keyed by host, port, proxy and SSL socket factory), so that the next query to the same
+ * provider skips DNS resolution, TCP connect and, as long as the client keeps using the same
+ * {@link javax.net.ssl.SSLSocketFactory}, the full TLS handshake. Each provider gets its own pool of permits that
+ * bounds the number of concurrent connections, configured with {@link Configuration#getMaxConnections(String)}.
+ * <p>
+ * A connection is held until its response has been parsed: queries streamed to a
+ * {@link it.bancaditalia.oss.sdmx.api.SeriesHandler}, and thus {@link SeriesCursor}s, keep it while the series are
+ * being consumed. A query that finds no free connection waits at most for the connect timeout of its client (or
+ * {@value #DEFAULT_WAIT} milliseconds if the client has none), and then fails.
+ */
+public class PooledHttpTransport implements HttpTransport
+{
+	private static final String										sourceClass	= PooledHttpTransport.class.getSimpleName();
+	protected static final Logger									logger		= Configuration.getSdmxLogger();
+
+	// max bytes read synchronously from a response that was not fully consumed; the JDK takes care of the rest
+	private static final int										MAX_DRAIN	= 8 * 1024;
+	// max milliseconds waited for a free connection by the clients without a connect timeout
+	public static final int											DEFAULT_WAIT	= 60 * 1000;
+
+	// key: provider name --> transport
+	private static final ConcurrentMap<String, PooledHttpTransport>	transports	= new ConcurrentHashMap<>();
+
+	private final String											provider;
+	private final int												maxConnections;
+	private final Semaphore											permits;
+	// key: leased connection --> true if its body has been handed out
+	private final ConcurrentMap<URLConnection, Boolean>				leased		= new ConcurrentHashMap<>();
+
+	/**
+	 * Builds a transport with its own connection pool.
+	 *
+	 * @param provider the name of the provider, used for logging
+	 * @param maxConnections the maximum number of concurrent connections
+	 */
+	public PooledHttpTransport(String provider, int maxConnections)
+	{
+		if (maxConnections <= 0)
+			throw new IllegalArgumentException("The maximum number of connections must be positive: " + maxConnections);
+		this.provider = provider;
+		this.maxConnections = maxConnections;
+		this.permits = new Semaphore(maxConnections, true);
+	}
+
+	/**
+	 * Gets the shared transport for a provider, creating it if needed.
+	 *
+	 * @param provider a non-null provider name
+	 * @return the transport shared by all the clients of the given provider
+	 */
+	public static PooledHttpTransport forProvider(String provider)
+	{
+		PooledHttpTransport transport = transports.get(provider);
+		if (transport == null)
+		{
+			transport = new PooledHttpTransport(provider, Configuration.getMaxConnections(provider));
+			PooledHttpTransport existing = transports.putIfAbsent(provider, transport);
+			if (existing != null)
+				transport = existing;
+		}
+		return transport;
+	}
+
+	@Override
+	public URLConnection open(URL url, Proxy proxy, int timeout) throws IOException
+	{
+		int wait = timeout > 0 ? timeout : DEFAULT_WAIT;
+		try
+		{
+			if (!permits.tryAcquire(wait, TimeUnit.MILLISECONDS))
+				throw new SocketTimeoutException("No connection to " + provider + " became free in " + wait + " ms: all the "
+						+ maxConnections + " connections of its pool are in use, possibly by unfinished streaming queries");
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a connection to " + provider);
+		}
+
+		try
+		{
+			URLConnection conn = url.openConnection(proxy);
+			leased.put(conn, Boolean.FALSE);
+			return conn;
+		}
+		catch (IOException | RuntimeException e)
+		{
+			permits.release();
+			throw e;
+		}
+	}
+
+	@Override
+	public InputStream body(final URLConnection conn) throws IOException
+	{
+		leased.replace(conn, Boolean.TRUE);
+		return new FilterInputStream(conn.getInputStream()) {
+			@Override
+			public void close() throws IOException
+			{
+				try
+				{
+					drain(in);
+				}
+				finally
+				{
+					super.close();
+				}
+			}
+		};
+	}
+
+	@Override
+	public void release(URLConnection conn)
+	{
+		Boolean bodyTaken = leased.remove(conn);
+		if (bodyTaken == null)
+			return;
+
+		try
+		{
+			if (conn instanceof HttpURLConnection && !bodyTaken)
+				recycle((HttpURLConnection) conn);
+		}
+		finally
+		{
+			permits.release();
+		}
+	}
+
+	/**
+	 * @return The number of connections that can be opened without waiting.
+	 */
+	public int availableConnections()
+	{
+		return permits.availablePermits();
+	}
+
+	// reads and discards the body of a response that was not handed out (e.g. redirects and errors)
+	private void recycle(HttpURLConnection conn)
+	{
+		final String sourceMethod = "recycle";
+		try
+		{
+			int code = conn.getResponseCode();
+			InputStream stream = code >= HttpURLConnection.HTTP_BAD_REQUEST ? conn.getErrorStream() : conn.getInputStream();
+			if (stream != null)
+				try
+				{
+					drain(stream);
+				}
+				finally
+				{
+					stream.close();
+				}
+		}
+		catch (IOException e)
+		{
+			logger.logp(Level.FINE, sourceClass, sourceMethod, "Socket to " + provider + " not recycled: " + e.getMessage());
+			disconnect(conn);
+		}
+	}
+
+	private static void drain(InputStream stream) throws IOException
+	{
+		byte[] buf = new byte[4096];
+		int total = 0;
+		int i;
+		while (total < MAX_DRAIN && (i = stream.read(buf)) >= 0)
+			total += i;
+	}
+
+	private static void disconnect(URLConnection conn)
+	{
+		if (conn instanceof HttpURLConnection)
+			((HttpURLConnection) conn).disconnect();
+	}
+}
@@ -26,8 +26,8 @@ import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocketFactory;
@@ -63,8 +63,8 @@ public class Provider {
 		this.name = name;
 		this.endpoint = endpoint;
 		this.description = description;
-		this.flows = new HashMap<>();
-		this.dsdNameToStructureCache = new HashMap<>();
+		this.flows = new ConcurrentHashMap<>();
+		this.dsdNameToStructureCache = new ConcurrentHashMap<>();
 		this.needsCredentials = needsCredentials;
 		this.needsURLEncoding = needsURLEncoding;
 		this.supportsCompression = supportsCompression;
@@ -107,7 +107,7 @@ public class Provider {
 	}
 
 	public void setFlows(Map<String, Dataflow> flows) {
-		this.flows = flows;
+		this.flows = new ConcurrentHashMap<>(flows);
 	}
 
 	public void setFlow(Dataflow flow) {
@@ -28,6 +28,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.Reader;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
@@ -38,9 +39,21 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.GZIPInputStream;
@@ -49,16 +62,19 @@ import java.util.zip.ZipInputStream;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLSocketFactory;
-import javax.xml.stream.XMLEventReader;
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
+import it.bancaditalia.oss.sdmx.api.AsyncSDMXClient;
 import it.bancaditalia.oss.sdmx.api.DSDIdentifier;
 import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
 import it.bancaditalia.oss.sdmx.api.Dataflow;
+import it.bancaditalia.oss.sdmx.api.Dimension;
 import it.bancaditalia.oss.sdmx.api.GenericSDMXClient;
 import it.bancaditalia.oss.sdmx.api.Message;
 import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.api.SeriesHandler;
+import it.bancaditalia.oss.sdmx.api.StreamingSDMXClient;
 import it.bancaditalia.oss.sdmx.client.custom.FILE;
 import it.bancaditalia.oss.sdmx.event.DataFooterMessageEvent;
 import it.bancaditalia.oss.sdmx.event.OpenEvent;
@@ -70,25 +86,44 @@ import it.bancaditalia.oss.sdmx.exceptions.SdmxExceptionFactory;
 import it.bancaditalia.oss.sdmx.exceptions.SdmxIOException;
 import it.bancaditalia.oss.sdmx.exceptions.SdmxInvalidParameterException;
 import it.bancaditalia.oss.sdmx.exceptions.SdmxRedirectionException;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxResponseException;
 import it.bancaditalia.oss.sdmx.exceptions.SdmxXmlContentException;
 import it.bancaditalia.oss.sdmx.parser.v21.CodelistParser;
 import it.bancaditalia.oss.sdmx.parser.v21.CompactDataParser;
+import it.bancaditalia.oss.sdmx.parser.v21.CsvDataParser;
 import it.bancaditalia.oss.sdmx.parser.v21.DataParsingResult;
 import it.bancaditalia.oss.sdmx.parser.v21.DataStructureParser;
 import it.bancaditalia.oss.sdmx.parser.v21.DataflowParser;
+import it.bancaditalia.oss.sdmx.parser.v21.JsonDataParser;
 import it.bancaditalia.oss.sdmx.parser.v21.Sdmx21Queries;
 import it.bancaditalia.oss.sdmx.util.Configuration;
 import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
+import it.bancaditalia.oss.sdmx.util.SdmxThreadFactory;
+import it.bancaditalia.oss.sdmx.util.SingleFlight;
+import it.bancaditalia.oss.sdmx.util.XmlStreams;
 import javax.net.ssl.HostnameVerifier;
 
 /**
  * @author Attilio Mattiocco
  *
  */
-public class RestSdmxClient implements GenericSDMXClient
+public class RestSdmxClient implements GenericSDMXClient, AsyncSDMXClient, StreamingSDMXClient
 {
 	private static final String		sourceClass						= RestSdmxClient.class.getSimpleName();
 	protected static final Logger	logger							= Configuration.getSdmxLogger();
+	private static ExecutorService	defaultExecutor					= null;
+	// key: provider --> pool downloading the time windows of its chunked queries
+	private static final ConcurrentMap<String, ExecutorService>	windowExecutors	= new ConcurrentHashMap<>();
+	// identical queries running concurrently are sent only once
+	private static final SingleFlight	queries						= new SingleFlight();
+	// the callers of a shared data query may sort or reverse their series
+	private static final SingleFlight.Copier<Object>	dataCopier	= new SingleFlight.Copier<Object>() {
+		@Override
+		public Object copy(Object value)
+		{
+			return value instanceof DataParsingResult ? ((DataParsingResult) value).copy() : value;
+		}
+	};
 
 	protected String				name;
 	protected final boolean			needsURLEncoding;
@@ -110,6 +145,10 @@ public class RestSdmxClient implements GenericSDMXClient
 	protected RestSdmxEventListener	redirectionEventListener		= RestSdmxEventListener.NO_OP_LISTENER;
 	protected RestSdmxEventListener	openEventListener = RestSdmxEventListener.NO_OP_LISTENER;
 	protected int maxRedirects = 20;
+	protected HttpTransport			transport;
+	protected ExecutorService		executor						= null;
+	protected HttpResponseCache		cache;
+	protected long					cacheTtl;
 
 	public RestSdmxClient(String name, URI endpoint, SSLSocketFactory sslSocketFactory, boolean needsCredentials, boolean needsURLEncoding,
 			boolean supportsCompression)
@@ -125,6 +164,9 @@ public class RestSdmxClient implements GenericSDMXClient
 		readTimeout = Configuration.getReadTimeout(getClass().getSimpleName());
 		connectTimeout = Configuration.getConnectTimeout(getClass().getSimpleName());
 		languages = LanguagePriorityList.parse(Configuration.getLang());
+		transport = Configuration.isKeepAlive(name) ? PooledHttpTransport.forProvider(name) : new SimpleHttpTransport();
+		cache = Configuration.isHttpCache(name) ? HttpResponseCache.getInstance() : null;
+		cacheTtl = Configuration.getHttpCacheTtl(name);
 	}
 
 	public RestSdmxClient(String name, URI endpoint, boolean needsCredentials, boolean needsURLEncoding, boolean supportsCompression)
@@ -182,6 +224,98 @@ public class RestSdmxClient implements GenericSDMXClient
 		this.maxRedirects = maxRedirects;
 	}
 
+	/**
+	 * Sets the transport used to open the connections to the provider.
+	 * 
+	 * @param transport a non-null transport
+	 */
+	public void setTransport(HttpTransport transport)
+	{
+		this.transport = transport;
+	}
+
+	@Override
+	public void setExecutor(ExecutorService executor)
+	{
+		this.executor = executor;
+	}
+
+	@Override
+	public ExecutorService getExecutor()
+	{
+		if (executor == null)
+			synchronized (RestSdmxClient.class)
+			{
+				// shared by all the clients that do not set their own executor
+				if (defaultExecutor == null)
+					defaultExecutor = Executors.newCachedThreadPool(new SdmxThreadFactory("async"));
+				executor = defaultExecutor;
+			}
+		return executor;
+	}
+
+	@Override
+	public Future<Map<String, Dataflow>> getDataflowsAsync()
+	{
+		return getExecutor().submit(new Callable<Map<String, Dataflow>>() {
+			@Override
+			public Map<String, Dataflow> call() throws SdmxException
+			{
+				return getDataflows();
+			}
+		});
+	}
+
+	@Override
+	public Future<Dataflow> getDataflowAsync(final String dataflow, final String agency, final String version)
+	{
+		return getExecutor().submit(new Callable<Dataflow>() {
+			@Override
+			public Dataflow call() throws SdmxException
+			{
+				return getDataflow(dataflow, agency, version);
+			}
+		});
+	}
+
+	@Override
+	public Future<DataFlowStructure> getDataFlowStructureAsync(final DSDIdentifier dsd, final boolean full)
+	{
+		return getExecutor().submit(new Callable<DataFlowStructure>() {
+			@Override
+			public DataFlowStructure call() throws SdmxException
+			{
+				return getDataFlowStructure(dsd, full);
+			}
+		});
+	}
+
+	@Override
+	public Future<Map<String, String>> getCodesAsync(final String codeList, final String agency, final String version)
+	{
+		return getExecutor().submit(new Callable<Map<String, String>>() {
+			@Override
+			public Map<String, String> call() throws SdmxException
+			{
+				return getCodes(codeList, agency, version);
+			}
+		});
+	}
+
+	@Override
+	public Future<List<PortableTimeSeries<Double>>> getTimeSeriesAsync(final Dataflow dataflow, final DataFlowStructure dsd,
+			final String resource, final String startTime, final String endTime, final boolean serieskeysonly,
+			final String updatedAfter, final boolean includeHistory)
+	{
+		return getExecutor().submit(new Callable<List<PortableTimeSeries<Double>>>() {
+			@Override
+			public List<PortableTimeSeries<Double>> call() throws SdmxException
+			{
+				return getTimeSeries(dataflow, dsd, resource, startTime, endTime, serieskeysonly, updatedAfter, includeHistory);
+			}
+		});
+	}
+
 	@Override
 	public Map<String, Dataflow> getDataflows() throws SdmxException
 	{
@@ -238,16 +372,175 @@ public class RestSdmxClient implements GenericSDMXClient
 	public List<PortableTimeSeries<Double>> getTimeSeries(Dataflow dataflow, DataFlowStructure dsd, String resource, String startTime, String endTime,
 			boolean serieskeysonly, String updatedAfter, boolean includeHistory) throws SdmxException
 	{
-		return postProcess(getData(dataflow, dsd, resource, startTime, endTime, serieskeysonly, updatedAfter, includeHistory));
+		List<String[]> windows = serieskeysonly ? null
+				: TimeRangeChunker.split(startTime, endTime, getFrequency(dsd, resource), Configuration.getChunkPeriods(name));
+		if (windows == null)
+			return postProcess(getData(dataflow, dsd, resource, startTime, endTime, serieskeysonly, updatedAfter, includeHistory));
+		else
+			return postProcess(getChunkedData(dataflow, dsd, resource, windows, updatedAfter, includeHistory));
 	}
 
+	@Override
+	public void getTimeSeries(Dataflow dataflow, DataFlowStructure dsd, String resource, String startTime, String endTime,
+			boolean serieskeysonly, String updatedAfter, boolean includeHistory, SeriesHandler handler) throws SdmxException
+	{
+		if (handler == null)
+			throw new SdmxInvalidParameterException("getTimeSeries(): Null handler in input");
+		getData(dataflow, dsd, resource, startTime, endTime, serieskeysonly, updatedAfter, includeHistory, handler);
+	}
+
+	/**
+	 * Downloads the data of each time window in parallel, and stitches the series back together. The windows run on a
+	 * pool of the provider, sized by {@code parallel.queries}, and never on the executor of the asynchronous API, whose
+	 * threads may be the ones waiting for them.
+	 */
+	protected DataParsingResult getChunkedData(final Dataflow dataflow, final DataFlowStructure dsd, final String resource,
+			List<String[]> windows, final String updatedAfter, final boolean includeHistory) throws SdmxException
+	{
+		logger.fine("Splitting query for " + resource + " in " + windows.size() + " time windows.");
+		final AtomicReference<SdmxException> noResults = new AtomicReference<>();
+		List<Future<DataParsingResult>> futures = new ArrayList<>();
+		ExecutorService windowExecutor = getWindowExecutor(name);
+		for (final String[] window : windows)
+			futures.add(windowExecutor.submit(new Callable<DataParsingResult>() {
+				@Override
+				public DataParsingResult call() throws SdmxException
+				{
+					try
+					{
+						return getData(dataflow, dsd, resource, window[0], window[1], false, updatedAfter, includeHistory);
+					}
+					catch (SdmxResponseException e)
+					{
+						// some windows may be outside the time span of the series
+						if (e.getResponseCode() != SdmxResponseException.SDMX_NO_RESULTS_FOUND)
+							throw e;
+						noResults.set(e);
+						return new DataParsingResult();
+					}
+				}
+			}));
+
+		List<DataParsingResult> results = new ArrayList<>();
+		try
+		{
+			for (Future<DataParsingResult> future : futures)
+				results.add(future.get());
+			if (noResults.get() != null && TimeRangeChunker.isEmpty(results))
+				throw noResults.get();
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof SdmxException)
+				throw (SdmxException) cause;
+			else if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			else
+				throw (Error) cause;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new SdmxIOException("Interrupted while downloading " + resource, new InterruptedIOException(e.getMessage()));
+		}
+		finally
+		{
+			for (Future<DataParsingResult> future : futures)
+				future.cancel(true);
+		}
+
+		DataParsingResult result = new DataParsingResult();
+		result.setData(TimeRangeChunker.stitch(results));
+		for (DataParsingResult window : results)
+			if (result.getMessage() == null)
+				result.setMessage(window.getMessage());
+		return result;
+	}
+
+	private static ExecutorService getWindowExecutor(String provider)
+	{
+		ExecutorService executor = windowExecutors.get(provider);
+		if (executor == null)
+		{
+			int parallelism = Configuration.getParallelQueries(provider);
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(parallelism, parallelism, 60L, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new SdmxThreadFactory(provider + "-window"));
+			pool.allowCoreThreadTimeOut(true);
+			executor = windowExecutors.putIfAbsent(provider, pool);
+			if (executor == null)
+				executor = pool;
+			else
+				pool.shutdown();
+		}
+		return executor;
+	}
+
+	// the highest frequency selected by a key, or null if unknown
+	private static String getFrequency(DataFlowStructure dsd, String resource)
+	{
+		Dimension freq = dsd == null ? null : dsd.getDimension("FREQ");
+		if (freq == null && dsd != null)
+			freq = dsd.getDimension("FREQUENCY");
+		String[] codes = resource == null ? new String[0] : resource.split("\\.", -1);
+		if (freq == null || freq.getPosition() > codes.length || codes[freq.getPosition() - 1].isEmpty())
+			return null;
+
+		String highest = null;
+		for (String code : codes[freq.getPosition() - 1].split("\\+"))
+			if (highest == null || TimeRangeChunker.periodsPerYear(code) > TimeRangeChunker.periodsPerYear(highest))
+				highest = code;
+		return highest;
+	}
+
+	/**
+	 * Downloads and parses the data of a query. Subclasses overriding this method should also override
+	 * {@link #getData(Dataflow, DataFlowStructure, String, String, String, boolean, String, boolean, SeriesHandler)},
+	 * which serves the streamed queries.
+	 */
 	protected DataParsingResult getData(Dataflow dataflow, DataFlowStructure dsd, String resource, String startTime, String endTime, boolean serieskeysonly,
 			String updatedAfter, boolean includeHistory) throws SdmxException
+	{
+		return getData(dataflow, dsd, resource, startTime, endTime, serieskeysonly, updatedAfter, includeHistory, null);
+	}
+
+	/**
+	 * Downloads and parses the data of a query.
+	 * 
+	 * @param handler if not null, the series are passed to it as soon as they are parsed and the result holds none of
+	 *            them
+	 */
+	protected DataParsingResult getData(Dataflow dataflow, DataFlowStructure dsd, String resource, String startTime, String endTime, boolean serieskeysonly,
+			String updatedAfter, boolean includeHistory, SeriesHandler handler) throws SdmxException
 	{
 		URL query = buildDataQuery(dataflow, resource, startTime, endTime, serieskeysonly, updatedAfter, includeHistory);
 		String dumpName = "data_" + dataflow.getId() + "_" + resource; //.replaceAll("\\p{Punct}", "_");
-		DataParsingResult ts = runQuery(new CompactDataParser(dsd, dataflow, !serieskeysonly), query,
-				"application/vnd.sdmx.structurespecificdata+xml;version=2.1", dumpName);
+		DataParsingResult ts;
+		// only SDMX-ML is parsed one series at a time
+		String format = serieskeysonly || handler != null ? Configuration.DATA_FORMAT_XML : Configuration.getDataFormat(name);
+		if (!format.equals(Configuration.DATA_FORMAT_XML))
+		{
+			// prefer SDMX-CSV or SDMX-JSON, but accept SDMX-ML from providers that do not support them
+			Map<String, StreamParser<DataParsingResult>> streamParsers = new HashMap<>();
+			String mediaType;
+			if (format.equals(Configuration.DATA_FORMAT_CSV))
+			{
+				mediaType = CsvDataParser.MEDIA_TYPE;
+				streamParsers.put(mediaType, new CsvDataParser(dsd, dataflow, true));
+				streamParsers.put("text/csv", streamParsers.get(mediaType));
+			}
+			else
+			{
+				mediaType = JsonDataParser.MEDIA_TYPE;
+				streamParsers.put(mediaType, new JsonDataParser(dsd, dataflow, true));
+				streamParsers.put("application/json", streamParsers.get(mediaType));
+			}
+			ts = runQuery(new CompactDataParser(dsd, dataflow, true), streamParsers, query,
+					mediaType + ";version=1.0.0, application/vnd.sdmx.structurespecificdata+xml;version=2.1;q=0.9", dumpName);
+		}
+		else
+			ts = runQuery(new CompactDataParser(dsd, dataflow, !serieskeysonly, handler), query,
+					"application/vnd.sdmx.structurespecificdata+xml;version=2.1", dumpName);
 		Message msg = ts.getMessage();
 		if (msg != null)
 		{
@@ -306,6 +599,7 @@ public class RestSdmxClient implements GenericSDMXClient
 
 	/**
 	 * Returns a reader over the result of an http query.
+	 * Identical queries issued concurrently are sent only once, and each caller receives its own copy of the series.
 	 *
 	 * @param query a non-null query
 	 * @param acceptHeader a nullable accept header
@@ -313,7 +607,49 @@ public class RestSdmxClient implements GenericSDMXClient
 	 * 
 	 * @throws SdmxException
 	 */
-	protected final <T> T runQuery(Parser<T> parser, URL query, String acceptHeader, String dumpName) throws SdmxException
+	protected final <T> T runQuery(Parser<T> parser, URL query, String acceptHeader, String dumpName)
+			throws SdmxException
+	{
+		return runQuery(parser, null, query, acceptHeader, dumpName);
+	}
+
+	/**
+	 * Returns the result of an http query, parsing it with one of the stream parsers when the provider answers with
+	 * their media type, or with the SDMX-ML parser otherwise.
+	 *
+	 * @param parser a non-null parser for SDMX-ML responses
+	 * @param streamParsers a nullable map from the media types to their parsers
+	 * @param query a non-null query
+	 * @param acceptHeader a nullable accept header
+	 * @return a non-null reader
+	 * 
+	 * @throws SdmxException
+	 */
+	protected final <T> T runQuery(final Parser<T> parser, final Map<String, StreamParser<T>> streamParsers, final URL query,
+			final String acceptHeader, final String dumpName) throws SdmxException
+	{
+		// series passed to a handler cannot be shared with other callers
+		if (parser instanceof CompactDataParser && ((CompactDataParser) parser).getHandler() != null)
+			return doRunQuery(parser, streamParsers, query, acceptHeader, dumpName);
+
+		String key = name + "|" + parser.getClass().getName() + "|" + query + "|" + acceptHeader + "|" + languages + "|" + user;
+		return queries.execute(key, new Callable<T>() {
+			@Override
+			public T call() throws SdmxException
+			{
+				return doRunQuery(parser, streamParsers, query, acceptHeader, dumpName);
+			}
+		}, RestSdmxClient.<T> copier());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> SingleFlight.Copier<T> copier()
+	{
+		return (SingleFlight.Copier<T>) (SingleFlight.Copier<?>) dataCopier;
+	}
+
+	private <T> T doRunQuery(Parser<T> parser, Map<String, StreamParser<T>> streamParsers, URL query, String acceptHeader,
+			String dumpName) throws SdmxException
 	{
 		final String sourceMethod = "runQuery";
 		logger.entering(sourceClass, sourceMethod);
@@ -328,7 +664,28 @@ public class RestSdmxClient implements GenericSDMXClient
 			int code;
 			url = query;
 
-			Proxy proxy = (proxySelector != null ? proxySelector : ProxySelector.getDefault()).select(url.toURI()).get(0);
+			String cacheKey = null;
+			HttpResponseCache.Entry cached = null;
+			if (cache != null && url.getProtocol().startsWith("http"))
+			{
+				cacheKey = HttpResponseCache.key(name, url, acceptHeader, languages, user);
+				cached = cache.get(cacheKey);
+				if (cached != null && cached.isFresh(cacheTtl))
+				{
+					InputStream stream = open(cached);
+					if (stream != null)
+					{
+						logger.fine("Using cached response for query: " + query);
+						return parse(parser, streamParsers, cached.getContentType(), stream);
+					}
+					// evicted in the meantime
+					cached = null;
+				}
+			}
+
+			// the default selector rejects the file URLs of local providers
+			Proxy proxy = !url.getProtocol().startsWith("http") ? Proxy.NO_PROXY
+					: (proxySelector != null ? proxySelector : ProxySelector.getDefault()).select(url.toURI()).get(0);
 			logger.fine("Using proxy: " + proxy);
 			
 			openEventListener.onSdmxEvent(new OpenEvent(url, acceptHeader, languages, proxy));
@@ -336,7 +693,7 @@ public class RestSdmxClient implements GenericSDMXClient
 			int redirects = 0;
 			do
 			{
-				conn = url.openConnection(proxy);
+				conn = transport.open(url, proxy, connectTimeout);
 
 				if (conn instanceof HttpsURLConnection && sslSocketFactory != null)
 				{
@@ -358,6 +715,10 @@ public class RestSdmxClient implements GenericSDMXClient
 					((HttpURLConnection) conn).setRequestMethod("GET");
 					((HttpURLConnection) conn).setInstanceFollowRedirects(false);
 					handleHttpHeaders((HttpURLConnection) conn, acceptHeader);
+					if (cached != null && cached.getEtag() != null)
+						conn.setRequestProperty("If-None-Match", cached.getEtag());
+					if (cached != null && cached.getLastModified() != null)
+						conn.setRequestProperty("If-Modified-Since", cached.getLastModified());
 				}
 
 				code = conn instanceof HttpURLConnection ? ((HttpURLConnection) conn).getResponseCode() : HttpURLConnection.HTTP_OK;
@@ -365,8 +726,8 @@ public class RestSdmxClient implements GenericSDMXClient
 				if (isRedirection(code))
 				{
 					URL redirection = getRedirectionURL(conn, code);
-					if (conn instanceof HttpURLConnection)
-						((HttpURLConnection) conn).disconnect();
+					transport.release(conn);
+					conn = null;
 					if (isDowngradingProtocolOnRedirect(url, redirection)) {
 						throw new SdmxRedirectionException("Downgrading protocol on redirect from '" + url + "' to '" + redirection + "'");
 					}
@@ -382,20 +743,27 @@ public class RestSdmxClient implements GenericSDMXClient
 				throw new SdmxRedirectionException("Max redirection reached");
 			}
 			
-			if (code == HttpURLConnection.HTTP_OK)
+			if (code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null)
 			{
-				logger.fine("Connection opened. Code: " + code);
-				InputStream stream = conn.getInputStream();
-				String encoding = conn.getContentEncoding() == null ? "" : conn.getContentEncoding();
-				if (encoding.equalsIgnoreCase("gzip"))
-					stream = new GZIPInputStream(stream);
-				else if (encoding.equalsIgnoreCase("deflate"))
-					stream = new InflaterInputStream(stream);
-				else if (conn.getContentType() != null && conn.getContentType().contains("application/octet-stream"))
+				transport.release(conn);
+				conn = null;
+				InputStream stream = open(cached);
+				if (stream == null)
 				{
-					stream = new ZipInputStream(stream);
-					((ZipInputStream) stream).getNextEntry();
+					// evicted since the request was sent: ask again without validators
+					logger.fine("Cached response evicted, querying again: " + query);
+					return doRunQuery(parser, streamParsers, query, acceptHeader, dumpName);
 				}
+				logger.fine("Response not modified, using cached response for query: " + query);
+				cached.revalidated();
+				return parse(parser, streamParsers, cached.getContentType(), stream);
+			}
+			else if (code == HttpURLConnection.HTTP_OK)
+			{
+				logger.fine("Connection opened. Code: " + code);
+				String contentType = conn.getContentType();
+				StreamParser<T> streamParser = getStreamParser(streamParsers, contentType);
+				InputStream stream = decode(conn, transport.body(conn));
 
 				if (Configuration.isDumpXml() && !(this instanceof FILE) && dumpName != null) // skip local and non 2.1 providers
 				{
@@ -405,32 +773,38 @@ public class RestSdmxClient implements GenericSDMXClient
 					while ((i = stream.read(buf, 0, 4096)) > 0)
 						baos.write(buf, 0, i);
 					baos.close();
+					// give the connection back before parsing
+					stream.close();
+					stream = new ByteArrayInputStream(baos.toByteArray());
 //					String resource = URLDecoder.decode(url.getPath(), StandardCharsets.UTF_8.name()).replaceAll(endpoint.getPath() + "/?", "")
 //							.replaceFirst("/$", "").replaceAll("\\p{Punct}", "_") + ".xml";
 					System.err.println(Configuration.getDumpPrefix());
-					File dumpfilename = new File(Configuration.getDumpPrefix() + File.separator + name, dumpName + ".xml");
+					File dumpfilename = new File(Configuration.getDumpPrefix() + File.separator + name, dumpName + getDumpExtension(streamParser != null ? contentType : null));
 					if (!dumpfilename.getParentFile().exists() && !dumpfilename.getParentFile().mkdirs()) {
 					    logger.warning("Error creating path to dump file: " + dumpfilename);
 					}
 					else{
-						logger.info("Dumping xml to file " + dumpfilename.getAbsolutePath());
+						logger.info("Dumping response to file " + dumpfilename.getAbsolutePath());
 						FileOutputStream dumpfile = new FileOutputStream(dumpfilename);
 						dumpfile.write(baos.toByteArray());
 						dumpfile.close();
-						stream = new ByteArrayInputStream(baos.toByteArray());
 					}
 				}
 
-				try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8))
-				{
-					XMLInputFactory inputFactory = XMLInputFactory.newFactory();
-					preventXXE(inputFactory);
-					BufferedReader br = skipBOM(reader);
-					// InputStream in = new ByteArrayInputStream(xmlBuffer);
-					XMLEventReader eventReader = inputFactory.createXMLEventReader(br);
+				String etag = conn.getHeaderField("ETag");
+				String lastModified = conn.getHeaderField("Last-Modified");
+				if (cacheKey != null && (etag != null || lastModified != null || cacheTtl > 0))
+					try
+					{
+						stream = cache.store(cacheKey, etag, lastModified, contentType, stream);
+					}
+					catch (IOException e)
+					{
+						// the cache is only an optimization
+						logger.fine("Cannot cache the response of query " + query + ": " + e.getMessage());
+					}
 
-					return parser.parse(eventReader, languages != null ? languages : LanguagePriorityList.ANY);
-				}
+				return parse(parser, streamParsers, contentType, stream);
 			}
 			else
 			{
@@ -439,10 +813,7 @@ public class RestSdmxClient implements GenericSDMXClient
 					String msg = new BufferedReader(new InputStreamReader(is)).readLine();
 					logger.severe(msg);
 				}
-				SdmxException ex = SdmxExceptionFactory.createRestException(code, null, null);
-				if (conn instanceof HttpURLConnection)
-					((HttpURLConnection) conn).disconnect();
-				throw ex;
+				throw SdmxExceptionFactory.createRestException(code, null, null);
 			}
 		}
 		catch (IOException e)
@@ -465,11 +836,108 @@ public class RestSdmxClient implements GenericSDMXClient
 		}
 		finally
 		{
-			if (conn != null && conn instanceof HttpURLConnection)
-				((HttpURLConnection) conn).disconnect();
+			if (conn != null)
+				transport.release(conn);
 		}
 	}
 
+	// the body of a cached response, or null if the entry cannot be read anymore
+	private static InputStream open(HttpResponseCache.Entry cached)
+	{
+		try
+		{
+			return cached.open();
+		}
+		catch (IOException e)
+		{
+			logger.fine("Cannot read cached response: " + e.getMessage());
+			return null;
+		}
+	}
+
+	// wraps the body in the decoder of its encoding; the body is closed, and its socket given back, if that fails
+	private static InputStream decode(URLConnection conn, InputStream body) throws IOException
+	{
+		try
+		{
+			String encoding = conn.getContentEncoding() == null ? "" : conn.getContentEncoding();
+			if (encoding.equalsIgnoreCase("gzip"))
+				return new GZIPInputStream(body);
+			else if (encoding.equalsIgnoreCase("deflate"))
+				return new InflaterInputStream(body);
+			else if (conn.getContentType() != null && conn.getContentType().contains("application/octet-stream"))
+			{
+				ZipInputStream zip = new ZipInputStream(body);
+				zip.getNextEntry();
+				return zip;
+			}
+			return body;
+		}
+		catch (IOException | RuntimeException e)
+		{
+			try
+			{
+				body.close();
+			}
+			catch (IOException closing)
+			{
+				e.addSuppressed(closing);
+			}
+			throw e;
+		}
+	}
+
+	private <T> T parse(Parser<T> parser, Map<String, StreamParser<T>> streamParsers, String contentType, InputStream stream)
+			throws IOException, XMLStreamException, SdmxException
+	{
+		try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8))
+		{
+			BufferedReader br = skipBOM(reader);
+			StreamParser<T> streamParser = getStreamParser(streamParsers, contentType);
+			T result;
+			if (streamParser != null)
+			{
+				logger.fine("Parsing response of type " + contentType);
+				result = streamParser.parse(br, languages != null ? languages : LanguagePriorityList.ANY);
+			}
+			else
+			{
+				XMLStreamReader xmlReader = XmlStreams.createStreamReader(br);
+				try
+				{
+					result = parser.parse(xmlReader, languages != null ? languages : LanguagePriorityList.ANY);
+				}
+				finally
+				{
+					xmlReader.close();
+				}
+			}
+			if (stream instanceof HttpResponseCache.CachingInputStream)
+				((HttpResponseCache.CachingInputStream) stream).complete();
+			return result;
+		}
+	}
+
+	private static String getDumpExtension(String contentType)
+	{
+		if (contentType == null)
+			return ".xml";
+		else if (contentType.contains("json"))
+			return ".json";
+		else
+			return ".csv";
+	}
+
+	// selects the stream parser registered for the media type of a response, ignoring its parameters
+	private static <T> StreamParser<T> getStreamParser(Map<String, StreamParser<T>> streamParsers, String contentType)
+	{
+		if (streamParsers == null || contentType == null)
+			return null;
+		int params = contentType.indexOf(';');
+		String mediaType = (params >= 0 ? contentType.substring(0, params) : contentType).trim().toLowerCase();
+		return streamParsers.get(mediaType);
+	}
+
 	protected void handleHttpHeaders(HttpURLConnection conn, String acceptHeader)
 	{
 		if (containsCredentials)
@@ -581,19 +1049,6 @@ public class RestSdmxClient implements GenericSDMXClient
 		return br;
 	}
 
-	// https://www.owasp.org/index.php/XML_External_Entity_(XXE)_Prevention_Cheat_Sheet#XMLInputFactory_.28a_StAX_parser.29
-	private static void preventXXE(XMLInputFactory factory)
-	{
-		if (factory.isPropertySupported(XMLInputFactory.SUPPORT_DTD))
-		{
-			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
-		}
-		if (factory.isPropertySupported(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES))
-		{
-			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
-		}
-	}
-
 	/**
 	 * Override this method in subclasses to perform some post processing of the retrieved series.
 	 * 
@@ -21,6 +21,9 @@
 
 package it.bancaditalia.oss.sdmx.client;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.logging.Level;
@@ -28,21 +31,43 @@ import java.util.logging.Logger;
 
 import it.bancaditalia.oss.sdmx.api.BaseObservation;
 import it.bancaditalia.oss.sdmx.api.Dimension;
+import it.bancaditalia.oss.sdmx.api.DoubleTimeSeries;
 import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
 import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
 import it.bancaditalia.oss.sdmx.util.Configuration;
+import it.bancaditalia.oss.sdmx.util.TimePeriod;
+import it.bancaditalia.oss.sdmx.util.XptWriter;
 
 /**
  * <p>
  * Java class for optimizing interactions with the SdmxClients in SAS. It provides a sort of 'session', storing the
  * clients that are created and reusing them. It also provides caching of last time series queried and of all key
  * families retrieved.
+ * <p>
+ * The last query is kept in three column-oriented tables, the data, the series metadata and the observation metadata.
+ * SAS can read them a cell at a time or, with far fewer calls, a block of rows at a time: a block is a string of rows
+ * ended by a new line, with the fields separated by tabs.
+ * <p>
+ * A large query can be read a page at a time, so that the memory used does not depend on the size of the result.
+ * <p>
+ * The same tables can be written to a SAS transport file instead, that SAS reads at once with the XPORT engine.
  * 
  * @author Attilio Mattiocco
  *
  */
 public class SASClientHandler extends SdmxClientHandler
 {
+	/**
+	 * The longest block returned, which fits a SAS character variable.
+	 */
+	public static final int	MAX_BLOCK_LENGTH	= 32767;
+
+	// fields are truncated so that a row always fits in a block
+	private static final int	MAX_FIELD_LENGTH	= 1000;
+	private static final String	DIMENSION			= "DIMENSION";
+	private static final String	ATTRIBUTE			= "ATTRIBUTE";
+	// the parsed series waiting to be paged
+	private static final int	QUEUED_SERIES		= 4;
 
 	private static class SdmxSASException extends SdmxException
 	{
@@ -58,261 +83,256 @@ public class SASClientHandler extends SdmxClientHandler
 
 	}
 
-	private static class DataCache
+	/**
+	 * A table whose rows belong to the series of the query. The name of the series of each row is stored as an index.
+	 */
+	private abstract static class Cache
 	{
-		private static final int	NAME_COL	= 0;
-		private static final int	TIME_COL	= 1;
-		private static final int	OBS_COL		= 2;
+		final String[]	names;
+		final int[]		series;
+		int				size	= 0;
 
-		Object[][]					data		= null;
-
-		DataCache(int size)
+		Cache(String[] names, int capacity)
 		{
-			super();
-			this.data = new Object[size][3];
+			this.names = names;
+			this.series = new int[capacity];
 		}
 
-		void setRow(int rowIndex, String name, String time, double obs) throws SdmxException
+		void check(int rowIndex, String error) throws SdmxSASException
 		{
-			if (data != null && rowIndex < data.length)
-			{
-				data[rowIndex][NAME_COL] = name;
-				data[rowIndex][TIME_COL] = time;
-				data[rowIndex][OBS_COL] = new Double(obs);
-			}
-			else
-			{
-				throw new SASClientHandler.SdmxSASException("Row index exceeds data size");
-			}
+			if (rowIndex < 0 || rowIndex >= size)
+				throw new SASClientHandler.SdmxSASException(error + " cache error: index exceeds size.");
 		}
 
-		double getObservation(int rowIndex) throws SASClientHandler.SdmxSASException
+		String getName(int rowIndex)
 		{
-			if (data != null && rowIndex < data.length)
-			{
-				return ((Double) data[rowIndex][OBS_COL]).doubleValue();
-			}
-			else
-			{
-				throw new SASClientHandler.SdmxSASException("Data cache error: cache is null or index exceeds size.");
-			}
+			return names[series[rowIndex]];
 		}
 
-		String getName(int rowIndex) throws SASClientHandler.SdmxSASException
+		int size()
 		{
-			if (data != null && rowIndex < data.length)
-			{
-				return (String) data[rowIndex][NAME_COL];
-			}
-			else
-			{
-				throw new SASClientHandler.SdmxSASException("Data cache error: cache is null or index exceeds size.");
-			}
+			return size;
 		}
 
-		String getTimestamp(int rowIndex) throws SASClientHandler.SdmxSASException
+		/**
+		 * Appends the rows from start to the block, as long as it does not exceed the maximum length, and at least
+		 * one row.
+		 */
+		String getBlock(int start, int count)
 		{
-			if (data != null && rowIndex < data.length)
+			StringBuilder block = new StringBuilder(Math.min(MAX_BLOCK_LENGTH, 64 * Math.max(count, 1)));
+			int end = (int) Math.min((long) start + count, size);
+			for (int row = Math.max(start, 0); row < end; row++)
 			{
-				return (String) data[rowIndex][TIME_COL];
-			}
-			else
-			{
-				throw new SASClientHandler.SdmxSASException("Data cache error: cache is null or index exceeds size.");
+				int length = block.length();
+				appendRow(block, row);
+				if (block.length() > MAX_BLOCK_LENGTH && length > 0)
+				{
+					block.setLength(length);
+					break;
+				}
 			}
+			return block.toString();
 		}
 
-		int size()
+		abstract void appendRow(StringBuilder block, int row);
+
+		static void appendField(StringBuilder block, String value, char end)
 		{
-			if (data != null)
-				return data.length;
-			else
-				return -1;
+			if (value != null)
+				for (int i = 0, length = Math.min(value.length(), MAX_FIELD_LENGTH); i < length; i++)
+				{
+					char c = value.charAt(i);
+					block.append(c == '\t' || c == '\n' || c == '\r' ? ' ' : c);
+				}
+			block.append(end);
 		}
 	}
 
-	private static class MetadataCache
+	/**
+	 * The observations from..to of a series, with the names of its observation attributes.
+	 */
+	private static class Slice
 	{
-		private static final int	NAME_COL	= 0;
-		private static final int	KEY_COL		= 1;
-		private static final int	VALUE_COL	= 2;
-		private static final int	TYPE_COL	= 3;
+		final PortableTimeSeries<Double>	ts;
+		final String[]						attributes;
+		final int							from;
+		final int							to;
 
-		String[][]					data		= null;
-
-		MetadataCache(int size)
+		Slice(PortableTimeSeries<Double> ts, String[] attributes, int from, int to)
 		{
-			super();
-			this.data = new String[size][4];
+			this.ts = ts;
+			this.attributes = attributes;
+			this.from = from;
+			this.to = to;
 		}
+	}
 
-		void setRow(int rowIndex, String name, String key, String value, String type)
-				throws SASClientHandler.SdmxSASException
+	private static class DataCache extends Cache
+	{
+		final String[]	times;
+		final double[]	values;
+
+		DataCache(String[] names, int capacity)
 		{
-			if (data != null && rowIndex < data.length)
-			{
-				data[rowIndex][NAME_COL] = name;
-				data[rowIndex][KEY_COL] = key;
-				data[rowIndex][VALUE_COL] = value;
-				data[rowIndex][TYPE_COL] = type;
-			}
-			else
-			{
-				throw new SASClientHandler.SdmxSASException("Row index exceeds metadata size");
-			}
+			super(names, capacity);
+			this.times = new String[capacity];
+			this.values = new double[capacity];
 		}
 
-		String getName(int rowIndex) throws SASClientHandler.SdmxSASException
+		void addRow(int name, String time, double obs)
 		{
-			if (data != null && rowIndex < data.length)
-			{
-				return (String) data[rowIndex][NAME_COL];
-			}
-			else
-			{
-				throw new SASClientHandler.SdmxSASException(
-						"Metadata cache error: cache is null or index exceeds size.");
-			}
+			series[size] = name;
+			times[size] = time;
+			values[size++] = obs;
 		}
 
-		String getKey(int rowIndex) throws SASClientHandler.SdmxSASException
+		@Override
+		void appendRow(StringBuilder block, int row)
 		{
-			if (data != null && rowIndex < data.length)
-			{
-				return (String) data[rowIndex][KEY_COL];
-			}
+			appendField(block, getName(row), '\t');
+			appendField(block, times[row], '\t');
+			// the SAS missing value
+			if (Double.isNaN(values[row]))
+				block.append('.');
 			else
-			{
-				throw new SASClientHandler.SdmxSASException(
-						"Metadata cache error: cache is null or index exceeds size.");
-			}
+				block.append(values[row]);
+			block.append('\t');
+			appendField(block, TimePeriod.toIsoDate(times[row]), '\n');
 		}
+	}
 
-		String getValue(int rowIndex) throws SASClientHandler.SdmxSASException
+	private static class MetadataCache extends Cache
+	{
+		final String[]	keys;
+		final String[]	values;
+		final String[]	types;
+
+		MetadataCache(String[] names, int capacity)
 		{
-			if (data != null && rowIndex < data.length)
-			{
-				return (String) data[rowIndex][VALUE_COL];
-			}
-			else
-			{
-				throw new SASClientHandler.SdmxSASException(
-						"Metadata cache error: cache is null or index exceeds size.");
-			}
+			super(names, capacity);
+			this.keys = new String[capacity];
+			this.values = new String[capacity];
+			this.types = new String[capacity];
 		}
 
-		String getType(int rowIndex) throws SASClientHandler.SdmxSASException
+		void addRow(int name, String key, String value, String type)
 		{
-			if (data != null && rowIndex < data.length)
-			{
-				return (String) data[rowIndex][TYPE_COL];
-			}
-			else
-			{
-				throw new SASClientHandler.SdmxSASException(
-						"Metadata cache error: cache is null or index exceeds size.");
-			}
+			series[size] = name;
+			keys[size] = key;
+			values[size] = value;
+			types[size++] = type;
 		}
 
-		int size()
+		@Override
+		void appendRow(StringBuilder block, int row)
 		{
-			if (data != null)
-				return data.length;
-			else
-				return -1;
+			appendField(block, getName(row), '\t');
+			appendField(block, keys[row], '\t');
+			appendField(block, values[row], '\t');
+			appendField(block, types[row], '\n');
 		}
-
 	}
 
-	private static class ObservationMetadataCache
+	private static class ObservationMetadataCache extends Cache
 	{
-		private static final int	NAME_COL	= 0;
-		private static final int	KEY_COL		= 1;
-		private static final int	VALUE_COL	= 2;
-		private static final int	DATE_COL	= 3;
+		final String[]	keys;
+		final String[]	values;
+		final String[]	dates;
 
-		String[][]					data		= null;
-
-		ObservationMetadataCache(int size)
+		ObservationMetadataCache(String[] names, int capacity)
 		{
-			super();
-			this.data = new String[size][4];
+			super(names, capacity);
+			this.keys = new String[capacity];
+			this.values = new String[capacity];
+			this.dates = new String[capacity];
 		}
 
-		void setRow(int rowIndex, String name, String key, String value, String date)
-				throws SASClientHandler.SdmxSASException
+		void addRow(int name, String key, String value, String date)
 		{
-			if (data != null && rowIndex < data.length)
-			{
-				data[rowIndex][NAME_COL] = name;
-				data[rowIndex][KEY_COL] = key;
-				data[rowIndex][VALUE_COL] = value;
-				data[rowIndex][DATE_COL] = date;
-			}
-			else
-			{
-				throw new SASClientHandler.SdmxSASException("Row index exceeds metadata size");
-			}
+			series[size] = name;
+			keys[size] = key;
+			values[size] = value;
+			dates[size++] = date;
 		}
 
-		String getName(int rowIndex) throws SASClientHandler.SdmxSASException
+		@Override
+		void appendRow(StringBuilder block, int row)
 		{
-			if (data != null && rowIndex < data.length)
-			{
-				return (String) data[rowIndex][NAME_COL];
-			}
-			else
-			{
-				throw new SASClientHandler.SdmxSASException(
-						"Metadata cache error: cache is null or index exceeds size.");
-			}
+			appendField(block, getName(row), '\t');
+			appendField(block, keys[row], '\t');
+			appendField(block, values[row], '\t');
+			appendField(block, dates[row], '\n');
 		}
+	}
 
-		String getKey(int rowIndex) throws SASClientHandler.SdmxSASException
-		{
-			if (data != null && rowIndex < data.length)
-			{
-				return (String) data[rowIndex][KEY_COL];
-			}
-			else
+	/**
+	 * The three tables of a list of slices.
+	 */
+	private static class Tables
+	{
+		final DataCache					data;
+		final MetadataCache				metadata;
+		final ObservationMetadataCache	obsmetadata;
+
+		Tables(List<Slice> slices)
+		{
+			// first pass: the size of the tables
+			int datasize = 0;
+			int metasize = 0;
+			long obsmetasize = 0;
+			String[] names = new String[slices.size()];
+			for (int s = 0; s < names.length; s++)
 			{
-				throw new SASClientHandler.SdmxSASException(
-						"Metadata cache error: cache is null or index exceeds size.");
+				Slice slice = slices.get(s);
+				names[s] = slice.ts.getName();
+				datasize += slice.to - slice.from;
+				if (slice.from == 0)
+					metasize += slice.ts.getDimensionsMap().size() + slice.ts.getAttributesMap().size();
+				obsmetasize += (long) slice.attributes.length * (slice.to - slice.from);
 			}
-		}
+			if (obsmetasize > Integer.MAX_VALUE - 8)
+				throw new IllegalStateException("Too many observation attributes for SAS: " + obsmetasize);
 
-		String getValue(int rowIndex) throws SASClientHandler.SdmxSASException
-		{
-			if (data != null && rowIndex < data.length)
-			{
-				return (String) data[rowIndex][VALUE_COL];
-			}
-			else
-			{
-				throw new SASClientHandler.SdmxSASException(
-						"Metadata cache error: cache is null or index exceeds size.");
-			}
-		}
+			data = new DataCache(names, datasize);
+			metadata = new MetadataCache(names, metasize);
+			obsmetadata = new ObservationMetadataCache(names, (int) obsmetasize);
 
-		String getDate(int rowIndex) throws SASClientHandler.SdmxSASException
-		{
-			if (data != null && rowIndex < data.length)
+			for (int s = 0; s < names.length; s++)
 			{
-				return (String) data[rowIndex][DATE_COL];
-			}
-			else
-			{
-				throw new SASClientHandler.SdmxSASException(
-						"Metadata cache error: cache is null or index exceeds size.");
-			}
-		}
+				Slice slice = slices.get(s);
+				PortableTimeSeries<Double> ts = slice.ts;
+				// setting ts level metadata, with the first part of the series
+				if (slice.from == 0)
+				{
+					for (Entry<String, String> dimension : ts.getDimensionsMap().entrySet())
+						metadata.addRow(s, dimension.getKey(), dimension.getValue(), DIMENSION);
+					for (Entry<String, String> attribute : ts.getAttributesMap().entrySet())
+						metadata.addRow(s, attribute.getKey(), attribute.getValue(), ATTRIBUTE);
+				}
 
-		int size()
-		{
-			if (data != null)
-				return data.length;
-			else
-				return -1;
+				if (ts instanceof DoubleTimeSeries)
+				{
+					// read the columns directly, without an observation object per row
+					DoubleTimeSeries dts = (DoubleTimeSeries) ts;
+					for (int i = slice.from; i < slice.to; i++)
+					{
+						String time = dts.getTimeslotAt(i);
+						data.addRow(s, time, dts.getValueAt(i));
+						for (String attribute : slice.attributes)
+							obsmetadata.addRow(s, attribute, dts.getAttributeAt(i, attribute), time);
+					}
+				}
+				else
+					for (int i = slice.from; i < slice.to; i++)
+					{
+						BaseObservation<? extends Double> obs = ts.get(i);
+						String time = obs.getTimeslot();
+						data.addRow(s, time, obs.getValueAsDouble());
+						for (String attribute : slice.attributes)
+							obsmetadata.addRow(s, attribute, obs.getAttributeValue(attribute), time);
+					}
+			}
 		}
 	}
 
@@ -321,6 +341,12 @@ public class SASClientHandler extends SdmxClientHandler
 	private static MetadataCache			metadata	= null;
 	private static ObservationMetadataCache	obsmetadata	= null;
 
+	// the state of the query read a page at a time
+	private static SeriesCursor					cursor				= null;
+	private static PortableTimeSeries<Double>	current				= null;
+	private static String[]						currentAttributes	= null;
+	private static int							offset				= 0;
+
 	public static String makeGetDimensions(String provider, String dataflow)
 	{
 		StringBuilder result = new StringBuilder();
@@ -344,6 +370,7 @@ public class SASClientHandler extends SdmxClientHandler
 	public static int makeGetTimeSeries(String provider, String tsKey, String startTime, String endTime)
 	{
 		int returnCode = 0;
+		closeTimeSeries();
 		data = null;
 		metadata = null;
 		obsmetadata = null;
@@ -352,61 +379,7 @@ public class SASClientHandler extends SdmxClientHandler
 			List<PortableTimeSeries<Double>> result = SdmxClientHandler.getTimeSeries(provider, tsKey, startTime, endTime);
 			if (!result.isEmpty())
 			{
-				// check size of full result as a table
-				int datasize = 0;
-				int metasize = 0;
-				int obsmetasize = 0;
-				for (PortableTimeSeries<Double> ts: result)
-				{
-					int obsnum = ts.size();
-					datasize += obsnum;
-					metasize += ts.getDimensionsMap().size();
-					metasize += ts.getAttributesMap().size();
-					obsmetasize += ts.getObsLevelAttributesNames().size() * obsnum;
-				}
-
-				// init data cache
-				data = new DataCache(datasize);
-				metadata = new MetadataCache(metasize);
-				obsmetadata = new ObservationMetadataCache(obsmetasize);
-				int dataRowIndex = 0;
-				int metaRowIndex = 0;
-				int obsMetaRowIndex = 0;
-				for (PortableTimeSeries<?> ts : result)
-				{
-					if (!ts.isNumeric())
-					{
-						logger.warning("Time Series " + ts.getName() + "is not numeric and will be skipped in SAS.");
-						continue;
-					}
-					String name = ts.getName();
-					// setting ts level metadata
-					for (Entry<String, String> dimension : ts.getDimensionsMap().entrySet())
-						metadata.setRow(metaRowIndex++, name, dimension.getKey(), dimension.getValue(), "DIMENSION");
-					for (Entry<String, String> attribute : ts.getAttributesMap().entrySet())
-						metadata.setRow(metaRowIndex++, name, attribute.getKey(), attribute.getValue(), "ATTRIBUTE");
-
-					for (BaseObservation<?> obs : ts)
-					{
-						String time = obs.getTimeslot();
-						double value = obs.getValueAsDouble();
-
-						if (dataRowIndex > data.size())
-							throw new SASClientHandler.SdmxSASException("Trying to process more data than available");
-
-						data.setRow(dataRowIndex, name, time, value);
-
-						// now set obs level metadata
-						for (String obsAttrName : ts.getObsLevelAttributesNames())
-						{
-							obsmetadata.setRow(obsMetaRowIndex, name, obsAttrName, obs.getAttributeValue(obsAttrName),
-									time);
-							obsMetaRowIndex++;
-						}
-
-						dataRowIndex++;
-					}
-				}
+				setTimeSeries(result);
 				returnCode = result.size();
 			}
 		}
@@ -416,6 +389,7 @@ public class SASClientHandler extends SdmxClientHandler
 			logger.log(Level.FINER, "", e);
 			data = null;
 			metadata = null;
+			obsmetadata = null;
 			returnCode = -1;
 		}
 
@@ -423,88 +397,279 @@ public class SASClientHandler extends SdmxClientHandler
 
 	}
 
-	public static String getMetaName(double index) throws SASClientHandler.SdmxSASException
+	/**
+	 * Starts a query whose series are read a page at a time with {@link #fetchPage(double)}, so that only one page is
+	 * held in memory however large the result. The series are downloaded and parsed while the pages are read.
+	 * 
+	 * @return 0, or -1 if the query could not be started
+	 */
+	public static int openTimeSeries(String provider, String tsKey, String startTime, String endTime)
 	{
-		if (metadata != null && index <= metadata.size())
+		closeTimeSeries();
+		try
 		{
-			return metadata.getName((int) index);
+			cursor = new SeriesCursor(provider, tsKey, startTime, endTime, QUEUED_SERIES);
+			return 0;
 		}
-		else
+		catch (Exception e)
 		{
-			throw new SASClientHandler.SdmxSASException("Metadata cache error: cache is null or index exceeds size.");
+			logger.severe("Exception. Class: " + e.getClass().getName() + " .Message: " + e.getMessage());
+			logger.log(Level.FINER, "", e);
+			return -1;
 		}
 	}
 
-	public static String getMetaKey(double index) throws SASClientHandler.SdmxSASException
+	/**
+	 * Replaces the caches with the next page of the query started by
+	 * {@link #openTimeSeries(String, String, String, String)}. A page holds the given number of data rows, fewer at the
+	 * end of the query. A long series is split across pages, and its metadata comes with its first page.
+	 * 
+	 * @param rows the number of data rows of a page
+	 * @return the number of series, or parts of series, in the page: 0 at the end of the query, -1 if it failed
+	 */
+	public static int fetchPage(double rows)
 	{
-		if (metadata != null && index <= metadata.size())
+		data = null;
+		metadata = null;
+		obsmetadata = null;
+		if (cursor == null)
 		{
-			return metadata.getKey((int) index);
+			logger.severe("No query is open: call openTimeSeries first.");
+			return -1;
 		}
-		else
+
+		try
 		{
-			throw new SASClientHandler.SdmxSASException("Metadata cache error: cache is null or index exceeds size.");
+			List<Slice> slices = new ArrayList<>();
+			for (int free = Math.max((int) rows, 1); free > 0;)
+			{
+				if (current == null)
+				{
+					current = cursor.next();
+					if (current == null)
+						break;
+					if (!isNumeric(current))
+					{
+						current = null;
+						continue;
+					}
+					currentAttributes = current.getObsLevelAttributesNamesArray();
+					offset = 0;
+				}
+				int to = (int) Math.min(current.size(), (long) offset + free);
+				slices.add(new Slice(current, currentAttributes, offset, to));
+				free -= to - offset;
+				if (to < current.size())
+					offset = to;
+				else
+					current = null;
+			}
+			fill(slices);
+			if (slices.isEmpty())
+				closeTimeSeries();
+			return slices.size();
+		}
+		catch (Exception e)
+		{
+			logger.severe("Exception. Class: " + e.getClass().getName() + " .Message: " + e.getMessage());
+			logger.log(Level.FINER, "", e);
+			closeTimeSeries();
+			return -1;
 		}
 	}
 
-	public static String getMetaValue(double index) throws SASClientHandler.SdmxSASException
+	/**
+	 * Ends the query started by {@link #openTimeSeries(String, String, String, String)}, stopping the download if it is
+	 * still running. The last page stays in the caches.
+	 */
+	public static void closeTimeSeries()
+	{
+		if (cursor != null)
+			cursor.close();
+		cursor = null;
+		current = null;
+		currentAttributes = null;
+	}
+
+	/**
+	 * Fills the caches read by SAS with a list of series. The series that are not numeric are skipped.
+	 */
+	static void setTimeSeries(List<PortableTimeSeries<Double>> result)
+	{
+		fill(toSlices(result));
+	}
+
+	// the whole numeric series
+	private static List<Slice> toSlices(List<PortableTimeSeries<Double>> result)
+	{
+		List<Slice> slices = new ArrayList<>(result.size());
+		for (PortableTimeSeries<Double> ts : result)
+			if (isNumeric(ts))
+				slices.add(new Slice(ts, ts.getObsLevelAttributesNamesArray(), 0, ts.size()));
+		return slices;
+	}
+
+	private static boolean isNumeric(PortableTimeSeries<Double> ts)
 	{
-		if (metadata != null && index <= metadata.size())
+		if (!ts.isNumeric())
+			logger.warning("Time Series " + ts.getName() + "is not numeric and will be skipped in SAS.");
+		return ts.isNumeric();
+	}
+
+	private static void fill(List<Slice> slices)
+	{
+		Tables tables = new Tables(slices);
+		data = tables.data;
+		metadata = tables.metadata;
+		obsmetadata = tables.obsmetadata;
+	}
+
+	/**
+	 * Writes a list of series to a SAS transport file, replacing it. The file holds the tables read by SAS: the data
+	 * (TS_NAME, OBS_TIME, OBS_VALUE) in the member SDMXDATA and, if requested, the series metadata (TS_NAME, META_KEY,
+	 * META_VALUE, META_TYPE) in SDMXMETADATA and the observation metadata (TS_NAME, META_KEY, META_VALUE, OBS_TIME) in
+	 * SDMXOBSERVATIONSMETADATA. In the version 5 format the names are cut to 8 characters, and kept as labels.
+	 * 
+	 * @param version the format of the file, {@link XptWriter#V5} or {@link XptWriter#V8}
+	 * @return the number of series written. The series that are not numeric are skipped.
+	 */
+	public static int writeTransport(List<PortableTimeSeries<Double>> result, File file, boolean withMetadata,
+			int version) throws IOException
+	{
+		List<Slice> slices = toSlices(result);
+		Tables tables = new Tables(slices);
+
+		DataCache d = tables.data;
+		XptWriter writer = new XptWriter(version);
+		writer.addMember("SDMXDATA", "SDMX data", d.size(), XptWriter.character("TS_NAME", d.names, d.series),
+				XptWriter.character("OBS_TIME", d.times), XptWriter.numeric("OBS_VALUE", d.values));
+		if (withMetadata)
+		{
+			MetadataCache m = tables.metadata;
+			writer.addMember("SDMXMETADATA", "SDMX series metadata", m.size(),
+					XptWriter.character("TS_NAME", m.names, m.series), XptWriter.character("META_KEY", m.keys),
+					XptWriter.character("META_VALUE", m.values), XptWriter.character("META_TYPE", m.types));
+			ObservationMetadataCache o = tables.obsmetadata;
+			writer.addMember("SDMXOBSERVATIONSMETADATA", "SDMX observation metadata", o.size(),
+					XptWriter.character("TS_NAME", o.names, o.series), XptWriter.character("META_KEY", o.keys),
+					XptWriter.character("META_VALUE", o.values), XptWriter.character("OBS_TIME", o.dates));
+		}
+		writer.write(file);
+		return slices.size();
+	}
+
+	/**
+	 * Writes the result of a query to a SAS transport file, that SAS reads with a single libname statement instead of
+	 * a call per block of rows.
+	 * 
+	 * @param metadata if not 0, the metadata is written too
+	 * @param version 5 or 8, the format of the file
+	 * @return the number of series written, or -1 if the query or the file failed
+	 * @see #writeTransport(List, File, boolean, int)
+	 */
+	public static int exportTimeSeries(String provider, String tsKey, String startTime, String endTime, String file,
+			double metadata, double version)
+	{
+		try
 		{
-			return metadata.getValue((int) index);
+			List<PortableTimeSeries<Double>> result = SdmxClientHandler.getTimeSeries(provider, tsKey, startTime, endTime);
+			return writeTransport(result, new File(file), metadata != 0, (int) version);
 		}
-		else
+		catch (Exception e)
 		{
-			throw new SASClientHandler.SdmxSASException("Metadata cache error: cache is null or index exceeds size.");
+			logger.severe("Exception. Class: " + e.getClass().getName() + " .Message: " + e.getMessage());
+			logger.log(Level.FINER, "", e);
+			return -1;
 		}
 	}
 
+	public static String getMetaName(double index) throws SASClientHandler.SdmxSASException
+	{
+		checkMetadata(index);
+		return metadata.getName((int) index);
+	}
+
+	public static String getMetaKey(double index) throws SASClientHandler.SdmxSASException
+	{
+		checkMetadata(index);
+		return metadata.keys[(int) index];
+	}
+
+	public static String getMetaValue(double index) throws SASClientHandler.SdmxSASException
+	{
+		checkMetadata(index);
+		return metadata.values[(int) index];
+	}
+
 	public static String getMetaType(double index) throws SASClientHandler.SdmxSASException
 	{
-		if (metadata != null && index <= metadata.size())
-		{
-			return metadata.getType((int) index);
-		}
-		else
-		{
-			throw new SASClientHandler.SdmxSASException("Metadata cache error: cache is null or index exceeds size.");
-		}
+		checkMetadata(index);
+		return metadata.types[(int) index];
 	}
 
 	public static double getDataObservation(double index) throws SASClientHandler.SdmxSASException
 	{
-		if (data != null && index <= data.size())
-		{
-			return data.getObservation((int) index);
-		}
-		else
-		{
-			throw new SASClientHandler.SdmxSASException("Data cache error: cache is null or index exceeds size.");
-		}
+		checkData(index);
+		return data.values[(int) index];
 	}
 
 	public static String getDataTimestamp(double index) throws SASClientHandler.SdmxSASException
 	{
-		if (data != null && index <= data.size())
-		{
-			return data.getTimestamp((int) index);
-		}
-		else
-		{
-			throw new SASClientHandler.SdmxSASException("Data cache error: cache is null or index exceeds size.");
-		}
+		checkData(index);
+		return data.times[(int) index];
+	}
+
+	/**
+	 * @param index the index of a data row
+	 * @return The ISO 8601 date (yyyy-MM-dd) of the last day of the period of the row, that SAS reads with the
+	 *         yymmdd10. informat.
+	 */
+	public static String getDataDate(double index) throws SASClientHandler.SdmxSASException
+	{
+		checkData(index);
+		return TimePeriod.toIsoDate(data.times[(int) index]);
 	}
 
 	public static String getDataName(double index) throws SASClientHandler.SdmxSASException
 	{
-		if (data != null && index <= data.size())
-		{
-			return data.getName((int) index);
-		}
-		else
-		{
-			throw new SASClientHandler.SdmxSASException("Data cache error: cache is null or index exceeds size.");
-		}
+		checkData(index);
+		return data.getName((int) index);
+	}
+
+	/**
+	 * Returns consecutive data rows, each made of the series name, the time, the value ('.' if missing) and the
+	 * date of the time, as returned by {@link #getDataDate(double)}.
+	 * 
+	 * @param start the index of the first row
+	 * @param count the maximum number of rows returned. Fewer rows are returned at the end of the data, or if the
+	 *            block would be longer than {@link #MAX_BLOCK_LENGTH}, but at least one.
+	 */
+	public static String getDataBlock(double start, double count) throws SASClientHandler.SdmxSASException
+	{
+		checkData(start);
+		return data.getBlock((int) start, (int) count);
+	}
+
+	/**
+	 * Returns consecutive metadata rows, each made of the series name, the key, the value and the type.
+	 * 
+	 * @see #getDataBlock(double, double)
+	 */
+	public static String getMetaBlock(double start, double count) throws SASClientHandler.SdmxSASException
+	{
+		checkMetadata(start);
+		return metadata.getBlock((int) start, (int) count);
+	}
+
+	/**
+	 * Returns consecutive observation metadata rows, each made of the series name, the key, the value and the date.
+	 * 
+	 * @see #getDataBlock(double, double)
+	 */
+	public static String getObsMetaBlock(double start, double count) throws SASClientHandler.SdmxSASException
+	{
+		checkObsMetadata(start);
+		return obsmetadata.getBlock((int) start, (int) count);
 	}
 
 	public static int getNumberOfMeta()
@@ -533,54 +698,47 @@ public class SASClientHandler extends SdmxClientHandler
 
 	public static String getObsMetaName(double index) throws SASClientHandler.SdmxSASException
 	{
-		if (obsmetadata != null && index <= obsmetadata.size())
-		{
-			return obsmetadata.getName((int) index);
-		}
-		else
-		{
-			throw new SASClientHandler.SdmxSASException(
-					"Observation level Metadata cache error: cache is null or index exceeds size.");
-		}
+		checkObsMetadata(index);
+		return obsmetadata.getName((int) index);
 	}
 
 	public static String getObsMetaKey(double index) throws SASClientHandler.SdmxSASException
 	{
-		if (obsmetadata != null && index <= obsmetadata.size())
-		{
-			return obsmetadata.getKey((int) index);
-		}
-		else
-		{
-			throw new SASClientHandler.SdmxSASException(
-					"Observation level  cache error: cache is null or index exceeds size.");
-		}
+		checkObsMetadata(index);
+		return obsmetadata.keys[(int) index];
 	}
 
 	public static String getObsMetaValue(double index) throws SASClientHandler.SdmxSASException
 	{
-		if (obsmetadata != null && index <= obsmetadata.size())
-		{
-			return obsmetadata.getValue((int) index);
-		}
-		else
-		{
-			throw new SASClientHandler.SdmxSASException(
-					"Observation level  cache error: cache is null or index exceeds size.");
-		}
+		checkObsMetadata(index);
+		return obsmetadata.values[(int) index];
 	}
 
 	public static String getObsMetaDate(double index) throws SASClientHandler.SdmxSASException
 	{
-		if (obsmetadata != null && index <= obsmetadata.size())
-		{
-			return obsmetadata.getDate((int) index);
-		}
-		else
-		{
-			throw new SASClientHandler.SdmxSASException(
-					"Observation level  cache error: cache is null or index exceeds size.");
-		}
+		checkObsMetadata(index);
+		return obsmetadata.dates[(int) index];
+	}
+
+	private static void checkData(double index) throws SASClientHandler.SdmxSASException
+	{
+		if (data == null)
+			throw new SASClientHandler.SdmxSASException("Data cache error: cache is null or index exceeds size.");
+		data.check((int) index, "Data");
 	}
 
+	private static void checkMetadata(double index) throws SASClientHandler.SdmxSASException
+	{
+		if (metadata == null)
+			throw new SASClientHandler.SdmxSASException("Metadata cache error: cache is null or index exceeds size.");
+		metadata.check((int) index, "Metadata");
+	}
+
+	private static void checkObsMetadata(double index) throws SASClientHandler.SdmxSASException
+	{
+		if (obsmetadata == null)
+			throw new SASClientHandler.SdmxSASException(
+					"Observation level Metadata cache error: cache is null or index exceeds size.");
+		obsmetadata.check((int) index, "Observation level Metadata");
+	}
 }
@@ -21,15 +21,30 @@
 package it.bancaditalia.oss.sdmx.client;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import javax.swing.JFrame;
@@ -39,18 +54,27 @@ import it.bancaditalia.oss.sdmx.api.DSDIdentifier;
 import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
 import it.bancaditalia.oss.sdmx.api.Dataflow;
 import it.bancaditalia.oss.sdmx.api.Dimension;
+import it.bancaditalia.oss.sdmx.api.DoubleTimeSeries;
 import it.bancaditalia.oss.sdmx.api.GenericSDMXClient;
 import it.bancaditalia.oss.sdmx.api.PortableDataSet;
 import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
 import it.bancaditalia.oss.sdmx.api.SdmxAttribute;
+import it.bancaditalia.oss.sdmx.api.SeriesHandler;
+import it.bancaditalia.oss.sdmx.api.StreamingSDMXClient;
+import it.bancaditalia.oss.sdmx.client.custom.FILE;
 import it.bancaditalia.oss.sdmx.client.custom.RestSdmx20Client;
 import it.bancaditalia.oss.sdmx.exceptions.DataStructureException;
 import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxIOException;
 import it.bancaditalia.oss.sdmx.exceptions.SdmxInvalidParameterException;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxPartialResultException;
 import it.bancaditalia.oss.sdmx.exceptions.SdmxUnknownProviderException;
 import it.bancaditalia.oss.sdmx.exceptions.SdmxXmlContentException;
 import it.bancaditalia.oss.sdmx.util.Configuration;
 import it.bancaditalia.oss.sdmx.util.LoginDialog;
+import it.bancaditalia.oss.sdmx.util.SdmxThreadFactory;
+import it.bancaditalia.oss.sdmx.util.SingleFlight;
+import it.bancaditalia.oss.sdmx.util.Utils;
 
 //import it.bancaditalia.oss.sdmx.util.SdmxException;
 /**
@@ -72,7 +96,11 @@ public class SdmxClientHandler
 	public static final String						ALL_AGENCIES	= "all";
 
 	// key: provider name --> client
-	private static Map<String, GenericSDMXClient>	clients			= new HashMap<>();
+	private static Map<String, GenericSDMXClient>	clients			= new ConcurrentHashMap<>();
+	// key: provider name --> executor for multi-key queries
+	private static final ConcurrentMap<String, ExecutorService>	executors	= new ConcurrentHashMap<>();
+	// metadata lookups running concurrently for the same provider and dataflow are done only once
+	private static final SingleFlight					lookups			= new SingleFlight();
 
 	public static boolean needsCredentials(String provider) throws SdmxException
 	{
@@ -173,7 +201,7 @@ public class SdmxClientHandler
 		return result;
 	}
 
-	public static DataFlowStructure getDataFlowStructure(String provider, String dataflow) throws SdmxException
+	public static DataFlowStructure getDataFlowStructure(final String provider, final String dataflow) throws SdmxException
 	{
 		if (provider == null || provider.trim().isEmpty())
 		{
@@ -185,11 +213,27 @@ public class SdmxClientHandler
 			logger.severe("The name of the dataflow cannot be null");
 			throw new SdmxInvalidParameterException("The name of the provider cannot be null");
 		}
-		DataFlowStructure result = null;
-		DSDIdentifier keyF = getDSDIdentifier(provider, dataflow);
+		final DSDIdentifier keyF = getDSDIdentifier(provider, dataflow);
+		DataFlowStructure result = getProvider(provider).getDSD(keyF.getFullIdentifier());
+		if (result == null)
+			result = lookups.execute("dsd|" + provider + "|" + keyF.getFullIdentifier(), new Callable<DataFlowStructure>() {
+				@Override
+				public DataFlowStructure call() throws SdmxException
+				{
+					return fetchDataFlowStructure(provider, dataflow, keyF);
+				}
+			});
+
+		return result;
+	}
+
+	private static DataFlowStructure fetchDataFlowStructure(String provider, String dataflow, DSDIdentifier keyF)
+			throws SdmxException
+	{
 		String fullkeyFamilyKey = keyF.getFullIdentifier();
 		Provider p = getProvider(provider);
-		result = p.getDSD(fullkeyFamilyKey);
+		// another thread may have completed the same lookup in the meantime
+		DataFlowStructure result = p.getDSD(fullkeyFamilyKey);
 		if (result == null)
 		{
 			logger.finer("DSD for " + keyF.getFullIdentifier() + " not cached. Calling Provider.");
@@ -263,18 +307,10 @@ public class SdmxClientHandler
 		if (result == null)
 		{
 			logger.finer("DSD identifier for dataflow " + dataflow + " not cached. Calling Provider.");
-			Dataflow df = getClient(providerName).getDataflow(dataflow, ALL_AGENCIES, LATEST_VERSION);
-			if (df != null)
-			{
-				provider.setFlow(df);
-				result = df.getDsdIdentifier();
-				if (result == null)
-					throw new SdmxXmlContentException("Could not get DSD identifier for dataflow '" + dataflow
-							+ "' in provider: '" + provider + "'");
-			}
-			else
-				throw new SdmxXmlContentException(
-						"Could not get dataflow '" + dataflow + "' in provider: '" + providerName + "'");
+			result = fetchFlow(providerName, dataflow).getDsdIdentifier();
+			if (result == null)
+				throw new SdmxXmlContentException("Could not get DSD identifier for dataflow '" + dataflow
+						+ "' in provider: '" + provider + "'");
 		}
 		return result;
 	}
@@ -354,16 +390,34 @@ public class SdmxClientHandler
 		if (flow == null)
 		{
 			logger.fine("Dataflow " + dataflow + " not cached. Calling Provider.");
-			flow = getClient(provider).getDataflow(dataflow, ALL_AGENCIES, LATEST_VERSION);
-			if (flow != null)
-				p.setFlow(flow);
-			else
-				throw new SdmxXmlContentException(
-						"Could not get dataflow '" + dataflow + "' in provider: '" + provider + "'");
+			flow = fetchFlow(provider, dataflow);
 		}
 		return flow;
 	}
 
+	private static Dataflow fetchFlow(final String provider, final String dataflow) throws SdmxException
+	{
+		return lookups.execute("flow|" + provider + "|" + dataflow, new Callable<Dataflow>() {
+			@Override
+			public Dataflow call() throws SdmxException
+			{
+				Provider p = getProvider(provider);
+				// another thread may have completed the same lookup in the meantime
+				Dataflow flow = p.getFlows().get(dataflow);
+				if (flow == null)
+				{
+					flow = getClient(provider).getDataflow(dataflow, ALL_AGENCIES, LATEST_VERSION);
+					if (flow != null)
+						p.setFlow(flow);
+					else
+						throw new SdmxXmlContentException(
+								"Could not get dataflow '" + dataflow + "' in provider: '" + provider + "'");
+				}
+				return flow;
+			}
+		});
+	}
+
 	public static Map<String, String> getFlows(String provider, String pattern) throws SdmxException
 	{
 		Map<String, Dataflow> flows = getFlowObjects(provider, pattern);
@@ -422,6 +476,57 @@ public class SdmxClientHandler
 		return getTimeSeries(provider, tsKey, null, null, true, null, false);
 	}
 
+	/**
+	 * Downloads the series matching one or more keys (separated by ';'), passing each of them to the handler as soon
+	 * as it has been parsed instead of returning them all together. The keys are downloaded one at a time.
+	 * 
+	 * @param provider the name of the provider
+	 * @param tsKey the keys of the series
+	 * @param startTime start time of the observations to be gathered
+	 * @param endTime end time of the observations to be gathered
+	 * @param handler the handler that receives the series
+	 * @throws SdmxException if a key does not match any series, or the download fails
+	 */
+	public static void getTimeSeries(String provider, String tsKey, String startTime, String endTime,
+			final SeriesHandler handler) throws SdmxException
+	{
+		if (provider == null || provider.trim().isEmpty())
+		{
+			logger.severe("The name of the provider cannot be null");
+			throw new SdmxInvalidParameterException("The name of the provider cannot be null");
+		}
+		if (tsKey == null || tsKey.trim().isEmpty())
+		{
+			logger.severe("The tsKey cannot be null");
+			throw new SdmxInvalidParameterException("The tsKey cannot be null");
+		}
+
+		for (String key : tsKey.trim().split("\\s*;\\s*"))
+		{
+			String[] tokens = extractFlowAndResource(key);
+			Dataflow df = getFlow(provider, tokens[0]);
+			DataFlowStructure dsd = getDataFlowStructure(provider, tokens[0]);
+			final int[] count = { 0 };
+			SeriesHandler counter = new SeriesHandler() {
+				@Override
+				public void onSeries(PortableTimeSeries<Double> series) throws SdmxException
+				{
+					count[0]++;
+					handler.onSeries(series);
+				}
+			};
+			GenericSDMXClient client = getClient(provider);
+			if (client instanceof StreamingSDMXClient)
+				((StreamingSDMXClient) client).getTimeSeries(df, dsd, tokens[1], startTime, endTime, false, null, false, counter);
+			else
+				// the client returns all the series together
+				for (PortableTimeSeries<Double> series : client.getTimeSeries(df, dsd, tokens[1], startTime, endTime, false, null, false))
+					counter.onSeries(series);
+			if (count[0] == 0)
+				throw new SdmxXmlContentException("The query: " + key + " did not match any time series on the provider.");
+		}
+	}
+
 	private static List<PortableTimeSeries<Double>> getTimeSeries(String provider, String tsKey, String startTime,
 			String endTime, boolean serieskeysonly, String updatedAfter, boolean includeHistory) throws SdmxException
 	{
@@ -436,14 +541,280 @@ public class SdmxClientHandler
 			throw new SdmxInvalidParameterException("The tsKey cannot be null");
 		}
 
+		final List<String> keys = Arrays.asList(tsKey.trim().split("\\s*;\\s*"));
+		if (keys.size() == 1)
+			return getSingleTimeSeries(provider, keys.get(0), startTime, endTime, serieskeysonly, updatedAfter,
+					includeHistory);
+
+		// the queries are downloaded in parallel, the results are merged in the original order
+		List<List<PortableTimeSeries<Double>>> found = new ArrayList<>(
+				Collections.nCopies(keys.size(), (List<PortableTimeSeries<Double>>) null));
+		Map<Integer, SdmxException> errors = new HashMap<>();
+		List<KeyQuery> pending = planQueries(provider, keys, startTime, endTime, serieskeysonly, updatedAfter,
+				includeHistory);
+		ExecutorService executor = getExecutor(provider);
+		while (!pending.isEmpty())
+		{
+			List<Future<List<PortableTimeSeries<Double>>>> futures = new ArrayList<>();
+			for (KeyQuery query : pending)
+				futures.add(executor.submit(query));
+
+			List<KeyQuery> retries = new ArrayList<>();
+			for (int i = 0; i < futures.size(); i++)
+				try
+				{
+					// the keys of a batch that got no series fail with the error of the provider, as on their own
+					retries.addAll(pending.get(i).assign(futures.get(i).get(), found, keys));
+				}
+				catch (ExecutionException e)
+				{
+					Throwable cause = e.getCause();
+					if (cause instanceof SdmxException && pending.get(i).isBatch())
+					{
+						// the provider may reject the whole batch because of a single key
+						logger.fine("Batch query " + pending.get(i) + " failed, retrying each key: " + cause.getMessage());
+						retries.addAll(pending.get(i).split(keys));
+					}
+					else if (cause instanceof SdmxException)
+						errors.put(pending.get(i).keys.get(0), (SdmxException) cause);
+					else if (cause instanceof RuntimeException)
+						throw (RuntimeException) cause;
+					else
+						throw (Error) cause;
+				}
+				catch (InterruptedException e)
+				{
+					for (Future<?> future : futures)
+						future.cancel(true);
+					Thread.currentThread().interrupt();
+					throw new SdmxIOException("Interrupted while waiting for the time series of " + provider,
+							new InterruptedIOException(e.getMessage()));
+				}
+			pending = retries;
+		}
+
 		List<PortableTimeSeries<Double>> result = new ArrayList<>();
-		for (String keyId : tsKey.trim().split("\\s*;\\s*"))
-			result.addAll(getSingleTimeSeries(provider, keyId, startTime, endTime, serieskeysonly, updatedAfter,
-					includeHistory));
+		Map<String, SdmxException> failures = new LinkedHashMap<>();
+		for (int i = 0; i < keys.size(); i++)
+			if (errors.containsKey(i))
+				failures.put(keys.get(i), errors.get(i));
+			else if (found.get(i) == null || found.get(i).isEmpty())
+				failures.put(keys.get(i), new SdmxXmlContentException(
+						"The query: " + keys.get(i) + " did not match any time series on the provider."));
+			else
+				result.addAll(found.get(i));
+
+		if (!failures.isEmpty())
+		{
+			if (result.isEmpty()
+					|| Configuration.PARTIAL_FAILURE_POLICY_FAIL.equals(Configuration.getPartialFailurePolicy(provider)))
+			{
+				// a single failed key raises the error of the provider, as when the keys were queried one at a time
+				if (failures.size() == 1)
+					throw failures.values().iterator().next();
+				throw new SdmxPartialResultException(failures, result);
+			}
+			for (Entry<String, SdmxException> failure : failures.entrySet())
+				logger.warning("The query for key " + failure.getKey() + " failed: " + failure.getValue().getMessage());
+		}
 
 		return (result);
 	}
 
+	private static ExecutorService getExecutor(String provider)
+	{
+		ExecutorService executor = executors.get(provider);
+		if (executor == null)
+		{
+			int parallelism = Configuration.getParallelQueries(provider);
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(parallelism, parallelism, 60L, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new SdmxThreadFactory(provider));
+			pool.allowCoreThreadTimeOut(true);
+			executor = executors.putIfAbsent(provider, pool);
+			if (executor == null)
+				executor = pool;
+			else
+				pool.shutdown();
+		}
+		return executor;
+	}
+
+	// merges the keys of the same dataflow into OR queries, if enabled for the provider
+	private static List<KeyQuery> planQueries(String provider, List<String> keys, String startTime, String endTime,
+			boolean serieskeysonly, String updatedAfter, boolean includeHistory)
+	{
+		List<KeyQuery> queries = new ArrayList<>();
+		boolean batching = false;
+		try
+		{
+			// by default, only the SDMX 2.1 web services are known to answer OR queries
+			GenericSDMXClient client = getClient(provider);
+			batching = Configuration.isBatchQueries(provider, client instanceof RestSdmxClient
+					&& !(client instanceof RestSdmx20Client) && !(client instanceof FILE));
+		}
+		catch (SdmxException e)
+		{
+			// each key will report the error
+		}
+		// key: dataflow --> indexes of its keys
+		Map<String, List<Integer>> flows = new LinkedHashMap<>();
+		List<String> resources = new ArrayList<>();
+		for (int i = 0; i < keys.size(); i++)
+		{
+			String[] tokens = null;
+			try
+			{
+				tokens = extractFlowAndResource(keys.get(i));
+			}
+			catch (SdmxException e)
+			{
+				// will fail again when queried on its own
+			}
+			if (!batching || tokens == null || tokens[0] == null || tokens[1] == null)
+			{
+				resources.add(null);
+				queries.add(new KeyQuery(provider, keys.get(i), Arrays.asList(i), null, null, startTime, endTime,
+						serieskeysonly, updatedAfter, includeHistory));
+				continue;
+			}
+			resources.add(tokens[1]);
+			if (!flows.containsKey(tokens[0]))
+				flows.put(tokens[0], new ArrayList<Integer>());
+			flows.get(tokens[0]).add(i);
+		}
+
+		for (Entry<String, List<Integer>> flow : flows.entrySet())
+		{
+			String dataflow = flow.getKey();
+			List<Integer> indexes = flow.getValue();
+			List<String> flowKeys = new ArrayList<>();
+			for (int i : indexes)
+				flowKeys.add(resources.get(i));
+
+			KeyBatcher batcher = null;
+			if (indexes.size() > 1)
+				try
+				{
+					Dataflow df = getFlow(provider, dataflow);
+					DataFlowStructure dsd = getDataFlowStructure(provider, dataflow);
+					// the part of the URL that does not depend on the key, which is URL-encoded in the path
+					String sample = flowKeys.get(0);
+					int overhead = getClient(provider).buildDataURL(df, sample, startTime, endTime, serieskeysonly,
+							updatedAfter, includeHistory).length() - KeyBatcher.encodedLength(sample);
+					batcher = new KeyBatcher(dsd.getDimensions(), flowKeys,
+							Configuration.getMaxUrlLength(provider) - overhead);
+				}
+				catch (SdmxException e)
+				{
+					// each key will report its own error
+					logger.fine("Cannot batch the keys of " + dataflow + ": " + e.getMessage());
+				}
+
+			if (batcher == null)
+				for (int i : indexes)
+					queries.add(new KeyQuery(provider, keys.get(i), Arrays.asList(i), null, null, startTime, endTime,
+							serieskeysonly, updatedAfter, includeHistory));
+			else
+				for (KeyBatcher.Batch batch : batcher.batch())
+				{
+					List<Integer> batchKeys = new ArrayList<>();
+					for (int i : batch.getKeys())
+						batchKeys.add(indexes.get(i));
+					queries.add(new KeyQuery(provider, dataflow + "/" + batch.getResource(flowKeys), batchKeys,
+							batch.getKeys().size() > 1 ? batcher : null, batch.getKeys(), startTime, endTime,
+							serieskeysonly, updatedAfter, includeHistory));
+				}
+		}
+
+		logger.fine("Querying " + keys.size() + " keys of " + provider + " with " + queries.size() + " queries.");
+		return queries;
+	}
+
+	// a query for one or more of the requested keys
+	private static class KeyQuery implements Callable<List<PortableTimeSeries<Double>>>
+	{
+		private final String		provider, tsKey, startTime, endTime, updatedAfter;
+		private final boolean		serieskeysonly, includeHistory;
+		// indexes of the requested keys covered by this query
+		private final List<Integer>	keys;
+		// for batches, the batcher that merged the keys and their indexes in the batcher
+		private final KeyBatcher	batcher;
+		private final List<Integer>	batcherKeys;
+
+		public KeyQuery(String provider, String tsKey, List<Integer> keys, KeyBatcher batcher, List<Integer> batcherKeys,
+				String startTime, String endTime, boolean serieskeysonly, String updatedAfter, boolean includeHistory)
+		{
+			this.provider = provider;
+			this.tsKey = tsKey;
+			this.keys = keys;
+			this.batcher = batcher;
+			this.batcherKeys = batcherKeys;
+			this.startTime = startTime;
+			this.endTime = endTime;
+			this.serieskeysonly = serieskeysonly;
+			this.updatedAfter = updatedAfter;
+			this.includeHistory = includeHistory;
+		}
+
+		@Override
+		public List<PortableTimeSeries<Double>> call() throws SdmxException
+		{
+			return getSingleTimeSeries(provider, tsKey, startTime, endTime, serieskeysonly, updatedAfter,
+					includeHistory);
+		}
+
+		public boolean isBatch()
+		{
+			return batcher != null;
+		}
+
+		// one query for each key of this batch
+		public List<KeyQuery> split(List<String> requested)
+		{
+			List<KeyQuery> queries = new ArrayList<>();
+			for (int key : keys)
+				queries.add(single(key, requested));
+			return queries;
+		}
+
+		// gives each series back to the keys that requested it, returns a query for each key of a batch that got none
+		public List<KeyQuery> assign(List<PortableTimeSeries<Double>> series, List<List<PortableTimeSeries<Double>>> found,
+				List<String> requested)
+		{
+			List<KeyQuery> unmatched = new ArrayList<>();
+			if (batcher == null)
+			{
+				found.set(keys.get(0), series);
+				return unmatched;
+			}
+
+			for (int i = 0; i < keys.size(); i++)
+			{
+				List<PortableTimeSeries<Double>> keySeries = new ArrayList<>();
+				for (PortableTimeSeries<Double> ts : series)
+					if (batcher.matches(batcherKeys.get(i), ts))
+						keySeries.add(ts);
+				if (keySeries.isEmpty())
+					unmatched.add(single(keys.get(i), requested));
+				else
+					found.set(keys.get(i), keySeries);
+			}
+			return unmatched;
+		}
+
+		private KeyQuery single(int key, List<String> requested)
+		{
+			return new KeyQuery(provider, requested.get(key), Arrays.asList(key), null, null, startTime, endTime,
+					serieskeysonly, updatedAfter, includeHistory);
+		}
+
+		@Override
+		public String toString()
+		{
+			return tsKey;
+		}
+	}
+
 	public static String getDataURL(String provider, String tsKey, String start, String end, boolean seriesKeysOnly,
 			String updatedAfter, boolean includeHistory) throws SdmxException
 	{
@@ -500,50 +871,113 @@ public class SdmxClientHandler
 
 	public static String dumpTimeSeriesList(List<PortableTimeSeries<Double>> ts)
 	{
-		StringBuffer result = new StringBuffer("");
+		StringBuilder result = new StringBuilder();
+		try
+		{
+			dumpTimeSeriesList(ts, result, ";", null);
+		}
+		catch (IOException e)
+		{
+			// not thrown by a StringBuilder
+			throw new IllegalStateException(e);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Writes a list of series side by side, each as a pair of time and value columns, one line per observation.
+	 * Lines are written as they are built, so that large dumps need not fit in a string.
+	 * 
+	 * @param ts The series to write.
+	 * @param out The destination of the text.
+	 * @param separator The separator of the fields.
+	 * @param format The format of the values, or null to print them as they are.
+	 * @throws IOException if out throws it.
+	 */
+	public static void dumpTimeSeriesList(List<PortableTimeSeries<Double>> ts, Appendable out, String separator,
+			NumberFormat format) throws IOException
+	{
 		int maxSize = 0;
 		boolean first = true;
 		for (PortableTimeSeries<?> series : ts)
 		{
 			if (!first)
-				result.append(";");
+				out.append(separator);
 			first = false;
-			result.append(";").append(series.getName());
+			out.append(separator).append(series.getName());
 			int size = series.size();
 			if (size > maxSize)
 				maxSize = size;
-			if (Configuration.isReverse())
-			{
-				// reverse the time series for user friendliness
-				series.reverse();
-			}
 		}
-		result.append("\n");
+		// reverse the time series for user friendliness, without changing the series of the caller
+		boolean reverse = Configuration.isReverse();
+		out.append("\n");
 		for (int i = 0; i < maxSize; i++)
 		{
 			for (int j = 0; j < ts.size(); j++)
 			{
-				if (i < ts.get(j).size())
+				PortableTimeSeries<Double> series = ts.get(j);
+				if (i < series.size())
 				{
-					result.append(ts.get(j).get(i).getTimeslot()).append(";");
-					result.append(ts.get(j).get(i).getValue());
+					int index = reverse ? series.size() - 1 - i : i;
+					if (series instanceof DoubleTimeSeries)
+					{
+						DoubleTimeSeries columns = (DoubleTimeSeries) series;
+						out.append(columns.getTimeslotAt(index)).append(separator);
+						out.append(Utils.format(columns.getValueAt(index), format));
+					}
+					else
+					{
+						out.append(series.get(index).getTimeslot()).append(separator);
+						out.append(Utils.format(series.get(index).getValue(), format));
+					}
 				}
 				else
 				{
-					result.append(";");
+					out.append(separator);
 				}
 				if (j + 1 < ts.size())
 				{
-					result.append(";");
+					out.append(separator);
 				}
 			}
-			result.append("\n");
+			out.append("\n");
 		}
-		return result.toString();
 	}
 
 	public static String dumpTimeSeries(String provider, String id, String startTime, String endTime)
 			throws SdmxException, DataStructureException
+	{
+		StringBuilder result = new StringBuilder();
+		try
+		{
+			dumpTimeSeries(provider, id, startTime, endTime, result, ";", null);
+		}
+		catch (IOException e)
+		{
+			// not thrown by a StringBuilder
+			throw new IllegalStateException(e);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Downloads the series matching a key and writes them, either as a list of series or as a table according to
+	 * the table.dump configuration.
+	 * 
+	 * @param provider The name of the provider.
+	 * @param id The key of the series.
+	 * @param startTime The start time, or null.
+	 * @param endTime The end time, or null.
+	 * @param out The destination of the text.
+	 * @param separator The separator of the fields.
+	 * @param format The format of the values, or null to print them as they are.
+	 * @throws SdmxException if the series cannot be downloaded.
+	 * @throws DataStructureException if the table cannot be built.
+	 * @throws IOException if out throws it.
+	 */
+	public static void dumpTimeSeries(String provider, String id, String startTime, String endTime, Appendable out,
+			String separator, NumberFormat format) throws SdmxException, DataStructureException, IOException
 	{
 		if (provider == null || provider.trim().isEmpty())
 		{
@@ -559,19 +993,16 @@ public class SdmxClientHandler
 		{
 			throw new SdmxInvalidParameterException("The provider : " + id + " does not exist.");
 		}
-		String result = "";
 		if (!Configuration.isTable())
 		{
 			// Do it as a list of time series
-			List<PortableTimeSeries<Double>> ts = getTimeSeries(provider, id, startTime, endTime);
-			result = dumpTimeSeriesList(ts);
+			dumpTimeSeriesList(getTimeSeries(provider, id, startTime, endTime), out, separator, format);
 		}
 		else
 		{
 			// do it as a table
-			result = getTimeSeriesTable(provider, id, startTime, endTime).toString();
+			getTimeSeriesTable(provider, id, startTime, endTime).writeTo(out, separator, format);
 		}
-		return result;
 	}
 
 	private static Provider getProvider(String providerName) throws SdmxException
@@ -590,7 +1021,7 @@ public class SdmxClientHandler
 		return provider;
 	}
 
-	private static GenericSDMXClient getClient(String provider, String user, String password) throws SdmxException
+	private static synchronized GenericSDMXClient getClient(String provider, String user, String password) throws SdmxException
 	{
 		final String sourceMethod = "getClient";
 		logger.entering(sourceClass, sourceMethod);
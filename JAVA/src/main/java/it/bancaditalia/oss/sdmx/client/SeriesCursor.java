@@ -0,0 +1,165 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.client;
+
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+import it.bancaditalia.oss.sdmx.api.DoubleTimeSeries;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.api.SeriesHandler;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxIOException;
+import it.bancaditalia.oss.sdmx.util.SdmxThreadFactory;
+
+/**
+ * Iterates over the time series of a query while they are downloaded. The response is parsed by a background thread
+ * into a bounded queue, which blocks the parser while it is full: at most {@code capacity} parsed series are held in
+ * memory, whatever the size of the result. Until it is exhausted or closed, a cursor holds one of the connections of
+ * the provider.
+ * 
+ * @see SdmxClientHandler#getTimeSeries(String, String, String, String, SeriesHandler)
+ */
+public class SeriesCursor implements Closeable
+{
+	private static final ThreadFactory						THREADS	= new SdmxThreadFactory("cursor");
+	// marks the end of the query
+	private static final PortableTimeSeries<Double>			END		= new DoubleTimeSeries();
+
+	private final BlockingQueue<PortableTimeSeries<Double>>	queue;
+	private final Thread									parser;
+	private volatile boolean								closed	= false;
+	private Throwable										failure	= null;
+	private boolean											finished	= false;
+
+	/**
+	 * Starts the query.
+	 * 
+	 * @param provider the name of the provider
+	 * @param tsKey the keys of the series, separated by ';'
+	 * @param startTime start time of the observations to be gathered
+	 * @param endTime end time of the observations to be gathered
+	 * @param capacity the number of parsed series that can wait to be read
+	 */
+	public SeriesCursor(final String provider, final String tsKey, final String startTime, final String endTime,
+			int capacity)
+	{
+		if (capacity < 1)
+			throw new IllegalArgumentException("The capacity of the cursor must be positive: " + capacity);
+		queue = new ArrayBlockingQueue<>(capacity);
+		parser = THREADS.newThread(new Runnable() {
+			@Override
+			public void run()
+			{
+				try
+				{
+					SdmxClientHandler.getTimeSeries(provider, tsKey, startTime, endTime, new SeriesHandler() {
+						@Override
+						public void onSeries(PortableTimeSeries<Double> series) throws SdmxException
+						{
+							put(series);
+						}
+					});
+				}
+				catch (SdmxException | RuntimeException | Error e)
+				{
+					failure = e;
+				}
+				finally
+				{
+					try
+					{
+						put(END);
+					}
+					catch (SdmxException e)
+					{
+						// closed, nobody is reading
+					}
+				}
+			}
+		});
+		parser.start();
+	}
+
+	/**
+	 * Waits for the next series of the query.
+	 * 
+	 * @return the next series, or null at the end of the query.
+	 * @throws SdmxException if the query failed. The series read before the failure are valid.
+	 */
+	public PortableTimeSeries<Double> next() throws SdmxException
+	{
+		if (finished || closed)
+			return null;
+
+		PortableTimeSeries<Double> series;
+		try
+		{
+			series = queue.take();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new SdmxIOException("Interrupted while waiting for the next time series", new InterruptedIOException(e.getMessage()));
+		}
+		if (series != END)
+			return series;
+
+		finished = true;
+		if (failure instanceof SdmxException)
+			throw (SdmxException) failure;
+		else if (failure instanceof RuntimeException)
+			throw (RuntimeException) failure;
+		else if (failure != null)
+			throw (Error) failure;
+		return null;
+	}
+
+	/**
+	 * Stops the download, if it is still running, and releases the series that were not read.
+	 */
+	@Override
+	public void close()
+	{
+		closed = true;
+		parser.interrupt();
+		queue.clear();
+	}
+
+	private void put(PortableTimeSeries<Double> series) throws SdmxException
+	{
+		try
+		{
+			if (!closed)
+				queue.put(series);
+			if (!closed)
+				return;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		throw new SdmxIOException("The query was closed", new InterruptedIOException());
+	}
+}
@@ -0,0 +1,54 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.URL;
+import java.net.URLConnection;
+
+/**
+ * A transport that opens a new connection for each query and closes the underlying socket when the query is
+ * completed.
+ */
+public class SimpleHttpTransport implements HttpTransport
+{
+	@Override
+	public URLConnection open(URL url, Proxy proxy, int timeout) throws IOException
+	{
+		return url.openConnection(proxy);
+	}
+
+	@Override
+	public InputStream body(URLConnection conn) throws IOException
+	{
+		return conn.getInputStream();
+	}
+
+	@Override
+	public void release(URLConnection conn)
+	{
+		if (conn instanceof HttpURLConnection)
+			((HttpURLConnection) conn).disconnect();
+	}
+}
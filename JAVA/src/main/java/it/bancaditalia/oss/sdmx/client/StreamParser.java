@@ -0,0 +1,17 @@
+package it.bancaditalia.oss.sdmx.client;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
+
+/**
+ * Parses a response in a format other than SDMX-ML (e.g. SDMX-CSV), reading it as a stream of characters.
+ * 
+ * @see RestSdmxClient#runQuery(Parser, java.util.Map, java.net.URL, String, String)
+ */
+public interface StreamParser<T> 
+{
+	public T parse(BufferedReader reader, LanguagePriorityList languages) throws IOException, SdmxException;
+}
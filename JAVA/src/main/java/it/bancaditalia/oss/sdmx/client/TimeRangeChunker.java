@@ -0,0 +1,166 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.client;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import it.bancaditalia.oss.sdmx.api.BaseObservation;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+
+/**
+ * Splits the time range of a data query into windows of whole years, and stitches the series downloaded for each
+ * window back together.
+ */
+public class TimeRangeChunker
+{
+	private TimeRangeChunker()
+	{
+	}
+
+	/**
+	 * @param frequency an SDMX frequency code
+	 * @return The maximum number of periods of the given frequency in a year (daily if the frequency is unknown).
+	 */
+	public static int periodsPerYear(String frequency)
+	{
+		switch (frequency == null ? "" : frequency.toUpperCase())
+		{
+			case "A":
+				return 1;
+			case "S":
+				return 2;
+			case "Q":
+				return 4;
+			case "M":
+				return 12;
+			case "W":
+				return 53;
+			case "B":
+				return 261;
+			case "H":
+				return 366 * 24;
+			case "N":
+				return 366 * 24 * 60;
+			default:
+				return 366;
+		}
+	}
+
+	/**
+	 * Splits a time range into consecutive windows, each one spanning the whole years that hold at most the given
+	 * number of periods. The first window starts at the given start, the last one ends at the given end, the others
+	 * are aligned to calendar years.
+	 * 
+	 * @param startTime the start of the range, in any SDMX time format starting with the year
+	 * @param endTime the end of the range, or null for the current year
+	 * @param frequency the SDMX code of the highest frequency requested
+	 * @param maxPeriods the maximum number of periods in a window
+	 * @return The windows as {start, end} pairs, or null if the range does not need to be split.
+	 */
+	public static List<String[]> split(String startTime, String endTime, String frequency, int maxPeriods)
+	{
+		int startYear = year(startTime);
+		int endYear = endTime == null ? Calendar.getInstance().get(Calendar.YEAR) : year(endTime);
+		if (maxPeriods <= 0 || startYear < 0 || endYear < startYear)
+			return null;
+
+		int years = Math.max(1, maxPeriods / periodsPerYear(frequency));
+		if (endYear - startYear < years)
+			return null;
+
+		List<String[]> windows = new ArrayList<>();
+		for (int year = startYear; year <= endYear; year += years)
+		{
+			int last = year + years - 1;
+			windows.add(new String[] { year == startYear ? startTime : year + "-01-01",
+					last >= endYear ? endTime : last + "-12-31" });
+		}
+		return windows;
+	}
+
+	/**
+	 * Stitches the series downloaded for each window into single series. The observations are sorted by time and,
+	 * when two windows return the same period, only the first observation is kept.
+	 * 
+	 * @param windows the series of each window, in window order
+	 * @return The stitched series, in order of first appearance.
+	 */
+	public static List<PortableTimeSeries<Double>> stitch(List<? extends List<PortableTimeSeries<Double>>> windows)
+	{
+		// key: series name --> stitched series
+		Map<String, PortableTimeSeries<Double>> result = new LinkedHashMap<>();
+		for (List<PortableTimeSeries<Double>> window : windows)
+			for (PortableTimeSeries<Double> ts : window)
+			{
+				PortableTimeSeries<Double> stitched = result.get(ts.getName());
+				if (stitched == null)
+					result.put(ts.getName(), ts);
+				else
+					stitched.addAll(ts);
+			}
+
+		for (PortableTimeSeries<Double> ts : result.values())
+		{
+			// stable sort: the first observation of each period comes from the first window
+			Collections.sort(ts);
+			List<BaseObservation<? extends Double>> unique = new ArrayList<>(ts.size());
+			for (BaseObservation<? extends Double> obs : ts)
+				if (unique.isEmpty() || unique.get(unique.size() - 1).compareTo(obs) != 0)
+					unique.add(obs);
+			if (unique.size() < ts.size())
+			{
+				ts.clear();
+				ts.addAll(unique);
+			}
+		}
+
+		return new ArrayList<>(result.values());
+	}
+
+	/**
+	 * @param windows the series of each window
+	 * @return true if no window returned any series.
+	 */
+	public static boolean isEmpty(List<? extends List<PortableTimeSeries<Double>>> windows)
+	{
+		for (List<PortableTimeSeries<Double>> window : windows)
+			if (!window.isEmpty())
+				return false;
+		return true;
+	}
+
+	private static int year(String time)
+	{
+		if (time == null || time.length() < 4)
+			return -1;
+		for (int i = 0; i < 4; i++)
+			if (!Character.isDigit(time.charAt(i)))
+				return -1;
+		if (time.length() > 4 && time.charAt(4) != '-')
+			return -1;
+		return Integer.parseInt(time.substring(0, 4));
+	}
+}
@@ -31,6 +31,7 @@ import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
 import it.bancaditalia.oss.sdmx.api.Dataflow;
 import it.bancaditalia.oss.sdmx.api.Message;
 import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.api.SeriesHandler;
 import it.bancaditalia.oss.sdmx.client.Parser;
 import it.bancaditalia.oss.sdmx.client.RestSdmxClient;
 import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
@@ -64,7 +65,20 @@ public class EUROSTAT extends RestSdmxClient{
 	public List<PortableTimeSeries<Double>> getTimeSeries(Dataflow dataflow, DataFlowStructure dsd, String resource, String startTime,
 							String endTime, boolean serieskeysonly, String updatedAfter, boolean includeHistory) throws SdmxException 
 	{
-		DataParsingResult ts = getData(dataflow, dsd, resource, startTime, endTime, serieskeysonly, updatedAfter, includeHistory);
+		return postProcess(getLateData(dataflow, dsd, resource, startTime, endTime, serieskeysonly, updatedAfter, includeHistory, null));
+	}
+	
+	@Override
+	public void getTimeSeries(Dataflow dataflow, DataFlowStructure dsd, String resource, String startTime,
+							String endTime, boolean serieskeysonly, String updatedAfter, boolean includeHistory, SeriesHandler handler) throws SdmxException 
+	{
+		getLateData(dataflow, dsd, resource, startTime, endTime, serieskeysonly, updatedAfter, includeHistory, handler);
+	}
+	
+	private DataParsingResult getLateData(Dataflow dataflow, DataFlowStructure dsd, String resource, String startTime,
+							String endTime, boolean serieskeysonly, String updatedAfter, boolean includeHistory, SeriesHandler handler) throws SdmxException 
+	{
+		DataParsingResult ts = getData(dataflow, dsd, resource, startTime, endTime, serieskeysonly, updatedAfter, includeHistory, handler);
 		if(ts == null || ts.size() == 0)
 		{
 			Message msg = ts.getMessage();
@@ -72,7 +86,7 @@ public class EUROSTAT extends RestSdmxClient{
 			if(isAsyncDelivery(msg))
 			{
 				String url = msg.getUrl();
-				Parser<DataParsingResult> parser = new CompactDataParser(dsd, dataflow, !serieskeysonly);
+				Parser<DataParsingResult> parser = new CompactDataParser(dsd, dataflow, !serieskeysonly, handler);
 				
 				for(int i = 1; i <= retries; i++)
 				{
@@ -85,7 +99,7 @@ public class EUROSTAT extends RestSdmxClient{
 					
 					try {
 						String dumpName = "data_" + dataflow.getId() + "_" + resource; //.replaceAll("\\p{Punct}", "_");
-						return postProcess(runQuery(parser, new URL(msg.getUrl()), null, dumpName));
+						return runQuery(parser, new URL(msg.getUrl()), null, dumpName);
 					} catch (MalformedURLException e) {
 						logger.info("Late retrieval attempt " + i + " failed with exception " + e.getClass().getSimpleName() + ": " + e.getMessage());
 					} catch (SdmxResponseException e) {
@@ -93,9 +107,14 @@ public class EUROSTAT extends RestSdmxClient{
 					}
 				}
 			}
+			// the series have already been passed to the handler
+			else if(handler != null)
+			{
+				return ts;
+			}
 		}
 		else{
-			return postProcess(ts);
+			return ts;
 		}
 		
 		throw new SdmxXmlContentException("Late retrieval failed.");
@@ -65,7 +65,17 @@ public class FILE extends RestSdmxClient {
 		Dataflow result = null;
 		//System.err.println(flows);
 		if (flows.size() >= 1)
+		{
 			result  = flows.get(dataflow);
+			// the flows are keyed by full identifier, but queries usually name the id only
+			if (result == null)
+				for (Dataflow flow : flows.values())
+					if (flow.getId().equals(dataflow))
+					{
+						result = flow;
+						break;
+					}
+		}
 		else
 			throw new SdmxXmlContentException("The query returned zero dataflows");
 		return result;
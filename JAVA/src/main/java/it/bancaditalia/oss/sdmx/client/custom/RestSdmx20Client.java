@@ -31,6 +31,7 @@ import java.util.Map;
 import it.bancaditalia.oss.sdmx.api.DSDIdentifier;
 import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
 import it.bancaditalia.oss.sdmx.api.Dataflow;
+import it.bancaditalia.oss.sdmx.api.SeriesHandler;
 import it.bancaditalia.oss.sdmx.client.RestSdmxClient;
 import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
 import it.bancaditalia.oss.sdmx.exceptions.SdmxXmlContentException;
@@ -108,11 +109,11 @@ public abstract class RestSdmx20Client extends RestSdmxClient
 
 	@Override
 	protected DataParsingResult getData(Dataflow dataflow, DataFlowStructure dsd, String resource, String startTime, String endTime, boolean serieskeysonly,
-			String updatedAfter, boolean includeHistory) throws SdmxException
+			String updatedAfter, boolean includeHistory, SeriesHandler handler) throws SdmxException
 	{
 		URL query = buildDataQuery(dataflow, resource, startTime, endTime, serieskeysonly, updatedAfter, includeHistory);
 		// 20/09/2017: GenericDataParser deleted
-		return runQuery(/* format != null ? */new CompactDataParser(dsd, dataflow, !serieskeysonly) 
+		return runQuery(/* format != null ? */new CompactDataParser(dsd, dataflow, !serieskeysonly, handler) 
 				/* : new GenericDataParser(dsd, dataflow, !serieskeysonly) */, query, acceptHdr, null);
 	}
 
@@ -0,0 +1,66 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.exceptions;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+
+/**
+ * Raised when more than one key of a multi-key query could not be retrieved (a single failed key raises its own
+ * error). It reports the keys that failed, with their errors, and carries the series of the keys that succeeded.
+ */
+public class SdmxPartialResultException extends SdmxException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+	private final transient Map<String, SdmxException> failures;
+	private final transient List<PortableTimeSeries<Double>> partialResult;
+
+	/**
+	 * @param failures The failed keys, in query order, with the error raised by each of them.
+	 * @param partialResult The series retrieved by the keys that did not fail.
+	 */
+	public SdmxPartialResultException(Map<String, SdmxException> failures, List<PortableTimeSeries<Double>> partialResult) {
+		super("The query failed for " + failures.size() + " key(s): " + failures.keySet(), 
+				failures.isEmpty() ? null : failures.values().iterator().next());
+		this.failures = Collections.unmodifiableMap(failures);
+		this.partialResult = Collections.unmodifiableList(partialResult);
+	}
+
+	/**
+	 * @return The failed keys, in query order, with the error raised by each of them.
+	 */
+	public Map<String, SdmxException> getFailures() {
+		return failures;
+	}
+
+	/**
+	 * @return The series retrieved by the keys that did not fail, in query order.
+	 */
+	public List<PortableTimeSeries<Double>> getPartialResult() {
+		return partialResult;
+	}
+}
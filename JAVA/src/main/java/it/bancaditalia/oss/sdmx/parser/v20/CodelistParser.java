@@ -22,6 +22,7 @@ package it.bancaditalia.oss.sdmx.parser.v20;
 
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import it.bancaditalia.oss.sdmx.api.Codelist;
 import it.bancaditalia.oss.sdmx.client.Parser;
@@ -44,6 +45,11 @@ public class CodelistParser implements Parser<Codelist>{
 		return it.bancaditalia.oss.sdmx.parser.v21.CodelistParser.parse(eventReader, languages, CODELIST, CODE, ID, DESCRIPTION);
 	}
 	
+	@Override
+	public Codelist parse(XMLStreamReader reader, LanguagePriorityList languages) throws XMLStreamException, SdmxException {
+		return it.bancaditalia.oss.sdmx.parser.v21.CodelistParser.parse(reader, languages, CODELIST, CODE, ID, DESCRIPTION);
+	}
+	
 	public static Codelist getCodelist(XMLEventReader eventReader, LanguagePriorityList languages) throws XMLStreamException, SdmxException {
 		return it.bancaditalia.oss.sdmx.parser.v21.CodelistParser.getCodes(eventReader, languages, CODELIST, CODE, ID, DESCRIPTION);
 	}
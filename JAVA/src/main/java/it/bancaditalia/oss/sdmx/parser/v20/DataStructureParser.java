@@ -25,10 +25,12 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.Attribute;
 import javax.xml.stream.events.StartElement;
 import javax.xml.stream.events.XMLEvent;
@@ -42,6 +44,7 @@ import it.bancaditalia.oss.sdmx.client.Parser;
 import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
 import it.bancaditalia.oss.sdmx.util.Configuration;
 import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
+import it.bancaditalia.oss.sdmx.util.XmlStreams;
 import it.bancaditalia.oss.sdmx.util.LocalizedText;
 
 /**
@@ -79,6 +82,13 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 	static final String			LOCAL_REPRESENTATION	= "LocalRepresentation";
 	static final String			REF						= "Ref";
 
+	@Override
+	public List<DataFlowStructure> parse(XMLStreamReader reader, LanguagePriorityList languages)
+			throws XMLStreamException, SdmxException
+	{
+		return parse(XmlStreams.toEventReader(reader), languages);
+	}
+
 	@Override
 	public List<DataFlowStructure> parse(XMLEventReader eventReader, LanguagePriorityList languages)
 			throws XMLStreamException, SdmxException
@@ -95,7 +105,8 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 		while (eventReader.hasNext())
 		{
 			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
+			if (logger.isLoggable(Level.FINEST))
+				logger.finest(event.toString());
 
 			if (event.isStartElement())
 			{
@@ -157,7 +168,8 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 			{
 				if (event.asEndElement().getName().getLocalPart().equals(DATASTRUCTURE))
 				{
-					logger.finer("Adding data structure. " + currentStructure);
+					if (logger.isLoggable(Level.FINER))
+						logger.finer("Adding data structure. " + currentStructure);
 					currentStructure.setName(currentName.getText());
 					result.add(currentStructure);
 				}
@@ -181,7 +193,8 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 		while (eventReader.hasNext())
 		{
 			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
+			if (logger.isLoggable(Level.FINEST))
+				logger.finest(event.toString());
 			if (event.isStartElement())
 			{
 				StartElement startElement = event.asStartElement();
@@ -327,7 +340,8 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 				{
 					if (currentStructure != null && currentElement != null)
 					{
-						logger.finer("Adding dimension: " + currentElement);
+						if (logger.isLoggable(Level.FINER))
+							logger.finer("Adding dimension: " + currentElement);
 						currentStructure.setDimension((Dimension) currentElement);
 					}
 					else
@@ -340,7 +354,8 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 				{
 					if (currentStructure != null && currentElement != null)
 					{
-						logger.finer("Adding attribute: " + currentElement);
+						if (logger.isLoggable(Level.FINER))
+							logger.finer("Adding attribute: " + currentElement);
 						currentStructure.setAttribute((SdmxAttribute) currentElement);
 					}
 					else
@@ -366,7 +381,8 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 		while (eventReader.hasNext())
 		{
 			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
+			if (logger.isLoggable(Level.FINEST))
+				logger.finest(event.toString());
 			if (event.isStartElement())
 			{
 				StartElement startElement = event.asStartElement();
@@ -407,7 +423,8 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 		while (eventReader.hasNext())
 		{
 			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
+			if (logger.isLoggable(Level.FINEST))
+				logger.finest(event.toString());
 			if (event.isStartElement())
 			{
 				StartElement startElement = event.asStartElement();
@@ -463,7 +480,8 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 		while (eventReader.hasNext())
 		{
 			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
+			if (logger.isLoggable(Level.FINEST))
+				logger.finest(event.toString());
 			if (event.isStartElement())
 			{
 				StartElement startElement = event.asStartElement();
@@ -24,10 +24,12 @@ package it.bancaditalia.oss.sdmx.parser.v20;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.Attribute;
 import javax.xml.stream.events.EndElement;
 import javax.xml.stream.events.StartElement;
@@ -39,6 +41,7 @@ import it.bancaditalia.oss.sdmx.client.Parser;
 import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
 import it.bancaditalia.oss.sdmx.util.Configuration;
 import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
+import it.bancaditalia.oss.sdmx.util.XmlStreams;
 import it.bancaditalia.oss.sdmx.util.LocalizedText;
 
 /**
@@ -58,6 +61,11 @@ public class DataflowParser implements Parser<List<Dataflow>> {
 	private static final String KF_AGID = "KeyFamilyAgencyID";
 	private static final String KF_VER = "Version";
 
+	@Override
+	public List<Dataflow> parse(XMLStreamReader reader, LanguagePriorityList languages) throws XMLStreamException, SdmxException {
+		return parse(XmlStreams.toEventReader(reader), languages);
+	}
+
 	@Override
 	public List<Dataflow> parse(XMLEventReader eventReader, LanguagePriorityList languages) throws XMLStreamException, SdmxException {
 		List<Dataflow> dfList = new ArrayList<>();
@@ -67,7 +75,8 @@ public class DataflowParser implements Parser<List<Dataflow>> {
 		LocalizedText currentName = new LocalizedText(languages);
 		while (eventReader.hasNext()) {
 			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
+			if (logger.isLoggable(Level.FINEST))
+				logger.finest(event.toString());
 
 			if (event.isStartElement()) {
 				StartElement startElement = event.asStartElement();
@@ -123,7 +132,8 @@ public class DataflowParser implements Parser<List<Dataflow>> {
 
 		while (eventReader.hasNext()) {
 			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
+			if (logger.isLoggable(Level.FINEST))
+				logger.finest(event.toString());
 			if (event.isStartElement()) {
 				StartElement startElement = event.asStartElement();
 				if (startElement.getName().getLocalPart().equalsIgnoreCase(KF_ID)) {
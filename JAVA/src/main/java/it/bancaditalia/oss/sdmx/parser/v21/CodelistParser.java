@@ -24,10 +24,13 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.Attribute;
 import javax.xml.stream.events.StartElement;
 import javax.xml.stream.events.XMLEvent;
@@ -39,6 +42,7 @@ import it.bancaditalia.oss.sdmx.exceptions.SdmxXmlContentException;
 import it.bancaditalia.oss.sdmx.util.Configuration;
 import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
 import it.bancaditalia.oss.sdmx.util.LocalizedText;
+import it.bancaditalia.oss.sdmx.util.XmlStreams;
 
 /**
  * @author Attilio Mattiocco
@@ -64,6 +68,25 @@ public class CodelistParser implements Parser<Codelist>
 		return parse(eventReader, languages, CODELIST, CODE, ID, DESCRIPTION);
 	}
 
+	@Override
+	public Codelist parse(XMLStreamReader reader, LanguagePriorityList languages)
+			throws XMLStreamException, SdmxException
+	{
+		return parse(reader, languages, CODELIST, CODE, ID, DESCRIPTION);
+	}
+
+	public static Codelist parse(XMLStreamReader reader, LanguagePriorityList languages, String codelist,
+			String code, String id, String description) throws XMLStreamException, SdmxException
+	{
+		final String sourceMethod = "parse";
+		logger.entering(sourceClass, sourceMethod);
+
+		Codelist codes = getCodes(reader, languages, codelist, code, id, description);
+
+		logger.exiting(sourceClass, sourceMethod);
+		return codes;
+	}
+
 	public static Codelist parse(XMLEventReader eventReader, LanguagePriorityList languages, String codelist,
 			String code, String id, String description) throws XMLStreamException, SdmxException
 	{
@@ -82,6 +105,83 @@ public class CodelistParser implements Parser<Codelist>
 		return getCodes(eventReader, languages, CODELIST, CODE, ID, DESCRIPTION);
 	}
 
+	public static Codelist getCodes(XMLStreamReader reader, LanguagePriorityList languages)
+			throws XMLStreamException, SdmxException
+	{
+		return getCodes(reader, languages, CODELIST, CODE, ID, DESCRIPTION);
+	}
+
+	/**
+	 * Reads the codes of the first codelist, from the current position of a cursor.
+	 */
+	public static Codelist getCodes(XMLStreamReader reader, LanguagePriorityList languages,
+			String codelist, String code, String id, String description) throws XMLStreamException, SdmxException
+	{
+		Map<String, String> codes = new LinkedHashMap<>();
+		Map<String, String> parents = new HashMap<>();
+
+		String key = null;
+		LocalizedText value = new LocalizedText(languages);
+		boolean parent = false;
+		while (reader.hasNext())
+		{
+			int event = reader.next();
+			XmlStreams.logEvent(reader);
+			if (event == XMLStreamConstants.START_ELEMENT)
+			{
+				String name = reader.getLocalName();
+				if (code.equals(name))
+				{
+					value.clear();
+					key = getAttribute(reader, id);
+				}
+				else if (description.equals(name))
+					value.setText(reader);
+				else if (PARENT.equals(name))
+					parent = true;
+				else if (parent && REF.equals(name))
+				{
+					String ref = getAttribute(reader, id);
+					if (ref != null)
+					{
+						parents.put(key, ref);
+						logger.finest("PARENT: " + key + " = " + ref);
+					}
+				}
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT)
+			{
+				String name = reader.getLocalName();
+				if (code.equals(name))
+					if (key != null)
+					{
+						if (logger.isLoggable(Level.FINER))
+							logger.finer("Got code " + key + ", " + value.getText());
+						codes.put(key, value.getText());
+					}
+					else
+						throw new SdmxXmlContentException("Error during Codelist Parsing. Invalid code id: " + key);
+				else if (name.equals(codelist))
+					// stop after first codelist
+					break;
+				else if (PARENT.equals(name))
+					parent = false;
+			}
+		}
+		
+		return new Codelist(codes, parents);
+	}
+
+	// the value of the last attribute of the current element with the given local name, or null
+	private static String getAttribute(XMLStreamReader reader, String localName)
+	{
+		String value = null;
+		for (int i = 0; i < reader.getAttributeCount(); i++)
+			if (localName.equals(reader.getAttributeLocalName(i)))
+				value = reader.getAttributeValue(i);
+		return value;
+	}
+
 	public static Codelist getCodes(XMLEventReader eventReader, LanguagePriorityList languages,
 			String codelist, String code, String id, String description) throws XMLStreamException, SdmxException
 	{
@@ -94,7 +194,8 @@ public class CodelistParser implements Parser<Codelist>
 		while (eventReader.hasNext())
 		{
 			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
+			if (logger.isLoggable(Level.FINEST))
+				logger.finest(event.toString());
 			if (event.isStartElement())
 			{
 				StartElement startElement = event.asStartElement();
@@ -25,37 +25,30 @@ package it.bancaditalia.oss.sdmx.parser.v21;
 
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.events.Attribute;
-import javax.xml.stream.events.EndElement;
-import javax.xml.stream.events.StartElement;
-import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.XMLStreamReader;
 
-import it.bancaditalia.oss.sdmx.api.Codelist;
 import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
 import it.bancaditalia.oss.sdmx.api.Dataflow;
-import it.bancaditalia.oss.sdmx.api.Dimension;
-import it.bancaditalia.oss.sdmx.api.DoubleObservation;
+import it.bancaditalia.oss.sdmx.api.DoubleTimeSeries;
 import it.bancaditalia.oss.sdmx.api.Message;
 import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
-import it.bancaditalia.oss.sdmx.api.SdmxAttribute;
+import it.bancaditalia.oss.sdmx.api.SeriesHandler;
 import it.bancaditalia.oss.sdmx.client.Parser;
 import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.parser.v21.DecodingPlan.Component;
+import it.bancaditalia.oss.sdmx.parser.v21.DecodingPlan.Kind;
 import it.bancaditalia.oss.sdmx.util.Configuration;
 import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
 import it.bancaditalia.oss.sdmx.util.LocalizedText;
+import it.bancaditalia.oss.sdmx.util.XmlStreams;
 
 /**
  * @author Attilio Mattiocco
@@ -82,48 +75,103 @@ public class CompactDataParser implements Parser<DataParsingResult>
 	private DataFlowStructure		dsd;
 	private Dataflow				dataflow;
 	private boolean					data;
+	private SeriesHandler			handler;
 
+	/**
+	 * Creates a parser that collects the series in the result, with the observations of each series ordered by time
+	 * whatever their order in the message.
+	 */
 	public CompactDataParser(DataFlowStructure dsd, Dataflow dataflow, boolean data)
+	{
+		this(dsd, dataflow, data, null);
+	}
+
+	/**
+	 * Creates a parser that passes each series to the handler as soon as it is complete, instead of collecting them in
+	 * the result. A series is complete when a series with another key, or the end of the message, is reached: the
+	 * consecutive chunks that some providers split a series into are merged, like in the result.
+	 */
+	public CompactDataParser(DataFlowStructure dsd, Dataflow dataflow, boolean data, SeriesHandler handler)
 	{
 		this.dsd = dsd;
 		this.dataflow = dataflow;
 		this.data = data;
+		this.handler = handler;
+	}
+
+	/**
+	 * @return The handler that receives the series, or null if they are collected in the result.
+	 */
+	public SeriesHandler getHandler()
+	{
+		return handler;
 	}
 
 	@Override
 	public DataParsingResult parse(XMLEventReader eventReader, LanguagePriorityList languages)
 			throws XMLStreamException, SdmxException
+	{
+		return parse(XmlStreams.toStreamReader(eventReader), languages);
+	}
+
+	@Override
+	public DataParsingResult parse(XMLStreamReader reader, LanguagePriorityList languages)
+			throws XMLStreamException, SdmxException
 	{
 		final String sourceMethod = "parse";
 		logger.entering(sourceClass, sourceMethod);
 
-		LinkedHashMap<String, PortableTimeSeries<Double>> tsList = new LinkedHashMap<>();
+		LinkedHashMap<String, DoubleTimeSeries> tsList = new LinkedHashMap<>();
+		DecodingPlan plan = DecodingPlan.of(dsd);
 
 		DataParsingResult result = new DataParsingResult();
-		PortableTimeSeries<Double> ts = null;
+		DoubleTimeSeries ts = null;
+		// with a handler, the last series read, kept until the next one shows it is complete
+		DoubleTimeSeries pending = null;
 		String currentAction = null;
 		String currentValidFromDate = null;
 		String currentValidToDate = null;
 
-		while (eventReader.hasNext())
+		while (reader.hasNext())
 		{
-			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
+			int event = reader.next();
+			XmlStreams.logEvent(reader);
 
-			if (event.isStartElement())
+			if (event == XMLStreamConstants.START_ELEMENT)
 			{
-				StartElement startElement = event.asStartElement();
+				String name = reader.getLocalName();
+
+				if (name.equals(OBS))
+				{
+					if (data)
+					{
+						//now the metadata has been set and we know the series key. We use it to check
+						//if the ts is already present in the result set. (This check has been introduced 
+						//in recent times because some providers started returning the same time series in 
+						//different chunks)
+
+						if (handler == null)
+							ts = tsList.get(ts.getName()) != null ? tsList.get(ts.getName()) : ts;
+						else if (pending != null && pending.getName().equals(ts.getName()))
+							ts = pending;
 
-				if (startElement.getName().getLocalPart() == (DATASET))
+						addObservation(plan, ts, reader);
+					}
+				}
+				else if (name.equals(SERIES))
+				{
+					logger.finer("Got new time series");
+					ts = new DoubleTimeSeries();
+					ts.setDataflow(dataflow);
+					setMetadata(plan, ts, reader, currentAction, currentValidFromDate, currentValidToDate);
+				}
+				else if (name.equals(DATASET))
 				{
 					logger.finer("Got new dataset");
-					@SuppressWarnings("unchecked")
-					Iterator<Attribute> attributes = startElement.getAttributes();
-					while (attributes.hasNext())
+					for (int i = 0; i < reader.getAttributeCount(); i++)
 					{
-						Attribute attr = attributes.next();
-						String id = attr.getName().getLocalPart().toString();
-						String value = attr.getValue();
+						String id = reader.getAttributeLocalName(i);
+						String value = reader.getAttributeValue(i);
 						if (id.equalsIgnoreCase(ACTION))
 						{
 							logger.finer("action: " + value);
@@ -141,117 +189,107 @@ public class CompactDataParser implements Parser<DataParsingResult>
 						}
 					}
 				}
-
-				if (startElement.getName().getLocalPart() == (SERIES))
+				else if (name.equals(FOOTER))
 				{
-					logger.finer("Got new time series");
-					ts = new PortableTimeSeries<>();
-					ts.setDataflow(dataflow);
-
-					@SuppressWarnings("unchecked")
-					Iterator<Attribute> attributes = startElement.getAttributes();
-					setMetadata(ts, attributes, currentAction, currentValidFromDate, currentValidToDate);
-				}
-
-				if (startElement.getName().getLocalPart() == (FOOTER))
-				{
-					setFooter(eventReader, languages, result);
-				}
-
-				if (startElement.getName().getLocalPart().equals(OBS) && data)
-				{
-					
-					//now the metadata has been set and we know the series key. We use it to check
-					//if the ts is already present in the result set. (This check has been introduced 
-					//in recent times because some providers started returning the same time series in 
-					//different chunks)
-					
-					ts = tsList.get(ts.getName()) != null ? tsList.get(ts.getName()) : ts;
-					
-					event = eventReader.nextEvent();
-					logger.finest(event.toString());
-					@SuppressWarnings("unchecked")
-					Iterator<Attribute> attributes = startElement.getAttributes();
-					String time = null;
-					String obs_val = null;
-					Map<String, String> obs_attr = new HashMap<>();
-					while (attributes.hasNext())
-					{
-						Attribute attribute = attributes.next();
-						String name = attribute.getName().toString();
-						if (name.equals(dsd.getTimeDimension()))
-						{
-							time = attribute.getValue();
-						}
-						// workaround for some flows (e.g. in OECD) that do not respect the declared
-						// time dimension
-						else if (name.equals("TIME") && time == null)
-						{
-							time = attribute.getValue();
-						}
-						else if (name.equals(dsd.getMeasure()))
-						{
-							obs_val = attribute.getValue();
-						}
-						else
-						{
-							String value = attribute.getValue();
-							String desc = null;
-							if (!Configuration.getCodesPolicy().equalsIgnoreCase(Configuration.SDMX_CODES_POLICY_ID))
-							{
-								SdmxAttribute sdmxattr = dsd.getAttribute(name);
-								if (sdmxattr != null)
-								{
-									Codelist cl = sdmxattr.getCodeList();
-									if (cl != null)
-									{
-										desc = cl.get(value);
-										if (desc != null)
-										{
-											value = Configuration.getCodesPolicy()
-													.equalsIgnoreCase(Configuration.SDMX_CODES_POLICY_DESC) ? desc
-															: value + "(" + desc + ")";
-										}
-									}
-								}
-							}
-							obs_attr.put(name, value);
-						}
-					}
-					try {
-						ts.add(new DoubleObservation(time, Double.valueOf(obs_val != null ? obs_val : ""), obs_attr));
-					} catch (NumberFormatException e) {
-						logger.fine("The date: " + time + "has an obs value that is not parseable to a numer: " + obs_val + ". A NaN will be set.");
-						ts.add(new DoubleObservation(time, Double.NaN, obs_attr));
-					}
-					continue;
+					setFooter(reader, languages, result);
 				}
 			}
-
-			if (event.isEndElement())
+			else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals(SERIES))
 			{
-				EndElement endElement = event.asEndElement();
-				if (endElement.getName().getLocalPart() == (SERIES))
-				{
+				if (logger.isLoggable(Level.FINER))
 					logger.finer("Adding time series " + ts);
-					//add empty series only if it is not in the list already
-					if(!tsList.containsKey(ts.getName())){
-						tsList.put(ts.getName(), ts);
+				if (handler != null)
+				{
+					// the chunks of a series that follow each other are delivered together
+					if (pending == null || !pending.getName().equals(ts.getName()))
+					{
+						deliver(pending);
+						pending = ts;
 					}
+					ts = null;
+				}
+				//add empty series only if it is not in the list already
+				else if(!tsList.containsKey(ts.getName())){
+					tsList.put(ts.getName(), ts);
 				}
 			}
-
 		}
+		deliver(pending);
 		//make sure the time series is ordered by time
-		for (PortableTimeSeries<Double> tts: result) Collections.sort(tts);
+		for (DoubleTimeSeries tts: tsList.values()) tts.sortByTime();
 		
 		result.setData(new ArrayList<PortableTimeSeries<Double>>(tsList.values()));
 		logger.exiting(sourceClass, sourceMethod);
 		return result;
 	}
 
-	private void setMetadata(PortableTimeSeries<?> ts, Iterator<Attribute> attributes, String action, String validFrom,
-			String validTo)
+	private void deliver(DoubleTimeSeries ts) throws SdmxException
+	{
+		if (ts != null)
+		{
+			ts.sortByTime();
+			handler.onSeries(ts);
+		}
+	}
+
+	// reads the attributes of an Obs element, the cursor is on its start tag
+	private static void addObservation(DecodingPlan plan, DoubleTimeSeries ts, XMLStreamReader reader)
+	{
+		String time = null;
+		String obs_val = null;
+		int count = reader.getAttributeCount();
+		int timeAttribute = -1;
+		boolean attributes = false;
+		for (int i = 0; i < count; i++)
+		{
+			String name = XmlStreams.getAttributeName(reader, i);
+			Kind kind = getKind(plan, name);
+			if (kind == Kind.TIME)
+			{
+				time = reader.getAttributeValue(i);
+			}
+			// workaround for some flows (e.g. in OECD) that do not respect the declared
+			// time dimension
+			else if (name.equals("TIME") && time == null)
+			{
+				time = reader.getAttributeValue(i);
+				timeAttribute = i;
+			}
+			else if (kind == Kind.MEASURE)
+			{
+				obs_val = reader.getAttributeValue(i);
+			}
+			else
+				attributes = true;
+		}
+		try {
+			ts.add(time, Double.parseDouble(obs_val != null ? obs_val : ""), null);
+		} catch (NumberFormatException e) {
+			if (logger.isLoggable(Level.FINE))
+				logger.fine("The date: " + time + "has an obs value that is not parseable to a numer: " + obs_val + ". A NaN will be set.");
+			ts.addMissing(time, null);
+		}
+
+		// the observation-level attributes, now that the observation is in the series
+		if (attributes)
+			for (int i = 0; i < count; i++)
+			{
+				String name = XmlStreams.getAttributeName(reader, i);
+				Kind kind = getKind(plan, name);
+				if (kind != Kind.TIME && kind != Kind.MEASURE && i != timeAttribute)
+					ts.setAttributeAt(ts.size() - 1, name,
+							plan.decodeAttribute(plan.get(name), reader.getAttributeValue(i), ""));
+			}
+	}
+
+	private static Kind getKind(DecodingPlan plan, String name)
+	{
+		Component component = plan.get(name);
+		return component != null ? component.getKind() : null;
+	}
+
+	private void setMetadata(DecodingPlan plan, PortableTimeSeries<?> ts, XMLStreamReader reader,
+			String action, String validFrom, String validTo)
 	{
 		final String sourceMethod = "setMetadata";
 		logger.entering(sourceClass, sourceMethod);
@@ -267,95 +305,45 @@ public class CompactDataParser implements Parser<DataParsingResult>
 		{
 			ts.addAttribute(VALID_TO, validTo);
 		}
-		int size = dsd.getDimensions().size();
-		String[] names = new String[size];
-
-		@SuppressWarnings("unchecked")
-		Entry<String, String> values[] = new Entry[size];
 
-		while (attributes.hasNext())
+		String[] codes = new String[plan.getDimensionCount()];
+		for (int i = 0; i < reader.getAttributeCount(); i++)
 		{
-			Attribute attr = attributes.next();
-			String id = attr.getName().toString();
-			String value = attr.getValue();
-			if (dsd.isDimension(id))
-			{
-				String desc = null;
-				names[dsd.getDimensionPosition(id) - 1] = id;
-				if (id.equalsIgnoreCase("FREQ") || id.equalsIgnoreCase("FREQUENCY"))
-				{
-					ts.setFrequency(value);
-				}
-
-				Dimension dim = dsd.getDimension(id);
-				if (dim != null)
-				{
-					Codelist cl = dim.getCodeList();
-					if (cl != null)
-						desc = cl.get(value);
-				}
-
-				values[dsd.getDimensionPosition(id) - 1] = new SimpleEntry<>(value, desc);
-			}
+			String id = XmlStreams.getAttributeName(reader, i);
+			String value = reader.getAttributeValue(i);
+			Component component = plan.get(id);
+			if (component != null && component.getKind() == Kind.DIMENSION)
+				codes[component.getSlot()] = value;
 			else
-			{
-				String desc = null;
-				if (!Configuration.getCodesPolicy().equalsIgnoreCase(Configuration.SDMX_CODES_POLICY_ID))
-				{
-					SdmxAttribute sdmxattr = dsd.getAttribute(id);
-					if (sdmxattr != null)
-					{
-						Codelist cl = sdmxattr.getCodeList();
-						if (cl != null)
-						{
-							desc = cl.get(value);
-							if (desc != null)
-							{
-								// TODO: Double-check this line. Unwanted side effects, for example in
-								// PortableTimeSeries.getName()
-								value = Configuration.getCodesPolicy().equalsIgnoreCase(
-										Configuration.SDMX_CODES_POLICY_DESC) ? desc : value + " (" + desc + ")";
-							}
-						}
-					}
-				}
-
-				ts.addAttribute(id, value);
-			}
+				// TODO: Double-check this line. Unwanted side effects, for example in
+				// PortableTimeSeries.getName()
+				ts.addAttribute(id, plan.decodeAttribute(component, value, " "));
 		}
 
-		Map<String, Entry<String, String>> dimensions = new LinkedHashMap<>();
-		for (int i = 0; i < size; i++)
-			dimensions.put(names[i], values[i]);
-
-		ts.setDimensions(dimensions);
+		plan.setDimensions(ts, codes);
 		logger.exiting(sourceClass, sourceMethod);
 	}
 
-	private void setFooter(XMLEventReader eventReader, LanguagePriorityList languages, DataParsingResult parsingResult)
+	private void setFooter(XMLStreamReader reader, LanguagePriorityList languages, DataParsingResult parsingResult)
 			throws XMLStreamException
 	{
 		final String sourceMethod = "setFooter";
 		logger.entering(sourceClass, sourceMethod);
 		Message msg = null;
-		while (eventReader.hasNext())
+		while (reader.hasNext())
 		{
-			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
+			int event = reader.next();
+			XmlStreams.logEvent(reader);
 
-			if (event.isStartElement())
+			if (event == XMLStreamConstants.START_ELEMENT)
 			{
-				StartElement startElement = event.asStartElement();
-				if (startElement.getName().getLocalPart() == (MESSAGE))
+				if (reader.getLocalName().equals(MESSAGE))
 				{
 					msg = new Message();
-					@SuppressWarnings("unchecked")
-					Iterator<Attribute> attributes = startElement.getAttributes();
-					while (attributes.hasNext())
+					for (int i = 0; i < reader.getAttributeCount(); i++)
 					{
-						Attribute attr = attributes.next();
-						String id = attr.getName().toString();
-						String value = attr.getValue();
+						String id = XmlStreams.getAttributeName(reader, i);
+						String value = reader.getAttributeValue(i);
 						if (id.equalsIgnoreCase(CODE))
 						{
 							msg.setCode(value);
@@ -366,11 +354,11 @@ public class CompactDataParser implements Parser<DataParsingResult>
 						}
 					}
 				}
-				if (startElement.getName().getLocalPart() == (TEXT))
+				else if (reader.getLocalName().equals(TEXT))
 				{
 					String item = null;
 					LocalizedText text = new LocalizedText(languages);
-					text.setText(startElement, eventReader);
+					text.setText(reader);
 					item = text.getText();
 					msg.addText(item);
 					try
@@ -384,17 +372,12 @@ public class CompactDataParser implements Parser<DataParsingResult>
 					}
 				}
 			}
-
-			if (event.isEndElement())
+			// just get the first message for now
+			else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals(MESSAGE))
 			{
-				EndElement endElement = event.asEndElement();
-				// just get the first message for now
-				if (endElement.getName().getLocalPart() == (MESSAGE))
-				{
-					logger.finer("Adding footer message");
-					parsingResult.setMessage(msg);
-					break;
-				}
+				logger.finer("Adding footer message");
+				parsingResult.setMessage(msg);
+				break;
 			}
 		}
 		logger.exiting(sourceClass, sourceMethod);
@@ -0,0 +1,367 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.parser.v21;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.logging.Logger;
+
+import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
+import it.bancaditalia.oss.sdmx.api.Dataflow;
+import it.bancaditalia.oss.sdmx.api.DoubleTimeSeries;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.api.SdmxAttribute.AttachmentLevel;
+import it.bancaditalia.oss.sdmx.client.StreamParser;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxXmlContentException;
+import it.bancaditalia.oss.sdmx.parser.v21.DecodingPlan.Component;
+import it.bancaditalia.oss.sdmx.util.Configuration;
+import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
+
+/**
+ * Parses SDMX-CSV data messages, producing the same time series as {@link CompactDataParser}. The rows are read one
+ * at a time, so the message is never held in memory.
+ */
+public class CsvDataParser implements StreamParser<DataParsingResult>
+{
+	private static final String		sourceClass	= CsvDataParser.class.getSimpleName();
+	protected static final Logger	logger		= Configuration.getSdmxLogger();
+
+	public static final String		MEDIA_TYPE	= "application/vnd.sdmx.data+csv";
+
+	private static final String		DATAFLOW	= "DATAFLOW";
+	private static final String		STRUCTURE	= "STRUCTURE";
+	private static final String		STRUCTURE_ID	= "STRUCTURE_ID";
+	private static final String		ACTION		= "ACTION";
+	private static final String		TIME_PERIOD	= "TIME_PERIOD";
+	// the series attribute holding the action, as in the SDMX-ML and SDMX-JSON parsers
+	private static final String		SERIES_ACTION	= "action";
+	private static final String		OBS_VALUE	= "OBS_VALUE";
+
+	private DataFlowStructure		dsd;
+	private Dataflow				dataflow;
+	private boolean					data;
+
+	public CsvDataParser(DataFlowStructure dsd, Dataflow dataflow, boolean data)
+	{
+		this.dsd = dsd;
+		this.dataflow = dataflow;
+		this.data = data;
+	}
+
+	@Override
+	public DataParsingResult parse(BufferedReader reader, LanguagePriorityList languages) throws IOException, SdmxException
+	{
+		final String sourceMethod = "parse";
+		logger.entering(sourceClass, sourceMethod);
+
+		DataParsingResult result = new DataParsingResult();
+		LinkedHashMap<String, DoubleTimeSeries> tsList = new LinkedHashMap<>();
+
+		String headerLine = reader.readLine();
+		if (headerLine == null || headerLine.trim().isEmpty())
+		{
+			result.setData(new ArrayList<PortableTimeSeries<Double>>());
+			logger.exiting(sourceClass, sourceMethod);
+			return result;
+		}
+
+		char delimiter = getDelimiter(headerLine);
+		List<String> header = new ArrayList<>();
+		new RecordReader(new StringReader(headerLine), delimiter).readRecord(header);
+
+		// map the columns to the components of the dsd
+		DecodingPlan plan = DecodingPlan.of(dsd);
+		int dimensionColumns[] = new int[plan.getDimensionCount()];
+		boolean labels = false;
+		String[] ids = new String[header.size()];
+		for (int i = 0; i < header.size(); i++)
+		{
+			String label = header.get(i);
+			int colon = label.indexOf(':');
+			labels |= colon >= 0;
+			ids[i] = (colon >= 0 ? label.substring(0, colon) : label).trim();
+		}
+		for (int i = 0; i < dimensionColumns.length; i++)
+		{
+			dimensionColumns[i] = indexOf(ids, plan.getDimension(i).getId());
+			if (dimensionColumns[i] < 0)
+				throw new SdmxXmlContentException("The dimension " + plan.getDimension(i).getId() + " is missing from the SDMX-CSV message.");
+		}
+		int timeColumn = indexOf(ids, plan.getTimeDimension() != null ? plan.getTimeDimension() : TIME_PERIOD);
+		if (timeColumn < 0)
+			timeColumn = indexOf(ids, TIME_PERIOD);
+		int valueColumn = indexOf(ids, plan.getMeasure() != null ? plan.getMeasure() : OBS_VALUE);
+		if (valueColumn < 0)
+			valueColumn = indexOf(ids, OBS_VALUE);
+		int actionColumn = -1;
+		for (int i = 0; i < ids.length && actionColumn < 0; i++)
+			if (ACTION.equalsIgnoreCase(ids[i]))
+				actionColumn = i;
+
+		// every other column is an attribute
+		Component[] components = new Component[ids.length];
+		List<Integer> seriesAttrColumns = new ArrayList<>();
+		List<Integer> obsAttrColumns = new ArrayList<>();
+		for (int i = 0; i < ids.length; i++)
+			if (i != timeColumn && i != valueColumn && indexOf(dimensionColumns, i) < 0 && !isMetadataColumn(ids[i]))
+			{
+				components[i] = plan.get(ids[i]);
+				AttachmentLevel level = components[i] != null ? components[i].getAttachmentLevel() : null;
+				if (level == AttachmentLevel.SERIES || level == AttachmentLevel.GROUP)
+					seriesAttrColumns.add(i);
+				// attributes of unknown attachment are kept with the observations, so that no value is lost
+				else if (level != AttachmentLevel.DATASET)
+					obsAttrColumns.add(i);
+			}
+
+		RecordReader records = new RecordReader(reader, delimiter);
+		List<String> row = new ArrayList<>();
+		StringBuilder key = new StringBuilder();
+		while (records.readRecord(row))
+		{
+			if (row.size() == 1 && row.get(0).isEmpty())
+				continue;
+			if (row.size() != ids.length)
+				throw new SdmxXmlContentException("Malformed SDMX-CSV row: expected " + ids.length + " fields but got " + row.size() + ".");
+
+			key.setLength(0);
+			for (int column : dimensionColumns)
+				key.append(value(row, column, labels)).append('.');
+
+			DoubleTimeSeries ts = tsList.get(key.toString());
+			if (ts == null)
+			{
+				ts = new DoubleTimeSeries();
+				ts.setDataflow(dataflow);
+				setMetadata(plan, ts, row, dimensionColumns, actionColumn, labels);
+				logger.finer("Got new time series " + ts.getName());
+				tsList.put(key.toString(), ts);
+			}
+
+			for (int column : seriesAttrColumns)
+				if (ts.getAttribute(ids[column]) == null)
+				{
+					String value = value(row, column, labels);
+					if (!value.isEmpty())
+						ts.addAttribute(ids[column], plan.decodeAttribute(components[column], value, " "));
+				}
+
+			if (data)
+			{
+				String time = timeColumn >= 0 ? row.get(timeColumn) : null;
+				String obs_val = valueColumn >= 0 ? row.get(valueColumn) : null;
+				try
+				{
+					ts.add(time, Double.parseDouble(obs_val != null ? obs_val : ""), null);
+				}
+				catch (NumberFormatException e)
+				{
+					logger.fine("The date: " + time + "has an obs value that is not parseable to a numer: " + obs_val + ". A NaN will be set.");
+					ts.addMissing(time, null);
+				}
+				for (int column : obsAttrColumns)
+				{
+					String value = value(row, column, labels);
+					if (!value.isEmpty())
+						ts.setAttributeAt(ts.size() - 1, ids[column], plan.decodeAttribute(components[column], value, ""));
+				}
+			}
+		}
+
+		// make sure the time series is ordered by time
+		for (DoubleTimeSeries ts : tsList.values())
+			ts.sortByTime();
+
+		result.setData(new ArrayList<PortableTimeSeries<Double>>(tsList.values()));
+		logger.exiting(sourceClass, sourceMethod);
+		return result;
+	}
+
+	private static void setMetadata(DecodingPlan plan, PortableTimeSeries<?> ts, List<String> row, int[] dimensionColumns,
+			int actionColumn, boolean labels)
+	{
+		String action = actionColumn >= 0 ? value(row, actionColumn, labels) : "";
+		if (!action.isEmpty())
+			ts.addAttribute(SERIES_ACTION, action(action));
+		String[] codes = new String[dimensionColumns.length];
+		for (int i = 0; i < codes.length; i++)
+			codes[i] = value(row, dimensionColumns[i], labels);
+		plan.setDimensions(ts, codes);
+	}
+
+	// SDMX-CSV abbreviates the actions of the other formats to their initial
+	private static String action(String code)
+	{
+		switch (code)
+		{
+			case "I":
+				return "Information";
+			case "A":
+				return "Append";
+			case "R":
+				return "Replace";
+			case "D":
+				return "Delete";
+			case "M":
+				return "Merge";
+			default:
+				return code;
+		}
+	}
+
+	// strips the label from "code: label" values
+	private static String value(List<String> row, int column, boolean labels)
+	{
+		String value = row.get(column);
+		if (labels)
+		{
+			int colon = value.indexOf(": ");
+			if (colon >= 0)
+				value = value.substring(0, colon);
+		}
+		return value.trim();
+	}
+
+	private static boolean isMetadataColumn(String id)
+	{
+		return DATAFLOW.equalsIgnoreCase(id) || STRUCTURE.equalsIgnoreCase(id) || STRUCTURE_ID.equalsIgnoreCase(id)
+				|| ACTION.equalsIgnoreCase(id);
+	}
+
+	private static int indexOf(String[] ids, String id)
+	{
+		for (int i = 0; i < ids.length; i++)
+			if (ids[i].equals(id))
+				return i;
+		return -1;
+	}
+
+	private static int indexOf(int[] columns, int column)
+	{
+		for (int i = 0; i < columns.length; i++)
+			if (columns[i] == column)
+				return i;
+		return -1;
+	}
+
+	// SDMX-CSV allows a comma, a semicolon or a tab as separator
+	private static char getDelimiter(String header)
+	{
+		char delimiter = ',';
+		int max = 0;
+		for (char candidate : new char[] { ',', ';', '\t' })
+		{
+			int count = 0;
+			for (int i = 0; i < header.length(); i++)
+				if (header.charAt(i) == candidate)
+					count++;
+			if (count > max)
+			{
+				max = count;
+				delimiter = candidate;
+			}
+		}
+		return delimiter;
+	}
+
+	/**
+	 * Reads RFC 4180 records, where fields may be quoted and quoted fields may contain delimiters, line breaks and
+	 * doubled quotes.
+	 */
+	private static class RecordReader
+	{
+		private final Reader		reader;
+		private final char			delimiter;
+		private final char[]		buffer	= new char[8192];
+		private int					pos		= 0;
+		private int					limit	= 0;
+		private final StringBuilder	field	= new StringBuilder();
+
+		private RecordReader(Reader reader, char delimiter)
+		{
+			this.reader = reader;
+			this.delimiter = delimiter;
+		}
+
+		/**
+		 * @return false if the end of the stream was reached before any field.
+		 */
+		private boolean readRecord(List<String> fields) throws IOException
+		{
+			fields.clear();
+			field.setLength(0);
+			boolean quoted = false;
+			int c = read();
+			if (c < 0)
+				return false;
+
+			for (; c >= 0; c = read())
+			{
+				if (quoted)
+				{
+					if (c != '"')
+						field.append((char) c);
+					else if ((pos < limit || fill()) && buffer[pos] == '"')
+					{
+						field.append('"');
+						pos++;
+					}
+					else
+						quoted = false;
+				}
+				else if (c == '"')
+					quoted = true;
+				else if (c == delimiter)
+				{
+					fields.add(field.toString());
+					field.setLength(0);
+				}
+				else if (c == '\n')
+					break;
+				else if (c != '\r')
+					field.append((char) c);
+			}
+
+			fields.add(field.toString());
+			return true;
+		}
+
+		private int read() throws IOException
+		{
+			if (pos >= limit && !fill())
+				return -1;
+			return buffer[pos++];
+		}
+
+		private boolean fill() throws IOException
+		{
+			pos = 0;
+			limit = Math.max(reader.read(buffer, 0, buffer.length), 0);
+			return limit > 0;
+		}
+	}
+}
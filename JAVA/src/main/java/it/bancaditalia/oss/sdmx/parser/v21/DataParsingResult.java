@@ -23,6 +23,7 @@ package it.bancaditalia.oss.sdmx.parser.v21;
 import java.util.ArrayList;
 import java.util.List;
 
+import it.bancaditalia.oss.sdmx.api.DoubleTimeSeries;
 import it.bancaditalia.oss.sdmx.api.Message;
 import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
 
@@ -46,5 +47,22 @@ public class DataParsingResult extends ArrayList<PortableTimeSeries<Double>> {
 		this.message = message;
 	}
 
+	/**
+	 * @return A copy of this result, whose series and observations can be changed independently of it.
+	 */
+	public DataParsingResult copy() {
+		DataParsingResult copy = new DataParsingResult();
+		copy.message = message;
+		for (PortableTimeSeries<Double> ts: this)
+			if (ts instanceof DoubleTimeSeries)
+				copy.add(((DoubleTimeSeries) ts).copy());
+			else {
+				PortableTimeSeries<Double> series = new PortableTimeSeries<Double>(ts);
+				series.addAll(ts);
+				copy.add(series);
+			}
+		return copy;
+	}
+
 
 }
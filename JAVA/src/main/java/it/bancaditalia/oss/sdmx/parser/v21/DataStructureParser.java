@@ -22,16 +22,15 @@ package it.bancaditalia.oss.sdmx.parser.v21;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.events.Attribute;
-import javax.xml.stream.events.StartElement;
-import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.XMLStreamReader;
 
 import it.bancaditalia.oss.sdmx.api.Codelist;
 import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
@@ -44,6 +43,7 @@ import it.bancaditalia.oss.sdmx.exceptions.SdmxXmlContentException;
 import it.bancaditalia.oss.sdmx.util.Configuration;
 import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
 import it.bancaditalia.oss.sdmx.util.LocalizedText;
+import it.bancaditalia.oss.sdmx.util.XmlStreams;
 
 /**
  * @author Attilio Mattiocco
@@ -80,11 +80,19 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 	static final String			VERSION					= "version";
 
 	static final String			LOCAL_REPRESENTATION	= "LocalRepresentation";
+	static final String			ATTRIBUTE_RELATIONSHIP	= "AttributeRelationship";
 	static final String			REF						= "Ref";
 
 	@Override
 	public List<DataFlowStructure> parse(XMLEventReader eventReader, LanguagePriorityList languages)
 			throws XMLStreamException, SdmxException
+	{
+		return parse(XmlStreams.toStreamReader(eventReader), languages);
+	}
+
+	@Override
+	public List<DataFlowStructure> parse(XMLStreamReader reader, LanguagePriorityList languages)
+			throws XMLStreamException, SdmxException
 	{
 		final String sourceMethod = "parse";
 		logger.entering(sourceClass, sourceMethod);
@@ -95,70 +103,67 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 		DataFlowStructure currentStructure = null;
 
 		LocalizedText currentName = new LocalizedText(languages);
-		while (eventReader.hasNext())
+		while (reader.hasNext())
 		{
-			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
+			int event = reader.next();
+			XmlStreams.logEvent(reader);
 
-			if (event.isStartElement())
+			if (event == XMLStreamConstants.START_ELEMENT)
 			{
-				StartElement startElement = event.asStartElement();
-
-				if (startElement.getName().getLocalPart() == (CODELISTS))
+				String localName = reader.getLocalName();
+				if (localName.equals(CODELISTS))
 				{
-					codelists = getCodelists(eventReader, languages);
+					codelists = getCodelists(reader, languages);
 				}
-				else if (startElement.getName().getLocalPart() == (CONCEPTS))
+				else if (localName.equals(CONCEPTS))
 				{
-					concepts = getConcepts(eventReader, languages);
+					concepts = getConcepts(reader, languages);
 				}
 
-				if (startElement.getName().getLocalPart() == (DATASTRUCTURE))
+				if (localName.equals(DATASTRUCTURE))
 				{
 
 					currentStructure = new DataFlowStructure();
 					currentName.clear();
-					@SuppressWarnings("unchecked")
-					Iterator<Attribute> attributes = startElement.getAttributes();
-					while (attributes.hasNext())
+					for (int i = 0; i < reader.getAttributeCount(); i++)
 					{
-						Attribute attr = attributes.next();
+						String attr = XmlStreams.getAttributeName(reader, i);
 						String id = null;
 						String agency = null;
 						String version = null;
-						if (attr.getName().toString().equals(ID))
+						if (attr.equals(ID))
 						{
-							id = attr.getValue();
+							id = reader.getAttributeValue(i);
 							currentStructure.setId(id);
 						}
-						else if (attr.getName().toString().equals(AGENCYID))
+						else if (attr.equals(AGENCYID))
 						{
-							agency = attr.getValue();
+							agency = reader.getAttributeValue(i);
 							currentStructure.setAgency(agency);
 						}
-						else if (attr.getName().toString().equals(VERSION))
+						else if (attr.equals(VERSION))
 						{
-							version = attr.getValue();
+							version = reader.getAttributeValue(i);
 							currentStructure.setVersion(version);
 						}
 					}
 					logger.finer("Got data structure.");
 				}
 
-				if (startElement.getName().getLocalPart().equals(NAME))
+				if (localName.equals(NAME))
 				{
 					// this has to be checked better
 					if (currentStructure != null)
 					{
-						currentName.setText(startElement, eventReader);
+						currentName.setText(reader);
 					}
 				}
 
-				if (startElement.getName().getLocalPart().equals(DIMENSIONLIST))
+				if (localName.equals(DIMENSIONLIST))
 				{
 					if (currentStructure != null)
 					{
-						setStructureDimensions(currentStructure, eventReader, codelists, concepts);
+						setStructureDimensions(currentStructure, reader, codelists, concepts);
 					}
 					else
 					{
@@ -166,26 +171,28 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 					}
 				}
 
-				if (startElement.getName().getLocalPart().equals(GROUP))
+				if (localName.equals(GROUP))
 				{
-					setStructureGroups(currentStructure, eventReader);
+					setStructureGroups(currentStructure, reader);
 				}
-				if (startElement.getName().getLocalPart().equals(ATTRIBUTELIST))
+				if (localName.equals(ATTRIBUTELIST))
 				{
-					setStructureAttributes(currentStructure, eventReader, codelists, concepts);
+					setStructureAttributes(currentStructure, reader, codelists, concepts);
 				}
-				if (startElement.getName().getLocalPart().equals(MEASURELIST))
+				if (localName.equals(MEASURELIST))
 				{
-					setStructureMeasures(currentStructure, eventReader);
+					setStructureMeasures(currentStructure, reader);
 				}
 
 			}
 
-			if (event.isEndElement())
+			if (event == XMLStreamConstants.END_ELEMENT)
 			{
-				if (event.asEndElement().getName().getLocalPart().equals(DATASTRUCTURE))
+				String localName = reader.getLocalName();
+				if (localName.equals(DATASTRUCTURE))
 				{
-					logger.finer("Adding data structure. " + currentStructure);
+					if (logger.isLoggable(Level.FINER))
+						logger.finer("Adding data structure. " + currentStructure);
 					currentStructure.setName(currentName.getText());
 					result.add(currentStructure);
 				}
@@ -196,32 +203,31 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 		return result;
 	}
 
-	private static void setStructureAttributes(DataFlowStructure currentStructure, XMLEventReader eventReader,
+	private static void setStructureAttributes(DataFlowStructure currentStructure, XMLStreamReader reader,
 			Map<String, Codelist> codelists, Map<String, String> concepts) throws XMLStreamException
 	{
 		final String sourceMethod = "setStructureAttributes";
 		logger.entering(sourceClass, sourceMethod);
 		SdmxAttribute currentAttribute = null;
-		while (eventReader.hasNext())
+		boolean relationship = false;
+		while (reader.hasNext())
 		{
-			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
-			if (event.isStartElement())
+			int event = reader.next();
+			XmlStreams.logEvent(reader);
+			if (event == XMLStreamConstants.START_ELEMENT)
 			{
-				StartElement startElement = event.asStartElement();
-				if (startElement.getName().getLocalPart().equals(ATTRIBUTE))
+				String localName = reader.getLocalName();
+				if (localName.equals(ATTRIBUTE))
 				{
 					logger.finer("Got attribute");
 					currentAttribute = new SdmxAttribute();
-					@SuppressWarnings("unchecked")
-					Iterator<Attribute> attributes = startElement.getAttributes();
 					String id = null;
-					while (attributes.hasNext())
+					for (int i = 0; i < reader.getAttributeCount(); i++)
 					{
-						Attribute attribute = attributes.next();
-						if (attribute.getName().toString().equals(ID))
+						String attribute = XmlStreams.getAttributeName(reader, i);
+						if (attribute.equals(ID))
 						{
-							id = attribute.getValue();
+							id = reader.getAttributeValue(i);
 						}
 					}
 
@@ -235,10 +241,10 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 					}
 
 				}
-				else if (startElement.getName().getLocalPart().equals((LOCAL_REPRESENTATION)))
+				else if (localName.equals((LOCAL_REPRESENTATION)))
 				{
 					logger.finer("Got codelist");
-					setCodelistName(currentAttribute, eventReader);
+					setCodelistName(currentAttribute, reader);
 					// now set codes
 					if (codelists != null && currentAttribute != null)
 					{
@@ -252,22 +258,51 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 							logger.finer("No code list for attribute: " + currentAttribute.getId());
 					}
 				}
-				else if (startElement.getName().getLocalPart().equals(("ConceptIdentity")))
+				else if (localName.equals(("ConceptIdentity")))
 				{
 					logger.finer("Got concept identity");
 					if (concepts != null && currentAttribute != null)
 					{
-						currentAttribute.setName(getConceptName(concepts, eventReader));
+						currentAttribute.setName(getConceptName(concepts, reader));
+					}
+				}
+				else if (localName.equals(ATTRIBUTE_RELATIONSHIP))
+				{
+					relationship = true;
+				}
+				else if (relationship && currentAttribute != null && currentAttribute.getAttachmentLevel() == null)
+				{
+					switch (localName)
+					{
+						case "None":
+							currentAttribute.setAttachmentLevel(SdmxAttribute.AttachmentLevel.DATASET);
+							break;
+						case "Group":
+						case "AttachmentGroup":
+							currentAttribute.setAttachmentLevel(SdmxAttribute.AttachmentLevel.GROUP);
+							break;
+						case "Dimension":
+							currentAttribute.setAttachmentLevel(SdmxAttribute.AttachmentLevel.SERIES);
+							break;
+						case "PrimaryMeasure":
+							currentAttribute.setAttachmentLevel(SdmxAttribute.AttachmentLevel.OBSERVATION);
+							break;
 					}
 				}
 			}
-			if (event.isEndElement())
+			if (event == XMLStreamConstants.END_ELEMENT)
 			{
-				if (event.asEndElement().getName().getLocalPart().equals(ATTRIBUTE))
+				String localName = reader.getLocalName();
+				if (localName.equals(ATTRIBUTE_RELATIONSHIP))
+				{
+					relationship = false;
+				}
+				else if (localName.equals(ATTRIBUTE))
 				{
 					if (currentStructure != null && currentAttribute != null)
 					{
-						logger.finer("Adding attribute: " + currentAttribute);
+						if (logger.isLoggable(Level.FINER))
+							logger.finer("Adding attribute: " + currentAttribute);
 						currentStructure.setAttribute(currentAttribute);
 					}
 					else
@@ -276,7 +311,7 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 								"Error during Structure Parsing. Null current structure or dimension.");
 					}
 				}
-				else if (event.asEndElement().getName().getLocalPart().equals(ATTRIBUTELIST))
+				else if (localName.equals(ATTRIBUTELIST))
 				{
 					break;
 				}
@@ -285,7 +320,7 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 		logger.exiting(sourceClass, sourceMethod);
 	}
 
-	private static void setStructureDimensions(DataFlowStructure currentStructure, XMLEventReader eventReader,
+	private static void setStructureDimensions(DataFlowStructure currentStructure, XMLStreamReader reader,
 			Map<String, Codelist> codelists, Map<String, String> concepts)
 			throws XMLStreamException, SdmxXmlContentException
 	{
@@ -295,14 +330,14 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 		Dimension currentDimension = null;
 		int position = 0;
 
-		while (eventReader.hasNext())
+		while (reader.hasNext())
 		{
-			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
-			if (event.isStartElement())
+			int event = reader.next();
+			XmlStreams.logEvent(reader);
+			if (event == XMLStreamConstants.START_ELEMENT)
 			{
-				StartElement startElement = event.asStartElement();
-				if (startElement.getName().getLocalPart().equals(DIMENSION))
+				String localName = reader.getLocalName();
+				if (localName.equals(DIMENSION))
 				{
 					logger.finer("Got dimension");
 					currentDimension = new Dimension();
@@ -318,19 +353,17 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 					 */
 					position++;
 					currentDimension.setPosition(position);
-					@SuppressWarnings("unchecked")
-					Iterator<Attribute> attributes = startElement.getAttributes();
 					String id = null;
-					while (attributes.hasNext())
+					for (int i = 0; i < reader.getAttributeCount(); i++)
 					{
-						Attribute attribute = attributes.next();
-						if (attribute.getName().toString().equals(ID))
+						String attribute = XmlStreams.getAttributeName(reader, i);
+						if (attribute.equals(ID))
 						{
-							id = attribute.getValue();
+							id = reader.getAttributeValue(i);
 						}
 						// see above for the position
-						// if (attribute.getName().toString().equals(POSITION)) {
-						// position=Integer.parseInt(attribute.getValue());
+						// if (attribute.equals(POSITION)) {
+						// position=Integer.parseInt(reader.getAttributeValue(i));
 						// }
 					}
 
@@ -343,19 +376,17 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 						throw new RuntimeException("Error during Structure Parsing. Invalid dimension id: " + id);
 					}
 				}
-				else if (startElement.getName().getLocalPart().equals((TIMEDIMENSION)))
+				else if (localName.equals((TIMEDIMENSION)))
 				{
 					logger.finer("Got time dimension");
 					currentDimension = null;
-					@SuppressWarnings("unchecked")
-					Iterator<Attribute> attributes = startElement.getAttributes();
 					String id = null;
-					while (attributes.hasNext())
+					for (int i = 0; i < reader.getAttributeCount(); i++)
 					{
-						Attribute attribute = attributes.next();
-						if (attribute.getName().toString().equals(ID))
+						String attribute = XmlStreams.getAttributeName(reader, i);
+						if (attribute.equals(ID))
 						{
-							id = attribute.getValue();
+							id = reader.getAttributeValue(i);
 						}
 					}
 					if (id != null && !id.isEmpty())
@@ -376,10 +407,10 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 					}
 					continue;
 				}
-				else if (startElement.getName().getLocalPart().equals((LOCAL_REPRESENTATION)))
+				else if (localName.equals((LOCAL_REPRESENTATION)))
 				{
 					logger.finer("Got codelist");
-					setCodelistName(currentDimension, eventReader);
+					setCodelistName(currentDimension, reader);
 					// now set codes
 					if (codelists != null && currentDimension != null)
 					{
@@ -388,25 +419,26 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 						cl.setCodes(codes);
 					}
 				}
-				else if (startElement.getName().getLocalPart().equals(("ConceptIdentity")))
+				else if (localName.equals(("ConceptIdentity")))
 				{
 					logger.finer("Got concept identity");
 					if (concepts != null && currentDimension != null)
 					{
-						currentDimension.setName(getConceptName(concepts, eventReader));
+						currentDimension.setName(getConceptName(concepts, reader));
 					}
 				}
 
 			}
 
-			if (event.isEndElement())
+			if (event == XMLStreamConstants.END_ELEMENT)
 			{
-
-				if (event.asEndElement().getName().getLocalPart().equals(DIMENSION))
+				String localName = reader.getLocalName();
+				if (localName.equals(DIMENSION))
 				{
 					if (currentStructure != null && currentDimension != null)
 					{
-						logger.finer("Adding dimension: " + currentDimension);
+						if (logger.isLoggable(Level.FINER))
+							logger.finer("Adding dimension: " + currentDimension);
 						currentStructure.setDimension(currentDimension);
 					}
 					else
@@ -415,7 +447,7 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 								"Error during Structure Parsing. Null current structure or dimension.");
 					}
 				}
-				else if (event.asEndElement().getName().getLocalPart().equals(DIMENSIONLIST))
+				else if (localName.equals(DIMENSIONLIST))
 				{
 					break;
 				}
@@ -424,39 +456,37 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 		logger.exiting(sourceClass, sourceMethod);
 	}
 
-	private static void setCodelistName(SdmxMetaElement dim, XMLEventReader eventReader) throws XMLStreamException
+	private static void setCodelistName(SdmxMetaElement dim, XMLStreamReader reader) throws XMLStreamException
 	{
 		final String sourceMethod = "setCodelist";
 		logger.entering(sourceClass, sourceMethod);
-		while (eventReader.hasNext())
+		while (reader.hasNext())
 		{
-			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
-			if (event.isStartElement())
+			int event = reader.next();
+			XmlStreams.logEvent(reader);
+			if (event == XMLStreamConstants.START_ELEMENT)
 			{
-				StartElement startElement = event.asStartElement();
-				if (startElement.getName().getLocalPart().equals(REF))
+				String localName = reader.getLocalName();
+				if (localName.equals(REF))
 				{
 					logger.finer("Got codelist");
-					@SuppressWarnings("unchecked")
-					Iterator<Attribute> attributes = startElement.getAttributes();
 					String id = null;
 					String version = "";
 					String agency = "";
-					while (attributes.hasNext())
+					for (int i = 0; i < reader.getAttributeCount(); i++)
 					{
-						Attribute attribute = attributes.next();
-						if (attribute.getName().toString().equals(ID))
+						String attribute = XmlStreams.getAttributeName(reader, i);
+						if (attribute.equals(ID))
 						{
-							id = attribute.getValue();
+							id = reader.getAttributeValue(i);
 						}
-						else if (attribute.getName().toString().equals(AGENCYID))
+						else if (attribute.equals(AGENCYID))
 						{
-							agency = attribute.getValue();
+							agency = reader.getAttributeValue(i);
 						}
-						else if (attribute.getName().toString().equals(VERSION))
+						else if (attribute.equals(VERSION))
 						{
-							version = attribute.getValue();
+							version = reader.getAttributeValue(i);
 						}
 					}
 					if (id != null && !id.isEmpty())
@@ -480,9 +510,10 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 				}
 
 			}
-			if (event.isEndElement())
+			if (event == XMLStreamConstants.END_ELEMENT)
 			{
-				if (event.asEndElement().getName().getLocalPart().equals(LOCAL_REPRESENTATION))
+				String localName = reader.getLocalName();
+				if (localName.equals(LOCAL_REPRESENTATION))
 				{
 					break;
 				}
@@ -491,20 +522,21 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 		logger.exiting(sourceClass, sourceMethod);
 	}
 
-	private static void setStructureGroups(DataFlowStructure currentStructure, XMLEventReader eventReader)
+	private static void setStructureGroups(DataFlowStructure currentStructure, XMLStreamReader reader)
 			throws XMLStreamException
 	{
 		final String sourceMethod = "setStructureGroups";
 		logger.entering(sourceClass, sourceMethod);
-		while (eventReader.hasNext())
+		while (reader.hasNext())
 		{
 			// TODO skip for now
 
-			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
-			if (event.isEndElement())
+			int event = reader.next();
+			XmlStreams.logEvent(reader);
+			if (event == XMLStreamConstants.END_ELEMENT)
 			{
-				if (event.asEndElement().getName().getLocalPart().equals(GROUP))
+				String localName = reader.getLocalName();
+				if (localName.equals(GROUP))
 				{
 					break;
 				}
@@ -513,31 +545,29 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 		logger.exiting(sourceClass, sourceMethod);
 	}
 
-	private static void setStructureMeasures(DataFlowStructure currentStructure, XMLEventReader eventReader)
+	private static void setStructureMeasures(DataFlowStructure currentStructure, XMLStreamReader reader)
 			throws XMLStreamException
 	{
 		final String sourceMethod = "setStructureMeasures";
 		logger.entering(sourceClass, sourceMethod);
-		while (eventReader.hasNext())
+		while (reader.hasNext())
 		{
-			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
+			int event = reader.next();
+			XmlStreams.logEvent(reader);
 
-			if (event.isStartElement())
+			if (event == XMLStreamConstants.START_ELEMENT)
 			{
-				StartElement startElement = event.asStartElement();
-				if (startElement.getName().getLocalPart().equals((PRIMARYMEASURE)))
+				String localName = reader.getLocalName();
+				if (localName.equals((PRIMARYMEASURE)))
 				{
 					logger.finer("Got primary measure");
-					@SuppressWarnings("unchecked")
-					Iterator<Attribute> attributes = startElement.getAttributes();
 					String id = null;
-					while (attributes.hasNext())
+					for (int i = 0; i < reader.getAttributeCount(); i++)
 					{
-						Attribute attribute = attributes.next();
-						if (attribute.getName().toString().equals(ID))
+						String attribute = XmlStreams.getAttributeName(reader, i);
+						if (attribute.equals(ID))
 						{
-							id = attribute.getValue();
+							id = reader.getAttributeValue(i);
 						}
 					}
 					if (id != null && !id.isEmpty())
@@ -560,9 +590,10 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 				}
 			}
 
-			if (event.isEndElement())
+			if (event == XMLStreamConstants.END_ELEMENT)
 			{
-				if (event.asEndElement().getName().getLocalPart().equals(MEASURELIST))
+				String localName = reader.getLocalName();
+				if (localName.equals(MEASURELIST))
 				{
 					break;
 				}
@@ -571,54 +602,52 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 		logger.exiting(sourceClass, sourceMethod);
 	}
 
-	private static Map<String, Codelist> getCodelists(XMLEventReader eventReader, LanguagePriorityList languages)
+	private static Map<String, Codelist> getCodelists(XMLStreamReader reader, LanguagePriorityList languages)
 			throws XMLStreamException, SdmxException
 	{
 		Map<String, Codelist> codelists = new HashMap<>();
-		while (eventReader.hasNext())
+		while (reader.hasNext())
 		{
-			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
-			if (event.isStartElement())
+			int event = reader.next();
+			XmlStreams.logEvent(reader);
+			if (event == XMLStreamConstants.START_ELEMENT)
 			{
-				StartElement startElement = event.asStartElement();
-
-				if (startElement.getName().getLocalPart().equals(CODELIST))
+				String localName = reader.getLocalName();
+				if (localName.equals(CODELIST))
 				{
-					@SuppressWarnings("unchecked")
-					Iterator<Attribute> attributes = startElement.getAttributes();
 					String id = null;
 					String agency = null;
 					String version = null;
 					String codelistName = "";
-					while (attributes.hasNext())
+					for (int i = 0; i < reader.getAttributeCount(); i++)
 					{
-						Attribute attr = attributes.next();
-						if (attr.getName().toString().equals(ID))
+						String attr = XmlStreams.getAttributeName(reader, i);
+						if (attr.equals(ID))
 						{
-							id = attr.getValue();
+							id = reader.getAttributeValue(i);
 						}
-						else if (attr.getName().toString().equals(AGENCYID))
+						else if (attr.equals(AGENCYID))
 						{
-							agency = attr.getValue();
+							agency = reader.getAttributeValue(i);
 						}
-						else if (attr.getName().toString().equals(VERSION))
+						else if (attr.equals(VERSION))
 						{
-							version = attr.getValue();
+							version = reader.getAttributeValue(i);
 						}
 					}
 					codelistName = agency + "/" + id + "/" + version;
 					logger.finer("Got codelist: " + codelistName);
-					Codelist codes = CodelistParser.getCodes(eventReader, languages);
+					Codelist codes = CodelistParser.getCodes(reader, languages);
 					codes.setId(id);
 					codes.setAgency(agency);
 					codes.setVersion(version);
 					codelists.put(codelistName, codes);
 				}
 			}
-			if (event.isEndElement())
+			if (event == XMLStreamConstants.END_ELEMENT)
 			{
-				if (event.asEndElement().getName().getLocalPart().equals(CODELISTS))
+				String localName = reader.getLocalName();
+				if (localName.equals(CODELISTS))
 				{
 					break;
 				}
@@ -628,59 +657,55 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 		return codelists;
 	}
 
-	private static Map<String, String> getConcepts(XMLEventReader eventReader, LanguagePriorityList languages)
+	private static Map<String, String> getConcepts(XMLStreamReader reader, LanguagePriorityList languages)
 			throws XMLStreamException, SdmxException
 	{
 		Map<String, String> concepts = new HashMap<>();
 		String agency = "";
 		String version = "";
-		while (eventReader.hasNext())
+		while (reader.hasNext())
 		{
-			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
-			if (event.isStartElement())
+			int event = reader.next();
+			XmlStreams.logEvent(reader);
+			if (event == XMLStreamConstants.START_ELEMENT)
 			{
-				StartElement startElement = event.asStartElement();
-
-				if (startElement.getName().getLocalPart().equals("ConceptScheme"))
+				String localName = reader.getLocalName();
+				if (localName.equals("ConceptScheme"))
 				{
-					@SuppressWarnings("unchecked")
-					Iterator<Attribute> attributes = startElement.getAttributes();
-					while (attributes.hasNext())
+					for (int i = 0; i < reader.getAttributeCount(); i++)
 					{
-						Attribute attr = attributes.next();
-						if (attr.getName().toString().equals(AGENCYID))
+						String attr = XmlStreams.getAttributeName(reader, i);
+						if (attr.equals(AGENCYID))
 						{
-							agency = attr.getValue();
+							agency = reader.getAttributeValue(i);
 						}
-						else if (attr.getName().toString().equals(VERSION))
+						else if (attr.equals(VERSION))
 						{
-							version = attr.getValue();
+							version = reader.getAttributeValue(i);
 						}
 					}
 				}
-				else if (startElement.getName().getLocalPart().equals(CONCEPT))
+				else if (localName.equals(CONCEPT))
 				{
-					@SuppressWarnings("unchecked")
-					Iterator<Attribute> attributes = startElement.getAttributes();
 					String id = null;
 					String conceptName = "";
-					while (attributes.hasNext())
+					for (int i = 0; i < reader.getAttributeCount(); i++)
 					{
-						Attribute attr = attributes.next();
-						if (attr.getName().toString().equals(ID))
+						String attr = XmlStreams.getAttributeName(reader, i);
+						if (attr.equals(ID))
 						{
-							id = attr.getValue();
+							id = reader.getAttributeValue(i);
 						}
 					}
 					conceptName = agency + "/" + id + "/" + version;
 					logger.finer("Got concept: " + conceptName);
-					concepts.put(conceptName, getConceptName(eventReader, languages));
+					concepts.put(conceptName, getConceptName(reader, languages));
 				}
 			}
-			if (event.isEndElement())
+			if (event == XMLStreamConstants.END_ELEMENT)
 			{
-				if (event.asEndElement().getName().getLocalPart().equals(CONCEPTS))
+				String localName = reader.getLocalName();
+				if (localName.equals(CONCEPTS))
 				{
 					break;
 				}
@@ -689,27 +714,27 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 		return (concepts);
 	}
 
-	private static String getConceptName(XMLEventReader eventReader, LanguagePriorityList languages)
+	private static String getConceptName(XMLStreamReader reader, LanguagePriorityList languages)
 			throws XMLStreamException, SdmxException
 	{
 		LocalizedText value = new LocalizedText(languages);
-		while (eventReader.hasNext())
+		while (reader.hasNext())
 		{
-			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
-			if (event.isStartElement())
+			int event = reader.next();
+			XmlStreams.logEvent(reader);
+			if (event == XMLStreamConstants.START_ELEMENT)
 			{
-				StartElement startElement = event.asStartElement();
-				if (startElement.getName().getLocalPart() == ("Name"))
+				String localName = reader.getLocalName();
+				if (localName.equals("Name"))
 				{
-					value.setText(startElement, eventReader);
+					value.setText(reader);
 				}
 
 			}
 
-			if (event.isEndElement())
+			if (event == XMLStreamConstants.END_ELEMENT)
 			{
-				String eventName = event.asEndElement().getName().getLocalPart();
+				String eventName = reader.getLocalName();
 				if (eventName.equals(CONCEPT))
 				{
 					break;
@@ -719,47 +744,45 @@ public class DataStructureParser implements Parser<List<DataFlowStructure>>
 		return value.getText();
 	}
 
-	private static String getConceptName(Map<String, String> concepts, XMLEventReader eventReader)
+	private static String getConceptName(Map<String, String> concepts, XMLStreamReader reader)
 			throws XMLStreamException
 	{
 		String name = null;
-		while (eventReader.hasNext())
+		while (reader.hasNext())
 		{
-			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
-			if (event.isStartElement())
+			int event = reader.next();
+			XmlStreams.logEvent(reader);
+			if (event == XMLStreamConstants.START_ELEMENT)
 			{
-				StartElement startElement = event.asStartElement();
-				if (startElement.getName().getLocalPart() == (REF))
+				String localName = reader.getLocalName();
+				if (localName.equals(REF))
 				{
-					@SuppressWarnings("unchecked")
-					Iterator<Attribute> attributes = startElement.getAttributes();
 					String id = null;
 					String version = "";
 					String agency = "";
-					while (attributes.hasNext())
+					for (int i = 0; i < reader.getAttributeCount(); i++)
 					{
-						Attribute attribute = attributes.next();
-						if (attribute.getName().toString().equals(ID))
+						String attribute = XmlStreams.getAttributeName(reader, i);
+						if (attribute.equals(ID))
 						{
-							id = attribute.getValue();
+							id = reader.getAttributeValue(i);
 						}
-						else if (attribute.getName().toString().equals(AGENCYID))
+						else if (attribute.equals(AGENCYID))
 						{
-							agency = attribute.getValue();
+							agency = reader.getAttributeValue(i);
 						}
-						else if (attribute.getName().toString().equals("maintainableParentVersion"))
+						else if (attribute.equals("maintainableParentVersion"))
 						{
-							version = attribute.getValue();
+							version = reader.getAttributeValue(i);
 						}
 					}
 					name = concepts.get(agency + "/" + id + "/" + version);
 				}
 			}
 
-			if (event.isEndElement())
+			if (event == XMLStreamConstants.END_ELEMENT)
 			{
-				String eventName = event.asEndElement().getName().getLocalPart();
+				String eventName = reader.getLocalName();
 				if (eventName.equals("ConceptIdentity"))
 				{
 					break;
@@ -22,16 +22,13 @@
 package it.bancaditalia.oss.sdmx.parser.v21;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Logger;
 
 import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.events.Attribute;
-import javax.xml.stream.events.EndElement;
-import javax.xml.stream.events.StartElement;
-import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.XMLStreamReader;
 
 import it.bancaditalia.oss.sdmx.api.DSDIdentifier;
 import it.bancaditalia.oss.sdmx.api.Dataflow;
@@ -39,6 +36,7 @@ import it.bancaditalia.oss.sdmx.client.Parser;
 import it.bancaditalia.oss.sdmx.util.Configuration;
 import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
 import it.bancaditalia.oss.sdmx.util.LocalizedText;
+import it.bancaditalia.oss.sdmx.util.XmlStreams;
 
 /**
  * @author Attilio Mattiocco
@@ -56,74 +54,66 @@ public class DataflowParser implements Parser<List<Dataflow>> {
 
 	@Override
 	public List<Dataflow> parse(XMLEventReader eventReader, LanguagePriorityList languages) throws XMLStreamException {
+		return parse(XmlStreams.toStreamReader(eventReader), languages);
+	}
+
+	@Override
+	public List<Dataflow> parse(XMLStreamReader reader, LanguagePriorityList languages) throws XMLStreamException {
 		List<Dataflow> dfList = new ArrayList<>();
 
 		Dataflow df = null;
 
 		LocalizedText currentName = new LocalizedText(languages);
-		while (eventReader.hasNext()) {
-			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
+		while (reader.hasNext()) {
+			int event = reader.next();
+			XmlStreams.logEvent(reader);
 			
-			if (event.isStartElement()) {
-				StartElement startElement = event.asStartElement();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String name = reader.getLocalName();
 
-				if (startElement.getName().getLocalPart() == (DATAFLOW)) {
+				if (name.equals(DATAFLOW)) {
 					df = new Dataflow();
 					currentName.clear();
-					@SuppressWarnings("unchecked")
-					Iterator<Attribute> attributes = startElement.getAttributes();
-					while (attributes.hasNext()) {
-						Attribute attr = attributes.next();
-						String id = null;
-						String agency = null;
-						String version = null;
-						if (attr.getName().toString().equals(ID)) {
-							id = attr.getValue();
-							df.setId(id);
+					for (int i = 0; i < reader.getAttributeCount(); i++) {
+						String attr = XmlStreams.getAttributeName(reader, i);
+						if (attr.equals(ID)) {
+							df.setId(reader.getAttributeValue(i));
 						}
-						else if (attr.getName().toString().equals(AGENCY)) {
-							agency = attr.getValue();
-							df.setAgency(agency);
+						else if (attr.equals(AGENCY)) {
+							df.setAgency(reader.getAttributeValue(i));
 						}
-						else if (attr.getName().toString().equals(VERSION)) {
-							version = attr.getValue();
-							df.setVersion(version);
+						else if (attr.equals(VERSION)) {
+							df.setVersion(reader.getAttributeValue(i));
 						}
 					}
 				}
-				else if (startElement.getName().getLocalPart() == (NAME)) {
-					currentName.setText(startElement, eventReader);
+				else if (name.equals(NAME)) {
+					currentName.setText(reader);
 					
 				}
-				else if (startElement.getName().getLocalPart() == (REF)) {
+				else if (name.equals(REF)) {
 					String id = null;
 					String agency = null;
 					String version = null;
-					@SuppressWarnings("unchecked")
-					Iterator<Attribute> attributes = startElement.getAttributes();
-					while (attributes.hasNext()) {
-						Attribute attr = attributes.next();
-						if (attr.getName().toString().equals(ID)) {
-							id = attr.getValue();
+					for (int i = 0; i < reader.getAttributeCount(); i++) {
+						String attr = XmlStreams.getAttributeName(reader, i);
+						if (attr.equals(ID)) {
+							id = reader.getAttributeValue(i);
 						}
-						else if (attr.getName().toString().equals(AGENCY)) {
-							agency = attr.getValue();
+						else if (attr.equals(AGENCY)) {
+							agency = reader.getAttributeValue(i);
 						}
-						else if (attr.getName().toString().equals(VERSION)) {
-							version = attr.getValue();
+						else if (attr.equals(VERSION)) {
+							version = reader.getAttributeValue(i);
 						}
 					}
 					DSDIdentifier dsd = new DSDIdentifier(id, agency, version);
 					df.setDsdIdentifier(dsd);
 				}
 			}
-			if (event.isEndElement()) {
-				EndElement endElement = event.asEndElement();
-				if (endElement.getName().getLocalPart() == (DATAFLOW)) {
-					df.setName(currentName.getText());
-					dfList.add(df);
-				}
+			else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals(DATAFLOW)) {
+				df.setName(currentName.getText());
+				dfList.add(df);
 			}
 
 		}
@@ -131,4 +121,4 @@ public class DataflowParser implements Parser<List<Dataflow>> {
 		return dfList;
 	}
 
-} 
+}
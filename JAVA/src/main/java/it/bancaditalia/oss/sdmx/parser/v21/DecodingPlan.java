@@ -0,0 +1,257 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.parser.v21;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.WeakHashMap;
+
+import it.bancaditalia.oss.sdmx.api.Codelist;
+import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
+import it.bancaditalia.oss.sdmx.api.Dimension;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.api.SdmxAttribute;
+import it.bancaditalia.oss.sdmx.api.SdmxAttribute.AttachmentLevel;
+import it.bancaditalia.oss.sdmx.util.Configuration;
+
+/**
+ * The components of a {@link DataFlowStructure}, compiled once into the lookups that the data parsers need for each
+ * series and observation: one hash lookup from a component id to its kind, slot and codelist, and the codes policy
+ * read once.
+ * <p>
+ * Plans are immutable and cached by dataflow structure, so they can be shared by concurrent parsers.
+ */
+public final class DecodingPlan
+{
+	/**
+	 * What a component of the structure is.
+	 */
+	public enum Kind
+	{
+		DIMENSION, TIME, MEASURE, ATTRIBUTE
+	}
+
+	/**
+	 * A component of the structure.
+	 */
+	public static final class Component
+	{
+		private final String			id;
+		private final Kind				kind;
+		private final int				slot;
+		private final Codelist			codelist;
+		private final AttachmentLevel	level;
+
+		private Component(String id, Kind kind, int slot, Codelist codelist, AttachmentLevel level)
+		{
+			this.id = id;
+			this.kind = kind;
+			this.slot = slot;
+			this.codelist = codelist;
+			this.level = level;
+		}
+
+		/**
+		 * @return The id of this component.
+		 */
+		public String getId()
+		{
+			return id;
+		}
+
+		/**
+		 * @return What this component is.
+		 */
+		public Kind getKind()
+		{
+			return kind;
+		}
+
+		/**
+		 * @return The position of this component among the dimensions or the attributes, starting from 0, or -1 for
+		 *         the time dimension and the measure.
+		 */
+		public int getSlot()
+		{
+			return slot;
+		}
+
+		/**
+		 * @return The attachment level of an attribute, or null if it is unknown or this is not an attribute.
+		 */
+		public AttachmentLevel getAttachmentLevel()
+		{
+			return level;
+		}
+	}
+
+	private static final Map<DataFlowStructure, DecodingPlan>	plans	= new WeakHashMap<>();
+
+	private final String					codesPolicy;
+	private final boolean					decodeAttributes;
+	private final boolean					descriptionsOnly;
+	private final String					timeDimension;
+	private final String					measure;
+	private final Component[]				dimensions;
+	private final int						frequency;
+	private final Map<String, Component>	components;
+
+	private DecodingPlan(DataFlowStructure dsd, String codesPolicy)
+	{
+		this.codesPolicy = codesPolicy;
+		decodeAttributes = !codesPolicy.equalsIgnoreCase(Configuration.SDMX_CODES_POLICY_ID);
+		descriptionsOnly = codesPolicy.equalsIgnoreCase(Configuration.SDMX_CODES_POLICY_DESC);
+		timeDimension = dsd.getTimeDimension();
+		measure = dsd.getMeasure();
+
+		Map<String, Component> components = new HashMap<>();
+		int attributeSlot = 0;
+		for (SdmxAttribute attribute : dsd.getAttributes())
+			components.put(attribute.getId(), new Component(attribute.getId(), Kind.ATTRIBUTE, attributeSlot++,
+					attribute.getCodeList(), attribute.getAttachmentLevel()));
+		if (measure != null)
+			components.put(measure, new Component(measure, Kind.MEASURE, -1, null, null));
+		if (timeDimension != null)
+			components.put(timeDimension, new Component(timeDimension, Kind.TIME, -1, null, null));
+
+		List<Dimension> dsdDimensions = dsd.getDimensions();
+		dimensions = new Component[dsdDimensions.size()];
+		int frequency = -1;
+		for (int i = 0; i < dimensions.length; i++)
+		{
+			Dimension dimension = dsdDimensions.get(i);
+			dimensions[i] = new Component(dimension.getId(), Kind.DIMENSION, i, dimension.getCodeList(), null);
+			components.put(dimension.getId(), dimensions[i]);
+			if (frequency < 0 && (dimension.getId().equalsIgnoreCase("FREQ") || dimension.getId().equalsIgnoreCase("FREQUENCY")))
+				frequency = i;
+		}
+		this.frequency = frequency;
+		this.components = Collections.unmodifiableMap(components);
+	}
+
+	/**
+	 * Gets the plan of a dataflow structure, compiling it the first time and whenever the codes policy changes.
+	 * 
+	 * @param dsd The dataflow structure.
+	 * @return The plan.
+	 */
+	public static DecodingPlan of(DataFlowStructure dsd)
+	{
+		String codesPolicy = Configuration.getCodesPolicy();
+		synchronized (plans)
+		{
+			DecodingPlan plan = plans.get(dsd);
+			if (plan == null || !plan.codesPolicy.equals(codesPolicy))
+			{
+				plan = new DecodingPlan(dsd, codesPolicy);
+				plans.put(dsd, plan);
+			}
+			return plan;
+		}
+	}
+
+	/**
+	 * @param id The id of a component.
+	 * @return The component, or null if it is not in the structure.
+	 */
+	public Component get(String id)
+	{
+		return components.get(id);
+	}
+
+	/**
+	 * @return The number of dimensions, excluding the time dimension.
+	 */
+	public int getDimensionCount()
+	{
+		return dimensions.length;
+	}
+
+	/**
+	 * @param slot The position of a dimension, starting from 0.
+	 * @return The dimension.
+	 */
+	public Component getDimension(int slot)
+	{
+		return dimensions[slot];
+	}
+
+	/**
+	 * @return The id of the time dimension, or null.
+	 */
+	public String getTimeDimension()
+	{
+		return timeDimension;
+	}
+
+	/**
+	 * @return The id of the primary measure, or null.
+	 */
+	public String getMeasure()
+	{
+		return measure;
+	}
+
+	/**
+	 * Applies the codes policy to the value of an attribute.
+	 * 
+	 * @param component The attribute, may be null or another kind of component, which are left as they are.
+	 * @param value The code.
+	 * @param separator The separator of the code and its description when the policy asks for both.
+	 * @return The decoded value.
+	 */
+	public String decodeAttribute(Component component, String value, String separator)
+	{
+		if (decodeAttributes && component != null && component.kind == Kind.ATTRIBUTE && component.codelist != null)
+		{
+			String desc = component.codelist.get(value);
+			if (desc != null)
+				return descriptionsOnly ? desc : value + separator + "(" + desc + ")";
+		}
+		return value;
+	}
+
+	/**
+	 * Sets the dimensions, and the frequency, of a series.
+	 * 
+	 * @param ts The series.
+	 * @param codes The codes of the dimensions, by slot. Missing dimensions are null.
+	 */
+	public void setDimensions(PortableTimeSeries<?> ts, String[] codes)
+	{
+		if (frequency >= 0 && codes[frequency] != null)
+			ts.setFrequency(codes[frequency]);
+
+		Map<String, Entry<String, String>> values = new LinkedHashMap<>();
+		for (int i = 0; i < dimensions.length; i++)
+		{
+			Codelist cl = dimensions[i].codelist;
+			values.put(codes[i] != null ? dimensions[i].id : null,
+					codes[i] != null ? new SimpleEntry<>(codes[i], cl != null ? cl.get(codes[i]) : null) : null);
+		}
+		ts.setDimensions(values);
+	}
+}
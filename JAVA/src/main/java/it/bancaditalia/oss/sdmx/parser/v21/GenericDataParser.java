@@ -20,19 +20,17 @@
 */
 package it.bancaditalia.oss.sdmx.parser.v21;
 
-import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.Attribute;
 import javax.xml.stream.events.EndElement;
 import javax.xml.stream.events.StartElement;
@@ -44,8 +42,11 @@ import it.bancaditalia.oss.sdmx.api.DoubleObservation;
 import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
 import it.bancaditalia.oss.sdmx.client.Parser;
 import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.parser.v21.DecodingPlan.Component;
+import it.bancaditalia.oss.sdmx.parser.v21.DecodingPlan.Kind;
 import it.bancaditalia.oss.sdmx.util.Configuration;
 import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
+import it.bancaditalia.oss.sdmx.util.XmlStreams;
 
 /**
  * @author Attilio Mattiocco
@@ -75,14 +76,21 @@ public class GenericDataParser implements Parser<DataParsingResult>{
 		this.data = data;
 	}
 	
+	@Override
+	public DataParsingResult parse(XMLStreamReader reader, LanguagePriorityList languages) throws XMLStreamException, SdmxException {
+		return parse(XmlStreams.toEventReader(reader), languages);
+	}
+
 	public DataParsingResult parse(XMLEventReader eventReader, LanguagePriorityList languages) throws XMLStreamException, SdmxException {
 		DataParsingResult result = new DataParsingResult();
 		List<PortableTimeSeries<Double>> tsList = new ArrayList<>();
 		PortableTimeSeries<Double> ts = null;
+		DecodingPlan plan = DecodingPlan.of(dsd);
 
 		while (eventReader.hasNext()) {
 			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
+			if (logger.isLoggable(Level.FINEST))
+				logger.finest(event.toString());
 			
 			if (event.isStartElement()) {
 				StartElement startElement = event.asStartElement();
@@ -93,15 +101,15 @@ public class GenericDataParser implements Parser<DataParsingResult>{
 				}
 
 				if (startElement.getName().getLocalPart() == (SERIES_KEY)) {
-					setSeriesKey(ts, eventReader, dsd);
+					setSeriesKey(ts, eventReader, plan);
 				}
 
 				if (startElement.getName().getLocalPart() == (ATTRIBUTES)) {
-					setSeriesAttributes(ts, eventReader);
+					setSeriesAttributes(ts, eventReader, plan);
 				}
 
 				if (startElement.getName().getLocalPart() == (OBS)  && data) {
-					setSeriesSingleObs(ts, eventReader);
+					setSeriesSingleObs(ts, eventReader, plan);
 				}
 				
 			}
@@ -116,16 +124,13 @@ public class GenericDataParser implements Parser<DataParsingResult>{
 		return result;
 	}
 
-	private void setSeriesKey(PortableTimeSeries<Double> ts, XMLEventReader eventReader, DataFlowStructure dsd) throws XMLStreamException {
+	private static void setSeriesKey(PortableTimeSeries<Double> ts, XMLEventReader eventReader, DecodingPlan plan) throws XMLStreamException {
 		String id = null;
-		int size = dsd.getDimensions().size();
-		@SuppressWarnings("unchecked")
-		Entry<String, String> values[] = new Entry[size];
-		String[] names = new String[size];
-		Map<String, Entry<String, String>> dimensions = new LinkedHashMap<>();
+		String[] codes = new String[plan.getDimensionCount()];
 		while (eventReader.hasNext()) {
 			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
+			if (logger.isLoggable(Level.FINEST))
+				logger.finest(event.toString());
 			if (event.isStartElement()) {
 				StartElement startElement = event.asStartElement();
 				if (startElement.getName().getLocalPart().equalsIgnoreCase(VALUE)) {
@@ -137,11 +142,9 @@ public class GenericDataParser implements Parser<DataParsingResult>{
 							id=attribute.getValue();
 						}
 						else if (attribute.getName().toString().equalsIgnoreCase(VALUE)) {
-							String val = attribute.getValue();
-							names[dsd.getDimensionPosition(id) - 1] = id;
-							values[dsd.getDimensionPosition(id) - 1] = new SimpleEntry<>(val, "");
-							if(id.equalsIgnoreCase("FREQ") || id.equalsIgnoreCase("FREQUENCY")){
-								ts.setFrequency(val);
+							Component component = plan.get(id);
+							if (component != null && component.getKind() == Kind.DIMENSION) {
+								codes[component.getSlot()] = attribute.getValue();
 							}
 						}
 					}
@@ -151,22 +154,20 @@ public class GenericDataParser implements Parser<DataParsingResult>{
 			if (event.isEndElement()) {
 				EndElement endElement = event.asEndElement();
 				if (endElement.getName().getLocalPart() == (SERIES_KEY)) {
-					for (int i = 0; i < size; i++){
-						dimensions.put(names[i], values[i]);
-					}
-					ts.setDimensions(dimensions);
+					plan.setDimensions(ts, codes);
 					break;
 				}
 			}
 		}
 	}
 	
-	private static void setSeriesAttributes(PortableTimeSeries<Double> ts, XMLEventReader eventReader) throws XMLStreamException {
+	private static void setSeriesAttributes(PortableTimeSeries<Double> ts, XMLEventReader eventReader, DecodingPlan plan) throws XMLStreamException {
 		String id = null;
 		String val = null;
 		while (eventReader.hasNext()) {
 			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
+			if (logger.isLoggable(Level.FINEST))
+				logger.finest(event.toString());
 			if (event.isStartElement()) {
 				StartElement startElement = event.asStartElement();
 				if (startElement.getName().getLocalPart().equalsIgnoreCase(VALUE)) {
@@ -186,7 +187,7 @@ public class GenericDataParser implements Parser<DataParsingResult>{
 			if (event.isEndElement()) {
 				EndElement endElement = event.asEndElement();
 				if (endElement.getName().getLocalPart().equalsIgnoreCase(VALUE)) {
-					ts.addAttribute(id, val);
+					ts.addAttribute(id, plan.decodeAttribute(plan.get(id), val, " "));
 				}
 			}
 			if (event.isEndElement()) {
@@ -198,13 +199,14 @@ public class GenericDataParser implements Parser<DataParsingResult>{
 		}
 	}
 
-	private static void setSeriesSingleObs(PortableTimeSeries<Double> ts, XMLEventReader eventReader) throws XMLStreamException, SdmxException {
+	private static void setSeriesSingleObs(PortableTimeSeries<Double> ts, XMLEventReader eventReader, DecodingPlan plan) throws XMLStreamException, SdmxException {
 		String time = null;
 		String val = "";
 		Hashtable<String, String> obs_attr = new Hashtable<String, String>();
 		while (eventReader.hasNext()) {
 			XMLEvent event = eventReader.nextEvent();
-			logger.finest(event.toString());
+			if (logger.isLoggable(Level.FINEST))
+				logger.finest(event.toString());
 			if (event.isStartElement()) {
 				StartElement startElement = event.asStartElement();
 				if (startElement.getName().getLocalPart() == (OBS_TIME)) {
@@ -236,7 +238,7 @@ public class GenericDataParser implements Parser<DataParsingResult>{
 				else if (startElement.getName().getLocalPart() == (ATTRIBUTEVALUE)) {
 					String name = startElement.getAttributeByName(new QName(ID)).getValue();
 					String value = startElement.getAttributeByName(new QName(VALUE)).getValue();
-					obs_attr.put(name, value);
+					obs_attr.put(name, plan.decodeAttribute(plan.get(name), value, ""));
 				}
 			}
 			if (event.isEndElement()) {
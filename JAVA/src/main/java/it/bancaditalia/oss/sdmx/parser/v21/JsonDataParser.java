@@ -0,0 +1,603 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.parser.v21;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.logging.Logger;
+
+import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
+import it.bancaditalia.oss.sdmx.api.Dataflow;
+import it.bancaditalia.oss.sdmx.api.DoubleTimeSeries;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.client.StreamParser;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxXmlContentException;
+import it.bancaditalia.oss.sdmx.util.Configuration;
+import it.bancaditalia.oss.sdmx.util.JsonReader;
+import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
+
+/**
+ * Parses SDMX-JSON 1.0 and 2.0 data messages, producing the same time series as {@link CompactDataParser}. The
+ * structure section is decoded once, and the positional keys of the series and observations are mapped directly to
+ * the codes. Observations are read one series at a time, without building the JSON tree in memory.
+ */
+public class JsonDataParser implements StreamParser<DataParsingResult>
+{
+	private static final String		sourceClass	= JsonDataParser.class.getSimpleName();
+	protected static final Logger	logger		= Configuration.getSdmxLogger();
+
+	public static final String		MEDIA_TYPE	= "application/vnd.sdmx.data+json";
+
+	private static final String		ACTION		= "action";
+	private static final String		VALID_FROM	= "validFromDate";
+	private static final String		VALID_TO	= "validToDate";
+	private static final String		TIME_PERIOD	= "TIME_PERIOD";
+	private static final int[]		NO_INDEXES	= new int[0];
+
+	private DataFlowStructure		dsd;
+	private Dataflow				dataflow;
+	private boolean					data;
+
+	public JsonDataParser(DataFlowStructure dsd, Dataflow dataflow, boolean data)
+	{
+		this.dsd = dsd;
+		this.dataflow = dataflow;
+		this.data = data;
+	}
+
+	@Override
+	public DataParsingResult parse(BufferedReader reader, LanguagePriorityList languages) throws IOException, SdmxException
+	{
+		final String sourceMethod = "parse";
+		logger.entering(sourceClass, sourceMethod);
+
+		Context context = new Context();
+		JsonReader json = new JsonReader(reader);
+		json.beginObject();
+		while (json.hasNext())
+		{
+			String name = json.nextName();
+			// SDMX-JSON 2.0 wraps the datasets and the structures in a data member
+			if ("data".equals(name))
+			{
+				json.beginObject();
+				while (json.hasNext())
+					readMember(json, json.nextName(), context);
+				json.endObject();
+			}
+			else
+				readMember(json, name, context);
+		}
+		json.endObject();
+
+		// the datasets came before the structure
+		if (!context.pending.isEmpty())
+		{
+			if (context.structure == null)
+				throw new SdmxXmlContentException("The SDMX-JSON message has no structure.");
+			for (RawSeries raw : context.pending)
+				decode(raw, context);
+		}
+
+		// make sure the time series is ordered by time
+		for (DoubleTimeSeries ts : context.tsList.values())
+			ts.sortByTime();
+
+		DataParsingResult result = new DataParsingResult();
+		result.setData(new ArrayList<PortableTimeSeries<Double>>(context.tsList.values()));
+		logger.exiting(sourceClass, sourceMethod);
+		return result;
+	}
+
+	private void readMember(JsonReader json, String name, Context context) throws IOException, SdmxException
+	{
+		switch (name)
+		{
+			case "dataSets":
+				json.beginArray();
+				while (json.hasNext())
+					readDataSet(json, context);
+				json.endArray();
+				break;
+			case "structure":
+				context.structure = readStructure(json);
+				break;
+			case "structures":
+				// datasets refer to the first structure unless stated otherwise
+				json.beginArray();
+				if (json.hasNext())
+					context.structure = readStructure(json);
+				while (json.hasNext())
+					json.skipValue();
+				json.endArray();
+				break;
+			default:
+				json.skipValue();
+		}
+	}
+
+	private void readDataSet(JsonReader json, Context context) throws IOException, SdmxException
+	{
+		DataSet dataSet = new DataSet();
+		json.beginObject();
+		while (json.hasNext())
+		{
+			String name = json.nextName();
+			switch (name)
+			{
+				case "action":
+					dataSet.action = json.nextString();
+					break;
+				case "validFrom":
+					dataSet.validFrom = json.nextString();
+					break;
+				case "validTo":
+					dataSet.validTo = json.nextString();
+					break;
+				case "series":
+					json.beginObject();
+					while (json.hasNext())
+					{
+						RawSeries raw = new RawSeries(parseKey(json.nextName()), dataSet);
+						readSeries(json, raw);
+						add(raw, context);
+					}
+					json.endObject();
+					break;
+				case "observations":
+					// flat format: each observation key holds all the dimensions
+					RawSeries raw = new RawSeries(NO_INDEXES, dataSet);
+					readObservations(json, raw);
+					add(raw, context);
+					break;
+				default:
+					json.skipValue();
+			}
+		}
+		json.endObject();
+	}
+
+	private void readSeries(JsonReader json, RawSeries raw) throws IOException
+	{
+		json.beginObject();
+		while (json.hasNext())
+		{
+			String name = json.nextName();
+			if ("attributes".equals(name))
+				raw.attributes = readIndexes(json);
+			else if ("observations".equals(name))
+				readObservations(json, raw);
+			else
+				json.skipValue();
+		}
+		json.endObject();
+	}
+
+	private void readObservations(JsonReader json, RawSeries raw) throws IOException
+	{
+		json.beginObject();
+		while (json.hasNext())
+		{
+			int[] key = parseKey(json.nextName());
+			json.beginArray();
+			// a null or unparseable value is missing
+			String value = json.hasNext() ? json.nextString() : null;
+			int[] attributes = NO_INDEXES;
+			if (json.hasNext())
+			{
+				attributes = new int[4];
+				int size = 0;
+				while (json.hasNext())
+				{
+					if (size == attributes.length)
+						attributes = Arrays.copyOf(attributes, size * 2);
+					attributes[size++] = json.nextInt();
+				}
+				attributes = Arrays.copyOf(attributes, size);
+			}
+			json.endArray();
+			if (data)
+				raw.add(key, value, attributes);
+		}
+		json.endObject();
+	}
+
+	private Structure readStructure(JsonReader json) throws IOException, SdmxException
+	{
+		Structure structure = new Structure();
+		json.beginObject();
+		while (json.hasNext())
+		{
+			String name = json.nextName();
+			if ("dimensions".equals(name) || "attributes".equals(name))
+			{
+				boolean dimensions = "dimensions".equals(name);
+				json.beginObject();
+				while (json.hasNext())
+				{
+					String level = json.nextName();
+					List<Component> components = readComponents(json);
+					if (dimensions && "series".equals(level))
+						structure.seriesDimensions = components;
+					else if (dimensions && "observation".equals(level))
+						structure.obsDimensions = components;
+					else if (dimensions && ("dataSet".equalsIgnoreCase(level)))
+						structure.dataSetDimensions = components;
+					else if (!dimensions && "series".equals(level))
+						structure.seriesAttributes = components;
+					else if (!dimensions && "observation".equals(level))
+						structure.obsAttributes = components;
+				}
+				json.endObject();
+			}
+			else
+				json.skipValue();
+		}
+		json.endObject();
+
+		structure.compile(dsd);
+		return structure;
+	}
+
+	private static List<Component> readComponents(JsonReader json) throws IOException
+	{
+		List<Component> components = new ArrayList<>();
+		json.beginArray();
+		while (json.hasNext())
+		{
+			Component component = new Component();
+			json.beginObject();
+			while (json.hasNext())
+			{
+				String name = json.nextName();
+				if ("id".equals(name))
+					component.id = json.nextString();
+				else if ("role".equals(name) || "roles".equals(name))
+				{
+					// a string in SDMX-JSON 1.0, an array in 2.0
+					if (json.peek() == '[')
+					{
+						json.beginArray();
+						while (json.hasNext())
+							component.time |= isTimeRole(json.nextString());
+						json.endArray();
+					}
+					else
+						component.time = isTimeRole(json.nextString());
+				}
+				else if ("values".equals(name))
+				{
+					List<String> values = new ArrayList<>();
+					json.beginArray();
+					while (json.hasNext())
+						values.add(readValue(json));
+					json.endArray();
+					component.values = values.toArray(new String[values.size()]);
+				}
+				else
+					json.skipValue();
+			}
+			json.endObject();
+			components.add(component);
+		}
+		json.endArray();
+		return components;
+	}
+
+	private static boolean isTimeRole(String role)
+	{
+		return "time".equalsIgnoreCase(role) || TIME_PERIOD.equals(role);
+	}
+
+	// the id of a coded value, or the text of an uncoded one
+	private static String readValue(JsonReader json) throws IOException
+	{
+		String id = null;
+		String text = null;
+		json.beginObject();
+		while (json.hasNext())
+		{
+			String name = json.nextName();
+			if ("id".equals(name))
+				id = json.nextString();
+			else if (("value".equals(name) || "name".equals(name)) && text == null && json.peek() != '{' && json.peek() != '[')
+				text = json.nextString();
+			else
+				json.skipValue();
+		}
+		json.endObject();
+		return id != null ? id : text;
+	}
+
+	private static int[] parseKey(String key)
+	{
+		if (key.isEmpty())
+			return NO_INDEXES;
+		int size = 1;
+		for (int i = 0; i < key.length(); i++)
+			if (key.charAt(i) == ':')
+				size++;
+		int[] indexes = new int[size];
+		int value = 0;
+		for (int i = 0, k = 0; i < key.length(); i++)
+		{
+			char c = key.charAt(i);
+			if (c == ':')
+			{
+				indexes[k++] = value;
+				value = 0;
+			}
+			else
+				value = value * 10 + (c - '0');
+		}
+		indexes[size - 1] = value;
+		return indexes;
+	}
+
+	private static int[] readIndexes(JsonReader json) throws IOException
+	{
+		List<Integer> indexes = new ArrayList<>();
+		json.beginArray();
+		while (json.hasNext())
+			indexes.add(json.nextInt());
+		json.endArray();
+		int[] result = new int[indexes.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = indexes.get(i);
+		return result;
+	}
+
+	private void add(RawSeries raw, Context context) throws SdmxException
+	{
+		if (context.structure != null)
+			decode(raw, context);
+		else
+			context.pending.add(raw);
+	}
+
+	// maps the positional indexes of a series to codes and adds its observations to the result
+	private void decode(RawSeries raw, Context context) throws SdmxException
+	{
+		Structure structure = context.structure;
+		String[] codes = structure.dataSetCodes.clone();
+		for (int i = 0; i < raw.key.length && i < structure.seriesDimensions.size(); i++)
+			if (structure.seriesPositions[i] >= 0)
+				codes[structure.seriesPositions[i]] = structure.seriesDimensions.get(i).value(raw.key[i]);
+
+		Map<String, String> seriesAttributes = new LinkedHashMap<>();
+		if (raw.dataSet.action != null)
+			seriesAttributes.put(ACTION, raw.dataSet.action);
+		if (raw.dataSet.validFrom != null)
+			seriesAttributes.put(VALID_FROM, raw.dataSet.validFrom);
+		if (raw.dataSet.validTo != null)
+			seriesAttributes.put(VALID_TO, raw.dataSet.validTo);
+		for (int i = 0; i < raw.attributes.length && i < structure.seriesAttributes.size(); i++)
+		{
+			Component attribute = structure.seriesAttributes.get(i);
+			String value = attribute.value(raw.attributes[i]);
+			if (value != null)
+				seriesAttributes.put(attribute.id, structure.plan.decodeAttribute(structure.seriesAttributeComponents[i], value, " "));
+		}
+
+		DoubleTimeSeries ts = structure.hasObsDimensions ? null : getSeries(codes, seriesAttributes, context);
+		for (int o = 0; o < raw.size; o++)
+		{
+			int[] key = raw.obsKeys.get(o);
+			String time = null;
+			String[] obsCodes = codes;
+			if (structure.hasObsDimensions)
+				obsCodes = codes.clone();
+			for (int i = 0; i < key.length && i < structure.obsDimensions.size(); i++)
+				if (i == structure.timeIndex)
+					time = structure.obsDimensions.get(i).value(key[i]);
+				else if (structure.obsPositions[i] >= 0)
+					obsCodes[structure.obsPositions[i]] = structure.obsDimensions.get(i).value(key[i]);
+
+			DoubleTimeSeries obsTs = ts != null ? ts : getSeries(obsCodes, seriesAttributes, context);
+			if (raw.missing.get(o))
+				obsTs.addMissing(time, null);
+			else
+				obsTs.add(time, raw.values[o], null);
+
+			int[] attributes = raw.obsAttributes.get(o);
+			for (int i = 0; i < attributes.length && i < structure.obsAttributes.size(); i++)
+			{
+				Component attribute = structure.obsAttributes.get(i);
+				String value = attribute.value(attributes[i]);
+				if (value != null)
+					obsTs.setAttributeAt(obsTs.size() - 1, attribute.id,
+							structure.plan.decodeAttribute(structure.obsAttributeComponents[i], value, ""));
+			}
+		}
+	}
+
+	private DoubleTimeSeries getSeries(String[] codes, Map<String, String> attributes, Context context)
+			throws SdmxException
+	{
+		StringBuilder key = new StringBuilder();
+		for (String code : codes)
+			key.append(code).append('.');
+
+		DoubleTimeSeries ts = context.tsList.get(key.toString());
+		if (ts == null)
+		{
+			ts = new DoubleTimeSeries();
+			ts.setDataflow(dataflow);
+			DecodingPlan plan = context.structure.plan;
+			for (int i = 0; i < codes.length; i++)
+				if (codes[i] == null)
+					throw new SdmxXmlContentException("The dimension " + plan.getDimension(i).getId() + " is missing from the SDMX-JSON message.");
+			plan.setDimensions(ts, codes);
+			logger.finer("Got new time series " + ts.getName());
+			context.tsList.put(key.toString(), ts);
+		}
+		for (Entry<String, String> attribute : attributes.entrySet())
+			if (ts.getAttribute(attribute.getKey()) == null)
+				ts.addAttribute(attribute.getKey(), attribute.getValue());
+		return ts;
+	}
+
+	private static class Context
+	{
+		private final LinkedHashMap<String, DoubleTimeSeries>				tsList	= new LinkedHashMap<>();
+		private final List<RawSeries>									pending	= new ArrayList<>();
+		private Structure												structure;
+	}
+
+	// the properties of a dataset, shared by its series
+	private static class DataSet
+	{
+		private String	action;
+		private String	validFrom;
+		private String	validTo;
+	}
+
+	// a dimension or attribute of the structure section, with its values in positional order
+	private static class Component
+	{
+		private String		id;
+		private boolean		time;
+		private String[]	values	= new String[0];
+
+		private String value(int index)
+		{
+			return index >= 0 && index < values.length ? values[index] : null;
+		}
+	}
+
+	private static class Structure
+	{
+		private List<Component>	dataSetDimensions	= Collections.emptyList();
+		private List<Component>	seriesDimensions	= Collections.emptyList();
+		private List<Component>	obsDimensions		= Collections.emptyList();
+		private List<Component>	seriesAttributes	= Collections.emptyList();
+		private List<Component>	obsAttributes		= Collections.emptyList();
+
+		// positions of the message dimensions in the dsd, or -1
+		private DecodingPlan	plan;
+		private int[]			seriesPositions;
+		private int[]			obsPositions;
+		private String[]		dataSetCodes;
+		private int				timeIndex			= -1;
+		private boolean			hasObsDimensions	= false;
+
+		// the dsd components of the message attributes, or null
+		private DecodingPlan.Component[]	seriesAttributeComponents;
+		private DecodingPlan.Component[]	obsAttributeComponents;
+
+		private void compile(DataFlowStructure dsd)
+		{
+			plan = DecodingPlan.of(dsd);
+			dataSetCodes = new String[plan.getDimensionCount()];
+			for (Component component : dataSetDimensions)
+			{
+				int position = position(plan, component.id);
+				if (position >= 0)
+					dataSetCodes[position] = component.value(0);
+			}
+
+			seriesPositions = new int[seriesDimensions.size()];
+			for (int i = 0; i < seriesPositions.length; i++)
+				seriesPositions[i] = position(plan, seriesDimensions.get(i).id);
+
+			String timeDimension = plan.getTimeDimension() != null ? plan.getTimeDimension() : TIME_PERIOD;
+			obsPositions = new int[obsDimensions.size()];
+			for (int i = 0; i < obsPositions.length; i++)
+			{
+				Component component = obsDimensions.get(i);
+				if (timeIndex < 0 && (component.time || timeDimension.equals(component.id) || TIME_PERIOD.equals(component.id)))
+				{
+					timeIndex = i;
+					obsPositions[i] = -1;
+				}
+				else
+				{
+					obsPositions[i] = position(plan, component.id);
+					hasObsDimensions |= obsPositions[i] >= 0;
+				}
+			}
+
+			seriesAttributeComponents = resolve(plan, seriesAttributes);
+			obsAttributeComponents = resolve(plan, obsAttributes);
+		}
+
+		private static int position(DecodingPlan plan, String id)
+		{
+			DecodingPlan.Component component = plan.get(id);
+			return component != null && component.getKind() == DecodingPlan.Kind.DIMENSION ? component.getSlot() : -1;
+		}
+
+		private static DecodingPlan.Component[] resolve(DecodingPlan plan, List<Component> components)
+		{
+			DecodingPlan.Component[] resolved = new DecodingPlan.Component[components.size()];
+			for (int i = 0; i < resolved.length; i++)
+				resolved[i] = plan.get(components.get(i).id);
+			return resolved;
+		}
+	}
+
+	// the positional content of a series, before it is decoded
+	private static class RawSeries
+	{
+		private final int[]			key;
+		// the series may be decoded after the following datasets are read
+		private final DataSet		dataSet;
+		private int[]				attributes		= NO_INDEXES;
+		private final List<int[]>	obsKeys			= new ArrayList<>();
+		private final List<int[]>	obsAttributes	= new ArrayList<>();
+		private double[]			values			= new double[16];
+		private final BitSet		missing			= new BitSet();
+		private int					size			= 0;
+
+		private RawSeries(int[] key, DataSet dataSet)
+		{
+			this.key = key;
+			this.dataSet = dataSet;
+		}
+
+		private void add(int[] obsKey, String value, int[] attributes)
+		{
+			if (size == values.length)
+				values = Arrays.copyOf(values, size * 2);
+			try
+			{
+				values[size] = Double.parseDouble(value != null ? value : "");
+			}
+			catch (NumberFormatException e)
+			{
+				values[size] = Double.NaN;
+				missing.set(size);
+			}
+			size++;
+			obsKeys.add(obsKey);
+			obsAttributes.add(attributes);
+		}
+	}
+}
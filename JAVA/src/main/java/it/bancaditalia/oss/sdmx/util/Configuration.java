@@ -81,8 +81,27 @@ public class Configuration {
 	protected static final String SDMX_LANG_PROP = "sdmx.lang";  
 	protected static final String LATE_RESP_RETRIES_PROP = "late.response.retries";  
 	protected static final String TABLE_DUMP_PROP = "table.dump";  
+	protected static final String DUMP_SEPARATOR_PROP = "dump.separator";  
+	protected static final String DUMP_NUMBER_FORMAT_PROP = "dump.number.format";  
 	protected static final String READ_TIMEOUT_PROP = "read.timeout";  
 	protected static final String CONNECT_TIMEOUT_PROP = "connect.timeout";  
+	protected static final String KEEP_ALIVE_PROP = "http.keepalive";  
+	protected static final String MAX_CONNECTIONS_PROP = "http.max.connections";  
+	protected static final String PARALLEL_QUERIES_PROP = "parallel.queries";  
+	protected static final String HTTP_CACHE_PROP = "http.cache";  
+	protected static final String BATCH_QUERIES_PROP = "batch.queries";  
+	protected static final String CHUNK_PERIODS_PROP = "chunk.periods";  
+	protected static final String DATA_FORMAT_PROP = "data.format";  
+	public static final String DATA_FORMAT_XML = "xml";
+	public static final String DATA_FORMAT_CSV = "csv";
+	public static final String DATA_FORMAT_JSON = "json";
+	protected static final String MAX_URL_LENGTH_PROP = "max.url.length";  
+	protected static final String HTTP_CACHE_DIR_PROP = "http.cache.dir";  
+	protected static final String HTTP_CACHE_MAX_SIZE_PROP = "http.cache.max.size";  
+	protected static final String HTTP_CACHE_TTL_PROP = "http.cache.ttl";  
+	private static final String PARTIAL_FAILURE_POLICY = "partial.failure";
+	public static final String PARTIAL_FAILURE_POLICY_FAIL = "fail";
+	public static final String PARTIAL_FAILURE_POLICY_WARN = "warn";
 	private static final String UIS_API_KEY_PROP = "uis.api.key";
 	private static final String SDMX_CODES_POLICY = "handle.sdmx.codes";
 	public static final String SDMX_CODES_POLICY_ID = "code";
@@ -92,8 +111,17 @@ public class Configuration {
 
 	private static final String REVERSE_DUMP_DEFAULT = "FALSE";
 	private static final String TABLE_DUMP_DEFAULT = "FALSE";
+	private static final String DUMP_SEPARATOR_DEFAULT = ";";
 	private static final String SDMX_DEFAULT_LANG = "en";  
 	private static final String SDMX_DEFAULT_TIMEOUT = "0";  
+	private static final String KEEP_ALIVE_DEFAULT = "TRUE";  
+	private static final String MAX_CONNECTIONS_DEFAULT = "5";  
+	private static final String PARALLEL_QUERIES_DEFAULT = "4";  
+	private static final String HTTP_CACHE_DEFAULT = "FALSE";  
+	private static final String CHUNK_PERIODS_DEFAULT = "0";  
+	private static final String MAX_URL_LENGTH_DEFAULT = "2000";  
+	private static final String HTTP_CACHE_MAX_SIZE_DEFAULT = "100";  
+	private static final String HTTP_CACHE_TTL_DEFAULT = "0";  
 	private static final String LOGGER_NAME = "SDMX";
 	private static String CONFIGURATION_FILE_NAME = "configuration.properties";
 	private static final String DUMP_XML_PREFIX = "xml.dump.prefix";
@@ -151,6 +179,17 @@ public class Configuration {
 		return props.getProperty(TABLE_DUMP_PROP, TABLE_DUMP_DEFAULT).equalsIgnoreCase("TRUE");
 	}
 
+	public static String getDumpSeparator(){
+		String separator = props.getProperty(DUMP_SEPARATOR_PROP, DUMP_SEPARATOR_DEFAULT);
+		return separator.isEmpty() ? DUMP_SEPARATOR_DEFAULT : separator;
+	}
+
+	// a java.text.DecimalFormat pattern, or null to print the values as they are
+	public static String getDumpNumberFormat(){
+		String format = props.getProperty(DUMP_NUMBER_FORMAT_PROP, null);
+		return format == null || format.trim().isEmpty() ? null : format.trim();
+	}
+
 	public static String getExternalProviders(){
 		return props.getProperty(Configuration.EXTERNAL_PROVIDERS_PROP);
 	}
@@ -171,6 +210,114 @@ public class Configuration {
 		return Integer.parseInt(timeout);	
 	}
 
+	public static boolean isKeepAlive(String provider){
+		String keepAlive = props.getProperty(provider + "." + Configuration.KEEP_ALIVE_PROP, null);
+		if(keepAlive == null){
+			keepAlive = props.getProperty(Configuration.KEEP_ALIVE_PROP, Configuration.KEEP_ALIVE_DEFAULT);
+		}
+		return keepAlive.trim().equalsIgnoreCase("TRUE");
+	}
+
+	public static int getMaxConnections(String provider){
+		String max = props.getProperty(provider + "." + Configuration.MAX_CONNECTIONS_PROP, null);
+		if(max == null){
+			max = props.getProperty(Configuration.MAX_CONNECTIONS_PROP, Configuration.MAX_CONNECTIONS_DEFAULT);
+		}
+		return Integer.parseInt(max.trim());	
+	}
+
+	public static int getParallelQueries(String provider){
+		String max = props.getProperty(provider + "." + Configuration.PARALLEL_QUERIES_PROP, null);
+		if(max == null){
+			max = props.getProperty(Configuration.PARALLEL_QUERIES_PROP, Configuration.PARALLEL_QUERIES_DEFAULT);
+		}
+		return Math.max(1, Integer.parseInt(max.trim()));	
+	}
+
+	public static boolean isBatchQueries(String provider, boolean byDefault){
+		String batch = props.getProperty(provider + "." + Configuration.BATCH_QUERIES_PROP, null);
+		if(batch == null){
+			batch = props.getProperty(Configuration.BATCH_QUERIES_PROP, Boolean.toString(byDefault));
+		}
+		return batch.trim().equalsIgnoreCase("TRUE");
+	}
+
+	public static String getDataFormat(String provider){
+		String format = props.getProperty(provider + "." + Configuration.DATA_FORMAT_PROP, null);
+		if(format == null){
+			format = props.getProperty(Configuration.DATA_FORMAT_PROP, DATA_FORMAT_XML);
+		}
+		format = format.trim().toLowerCase();
+		if( !format.equals(DATA_FORMAT_XML) && 
+			!format.equals(DATA_FORMAT_CSV) && 
+			!format.equals(DATA_FORMAT_JSON)){
+			SDMX_LOGGER.warning("The value " + format + " for the key " + DATA_FORMAT_PROP + " is not valid. Using default.");
+			format = DATA_FORMAT_XML;
+		}
+		return format;
+	}
+
+	public static int getMaxUrlLength(String provider){
+		String max = props.getProperty(provider + "." + Configuration.MAX_URL_LENGTH_PROP, null);
+		if(max == null){
+			max = props.getProperty(Configuration.MAX_URL_LENGTH_PROP, Configuration.MAX_URL_LENGTH_DEFAULT);
+		}
+		return Integer.parseInt(max.trim());	
+	}
+
+	public static int getChunkPeriods(String provider){
+		String periods = props.getProperty(provider + "." + Configuration.CHUNK_PERIODS_PROP, null);
+		if(periods == null){
+			periods = props.getProperty(Configuration.CHUNK_PERIODS_PROP, Configuration.CHUNK_PERIODS_DEFAULT);
+		}
+		return Integer.parseInt(periods.trim());	
+	}
+
+	public static boolean isHttpCache(String provider){
+		String cache = props.getProperty(provider + "." + Configuration.HTTP_CACHE_PROP, null);
+		if(cache == null){
+			cache = props.getProperty(Configuration.HTTP_CACHE_PROP, Configuration.HTTP_CACHE_DEFAULT);
+		}
+		return cache.trim().equalsIgnoreCase("TRUE");
+	}
+
+	public static File getHttpCacheDir(){
+		String dir = props.getProperty(HTTP_CACHE_DIR_PROP);
+		if(dir == null || dir.trim().isEmpty()){
+			return new File(System.getProperty("java.io.tmpdir"), "sdmx-cache");
+		}
+		return new File(dir.trim());
+	}
+
+	// in bytes, configured in megabytes
+	public static long getHttpCacheMaxSize(){
+		String size = props.getProperty(HTTP_CACHE_MAX_SIZE_PROP, HTTP_CACHE_MAX_SIZE_DEFAULT);
+		return Long.parseLong(size.trim()) * 1024 * 1024;	
+	}
+
+	// in milliseconds, configured in seconds
+	public static long getHttpCacheTtl(String provider){
+		String ttl = props.getProperty(provider + "." + Configuration.HTTP_CACHE_TTL_PROP, null);
+		if(ttl == null){
+			ttl = props.getProperty(Configuration.HTTP_CACHE_TTL_PROP, Configuration.HTTP_CACHE_TTL_DEFAULT);
+		}
+		return Long.parseLong(ttl.trim()) * 1000;	
+	}
+
+	public static String getPartialFailurePolicy(String provider){
+		String policy = props.getProperty(provider + "." + PARTIAL_FAILURE_POLICY, null);
+		if(policy == null){
+			policy = props.getProperty(PARTIAL_FAILURE_POLICY, PARTIAL_FAILURE_POLICY_FAIL);
+		}
+		policy = policy.trim();
+		if( !policy.equalsIgnoreCase(PARTIAL_FAILURE_POLICY_FAIL) && 
+			!policy.equalsIgnoreCase(PARTIAL_FAILURE_POLICY_WARN)){
+			SDMX_LOGGER.warning("The value " + policy + " for the key " + PARTIAL_FAILURE_POLICY + " is not valid. Using default.");
+			policy = PARTIAL_FAILURE_POLICY_FAIL;
+		}
+		return policy.toLowerCase();
+	}
+
 	public static String getCodesPolicy(){
 		String policy = props.getProperty(SDMX_CODES_POLICY, SDMX_CODES_POLICY_ID);
 		if( !policy.equalsIgnoreCase(SDMX_CODES_POLICY_ID) && 
@@ -0,0 +1,350 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+
+/**
+ * Writes time series to a Stata dataset file, in the format 118 read by Stata 14 and later, without Stata. The
+ * dataset has the same variables as the one built by the Stata connector (see {@link StataColumns}): each SDMX id that
+ * is not a valid Stata name is changed into one, and kept as the label of its variable.
+ * <p>
+ * String values are stored in str# variables, so that they are truncated to 2045 bytes.
+ */
+public class DtaWriter
+{
+	public static final int			RELEASE			= 118;
+
+	private static final Charset	UTF8			= Charset.forName("UTF-8");
+	private static final int		MAX_VARIABLES	= 32767;
+	private static final int		TYPE_DOUBLE		= 65526;
+	// the system missing value of a double, 2^1023
+	private static final long		MISSING			= 0x7FE0000000000000L;
+	private static final int		NAME_LENGTH		= 129;
+	private static final int		FORMAT_LENGTH	= 57;
+	private static final int		LABEL_LENGTH	= 321;
+	private static final int		BUFFER_SIZE		= 1 << 16;
+	private static final Set<String>	RESERVED	= new HashSet<>(Arrays.asList("_all", "_b", "byte", "_coef", "_cons",
+			"double", "float", "if", "in", "int", "long", "_n", "_N", "_pi", "_pred", "_rc", "_skip", "strL", "using",
+			"with"));
+
+	private final boolean			data;
+	private final boolean			metadata;
+	private String					label			= "";
+
+	private FileChannel				channel;
+	private ByteBuffer				buffer;
+	private long					flushed;
+
+	/**
+	 * @param data if false, the file holds one row per series with its metadata only
+	 * @param metadata if true, the dimensions and the attributes are written in a variable each
+	 */
+	public DtaWriter(boolean data, boolean metadata)
+	{
+		this.data = data;
+		this.metadata = metadata;
+	}
+
+	/**
+	 * @param label the label of the dataset, truncated to 80 characters
+	 * @return this writer
+	 */
+	public DtaWriter setLabel(String label)
+	{
+		this.label = label == null ? "" : label.length() > 80 ? label.substring(0, 80) : label;
+		return this;
+	}
+
+	/**
+	 * Writes a list of series to a file, replacing it.
+	 * 
+	 * @return the number of rows written
+	 */
+	public int write(List<? extends PortableTimeSeries<?>> series, File file) throws IOException
+	{
+		boolean numeric = true;
+		for (PortableTimeSeries<?> ts : series)
+			numeric &= ts.isNumeric();
+		StataColumns columns = new StataColumns(data, metadata, numeric);
+		for (PortableTimeSeries<?> ts : series)
+			columns.add(ts, 0, ts.size());
+		columns.fill();
+		write(columns, file);
+		return columns.size();
+	}
+
+	/**
+	 * Writes the rows materialized by the last {@link StataColumns#fill()} to a file, replacing it.
+	 */
+	public void write(StataColumns columns, File file) throws IOException
+	{
+		List<String> ids = new ArrayList<>();
+		List<String[]> strings = new ArrayList<>();
+		ids.add(StataColumns.NAME);
+		strings.add(columns.getNames());
+		if (columns.hasData())
+		{
+			ids.add(StataColumns.DATE);
+			strings.add(columns.getDates());
+			ids.add(StataColumns.VALUE);
+			strings.add(columns.getStrings());
+		}
+		for (Entry<String, String[]> column : columns.getMetadata().entrySet())
+		{
+			ids.add(column.getKey());
+			strings.add(column.getValue());
+		}
+		int k = ids.size();
+		if (k > MAX_VARIABLES)
+			throw new IOException("Too many variables for a Stata dataset: " + k);
+
+		// the type of each variable: the width in bytes of a string, or double
+		int[] types = new int[k];
+		for (int v = 0; v < k; v++)
+			types[v] = strings.get(v) == null ? TYPE_DOUBLE : StataColumns.width(strings.get(v));
+
+		try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			channel = out;
+			buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			flushed = 0;
+			long[] map = new long[14];
+
+			putTag("<stata_dta><header><release>" + RELEASE + "</release><byteorder>LSF</byteorder><K>");
+			reserve(2).putShort((short) k);
+			putTag("</K><N>");
+			reserve(8).putLong(columns.size());
+			putTag("</N><label>");
+			byte[] bytes = label.getBytes(UTF8);
+			reserve(2).putShort((short) bytes.length);
+			put(bytes, bytes.length);
+			putTag("</label><timestamp>");
+			bytes = new SimpleDateFormat("dd MMM yyyy HH:mm", Locale.ENGLISH).format(new Date()).getBytes(UTF8);
+			reserve(1).put((byte) bytes.length);
+			put(bytes, bytes.length);
+			putTag("</timestamp></header>");
+
+			// the map of the sections is written at the end, when their offsets are known
+			map[1] = position();
+			putTag("<map>");
+			long mapData = position();
+			for (int i = 0; i < map.length; i++)
+				reserve(8).putLong(0);
+			putTag("</map>");
+
+			map[2] = position();
+			putTag("<variable_types>");
+			for (int type : types)
+				reserve(2).putShort((short) type);
+			putTag("</variable_types>");
+
+			map[3] = position();
+			putTag("<varnames>");
+			List<String> labels = new ArrayList<>();
+			Set<String> names = new HashSet<>();
+			for (String id : ids)
+			{
+				String name = toStataName(id, names);
+				labels.add(name.equals(id) ? "" : id);
+				put(name.getBytes(UTF8), NAME_LENGTH);
+			}
+			putTag("</varnames>");
+
+			map[4] = position();
+			putTag("<sortlist>");
+			for (int v = 0; v <= k; v++)
+				reserve(2).putShort((short) 0);
+			putTag("</sortlist>");
+
+			map[5] = position();
+			putTag("<formats>");
+			for (int type : types)
+				put((type == TYPE_DOUBLE ? "%10.0g" : "%" + type + "s").getBytes(UTF8), FORMAT_LENGTH);
+			putTag("</formats>");
+
+			map[6] = position();
+			putTag("<value_label_names>");
+			for (int v = 0; v < k; v++)
+				put(new byte[0], NAME_LENGTH);
+			putTag("</value_label_names>");
+
+			map[7] = position();
+			putTag("<variable_labels>");
+			for (String variableLabel : labels)
+				put(variableLabel.getBytes(UTF8), LABEL_LENGTH);
+			putTag("</variable_labels>");
+
+			map[8] = position();
+			putTag("<characteristics></characteristics>");
+
+			map[9] = position();
+			putTag("<data>");
+			writeRows(columns, strings, types);
+			putTag("</data>");
+
+			map[10] = position();
+			putTag("<strls></strls>");
+			map[11] = position();
+			putTag("<value_labels></value_labels>");
+			map[12] = position();
+			putTag("</stata_dta>");
+			map[13] = position();
+			flush();
+
+			ByteBuffer offsets = ByteBuffer.allocate(8 * map.length).order(ByteOrder.LITTLE_ENDIAN);
+			for (long offset : map)
+				offsets.putLong(offset);
+			offsets.flip();
+			while (offsets.hasRemaining())
+				out.write(offsets, mapData + offsets.position());
+		}
+		finally
+		{
+			channel = null;
+			buffer = null;
+		}
+	}
+
+	private void writeRows(StataColumns columns, List<String[]> strings, int[] types) throws IOException
+	{
+		int k = types.length;
+		double[] values = columns.getValues();
+		// the metadata is made of runs of equal values: each of them is encoded once
+		String[] last = new String[k];
+		byte[][] encoded = new byte[k][];
+		for (int row = 0; row < columns.size(); row++)
+			for (int v = 0; v < k; v++)
+			{
+				String[] column = strings.get(v);
+				if (column == null)
+				{
+					double value = values[row];
+					reserve(8).putLong(Double.isNaN(value) ? MISSING : Double.doubleToLongBits(value));
+					continue;
+				}
+				String value = column[row];
+				if (value == null)
+					value = "";
+				if (value != last[v])
+				{
+					last[v] = value;
+					encoded[v] = value.getBytes(UTF8);
+				}
+				put(encoded[v], types[v]);
+			}
+	}
+
+	/**
+	 * Changes an SDMX id into a valid and unique Stata name: letters, digits and underscores, not starting with a digit,
+	 * at most 32 characters long.
+	 * 
+	 * @param id an SDMX id
+	 * @param used the names already used, where the new one is added
+	 * @return the name
+	 */
+	public static String toStataName(String id, Set<String> used)
+	{
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < id.length() && name.length() < 32; i++)
+		{
+			char c = id.charAt(i);
+			name.append(c < 0x80 && (Character.isLetterOrDigit(c) || c == '_') ? c : '_');
+		}
+		if (name.length() == 0 || Character.isDigit(name.charAt(0)) || RESERVED.contains(name.toString()))
+			name.insert(0, '_');
+		name.setLength(Math.min(name.length(), 32));
+
+		String base = name.toString();
+		for (int suffix = 2; used.contains(name.toString()); suffix++)
+		{
+			String end = "_" + suffix;
+			name.setLength(0);
+			name.append(base, 0, Math.min(base.length(), 32 - end.length())).append(end);
+		}
+		used.add(name.toString());
+		return name.toString();
+	}
+
+	private long position()
+	{
+		return flushed + buffer.position();
+	}
+
+	private void putTag(String tag) throws IOException
+	{
+		byte[] bytes = tag.getBytes(UTF8);
+		put(bytes, bytes.length);
+	}
+
+	// puts the bytes truncated or padded with zeros to the width, without splitting a UTF-8 character
+	private void put(byte[] bytes, int width) throws IOException
+	{
+		int length = Math.min(bytes.length, width);
+		if (length < bytes.length)
+			while (length > 0 && (bytes[length] & 0xC0) == 0x80)
+				length--;
+		for (int offset = 0; offset < width;)
+		{
+			ByteBuffer out = reserve(1);
+			int chunk = Math.min(width - offset, out.remaining());
+			int copied = Math.max(Math.min(length - offset, chunk), 0);
+			if (copied > 0)
+				out.put(bytes, offset, copied);
+			for (int i = copied; i < chunk; i++)
+				out.put((byte) 0);
+			offset += chunk;
+		}
+	}
+
+	private ByteBuffer reserve(int bytes) throws IOException
+	{
+		if (buffer.remaining() < bytes)
+			flush();
+		return buffer;
+	}
+
+	private void flush() throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining())
+			flushed += channel.write(buffer);
+		buffer.clear();
+	}
+}
@@ -0,0 +1,439 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Comment;
+import javax.xml.stream.events.EndElement;
+import javax.xml.stream.events.EntityReference;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.ProcessingInstruction;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * A cursor that reads its events one at a time from an event reader, so that the parsers written for the cursor API
+ * can read an event stream without holding it in memory.
+ */
+class EventStreamReader implements XMLStreamReader
+{
+	private final XMLEventReader	events;
+	// null before the first event when the document start has already been read
+	private XMLEvent				current;
+	private final List<Attribute>	attributes	= new ArrayList<>();
+	private final List<Namespace>	namespaces	= new ArrayList<>();
+
+	EventStreamReader(XMLEventReader events) throws XMLStreamException
+	{
+		this.events = events;
+		if (events.hasNext() && events.peek().isStartDocument())
+			current = events.nextEvent();
+	}
+
+	@Override
+	public Object getProperty(String name)
+	{
+		return events.getProperty(name);
+	}
+
+	@Override
+	public int next() throws XMLStreamException
+	{
+		if (!events.hasNext())
+			throw new NoSuchElementException("No more events");
+		setCurrent(events.nextEvent());
+		return current.getEventType();
+	}
+
+	private void setCurrent(XMLEvent event)
+	{
+		current = event;
+		attributes.clear();
+		namespaces.clear();
+		Iterator<?> items = null;
+		if (event.isStartElement())
+		{
+			for (Iterator<?> i = event.asStartElement().getAttributes(); i.hasNext();)
+				attributes.add((Attribute) i.next());
+			items = event.asStartElement().getNamespaces();
+		}
+		else if (event.isEndElement())
+			items = event.asEndElement().getNamespaces();
+		while (items != null && items.hasNext())
+			namespaces.add((Namespace) items.next());
+	}
+
+	@Override
+	public void require(int type, String namespaceURI, String localName) throws XMLStreamException
+	{
+		if (type != getEventType())
+			throw new XMLStreamException("Expected event " + type + ", found " + getEventType(), getLocation());
+		if (namespaceURI != null && !namespaceURI.equals(getNamespaceURI()))
+			throw new XMLStreamException("Expected namespace " + namespaceURI, getLocation());
+		if (localName != null && !localName.equals(getLocalName()))
+			throw new XMLStreamException("Expected element " + localName, getLocation());
+	}
+
+	@Override
+	public String getElementText() throws XMLStreamException
+	{
+		if (getEventType() != START_ELEMENT)
+			throw new XMLStreamException("The current event is not a start element", getLocation());
+		StringBuilder text = new StringBuilder();
+		while (true)
+		{
+			switch (next())
+			{
+				case CHARACTERS:
+				case CDATA:
+				case SPACE:
+				case ENTITY_REFERENCE:
+					text.append(getText());
+					break;
+				case PROCESSING_INSTRUCTION:
+				case COMMENT:
+					break;
+				case END_ELEMENT:
+					return text.toString();
+				default:
+					throw new XMLStreamException("The element contains more than text", getLocation());
+			}
+		}
+	}
+
+	@Override
+	public int nextTag() throws XMLStreamException
+	{
+		int event = next();
+		while (isWhiteSpace() || event == PROCESSING_INSTRUCTION || event == COMMENT)
+			event = next();
+		if (event != START_ELEMENT && event != END_ELEMENT)
+			throw new XMLStreamException("Expected a start or end element, found " + event, getLocation());
+		return event;
+	}
+
+	@Override
+	public boolean hasNext() throws XMLStreamException
+	{
+		return events.hasNext();
+	}
+
+	@Override
+	public void close() throws XMLStreamException
+	{
+		events.close();
+	}
+
+	@Override
+	public String getNamespaceURI(String prefix)
+	{
+		NamespaceContext context = getNamespaceContext();
+		return context != null ? context.getNamespaceURI(prefix) : null;
+	}
+
+	@Override
+	public boolean isStartElement()
+	{
+		return current != null && current.isStartElement();
+	}
+
+	@Override
+	public boolean isEndElement()
+	{
+		return current != null && current.isEndElement();
+	}
+
+	@Override
+	public boolean isCharacters()
+	{
+		return current != null && current.getEventType() == CHARACTERS;
+	}
+
+	@Override
+	public boolean isWhiteSpace()
+	{
+		return current != null && current.isCharacters() && current.asCharacters().isWhiteSpace();
+	}
+
+	@Override
+	public String getAttributeValue(String namespaceURI, String localName)
+	{
+		for (Attribute attribute : startAttributes())
+			if (attribute.getName().getLocalPart().equals(localName)
+					&& (namespaceURI == null || namespaceURI.equals(attribute.getName().getNamespaceURI())))
+				return attribute.getValue();
+		return null;
+	}
+
+	@Override
+	public int getAttributeCount()
+	{
+		return startAttributes().size();
+	}
+
+	@Override
+	public QName getAttributeName(int index)
+	{
+		return startAttributes().get(index).getName();
+	}
+
+	@Override
+	public String getAttributeNamespace(int index)
+	{
+		String namespace = getAttributeName(index).getNamespaceURI();
+		return namespace.isEmpty() ? null : namespace;
+	}
+
+	@Override
+	public String getAttributeLocalName(int index)
+	{
+		return getAttributeName(index).getLocalPart();
+	}
+
+	@Override
+	public String getAttributePrefix(int index)
+	{
+		return getAttributeName(index).getPrefix();
+	}
+
+	@Override
+	public String getAttributeType(int index)
+	{
+		return startAttributes().get(index).getDTDType();
+	}
+
+	@Override
+	public String getAttributeValue(int index)
+	{
+		return startAttributes().get(index).getValue();
+	}
+
+	@Override
+	public boolean isAttributeSpecified(int index)
+	{
+		return startAttributes().get(index).isSpecified();
+	}
+
+	private List<Attribute> startAttributes()
+	{
+		if (!isStartElement())
+			throw new IllegalStateException("The current event is not a start element");
+		return attributes;
+	}
+
+	@Override
+	public int getNamespaceCount()
+	{
+		return elementNamespaces().size();
+	}
+
+	@Override
+	public String getNamespacePrefix(int index)
+	{
+		String prefix = elementNamespaces().get(index).getPrefix();
+		return prefix.isEmpty() ? null : prefix;
+	}
+
+	@Override
+	public String getNamespaceURI(int index)
+	{
+		return elementNamespaces().get(index).getNamespaceURI();
+	}
+
+	private List<Namespace> elementNamespaces()
+	{
+		if (!isStartElement() && !isEndElement())
+			throw new IllegalStateException("The current event is not an element");
+		return namespaces;
+	}
+
+	@Override
+	public NamespaceContext getNamespaceContext()
+	{
+		return isStartElement() ? current.asStartElement().getNamespaceContext() : null;
+	}
+
+	@Override
+	public int getEventType()
+	{
+		return current != null ? current.getEventType() : XMLStreamConstants.START_DOCUMENT;
+	}
+
+	@Override
+	public String getText()
+	{
+		switch (getEventType())
+		{
+			case CHARACTERS:
+			case CDATA:
+			case SPACE:
+				return current.asCharacters().getData();
+			case COMMENT:
+				return ((Comment) current).getText();
+			case ENTITY_REFERENCE:
+				return ((EntityReference) current).getDeclaration().getReplacementText();
+			case DTD:
+				return ((javax.xml.stream.events.DTD) current).getDocumentTypeDeclaration();
+			default:
+				throw new IllegalStateException("The current event has no text: " + getEventType());
+		}
+	}
+
+	@Override
+	public char[] getTextCharacters()
+	{
+		return getText().toCharArray();
+	}
+
+	@Override
+	public int getTextCharacters(int sourceStart, char[] target, int targetStart, int length) throws XMLStreamException
+	{
+		String text = getText();
+		int copied = Math.max(0, Math.min(length, text.length() - sourceStart));
+		text.getChars(sourceStart, sourceStart + copied, target, targetStart);
+		return copied;
+	}
+
+	@Override
+	public int getTextStart()
+	{
+		return 0;
+	}
+
+	@Override
+	public int getTextLength()
+	{
+		return getText().length();
+	}
+
+	@Override
+	public String getEncoding()
+	{
+		return null;
+	}
+
+	@Override
+	public boolean hasText()
+	{
+		int event = getEventType();
+		return event == CHARACTERS || event == CDATA || event == SPACE || event == COMMENT || event == ENTITY_REFERENCE
+				|| event == DTD;
+	}
+
+	@Override
+	public Location getLocation()
+	{
+		return current != null ? current.getLocation() : null;
+	}
+
+	@Override
+	public QName getName()
+	{
+		if (isStartElement())
+			return current.asStartElement().getName();
+		else if (isEndElement())
+			return ((EndElement) current).getName();
+		throw new IllegalStateException("The current event is not an element");
+	}
+
+	@Override
+	public String getLocalName()
+	{
+		if (getEventType() == ENTITY_REFERENCE)
+			return ((EntityReference) current).getName();
+		return getName().getLocalPart();
+	}
+
+	@Override
+	public boolean hasName()
+	{
+		return isStartElement() || isEndElement();
+	}
+
+	@Override
+	public String getNamespaceURI()
+	{
+		if (!hasName())
+			return null;
+		String namespace = getName().getNamespaceURI();
+		return namespace.isEmpty() ? null : namespace;
+	}
+
+	@Override
+	public String getPrefix()
+	{
+		return hasName() ? getName().getPrefix() : null;
+	}
+
+	@Override
+	public String getVersion()
+	{
+		return startDocument() != null ? startDocument().getVersion() : null;
+	}
+
+	@Override
+	public boolean isStandalone()
+	{
+		return startDocument() != null && startDocument().isStandalone();
+	}
+
+	@Override
+	public boolean standaloneSet()
+	{
+		return startDocument() != null && startDocument().standaloneSet();
+	}
+
+	@Override
+	public String getCharacterEncodingScheme()
+	{
+		return startDocument() != null && startDocument().encodingSet() ? startDocument().getCharacterEncodingScheme()
+				: null;
+	}
+
+	private StartDocument startDocument()
+	{
+		return current instanceof StartDocument ? (StartDocument) current : null;
+	}
+
+	@Override
+	public String getPITarget()
+	{
+		return current instanceof ProcessingInstruction ? ((ProcessingInstruction) current).getTarget() : null;
+	}
+
+	@Override
+	public String getPIData()
+	{
+		return current instanceof ProcessingInstruction ? ((ProcessingInstruction) current).getData() : null;
+	}
+}
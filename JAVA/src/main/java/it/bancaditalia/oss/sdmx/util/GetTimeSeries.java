@@ -20,10 +20,24 @@
 */
 package it.bancaditalia.oss.sdmx.util;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 
+import it.bancaditalia.oss.sdmx.client.SASClientHandler;
 import it.bancaditalia.oss.sdmx.client.SdmxClientHandler;
 import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
 
@@ -34,8 +48,25 @@ import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
 public class GetTimeSeries {
 
 	public static void main(String[] args) throws IOException{
+		// options: -o output file (a Stata dataset if it ends with .dta, a SAS transport file if it ends with .xpt), -s field separator, -f DecimalFormat pattern of the values
+		String output = null;
+		String separator = Configuration.getDumpSeparator();
+		String pattern = Configuration.getDumpNumberFormat();
+		List<String> params = new ArrayList<>(Arrays.asList(args));
+		while(params.size() > 1 && params.get(0).matches("-[osf]")){
+			String option = params.remove(0);
+			String value = params.remove(0);
+			if(option.equals("-o"))
+				output = value;
+			else if(option.equals("-s"))
+				separator = value.equals("\\t") ? "\t" : value;
+			else
+				pattern = value;
+		}
+		args = params.toArray(new String[params.size()]);
+
 		if(args.length < 2 || args.length > 6 || args.length == 5){
-			System.err.println("usage: GetTimeSeries <provider> <query> [start] [end] [username password]");
+			System.err.println("usage: GetTimeSeries [-o file] [-s separator] [-f number format] <provider> <query> [start] [end] [username password]");
 			System.exit(-1); // wrong number of arguments
 		}
 		else{
@@ -64,18 +95,51 @@ public class GetTimeSeries {
 					System.exit(-2); // exception setting credentials
 				}
 			}
+			NumberFormat format = null;
 			try {
-				String result = SdmxClientHandler.dumpTimeSeries(provider, query, start, end);
-				System.out.println(result);
+				if(pattern != null)
+					format = new DecimalFormat(pattern, DecimalFormatSymbols.getInstance(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				System.err.println("Invalid number format: " + pattern);
+				System.exit(-1); // wrong arguments
+			}
+			if(output != null && output.toLowerCase(Locale.ROOT).endsWith(".dta")){
+				// a Stata dataset needs the number of rows and the width of its variables before the data
+				try {
+					new DtaWriter(true, true).setLabel(query).write(SdmxClientHandler.getTimeSeries(provider, query, start, end), new File(output));
+				} catch (Exception e) {
+					System.err.println(e.toString());
+					System.exit(-3); // exception calling get method
+				}
+				return;
+			}
+			if(output != null && output.toLowerCase(Locale.ROOT).endsWith(".xpt")){
+				// the version 5 format, read by the SAS XPORT engine
+				try {
+					SASClientHandler.writeTransport(SdmxClientHandler.getTimeSeries(provider, query, start, end), new File(output), true, XptWriter.V5);
+				} catch (Exception e) {
+					System.err.println(e.toString());
+					System.exit(-3); // exception calling get method
+				}
+				return;
+			}
+			// the dump is written while it is produced, not accumulated in memory
+			OutputStream stream = output == null ? System.out : new FileOutputStream(output);
+			Writer out = new BufferedWriter(new OutputStreamWriter(stream, Charset.forName("UTF-8")));
+			try {
+				SdmxClientHandler.dumpTimeSeries(provider, query, start, end, out, separator, format);
+				out.write(System.lineSeparator());
+				out.flush();
 			} catch (Exception e) {
+				out.flush();
 				System.err.println(e.toString());
 				System.exit(-3); // exception calling get method
+			} finally {
+				if(output != null)
+					out.close();
 			}
 		}
 
 	}
 
 }
-
-
-
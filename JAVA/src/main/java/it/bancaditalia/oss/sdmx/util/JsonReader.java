@@ -0,0 +1,288 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A minimal pull reader of JSON documents, that reads one token at a time without building a tree in memory.
+ * Commas and colons are treated as separators and the syntax is not validated.
+ */
+public class JsonReader implements Closeable
+{
+	private final Reader		reader;
+	private final char[]		buffer	= new char[8192];
+	private int					pos		= 0;
+	private int					limit	= 0;
+	private final StringBuilder	builder	= new StringBuilder();
+
+	public JsonReader(Reader reader)
+	{
+		this.reader = reader;
+	}
+
+	/**
+	 * @return The first character of the next token ('{', '}', '[', ']', '"', 'n', 't', 'f' or the start of a
+	 *         number), or -1 at the end of the document.
+	 * @throws IOException if an error occurs while reading.
+	 */
+	public int peek() throws IOException
+	{
+		while (pos < limit || fill())
+		{
+			char c = buffer[pos];
+			if (c == ',' || c == ':' || c == ' ' || c == '\n' || c == '\r' || c == '\t')
+				pos++;
+			else
+				return c;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return true if the current object or array has more members.
+	 * @throws IOException if an error occurs while reading.
+	 */
+	public boolean hasNext() throws IOException
+	{
+		int c = peek();
+		return c != '}' && c != ']' && c != -1;
+	}
+
+	public void beginObject() throws IOException
+	{
+		expect('{');
+	}
+
+	public void endObject() throws IOException
+	{
+		expect('}');
+	}
+
+	public void beginArray() throws IOException
+	{
+		expect('[');
+	}
+
+	public void endArray() throws IOException
+	{
+		expect(']');
+	}
+
+	/**
+	 * @return The name of the next member of the current object.
+	 * @throws IOException if an error occurs while reading.
+	 */
+	public String nextName() throws IOException
+	{
+		return nextString();
+	}
+
+	/**
+	 * @return The next value as a string, or null if it is a JSON null.
+	 * @throws IOException if the next value is an object or an array, or an error occurs while reading.
+	 */
+	public String nextString() throws IOException
+	{
+		int c = peek();
+		if (c == '"')
+		{
+			pos++;
+			return readString();
+		}
+		else if (c == '{' || c == '[' || c == '}' || c == ']' || c == -1)
+			throw syntaxError("Expected a value");
+		String literal = readLiteral();
+		return "null".equals(literal) ? null : literal;
+	}
+
+	/**
+	 * @return The next value as a number, or NaN if it is a JSON null or it cannot be parsed.
+	 * @throws IOException if the next value is an object or an array, or an error occurs while reading.
+	 */
+	public double nextDouble() throws IOException
+	{
+		String value = nextString();
+		if (value == null)
+			return Double.NaN;
+		try
+		{
+			return Double.parseDouble(value);
+		}
+		catch (NumberFormatException e)
+		{
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * @return The next value as an integer, or -1 if it is a JSON null.
+	 * @throws IOException if the next value is not an integer, or an error occurs while reading.
+	 */
+	public int nextInt() throws IOException
+	{
+		String value = nextString();
+		try
+		{
+			return value == null ? -1 : Integer.parseInt(value);
+		}
+		catch (NumberFormatException e)
+		{
+			throw syntaxError("Expected an integer but was " + value);
+		}
+	}
+
+	/**
+	 * Skips the next value, including any nested object or array.
+	 * 
+	 * @throws IOException if an error occurs while reading.
+	 */
+	public void skipValue() throws IOException
+	{
+		int depth = 0;
+		do
+		{
+			int c = peek();
+			if (c == '{' || c == '[')
+			{
+				pos++;
+				depth++;
+			}
+			else if (c == '}' || c == ']')
+			{
+				pos++;
+				depth--;
+			}
+			else if (c == -1)
+				throw syntaxError("Unexpected end of document");
+			else
+				nextString();
+		} while (depth > 0);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		reader.close();
+	}
+
+	private void expect(char expected) throws IOException
+	{
+		if (peek() != expected)
+			throw syntaxError("Expected '" + expected + "'");
+		pos++;
+	}
+
+	private String readString() throws IOException
+	{
+		builder.setLength(0);
+		while (true)
+		{
+			int start = pos;
+			while (pos < limit)
+			{
+				char c = buffer[pos];
+				if (c == '"' || c == '\\')
+					break;
+				pos++;
+			}
+			builder.append(buffer, start, pos - start);
+
+			if (pos >= limit)
+			{
+				if (!fill())
+					throw syntaxError("Unterminated string");
+			}
+			else if (buffer[pos++] == '"')
+				return builder.toString();
+			else
+				builder.append(readEscape());
+		}
+	}
+
+	private char readEscape() throws IOException
+	{
+		char c = read();
+		switch (c)
+		{
+			case 'b':
+				return '\b';
+			case 'f':
+				return '\f';
+			case 'n':
+				return '\n';
+			case 'r':
+				return '\r';
+			case 't':
+				return '\t';
+			case 'u':
+				char[] hex = { read(), read(), read(), read() };
+				try
+				{
+					return (char) Integer.parseInt(new String(hex), 16);
+				}
+				catch (NumberFormatException e)
+				{
+					throw syntaxError("Invalid escape sequence");
+				}
+			default:
+				return c;
+		}
+	}
+
+	// reads a number, true, false or null
+	private String readLiteral() throws IOException
+	{
+		builder.setLength(0);
+		while (pos < limit || fill())
+		{
+			char c = buffer[pos];
+			if (c == ',' || c == ':' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t')
+				break;
+			builder.append(c);
+			pos++;
+		}
+		return builder.toString();
+	}
+
+	private char read() throws IOException
+	{
+		if (pos >= limit && !fill())
+			throw syntaxError("Unexpected end of document");
+		return buffer[pos++];
+	}
+
+	private boolean fill() throws IOException
+	{
+		pos = 0;
+		limit = reader.read(buffer, 0, buffer.length);
+		if (limit < 0)
+			limit = 0;
+		return limit > 0;
+	}
+
+	private IOException syntaxError(String message)
+	{
+		return new IOException("Malformed JSON: " + message);
+	}
+}
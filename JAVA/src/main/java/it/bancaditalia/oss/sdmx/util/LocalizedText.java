@@ -26,6 +26,7 @@ import java.util.Map;
 
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.Attribute;
 import javax.xml.stream.events.StartElement;
 
@@ -71,6 +72,15 @@ public class LocalizedText {
 		}
 	}
 	
+	public void setText(XMLStreamReader reader) throws XMLStreamException{
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			if (reader.getAttributeLocalName(i).equals(LANG)) {
+				put(reader.getAttributeValue(i), reader.getElementText());
+				return;
+			}
+		}
+	}
+	
 	public void clear(){
 		data.clear();
 	}
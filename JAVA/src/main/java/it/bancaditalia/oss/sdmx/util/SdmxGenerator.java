@@ -0,0 +1,582 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generates synthetic SDMX 2.1 messages, to test and benchmark the connectors without querying a real provider.
+ * <p>
+ * All the messages describe the BENCH_DSD structure: the dimensions FREQ, REF_AREA and SERIES, the series attributes
+ * TITLE and UNIT_MULT and the observation attributes OBS_STATUS and OBS_CONF. The size of the CL_SERIES codelist, the
+ * number of series and of observations, the frequencies and the share of observations carrying each attribute are
+ * configurable. The output is a function of the settings only, and it is written while it is produced, so that messages
+ * of any size can be generated.
+ * <p>
+ * {@link #writeFiles(File)} lays the messages out as the FILE provider reads them, so that the series can be read
+ * with the query {@code <dataflow>/all} from a provider added by {@code SdmxClientHandler.addLocalProvider}.
+ */
+public class SdmxGenerator
+{
+	/**
+	 * The key of the generated data in the FILE layout.
+	 */
+	public static final String		ALL_KEYS		= "all";
+	public static final String		DSD				= "BENCH_DSD";
+	public static final String		AGENCY			= "BENCH";
+
+	private static final String		MESSAGE			= "http://www.sdmx.org/resources/sdmxml/schemas/v2_1/message";
+	private static final String		STRUCTURE		= "http://www.sdmx.org/resources/sdmxml/schemas/v2_1/structure";
+	private static final String		COMMON			= "http://www.sdmx.org/resources/sdmxml/schemas/v2_1/common";
+	private static final String		PREPARED		= "2020-01-01T00:00:00";
+	private static final int		MIN_AREAS		= 10;
+	private static final String		FREQUENCIES		= "ASQMWD";
+	private static final String[][]	FREQ_CODES		= { { "A", "Annual" }, { "S", "Half-yearly" }, { "Q", "Quarterly" },
+			{ "M", "Monthly" }, { "W", "Weekly" }, { "D", "Daily" } };
+	private static final String[][]	STATUS_CODES	= { { "A", "Normal value" }, { "E", "Estimated value" },
+			{ "P", "Provisional value" } };
+	private static final String[][]	CONF_CODES		= { { "F", "Free" }, { "C", "Confidential" } };
+	private static final String[][]	UNIT_CODES		= { { "0", "Units" }, { "3", "Thousands" }, { "6", "Millions" } };
+	private static final String[][]	CONCEPTS		= { { "FREQ", "Frequency" }, { "REF_AREA", "Reference area" },
+			{ "SERIES", "Series" }, { "TIME_PERIOD", "Time period" }, { "OBS_VALUE", "Observation value" },
+			{ "OBS_STATUS", "Observation status" }, { "OBS_CONF", "Confidentiality" }, { "TITLE", "Title" },
+			{ "UNIT_MULT", "Unit multiplier" } };
+	private static final String[]	CODELISTS		= { "CL_SERIES", "CL_FREQ", "CL_AREA", "CL_OBS_STATUS", "CL_OBS_CONF",
+			"CL_UNIT_MULT" };
+
+	private String					dataflow		= "BENCH";
+	private int						dataflows		= 1;
+	private int						series			= 10;
+	private int						observations	= 100;
+	private String[]				frequencies		= { "A", "Q", "M" };
+	private double					attributeDensity	= 0.5;
+	private int						codes			= 100;
+	private int						startYear		= 1900;
+	private long					seed			= 42;
+
+	public String getDataflow()
+	{
+		return dataflow;
+	}
+
+	/**
+	 * @param dataflow the id of the dataflow of the data message, and of the first dataflow of the dataflow message
+	 */
+	public SdmxGenerator setDataflow(String dataflow)
+	{
+		if (dataflow == null || !dataflow.matches("[A-Za-z0-9_@$-]+"))
+			throw new IllegalArgumentException("Invalid dataflow id: " + dataflow);
+		this.dataflow = dataflow;
+		return this;
+	}
+
+	/**
+	 * @param dataflows the number of dataflows of the dataflow message, all of them with the BENCH_DSD structure
+	 */
+	public SdmxGenerator setDataflows(int dataflows)
+	{
+		this.dataflows = positive("dataflows", dataflows);
+		return this;
+	}
+
+	public SdmxGenerator setSeries(int series)
+	{
+		this.series = positive("series", series);
+		return this;
+	}
+
+	/**
+	 * @param observations the number of observations of each series
+	 */
+	public SdmxGenerator setObservations(int observations)
+	{
+		if (observations < 0)
+			throw new IllegalArgumentException("The number of observations cannot be negative: " + observations);
+		this.observations = observations;
+		return this;
+	}
+
+	/**
+	 * @param frequencies the frequencies of the series, assigned in turn: any of A, S, Q, M, W and D
+	 */
+	public SdmxGenerator setFrequencies(String... frequencies)
+	{
+		if (frequencies.length == 0)
+			throw new IllegalArgumentException("At least one frequency is needed");
+		for (String frequency : frequencies)
+			if (frequency.length() != 1 || FREQUENCIES.indexOf(frequency.charAt(0)) < 0)
+				throw new IllegalArgumentException("Unsupported frequency: " + frequency);
+		this.frequencies = frequencies.clone();
+		return this;
+	}
+
+	/**
+	 * @param attributeDensity the probability, between 0 and 1, that an observation carries each of OBS_STATUS and
+	 *            OBS_CONF
+	 */
+	public SdmxGenerator setAttributeDensity(double attributeDensity)
+	{
+		if (!(attributeDensity >= 0 && attributeDensity <= 1))
+			throw new IllegalArgumentException("The attribute density must be between 0 and 1: " + attributeDensity);
+		this.attributeDensity = attributeDensity;
+		return this;
+	}
+
+	/**
+	 * @param codes the number of codes of CL_SERIES. The REF_AREA codelist grows so that every series has its own key.
+	 */
+	public SdmxGenerator setCodes(int codes)
+	{
+		this.codes = positive("codes", codes);
+		return this;
+	}
+
+	/**
+	 * @param startYear the year of the first observation of each series
+	 */
+	public SdmxGenerator setStartYear(int startYear)
+	{
+		if (startYear < 1 || startYear > 9999)
+			throw new IllegalArgumentException("Invalid start year: " + startYear);
+		this.startYear = startYear;
+		return this;
+	}
+
+	/**
+	 * @param seed the seed of the observation values and attributes
+	 */
+	public SdmxGenerator setSeed(long seed)
+	{
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * @return the total number of observations of the data message
+	 */
+	public long getObservationCount()
+	{
+		return (long) series * observations;
+	}
+
+	/**
+	 * Writes a structure specific data message, with the series in key order of generation.
+	 */
+	public void writeData(Writer out) throws IOException
+	{
+		Random random = new Random(seed);
+		int areas = getAreaCount();
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<message:StructureSpecificData xmlns:message=\"" + MESSAGE + "\">\n");
+		out.write("<message:Header><message:ID>" + AGENCY + "</message:ID><message:Test>true</message:Test><message:Prepared>"
+				+ PREPARED + "</message:Prepared><message:Sender id=\"" + AGENCY + "\"/></message:Header>\n");
+		out.write("<message:DataSet action=\"Replace\">\n");
+
+		StringBuilder line = new StringBuilder(128);
+		for (int s = 0; s < series; s++)
+		{
+			char freq = frequencies[s % frequencies.length].charAt(0);
+			out.write("<Series FREQ=\"" + freq + "\" REF_AREA=\"" + areaCode(s / codes % areas) + "\" SERIES=\""
+					+ seriesCode(s % codes) + "\" TITLE=\"Series " + s + "\" UNIT_MULT=\"" + UNIT_CODES[s % UNIT_CODES.length][0]
+					+ "\">\n");
+
+			// a random walk in hundredths, which keeps the values plausible and the messages compressible
+			long value = 10000 + random.nextInt(90000);
+			for (int o = 0; o < observations; o++)
+			{
+				value = Math.max(1, value + random.nextInt(201) - 100);
+				line.setLength(0);
+				line.append("<Obs TIME_PERIOD=\"");
+				appendPeriod(line, freq, o);
+				line.append("\" OBS_VALUE=\"").append(value / 100).append('.');
+				line.append((char) ('0' + value / 10 % 10)).append((char) ('0' + value % 10)).append('"');
+				if (random.nextDouble() < attributeDensity)
+					line.append(" OBS_STATUS=\"").append(STATUS_CODES[random.nextInt(10) < 8 ? 0 : random.nextInt(2) + 1][0]).append('"');
+				if (random.nextDouble() < attributeDensity)
+					line.append(" OBS_CONF=\"").append(CONF_CODES[random.nextInt(10) < 9 ? 0 : 1][0]).append('"');
+				line.append("/>\n");
+				out.append(line);
+			}
+			out.write("</Series>\n");
+		}
+
+		out.write("</message:DataSet>\n</message:StructureSpecificData>\n");
+		out.flush();
+	}
+
+	/**
+	 * Writes a structure message with the codelists, the concepts and the BENCH_DSD data structure. CL_SERIES is the
+	 * first codelist.
+	 */
+	public void writeStructure(Writer out) throws IOException
+	{
+		writeStructureHeader(out);
+		out.write("<str:Codelists>\n");
+		for (String codelist : CODELISTS)
+			writeCodes(out, codelist);
+		out.write("</str:Codelists>\n");
+
+		out.write("<str:Concepts><str:ConceptScheme id=\"BENCH_CONCEPTS\" agencyID=\"" + AGENCY
+				+ "\" version=\"1.0\"><com:Name xml:lang=\"en\">Concepts</com:Name>\n");
+		for (String[] concept : CONCEPTS)
+			out.write("<str:Concept id=\"" + concept[0] + "\"><com:Name xml:lang=\"en\">" + concept[1] + "</com:Name></str:Concept>\n");
+		out.write("</str:ConceptScheme></str:Concepts>\n");
+
+		out.write("<str:DataStructures><str:DataStructure id=\"" + DSD + "\" agencyID=\"" + AGENCY + "\" version=\"1.0\">"
+				+ "<com:Name xml:lang=\"en\">Benchmark data structure</com:Name><str:DataStructureComponents>\n");
+		out.write("<str:DimensionList id=\"DimensionDescriptor\">\n");
+		String[][] dimensions = { { "FREQ", "CL_FREQ" }, { "REF_AREA", "CL_AREA" }, { "SERIES", "CL_SERIES" } };
+		for (int i = 0; i < dimensions.length; i++)
+			out.write("<str:Dimension id=\"" + dimensions[i][0] + "\" position=\"" + (i + 1) + "\">" + conceptIdentity(dimensions[i][0])
+					+ enumeration(dimensions[i][1]) + "</str:Dimension>\n");
+		out.write("<str:TimeDimension id=\"TIME_PERIOD\" position=\"" + (dimensions.length + 1) + "\">"
+				+ conceptIdentity("TIME_PERIOD") + "</str:TimeDimension>\n</str:DimensionList>\n");
+
+		out.write("<str:AttributeList id=\"AttributeDescriptor\">\n");
+		StringBuilder seriesRelationship = new StringBuilder("<str:AttributeRelationship>");
+		for (String[] dimension : dimensions)
+			seriesRelationship.append("<str:Dimension><Ref id=\"").append(dimension[0]).append("\"/></str:Dimension>");
+		seriesRelationship.append("</str:AttributeRelationship>");
+		String obsRelationship = "<str:AttributeRelationship><str:PrimaryMeasure><Ref id=\"OBS_VALUE\"/></str:PrimaryMeasure></str:AttributeRelationship>";
+		writeAttribute(out, "TITLE", null, "Conditional", seriesRelationship.toString());
+		writeAttribute(out, "UNIT_MULT", "CL_UNIT_MULT", "Mandatory", seriesRelationship.toString());
+		writeAttribute(out, "OBS_STATUS", "CL_OBS_STATUS", "Conditional", obsRelationship);
+		writeAttribute(out, "OBS_CONF", "CL_OBS_CONF", "Conditional", obsRelationship);
+		out.write("</str:AttributeList>\n");
+
+		out.write("<str:MeasureList id=\"MeasureDescriptor\"><str:PrimaryMeasure id=\"OBS_VALUE\">" + conceptIdentity("OBS_VALUE")
+				+ "</str:PrimaryMeasure></str:MeasureList>\n");
+		out.write("</str:DataStructureComponents></str:DataStructure></str:DataStructures>\n");
+		writeStructureFooter(out);
+	}
+
+	/**
+	 * Writes a structure message with a single codelist of the BENCH_DSD structure.
+	 */
+	public void writeCodelist(String codelist, Writer out) throws IOException
+	{
+		if (!Arrays.asList(CODELISTS).contains(codelist))
+			throw new IllegalArgumentException("Unknown codelist: " + codelist);
+		writeStructureHeader(out);
+		out.write("<str:Codelists>\n");
+		writeCodes(out, codelist);
+		out.write("</str:Codelists>\n");
+		writeStructureFooter(out);
+	}
+
+	/**
+	 * Writes a structure message with the dataflows, the first of which has the configured id.
+	 */
+	public void writeDataflows(Writer out) throws IOException
+	{
+		writeStructureHeader(out);
+		out.write("<str:Dataflows>\n");
+		for (int i = 0; i < dataflows; i++)
+		{
+			String id = i == 0 ? dataflow : dataflow + "_" + i;
+			out.write("<str:Dataflow id=\"" + id + "\" agencyID=\"" + AGENCY + "\" version=\"1.0\"><com:Name xml:lang=\"en\">"
+					+ "Synthetic dataflow " + i + "</com:Name><str:Structure><Ref id=\"" + DSD + "\" agencyID=\"" + AGENCY
+					+ "\" version=\"1.0\"/></str:Structure></str:Dataflow>\n");
+		}
+		out.write("</str:Dataflows>\n");
+		writeStructureFooter(out);
+	}
+
+	/**
+	 * Writes all the messages in a directory, with the file names used by the FILE provider.
+	 */
+	public void writeFiles(File directory) throws IOException
+	{
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Cannot create the directory " + directory);
+		try (Writer out = open(new File(directory, "dataflow_all.xml")))
+		{
+			writeDataflows(out);
+		}
+		try (Writer out = open(new File(directory, "datastructure_" + DSD + ".xml")))
+		{
+			writeStructure(out);
+		}
+		for (String codelist : CODELISTS)
+			try (Writer out = open(new File(directory, "codelist_" + codelist + ".xml")))
+			{
+				writeCodelist(codelist, out);
+			}
+		try (Writer out = open(new File(directory, "data_" + dataflow + "_" + ALL_KEYS + ".xml")))
+		{
+			writeData(out);
+		}
+	}
+
+	/**
+	 * Opens a buffered UTF-8 writer on a file, compressing it if the name ends with {@code .gz}.
+	 */
+	public static Writer open(File file) throws IOException
+	{
+		OutputStream stream = new FileOutputStream(file);
+		if (file.getName().endsWith(".gz"))
+			stream = new GZIPOutputStream(stream, 1 << 16);
+		return new BufferedWriter(new OutputStreamWriter(stream, Charset.forName("UTF-8")), 1 << 16);
+	}
+
+	private int getAreaCount()
+	{
+		return Math.max(MIN_AREAS, (series + codes - 1) / codes);
+	}
+
+	private void writeCodes(Writer out, String codelist) throws IOException
+	{
+		out.write("<str:Codelist id=\"" + codelist + "\" agencyID=\"" + AGENCY + "\" version=\"1.0\">");
+		if ("CL_SERIES".equals(codelist))
+		{
+			out.write("<com:Name xml:lang=\"en\">Series</com:Name>\n");
+			StringBuilder line = new StringBuilder(160);
+			for (int c = 0; c < codes; c++)
+			{
+				line.setLength(0);
+				line.append("<str:Code id=\"").append(seriesCode(c)).append("\"><com:Name xml:lang=\"en\">Series ").append(c)
+						.append("</com:Name><com:Name xml:lang=\"it\">Serie ").append(c).append("</com:Name>");
+				// a ten-way hierarchy
+				if (c >= 10)
+					line.append("<str:Parent><Ref id=\"").append(seriesCode(c / 10)).append("\"/></str:Parent>");
+				line.append("</str:Code>\n");
+				out.append(line);
+			}
+		}
+		else if ("CL_AREA".equals(codelist))
+		{
+			out.write("<com:Name xml:lang=\"en\">Reference area</com:Name>\n");
+			for (int a = 0, areas = getAreaCount(); a < areas; a++)
+				out.write("<str:Code id=\"" + areaCode(a) + "\"><com:Name xml:lang=\"en\">Area " + a + "</com:Name></str:Code>\n");
+		}
+		else
+		{
+			String[][] values = "CL_FREQ".equals(codelist) ? FREQ_CODES : "CL_OBS_STATUS".equals(codelist) ? STATUS_CODES
+					: "CL_OBS_CONF".equals(codelist) ? CONF_CODES : UNIT_CODES;
+			String name = "CL_FREQ".equals(codelist) ? "Frequency" : "CL_OBS_STATUS".equals(codelist) ? "Observation status"
+					: "CL_OBS_CONF".equals(codelist) ? "Confidentiality" : "Unit multiplier";
+			out.write("<com:Name xml:lang=\"en\">" + name + "</com:Name>\n");
+			for (String[] value : values)
+				out.write("<str:Code id=\"" + value[0] + "\"><com:Name xml:lang=\"en\">" + value[1] + "</com:Name></str:Code>\n");
+		}
+		out.write("</str:Codelist>\n");
+	}
+
+	private static void writeAttribute(Writer out, String id, String codelist, String status, String relationship)
+			throws IOException
+	{
+		out.write("<str:Attribute id=\"" + id + "\" assignmentStatus=\"" + status + "\">" + conceptIdentity(id)
+				+ (codelist != null ? enumeration(codelist) : "") + relationship + "</str:Attribute>\n");
+	}
+
+	private static void writeStructureHeader(Writer out) throws IOException
+	{
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<mes:Structure xmlns:mes=\"" + MESSAGE + "\" xmlns:str=\""
+				+ STRUCTURE + "\" xmlns:com=\"" + COMMON + "\">\n");
+		out.write("<mes:Header><mes:ID>" + AGENCY + "</mes:ID><mes:Test>true</mes:Test><mes:Prepared>" + PREPARED
+				+ "</mes:Prepared><mes:Sender id=\"" + AGENCY + "\"/></mes:Header>\n<mes:Structures>\n");
+	}
+
+	private static void writeStructureFooter(Writer out) throws IOException
+	{
+		out.write("</mes:Structures>\n</mes:Structure>\n");
+		out.flush();
+	}
+
+	private static String conceptIdentity(String id)
+	{
+		return "<str:ConceptIdentity><Ref id=\"" + id + "\" maintainableParentID=\"BENCH_CONCEPTS\" maintainableParentVersion=\"1.0\" agencyID=\""
+				+ AGENCY + "\"/></str:ConceptIdentity>";
+	}
+
+	private static String enumeration(String codelist)
+	{
+		return "<str:LocalRepresentation><str:Enumeration><Ref id=\"" + codelist + "\" version=\"1.0\" agencyID=\"" + AGENCY
+				+ "\"/></str:Enumeration></str:LocalRepresentation>";
+	}
+
+	private static String seriesCode(int code)
+	{
+		return String.format("S%05d", code);
+	}
+
+	private static String areaCode(int area)
+	{
+		return String.format("A%02d", area);
+	}
+
+	// the i-th period of a frequency, from the start year
+	private void appendPeriod(StringBuilder out, char freq, int i)
+	{
+		switch (freq)
+		{
+			case 'A':
+				out.append(startYear + i);
+				break;
+			case 'S':
+				out.append(startYear + i / 2).append("-S").append(i % 2 + 1);
+				break;
+			case 'Q':
+				out.append(startYear + i / 4).append("-Q").append(i % 4 + 1);
+				break;
+			case 'M':
+				out.append(startYear + i / 12).append('-');
+				appendTwoDigits(out, i % 12 + 1);
+				break;
+			case 'W':
+				// 52 weeks a year, always valid ISO 8601 weeks
+				out.append(startYear + i / 52).append("-W");
+				appendTwoDigits(out, i % 52 + 1);
+				break;
+			default:
+				appendDate(out, startYear, i);
+		}
+	}
+
+	// the date some days after January 1st of a year
+	private static void appendDate(StringBuilder out, int year, int days)
+	{
+		int[] lengths = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+		for (int length = isLeap(year) ? 366 : 365; days >= length; length = isLeap(year) ? 366 : 365)
+		{
+			days -= length;
+			year++;
+		}
+		int month = 0;
+		for (int length = lengths[0]; days >= length; length = lengths[month] + (month == 1 && isLeap(year) ? 1 : 0))
+		{
+			days -= length;
+			month++;
+		}
+		out.append(year).append('-');
+		appendTwoDigits(out, month + 1);
+		out.append('-');
+		appendTwoDigits(out, days + 1);
+	}
+
+	private static boolean isLeap(int year)
+	{
+		return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+	}
+
+	private static void appendTwoDigits(StringBuilder out, int value)
+	{
+		out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+	}
+
+	private static int positive(String name, int value)
+	{
+		if (value <= 0)
+			throw new IllegalArgumentException("The number of " + name + " must be positive: " + value);
+		return value;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		// options: -n series, -o observations per series, -f frequencies, -a attribute density, -c codes,
+		// -d dataflows, -i dataflow id, -y start year, -r seed, -m single message to write
+		SdmxGenerator generator = new SdmxGenerator();
+		String message = null;
+		List<String> params = new ArrayList<>(Arrays.asList(args));
+		try
+		{
+			while (params.size() > 1 && params.get(0).matches("-[nofacdiyrm]"))
+			{
+				String option = params.remove(0);
+				String value = params.remove(0);
+				if (option.equals("-n"))
+					generator.setSeries(Integer.parseInt(value));
+				else if (option.equals("-o"))
+					generator.setObservations(Integer.parseInt(value));
+				else if (option.equals("-f"))
+					generator.setFrequencies(value.split(","));
+				else if (option.equals("-a"))
+					generator.setAttributeDensity(Double.parseDouble(value));
+				else if (option.equals("-c"))
+					generator.setCodes(Integer.parseInt(value));
+				else if (option.equals("-d"))
+					generator.setDataflows(Integer.parseInt(value));
+				else if (option.equals("-i"))
+					generator.setDataflow(value);
+				else if (option.equals("-y"))
+					generator.setStartYear(Integer.parseInt(value));
+				else if (option.equals("-r"))
+					generator.setSeed(Long.parseLong(value));
+				else
+					message = value;
+			}
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.err.println(e.getMessage());
+			System.exit(-1); // wrong arguments
+		}
+
+		if (message == null ? params.size() != 1 : params.size() > 1)
+		{
+			System.err.println("usage: SdmxGenerator [-n series] [-o observations] [-f A,Q,M] [-a attribute density] [-c codes]"
+					+ " [-d dataflows] [-i dataflow] [-y start year] [-r seed] <directory>");
+			System.err.println("       SdmxGenerator [options] -m data|structure|dataflows|<codelist> [file[.gz]]");
+			System.exit(-1); // wrong number of arguments
+		}
+
+		if (message == null)
+		{
+			generator.writeFiles(new File(params.get(0)));
+			return;
+		}
+
+		Writer out = params.isEmpty() ? new BufferedWriter(new OutputStreamWriter(System.out, Charset.forName("UTF-8")))
+				: open(new File(params.get(0)));
+		try
+		{
+			if (message.equals("data"))
+				generator.writeData(out);
+			else if (message.equals("structure"))
+				generator.writeStructure(out);
+			else if (message.equals("dataflows"))
+				generator.writeDataflows(out);
+			else
+				generator.writeCodelist(message, out);
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.err.println(e.getMessage());
+			System.exit(-1); // wrong arguments
+		}
+		finally
+		{
+			if (!params.isEmpty())
+				out.close();
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates named daemon threads, so that the pools used by the connectors never keep the hosting JVM (R, MATLAB,
+ * SAS, STATA...) alive.
+ */
+public class SdmxThreadFactory implements ThreadFactory
+{
+	private final String		prefix;
+	private final AtomicInteger	counter	= new AtomicInteger();
+
+	/**
+	 * @param prefix a prefix for the names of the created threads
+	 */
+	public SdmxThreadFactory(String prefix)
+	{
+		this.prefix = prefix;
+	}
+
+	@Override
+	public Thread newThread(Runnable r)
+	{
+		Thread thread = new Thread(r, "sdmx-" + prefix + "-" + counter.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	}
+}
@@ -0,0 +1,176 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.util;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxExceptionFactory;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxIOException;
+
+/**
+ * Coalesces identical concurrent calls: while a call for a key is in flight, the other threads asking for the same key
+ * wait for it and receive its result (or the same exception) instead of issuing their own call. When a
+ * {@link Copier} is given, every caller sharing a result receives its own copy of it. Nothing is retained once the
+ * call completes.
+ */
+public class SingleFlight
+{
+	/**
+	 * Copies the result of a call, so that the callers sharing it can change their copy.
+	 *
+	 * @param <V> The type of the result.
+	 */
+	public interface Copier<V>
+	{
+		/**
+		 * @param value A non-null result.
+		 * @return A copy of the result that shares no mutable state with it.
+		 */
+		public V copy(V value);
+	}
+
+	// key --> call in flight
+	private final ConcurrentMap<String, Flight<?>> calls = new ConcurrentHashMap<>();
+
+	/**
+	 * Runs a call, or waits for the identical call already in flight, and returns the same result to all the callers.
+	 * <p>
+	 * The call runs on the thread of the first caller. Callers must use distinct keys for calls returning different
+	 * types, and a call must not ask for its own key.
+	 *
+	 * @param key identifies the call
+	 * @param call the call to run
+	 * @return the result of the call
+	 * @throws SdmxException if the call failed
+	 */
+	public <V> V execute(String key, Callable<V> call) throws SdmxException
+	{
+		return execute(key, call, null);
+	}
+
+	/**
+	 * Runs a call, or waits for the identical call already in flight. If the result is shared, each caller receives
+	 * its own copy, and nobody receives the original.
+	 *
+	 * @param key identifies the call
+	 * @param call the call to run
+	 * @param copier the nullable copier of the results
+	 * @return the result of the call
+	 * @throws SdmxException if the call failed; runtime exceptions and errors of the call are rethrown unchanged
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> V execute(String key, Callable<V> call, Copier<V> copier) throws SdmxException
+	{
+		while (true)
+		{
+			Flight<V> flight = new Flight<>(call);
+			Flight<V> inFlight = (Flight<V>) calls.putIfAbsent(key, flight);
+			if (inFlight == null)
+			{
+				try
+				{
+					flight.run();
+				}
+				finally
+				{
+					calls.remove(key, flight);
+				}
+				// no caller can join once the flight is closed, so an unshared result can be returned as it is
+				V result = get(key, flight);
+				return flight.close() && copier != null && result != null ? copier.copy(result) : result;
+			}
+			else if (inFlight.join())
+			{
+				V result = get(key, inFlight);
+				return copier != null && result != null ? copier.copy(result) : result;
+			}
+			// else the call has just completed, and its result may already be in the hands of its caller
+		}
+	}
+
+	private static <V> V get(String key, Flight<V> flight) throws SdmxException
+	{
+		try
+		{
+			return flight.get();
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			// the callers receive the exception the call would have thrown to them
+			if (cause instanceof SdmxException)
+				throw (SdmxException) cause;
+			else if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			else if (cause instanceof Error)
+				throw (Error) cause;
+			else
+				throw SdmxExceptionFactory.wrap((Exception) cause);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new SdmxIOException("Interrupted while waiting for " + key, new InterruptedIOException(e.getMessage()));
+		}
+	}
+
+	/**
+	 * @return The number of calls in flight.
+	 */
+	public int size()
+	{
+		return calls.size();
+	}
+
+	// a call that the other callers can join until its own caller takes the result
+	private static class Flight<V> extends FutureTask<V>
+	{
+		private int		waiters	= 0;
+		private boolean	closed	= false;
+
+		public Flight(Callable<V> call)
+		{
+			super(call);
+		}
+
+		// returns false if the result is already taken
+		public synchronized boolean join()
+		{
+			if (closed)
+				return false;
+			waiters++;
+			return true;
+		}
+
+		// returns true if other callers share the result
+		public synchronized boolean close()
+		{
+			closed = true;
+			return waiters > 0;
+		}
+	}
+}
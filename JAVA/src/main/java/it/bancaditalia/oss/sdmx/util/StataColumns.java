@@ -0,0 +1,270 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import it.bancaditalia.oss.sdmx.api.BaseObservation;
+import it.bancaditalia.oss.sdmx.api.DoubleTimeSeries;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+
+/**
+ * The layout of time series in a Stata dataset: one row per observation, with the variables TSNAME, DATE and VALUE
+ * followed by one string variable for each dimension and attribute; or one row per series, with TSNAME and its
+ * metadata only. The series, or parts of them, are added and then materialized column by column by {@link #fill()}.
+ * 
+ * @see DtaWriter
+ */
+public class StataColumns
+{
+	public static final String						NAME		= "TSNAME";
+	public static final String						DATE		= "DATE";
+	public static final String						VALUE		= "VALUE";
+	/**
+	 * The width in bytes of the longest str# variable.
+	 */
+	public static final int							MAX_WIDTH	= 2045;
+
+	private final boolean							data;
+	private final boolean							metadata;
+	private final boolean							numeric;
+
+	private final List<PortableTimeSeries<?>>		series		= new ArrayList<>();
+	private final List<int[]>						ranges		= new ArrayList<>();
+	private int										rows		= 0;
+
+	private int										size		= 0;
+	private String[]								names		= new String[0];
+	private String[]								dates		= null;
+	private double[]								values		= null;
+	private String[]								strings		= null;
+	private Map<String, String[]>					columns		= new LinkedHashMap<>();
+
+	/**
+	 * @param data if false, only the metadata of the series is kept
+	 * @param metadata if true, the dimensions and the attributes are kept in a column each
+	 * @param numeric if true, the values are kept in a {@code double[]}, otherwise as strings
+	 */
+	public StataColumns(boolean data, boolean metadata, boolean numeric)
+	{
+		this.data = data;
+		this.metadata = metadata || !data;
+		this.numeric = numeric;
+	}
+
+	/**
+	 * Adds the observations from..to of a series to the rows of the next {@link #fill()}.
+	 */
+	public void add(PortableTimeSeries<?> ts, int from, int to)
+	{
+		series.add(ts);
+		ranges.add(new int[] { from, to });
+		rows += data ? to - from : 1;
+	}
+
+	/**
+	 * @return the number of rows added since the last {@link #fill()}
+	 */
+	public int getRows()
+	{
+		return rows;
+	}
+
+	/**
+	 * Materializes the rows added since the last call, replacing the previous columns.
+	 * 
+	 * @return the number of rows
+	 */
+	public int fill()
+	{
+		size = rows;
+		names = new String[size];
+		dates = data ? new String[size] : null;
+		values = data && numeric ? new double[size] : null;
+		strings = data && !numeric ? new String[size] : null;
+		columns = new LinkedHashMap<>();
+
+		int row = 0;
+		for (int s = 0; s < series.size(); s++)
+		{
+			PortableTimeSeries<?> ts = series.get(s);
+			int from = ranges.get(s)[0];
+			int to = ranges.get(s)[1];
+			int end = row + (data ? to - from : 1);
+
+			Arrays.fill(names, row, end, ts.getName());
+			// each call builds a new map: they are read once per series
+			if (metadata)
+			{
+				for (Entry<String, String> dim : ts.getDimensionsMap().entrySet())
+					Arrays.fill(getColumn(dim.getKey()), row, end, dim.getValue());
+				for (Entry<String, String> attr : ts.getAttributesMap().entrySet())
+					Arrays.fill(getColumn(attr.getKey()), row, end, attr.getValue());
+			}
+			if (!data)
+			{
+				row = end;
+				continue;
+			}
+
+			String[] attributes = metadata ? ts.getObsLevelAttributesNamesArray() : new String[0];
+			String[][] obsColumns = new String[attributes.length][];
+			for (int a = 0; a < attributes.length; a++)
+				obsColumns[a] = getColumn(attributes[a]);
+			if (ts instanceof DoubleTimeSeries && numeric)
+			{
+				DoubleTimeSeries dts = (DoubleTimeSeries) ts;
+				for (int j = from; j < to; j++, row++)
+				{
+					dates[row] = dts.getTimeslotAt(j);
+					values[row] = dts.getValueAt(j);
+					for (int a = 0; a < attributes.length; a++)
+						obsColumns[a][row] = dts.getAttributeAt(j, attributes[a]);
+				}
+			}
+			else
+				for (int j = from; j < to; j++, row++)
+				{
+					BaseObservation<?> obs = ts.get(j);
+					dates[row] = obs.getTimeslot();
+					if (numeric)
+						values[row] = obs.getValueAsDouble();
+					else
+						strings[row] = obs.getValueAsString();
+					for (int a = 0; a < attributes.length; a++)
+						obsColumns[a][row] = obs.getAttributeValue(attributes[a]);
+				}
+		}
+		series.clear();
+		ranges.clear();
+		rows = 0;
+		return size;
+	}
+
+	/**
+	 * @return the number of rows materialized by the last {@link #fill()}
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return true if the rows hold the observations
+	 */
+	public boolean hasData()
+	{
+		return data;
+	}
+
+	/**
+	 * @return true if the values are numeric
+	 */
+	public boolean isNumeric()
+	{
+		return numeric;
+	}
+
+	/**
+	 * @return the TSNAME column
+	 */
+	public String[] getNames()
+	{
+		return names;
+	}
+
+	/**
+	 * @return the DATE column, or null without data
+	 */
+	public String[] getDates()
+	{
+		return dates;
+	}
+
+	/**
+	 * @return the VALUE column if numeric, where the missing values are NaN, or null
+	 */
+	public double[] getValues()
+	{
+		return values;
+	}
+
+	/**
+	 * @return the VALUE column if not numeric, or null
+	 */
+	public String[] getStrings()
+	{
+		return strings;
+	}
+
+	/**
+	 * @return a column for each dimension and attribute, in the order they were met. The rows without a value hold
+	 *         null.
+	 */
+	public Map<String, String[]> getMetadata()
+	{
+		return columns;
+	}
+
+	/**
+	 * Stata measures the width of a str# variable in bytes of UTF-8, not in characters.
+	 * 
+	 * @param column the values of a string variable, with null for the empty ones
+	 * @return the length in bytes of the longest UTF-8 value, at least 1 and at most {@link #MAX_WIDTH}
+	 */
+	public static int width(String[] column)
+	{
+		int width = 1;
+		String last = null;
+		for (String value : column)
+			if (value != null && value != last)
+			{
+				last = value;
+				int length = value.length();
+				for (int i = 0; i < value.length() && length <= MAX_WIDTH; i++)
+				{
+					char c = value.charAt(i);
+					if (c >= 0x800 && !Character.isSurrogate(c))
+						length += 2;
+					else if (c >= 0x80)
+						length += 1;
+				}
+				width = Math.max(width, Math.min(length, MAX_WIDTH));
+			}
+		return width;
+	}
+
+	private String[] getColumn(String name)
+	{
+		String[] column = columns.get(name);
+		if (column == null)
+		{
+			column = new String[size];
+			columns.put(name, column);
+		}
+		return column;
+	}
+}
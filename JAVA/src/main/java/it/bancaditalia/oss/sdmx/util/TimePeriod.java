@@ -0,0 +1,436 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.util;
+
+import java.util.List;
+
+/**
+ * Encodes SDMX 2.1 time periods into primitive codes that can be compared without looking at the strings again.
+ * <p>
+ * A code packs the start of the period, in seconds since 1970-01-01, with a {@link Frequency} tag in the lowest
+ * bits. Codes are ordered chronologically by start; periods starting at the same instant are ordered from the longest
+ * to the shortest, so that {@code 2020 < 2020-Q1 < 2020-01 < 2020-01-01}. Reporting periods assume a reporting year
+ * starting on January 1st, weeks follow ISO 8601, and date-times are taken at face value, ignoring any time zone.
+ * <p>
+ * Recognised formats (the hyphen before the period indicator is optional and letters are case insensitive):
+ * <ul>
+ * <li>{@code 2020}, {@code 2020-A1}</li>
+ * <li>{@code 2020-S1}, {@code 2020-H1}</li>
+ * <li>{@code 2020-T1}</li>
+ * <li>{@code 2020-Q1}</li>
+ * <li>{@code 2020-M01}, {@code 2020-01}</li>
+ * <li>{@code 2020-W01}</li>
+ * <li>{@code 2020-D001}, {@code 2020-01-01}</li>
+ * <li>{@code 2020-01-01T10:30:00}, with optional seconds, fraction and zone</li>
+ * <li>time ranges such as {@code 2020-01-01/P1M}, encoded by their start</li>
+ * </ul>
+ */
+public final class TimePeriod
+{
+	/**
+	 * The code returned for a string that is not a recognised time period.
+	 */
+	public static final long	INVALID				= Long.MIN_VALUE;
+
+	private static final int	TAG_BITS			= 4;
+	private static final long	SECONDS_PER_DAY		= 86400;
+
+	/**
+	 * The kind of a time period. The ordinal is the order used for periods starting at the same instant.
+	 */
+	public enum Frequency
+	{
+		ANNUAL(12), SEMESTER(6), TRIMESTER(4), QUARTER(3), MONTH(1), WEEK(0), DAY(0), DATETIME(0);
+
+		private final int months;
+
+		private Frequency(int months)
+		{
+			this.months = months;
+		}
+	}
+
+	private static final Frequency[] FREQUENCIES = Frequency.values();
+
+	private TimePeriod()
+	{
+	}
+
+	/**
+	 * Parses a time period.
+	 * 
+	 * @param period The time period as found in a SDMX message, may be null.
+	 * @return The code of the period, or {@link #INVALID} if it is not a recognised period.
+	 */
+	public static long encode(String period)
+	{
+		if (period == null)
+			return INVALID;
+
+		int length = period.indexOf('/');
+		if (length < 0)
+			length = period.length();
+		if (length < 4)
+			return INVALID;
+
+		int year = digits(period, 0, 4);
+		if (year < 0)
+			return INVALID;
+		if (length == 4)
+			return pack(days(year, 1, 1), Frequency.ANNUAL);
+
+		int pos = period.charAt(4) == '-' ? 5 : 4;
+		if (pos >= length)
+			return INVALID;
+
+		char indicator = Character.toUpperCase(period.charAt(pos));
+		if (indicator >= 'A' && indicator <= 'Z')
+		{
+			int number = length - pos > 1 && length - pos <= 4 ? digits(period, pos + 1, length) : -1;
+			if (number < 1)
+				return INVALID;
+			switch (indicator)
+			{
+				case 'A':
+					return number == 1 ? pack(days(year, 1, 1), Frequency.ANNUAL) : INVALID;
+				case 'S':
+				case 'H':
+					return number <= 2 ? pack(days(year, 6 * number - 5, 1), Frequency.SEMESTER) : INVALID;
+				case 'T':
+					return number <= 3 ? pack(days(year, 4 * number - 3, 1), Frequency.TRIMESTER) : INVALID;
+				case 'Q':
+					return number <= 4 ? pack(days(year, 3 * number - 2, 1), Frequency.QUARTER) : INVALID;
+				case 'M':
+					return number <= 12 ? pack(days(year, number, 1), Frequency.MONTH) : INVALID;
+				case 'W':
+					return number <= 53 ? pack(weekStart(year) + 7 * (number - 1), Frequency.WEEK) : INVALID;
+				case 'D':
+					return number <= (isLeap(year) ? 366 : 365) ? pack(days(year, 1, 1) + number - 1, Frequency.DAY)
+							: INVALID;
+				default:
+					return INVALID;
+			}
+		}
+
+		// gregorian periods
+		if (pos != 5 || length < 7)
+			return INVALID;
+		int month = digits(period, 5, 7);
+		if (month < 1 || month > 12)
+			return INVALID;
+		if (length == 7)
+			return pack(days(year, month, 1), Frequency.MONTH);
+
+		if (length < 10 || period.charAt(7) != '-')
+			return INVALID;
+		int day = digits(period, 8, 10);
+		if (day < 1 || day > monthLength(year, month))
+			return INVALID;
+		if (length == 10)
+			return pack(days(year, month, day), Frequency.DAY);
+
+		char separator = period.charAt(10);
+		if (length < 16 || separator != 'T' && separator != 't' && separator != ' ' || period.charAt(13) != ':')
+			return INVALID;
+		int hours = digits(period, 11, 13);
+		int minutes = digits(period, 14, 16);
+		int seconds = length >= 19 && period.charAt(16) == ':' ? digits(period, 17, 19) : 0;
+		if (hours < 0 || hours > 24 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 60)
+			return INVALID;
+
+		long start = days(year, month, day) * SECONDS_PER_DAY + hours * 3600 + minutes * 60 + seconds;
+		return start << TAG_BITS | Frequency.DATETIME.ordinal() + 1;
+	}
+
+	/**
+	 * Compares two time periods chronologically. Periods that are not recognised are compared as strings, ignoring
+	 * case, and come after all the recognised ones.
+	 * 
+	 * @param left a time period
+	 * @param right another time period
+	 * @return a negative number, zero, or a positive number as left is before, equal to, or after right.
+	 */
+	public static int compare(String left, String right)
+	{
+		return compare(encode(left), left, encode(right), right);
+	}
+
+	/**
+	 * Compares two time periods that were already encoded, with the same ordering as
+	 * {@link #compare(String, String)}.
+	 * 
+	 * @param leftCode the code of left
+	 * @param left a time period
+	 * @param rightCode the code of right
+	 * @param right another time period
+	 * @return a negative number, zero, or a positive number as left is before, equal to, or after right.
+	 */
+	public static int compare(long leftCode, String left, long rightCode, String right)
+	{
+		if (leftCode != INVALID && rightCode != INVALID)
+			return leftCode < rightCode ? -1 : leftCode == rightCode ? 0 : 1;
+		else if (leftCode != INVALID)
+			return -1;
+		else if (rightCode != INVALID)
+			return 1;
+		else
+			return left.compareToIgnoreCase(right);
+	}
+
+	/**
+	 * @param code A valid period code.
+	 * @return The frequency of the period.
+	 */
+	public static Frequency getFrequency(long code)
+	{
+		return FREQUENCIES[(int) (code & (1 << TAG_BITS) - 1) - 1];
+	}
+
+	/**
+	 * @param code A valid period code.
+	 * @return The start of the period, in seconds since 1970-01-01T00:00:00.
+	 */
+	public static long getStart(long code)
+	{
+		return code >> TAG_BITS;
+	}
+
+	/**
+	 * @param code A valid period code.
+	 * @return The number of periods of the same frequency elapsed from the one that contains 1970-01-01, i.e. years
+	 *         for annual periods, days for daily periods and seconds for date-times.
+	 */
+	public static long getOrdinal(long code)
+	{
+		Frequency frequency = getFrequency(code);
+		long start = getStart(code);
+		long day = floorDiv(start, SECONDS_PER_DAY);
+		switch (frequency)
+		{
+			case WEEK:
+				// 1969-12-29 is a monday
+				return floorDiv(day + 3, 7);
+			case DAY:
+				return day;
+			case DATETIME:
+				return start;
+			default:
+				int[] date = civil(day);
+				return floorDiv((date[0] - 1970) * 12L + date[1] - 1, frequency.months);
+		}
+	}
+
+	/**
+	 * Converts a time period into the ISO 8601 date (yyyy-MM-dd) of the last day of the period, e.g. 2020-03-31 for
+	 * 2020-Q1 and the sunday for a week. Date-times are truncated to their date.
+	 * 
+	 * @param period a time period
+	 * @return The converted date, or the period itself if it is not recognised.
+	 */
+	public static String toIsoDate(String period)
+	{
+		long code = encode(period);
+		return code == INVALID ? period : format(getEndDay(code));
+	}
+
+	/**
+	 * Converts all the time periods of a series, as {@link #toIsoDate(String)} does. Meant for the statistical
+	 * packages, which need a whole column of dates at once.
+	 * 
+	 * @param periods the time periods, as returned by
+	 *            {@link it.bancaditalia.oss.sdmx.api.PortableTimeSeries#getTimeSlotsArray()}
+	 * @return The converted dates.
+	 */
+	public static String[] toIsoDates(String[] periods)
+	{
+		String[] result = new String[periods.length];
+		for (int i = 0; i < periods.length; i++)
+			result[i] = toIsoDate(periods[i]);
+		return result;
+	}
+
+	/**
+	 * Converts all the time periods of a series, as {@link #toIsoDate(String)} does.
+	 * 
+	 * @param periods the time periods, as returned by
+	 *            {@link it.bancaditalia.oss.sdmx.api.PortableTimeSeries#getTimeSlots()}
+	 * @return The converted dates.
+	 */
+	public static String[] toIsoDates(List<String> periods)
+	{
+		return toIsoDates(periods.toArray(new String[periods.size()]));
+	}
+
+	/**
+	 * Computes the order that sorts the given periods with {@link #compare(String, String)}. The sort is stable and
+	 * each period is encoded only once.
+	 * 
+	 * @param periods the time periods to sort
+	 * @param size the number of periods to consider, from the first
+	 * @return the indexes of the periods, in sorted order, or null if the periods are already sorted.
+	 */
+	public static int[] sortOrder(String[] periods, int size)
+	{
+		long[] codes = new long[size];
+		boolean sorted = true;
+		for (int i = 0; i < size; i++)
+		{
+			codes[i] = encode(periods[i]);
+			sorted = sorted && (i == 0 || compare(codes[i - 1], periods[i - 1], codes[i], periods[i]) <= 0);
+		}
+		if (sorted)
+			return null;
+
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++)
+			order[i] = i;
+		mergeSort(order, new int[size], 0, size, codes, periods);
+		return order;
+	}
+
+	private static void mergeSort(int[] order, int[] buffer, int from, int to, long[] codes, String[] periods)
+	{
+		if (to - from < 2)
+			return;
+
+		int middle = (from + to) >>> 1;
+		mergeSort(order, buffer, from, middle, codes, periods);
+		mergeSort(order, buffer, middle, to, codes, periods);
+		if (compare(codes[order[middle - 1]], periods[order[middle - 1]], codes[order[middle]],
+				periods[order[middle]]) <= 0)
+			return;
+
+		System.arraycopy(order, from, buffer, from, to - from);
+		int left = from, right = middle;
+		for (int i = from; i < to; i++)
+			if (right >= to || left < middle
+					&& compare(codes[buffer[left]], periods[buffer[left]], codes[buffer[right]], periods[buffer[right]]) <= 0)
+				order[i] = buffer[left++];
+			else
+				order[i] = buffer[right++];
+	}
+
+	private static long getEndDay(long code)
+	{
+		Frequency frequency = getFrequency(code);
+		long day = floorDiv(getStart(code), SECONDS_PER_DAY);
+		switch (frequency)
+		{
+			case WEEK:
+				return day + 6;
+			case DAY:
+			case DATETIME:
+				return day;
+			default:
+				int[] date = civil(day);
+				int months = date[1] - 1 + frequency.months;
+				return days(date[0] + months / 12, months % 12 + 1, 1) - 1;
+		}
+	}
+
+	private static long pack(long day, Frequency frequency)
+	{
+		return day * SECONDS_PER_DAY << TAG_BITS | frequency.ordinal() + 1;
+	}
+
+	// parses a non-negative decimal number, or returns -1
+	private static int digits(String text, int from, int to)
+	{
+		int result = 0;
+		for (int i = from; i < to; i++)
+		{
+			char c = text.charAt(i);
+			if (c < '0' || c > '9')
+				return -1;
+			result = result * 10 + c - '0';
+		}
+		return result;
+	}
+
+	// days since 1970-01-01 of a date in the proleptic gregorian calendar
+	private static long days(int year, int month, int day)
+	{
+		long y = month <= 2 ? year - 1 : year;
+		long era = floorDiv(y, 400);
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	// year, month and day of a number of days since 1970-01-01
+	private static int[] civil(long days)
+	{
+		long z = days + 719468;
+		long era = floorDiv(z, 146097);
+		long dayOfEra = z - era * 146097;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long mp = (5 * dayOfYear + 2) / 153;
+		int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+		int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+		int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+		return new int[] { year, month, day };
+	}
+
+	// the monday of the first ISO week of a year, which is the week containing January 4th
+	private static long weekStart(int year)
+	{
+		long january4 = days(year, 1, 4);
+		return january4 - floorMod(january4 + 3, 7);
+	}
+
+	private static String format(long day)
+	{
+		int[] date = civil(day);
+		char[] result = new char[10];
+		int year = date[0];
+		for (int i = 3; i >= 0; i--, year /= 10)
+			result[i] = (char) ('0' + year % 10);
+		result[4] = result[7] = '-';
+		result[5] = (char) ('0' + date[1] / 10);
+		result[6] = (char) ('0' + date[1] % 10);
+		result[8] = (char) ('0' + date[2] / 10);
+		result[9] = (char) ('0' + date[2] % 10);
+		return new String(result);
+	}
+
+	private static boolean isLeap(int year)
+	{
+		return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+	}
+
+	private static int monthLength(int year, int month)
+	{
+		return month == 2 ? isLeap(year) ? 29 : 28 : month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+	}
+
+	private static long floorDiv(long x, long y)
+	{
+		long q = x / y;
+		return (x % y != 0 && (x ^ y) < 0) ? q - 1 : q;
+	}
+
+	private static long floorMod(long x, long y)
+	{
+		return x - floorDiv(x, y) * y;
+	}
+}
@@ -1,9 +1,11 @@
 package it.bancaditalia.oss.sdmx.util;
 
+import java.text.NumberFormat;
 import java.util.Iterator;
 
 import it.bancaditalia.oss.sdmx.api.BaseObservation;
 import it.bancaditalia.oss.sdmx.api.DoubleObservation;
+import it.bancaditalia.oss.sdmx.api.DoubleTimeSeries;
 import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
 
 /**
@@ -86,6 +88,23 @@ public class Utils
 		};
 	}
 
+	/**
+	 * Formats a value for a text dump.
+	 * 
+	 * @param value The value, may be null.
+	 * @param format The format of the numeric values, or null to use {@link String#valueOf(Object)}.
+	 * @return The formatted value.
+	 */
+	public static String format(Object value, NumberFormat format)
+	{
+		if (format == null || !(value instanceof Number))
+			return String.valueOf(value);
+		else if (value instanceof Double && ((Double) value).isNaN())
+			return "NaN";
+		else
+			return format.format(value);
+	}
+
 	/**
 	 * Extract values from a series and returns an array of primitive type {@code double}. It uses
 	 * {@link BaseObservation#getValueAsDouble()} to perform conversion.
@@ -95,6 +114,9 @@ public class Utils
 	 */
 	public static double[] toDoubleArray(PortableTimeSeries<?> series)
 	{
+		if (series instanceof DoubleTimeSeries)
+			return ((DoubleTimeSeries) series).getValues();
+
 		double result[] = new double[series.size()];
 		for (int i = 0; i < series.size(); i++)
 			result[i] = series.get(i).getValueAsDouble();
@@ -110,10 +132,10 @@ public class Utils
 	 */
 	public static PortableTimeSeries<Double> mapToDoubleValues(PortableTimeSeries<?> series)
 	{
-		PortableTimeSeries<Double> result = new PortableTimeSeries<>(series);
+		DoubleTimeSeries result = new DoubleTimeSeries(series);
 
 		for (BaseObservation<?> obs : series)
-			result.add(new DoubleObservation(obs, obs.getValueAsDouble()));
+			result.add(obs.getTimeslot(), obs.getValueAsDouble(), obs.getAttributes());
 
 		return result;
 	}
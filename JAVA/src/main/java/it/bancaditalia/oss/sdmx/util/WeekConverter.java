@@ -22,27 +22,16 @@
 
 package it.bancaditalia.oss.sdmx.util;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.GregorianCalendar;
-
 import it.bancaditalia.oss.sdmx.exceptions.SdmxInvalidParameterException;
 
 // used in MATLAB
 public class WeekConverter {
 	public static String convert(String week) throws SdmxInvalidParameterException{
-		// aaaa-Wn: e.g. 2010-W32
-		SimpleDateFormat dayFormatter = new SimpleDateFormat("yyyy-MM-dd");
-		String toks[] = week.split("-W");
-		if(toks.length != 2){
+		// aaaa-Wn: e.g. 2010-W32, converted to the sunday ending the ISO week
+		long code = TimePeriod.encode(week);
+		if(code == TimePeriod.INVALID || TimePeriod.getFrequency(code) != TimePeriod.Frequency.WEEK){
 			throw new SdmxInvalidParameterException("Invalid weekly date format: " + week);
 		}
-		Calendar calendar = new GregorianCalendar();
-		calendar.set(Calendar.YEAR, new Integer(toks[0]));
-		calendar.set(Calendar.WEEK_OF_YEAR, new Integer(toks[1]));     
-		calendar.set(Calendar.DAY_OF_WEEK, Calendar.SUNDAY); //end of period
-		
-		return dayFormatter.format(calendar.getTime());
+		return TimePeriod.toIsoDate(week);
 	}
 }
-
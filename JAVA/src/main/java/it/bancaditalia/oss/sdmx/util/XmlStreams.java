@@ -0,0 +1,152 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.util;
+
+import java.io.Reader;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Shared StAX factories and helpers for the SDMX-ML parsers.
+ * <p>
+ * The input factory is created and configured once, with DTDs and external entities disabled. Creating readers from
+ * a configured factory is thread safe.
+ */
+public final class XmlStreams
+{
+	private static final Logger				logger			= Configuration.getSdmxLogger();
+
+	private static final XMLInputFactory	INPUT_FACTORY	= createInputFactory();
+
+	private XmlStreams()
+	{
+	}
+
+	// https://www.owasp.org/index.php/XML_External_Entity_(XXE)_Prevention_Cheat_Sheet#XMLInputFactory_.28a_StAX_parser.29
+	private static XMLInputFactory createInputFactory()
+	{
+		XMLInputFactory factory = XMLInputFactory.newFactory();
+		if (factory.isPropertySupported(XMLInputFactory.SUPPORT_DTD))
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		if (factory.isPropertySupported(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES))
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
+	}
+
+	/**
+	 * @return The shared input factory. It must not be reconfigured.
+	 */
+	public static XMLInputFactory getInputFactory()
+	{
+		return INPUT_FACTORY;
+	}
+
+	/**
+	 * @param reader The characters of an XML document.
+	 * @return A cursor over the document.
+	 * @throws XMLStreamException if the reader cannot be created.
+	 */
+	public static XMLStreamReader createStreamReader(Reader reader) throws XMLStreamException
+	{
+		return INPUT_FACTORY.createXMLStreamReader(reader);
+	}
+
+	/**
+	 * @param reader The characters of an XML document.
+	 * @return An event reader over the document.
+	 * @throws XMLStreamException if the reader cannot be created.
+	 */
+	public static XMLEventReader createEventReader(Reader reader) throws XMLStreamException
+	{
+		return INPUT_FACTORY.createXMLEventReader(reader);
+	}
+
+	/**
+	 * Wraps a cursor in an event reader, for the parsers that still work on events.
+	 * 
+	 * @param reader The cursor.
+	 * @return An event reader that reads from the cursor.
+	 * @throws XMLStreamException if the reader cannot be created.
+	 */
+	public static XMLEventReader toEventReader(XMLStreamReader reader) throws XMLStreamException
+	{
+		return INPUT_FACTORY.createXMLEventReader(reader);
+	}
+
+	/**
+	 * Wraps an event reader in a cursor, for the callers of the event based parser methods. The events are read one at
+	 * a time while the cursor advances.
+	 * 
+	 * @param eventReader The event reader.
+	 * @return A cursor over the remaining events.
+	 * @throws XMLStreamException if the events cannot be read.
+	 */
+	public static XMLStreamReader toStreamReader(XMLEventReader eventReader) throws XMLStreamException
+	{
+		return new EventStreamReader(eventReader);
+	}
+
+	/**
+	 * Gets the name of an attribute of the current element in the form of {@link javax.xml.namespace.QName#toString()},
+	 * that is the local name when the attribute has no namespace, without allocating a QName in that case.
+	 * 
+	 * @param reader The cursor, positioned on a start element.
+	 * @param index The index of the attribute.
+	 * @return The name of the attribute.
+	 */
+	public static String getAttributeName(XMLStreamReader reader, int index)
+	{
+		String namespace = reader.getAttributeNamespace(index);
+		return namespace == null || namespace.isEmpty() ? reader.getAttributeLocalName(index)
+				: reader.getAttributeName(index).toString();
+	}
+
+	/**
+	 * Logs the current event at the FINEST level, building the message only if that level is enabled.
+	 * 
+	 * @param reader The cursor.
+	 */
+	public static void logEvent(XMLStreamReader reader)
+	{
+		if (!logger.isLoggable(Level.FINEST))
+			return;
+		switch (reader.getEventType())
+		{
+			case XMLStreamConstants.START_ELEMENT:
+				logger.finest("<" + reader.getLocalName() + ">");
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				logger.finest("</" + reader.getLocalName() + ">");
+				break;
+			case XMLStreamConstants.CHARACTERS:
+				logger.finest(reader.getText());
+				break;
+			default:
+				logger.finest("event " + reader.getEventType());
+		}
+	}
+}
@@ -0,0 +1,511 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+package it.bancaditalia.oss.sdmx.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Writes column-oriented tables to a SAS transport file, without SAS. Each table is a member of the file, made of
+ * character and numeric variables.
+ * <p>
+ * The version 5 format is read by the XPORT engine of SAS ({@code libname x xport "file"}): its member and variable
+ * names are at most 8 characters long and its character variables at most 200 bytes. The version 8 format, read by
+ * the {@code %xpt2loc} macro, allows names of 32 characters and values of 32767 bytes. Each id that is not a valid SAS
+ * name is changed into one, and kept as the label of its variable.
+ */
+public class XptWriter
+{
+	public static final int			V5				= 5;
+	public static final int			V8				= 8;
+
+	private static final Charset	ASCII			= Charset.forName("US-ASCII");
+	private static final Charset	UTF8			= Charset.forName("UTF-8");
+	private static final int		RECORD_LENGTH	= 80;
+	private static final int		NAMESTR_LENGTH	= 140;
+	private static final int		LABEL_LENGTH	= 40;
+	private static final int		BUFFER_SIZE		= 1 << 16;
+	// the SAS missing value '.'
+	private static final long		MISSING			= 0x2E00000000000000L;
+	private static final String		VERSION			= "9.4";
+	private static final String		SYSTEM			= "JAVA";
+
+	private final int				version;
+	private final List<Member>		members			= new ArrayList<>();
+	private Charset					charset			= UTF8;
+
+	private FileChannel				channel;
+	private ByteBuffer				buffer;
+
+	/**
+	 * A variable of a member: a column of character or numeric values.
+	 */
+	public abstract static class Variable
+	{
+		private final String	id;
+
+		private Variable(String id)
+		{
+			this.id = id;
+		}
+
+		abstract boolean isNumeric();
+
+		// the value of a row, encoded, or null if missing
+		abstract byte[] getBytes(int row, Charset charset);
+
+		double getValue(int row)
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private static class Member
+	{
+		final String		name;
+		final String		label;
+		final int			rows;
+		final Variable[]	variables;
+
+		Member(String name, String label, int rows, Variable[] variables)
+		{
+			this.name = name;
+			this.label = label;
+			this.rows = rows;
+			this.variables = variables;
+		}
+	}
+
+	private static class CharacterVariable extends Variable
+	{
+		final String[]	values;
+		// the last value encoded: runs of equal values are encoded once
+		String			last;
+		byte[]			encoded;
+
+		CharacterVariable(String id, String[] values)
+		{
+			super(id);
+			this.values = values;
+		}
+
+		@Override
+		boolean isNumeric()
+		{
+			return false;
+		}
+
+		@Override
+		byte[] getBytes(int row, Charset charset)
+		{
+			String value = values[row];
+			if (value == null)
+				return null;
+			if (value != last)
+			{
+				last = value;
+				encoded = value.getBytes(charset);
+			}
+			return encoded;
+		}
+	}
+
+	private static class CodedVariable extends Variable
+	{
+		final String[]	dictionary;
+		final int[]		indexes;
+		byte[][]		encoded;
+		Charset			charset;
+
+		CodedVariable(String id, String[] dictionary, int[] indexes)
+		{
+			super(id);
+			this.dictionary = dictionary;
+			this.indexes = indexes;
+		}
+
+		@Override
+		boolean isNumeric()
+		{
+			return false;
+		}
+
+		@Override
+		byte[] getBytes(int row, Charset charset)
+		{
+			if (encoded == null || this.charset != charset)
+			{
+				this.charset = charset;
+				encoded = new byte[dictionary.length][];
+				for (int i = 0; i < dictionary.length; i++)
+					encoded[i] = dictionary[i] == null ? null : dictionary[i].getBytes(charset);
+			}
+			return encoded[indexes[row]];
+		}
+	}
+
+	private static class NumericVariable extends Variable
+	{
+		final double[]	values;
+
+		NumericVariable(String id, double[] values)
+		{
+			super(id);
+			this.values = values;
+		}
+
+		@Override
+		boolean isNumeric()
+		{
+			return true;
+		}
+
+		@Override
+		byte[] getBytes(int row, Charset charset)
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		double getValue(int row)
+		{
+			return values[row];
+		}
+	}
+
+	/**
+	 * @param version the format of the file, {@link #V5} or {@link #V8}
+	 */
+	public XptWriter(int version)
+	{
+		if (version != V5 && version != V8)
+			throw new IllegalArgumentException("Unsupported SAS transport version: " + version);
+		this.version = version;
+	}
+
+	/**
+	 * @param charset the encoding of the character values, that of the SAS session reading the file (UTF-8 by default)
+	 * @return this writer
+	 */
+	public XptWriter setCharset(Charset charset)
+	{
+		this.charset = charset;
+		return this;
+	}
+
+	/**
+	 * Adds a member to the file. The columns of the variables are read by {@link #write(File)}.
+	 *
+	 * @param name the name of the member
+	 * @param label the label of the member, truncated to 40 characters
+	 * @param rows the number of rows, read from the start of each column
+	 * @param variables the variables of the member
+	 * @return this writer
+	 */
+	public XptWriter addMember(String name, String label, int rows, Variable... variables)
+	{
+		if (variables.length == 0 || variables.length > 9999)
+			throw new IllegalArgumentException("A member must have between 1 and 9999 variables: " + variables.length);
+		members.add(new Member(name, label == null ? "" : label, rows, variables));
+		return this;
+	}
+
+	/**
+	 * @return a character variable
+	 */
+	public static Variable character(String id, String[] values)
+	{
+		return new CharacterVariable(id, values);
+	}
+
+	/**
+	 * @param dictionary the distinct values of the variable
+	 * @param indexes the index in the dictionary of the value of each row
+	 * @return a character variable whose values are stored as indexes
+	 */
+	public static Variable character(String id, String[] dictionary, int[] indexes)
+	{
+		return new CodedVariable(id, dictionary, indexes);
+	}
+
+	/**
+	 * @return a numeric variable: NaN is written as the SAS missing value
+	 */
+	public static Variable numeric(String id, double[] values)
+	{
+		return new NumericVariable(id, values);
+	}
+
+	/**
+	 * Writes the members to a file, replacing it.
+	 */
+	public void write(File file) throws IOException
+	{
+		String now = new SimpleDateFormat("ddMMMyy:HH:mm:ss", Locale.ENGLISH).format(new Date()).toUpperCase(Locale.ROOT);
+		try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			channel = out;
+			buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+			putHeader(version == V5 ? "LIBRARY" : "LIBV8", "000000000000000000000000000000");
+			putText("SAS", 8);
+			putText("SAS", 8);
+			putText("SASLIB", 8);
+			putText(VERSION, 8);
+			putText(SYSTEM, 8);
+			putText("", 24);
+			putText(now, 16);
+			putText(now, RECORD_LENGTH);
+
+			Set<String> memberNames = new HashSet<>();
+			for (Member member : members)
+				writeMember(member, toSasName(member.name, version == V5 ? 8 : 32, memberNames), now);
+			flush();
+		}
+		finally
+		{
+			channel = null;
+			buffer = null;
+		}
+	}
+
+	private void writeMember(Member member, String name, String now) throws IOException
+	{
+		Variable[] variables = member.variables;
+		int[] lengths = new int[variables.length];
+		for (int v = 0; v < variables.length; v++)
+			lengths[v] = variables[v].isNumeric() ? 8 : width(variables[v], member.rows);
+
+		putHeader(version == V5 ? "MEMBER" : "MEMBV8", "000000000000000001600000000" + NAMESTR_LENGTH);
+		putHeader(version == V5 ? "DSCRPTR" : "DSCPTV8", "000000000000000000000000000000");
+		putText("SAS", 8);
+		putText(name, version == V5 ? 8 : 32);
+		putText("SASDATA", 8);
+		putText(VERSION, 8);
+		putText(SYSTEM, 8);
+		if (version == V5)
+			putText("", 24);
+		putText(now, 16);
+		putText(now, 16);
+		putText("", 16);
+		putText(truncate(member.label, LABEL_LENGTH), LABEL_LENGTH);
+		putText("", 8);
+
+		putHeader(version == V5 ? "NAMESTR" : "NAMSTV8", String.format(Locale.ROOT, "000000%04d00000000000000000000", variables.length));
+		Set<String> names = new HashSet<>();
+		int position = 0;
+		for (int v = 0; v < variables.length; v++)
+		{
+			String id = variables[v].id;
+			String variable = toSasName(id, version == V5 ? 8 : 32, names);
+			String label = variable.equals(id) ? "" : truncate(id, LABEL_LENGTH);
+			reserve(NAMESTR_LENGTH);
+			buffer.putShort((short) (variables[v].isNumeric() ? 1 : 2));
+			buffer.putShort((short) 0);
+			buffer.putShort((short) lengths[v]);
+			buffer.putShort((short) (v + 1));
+			putText(truncate(variable, 8), 8);
+			putText(label, LABEL_LENGTH);
+			putText("", 8);
+			buffer.putShort((short) 0).putShort((short) 0).putShort((short) 0).putShort((short) 0);
+			putText("", 8);
+			buffer.putShort((short) 0).putShort((short) 0);
+			buffer.putInt(position);
+			if (version == V8)
+			{
+				putText(variable, 32);
+				buffer.putShort((short) label.length());
+				putZeros(18);
+			}
+			else
+				putZeros(52);
+			position += lengths[v];
+		}
+		pad((long) variables.length * NAMESTR_LENGTH);
+
+		putHeader(version == V5 ? "OBS" : "OBSV8", "000000000000000000000000000000");
+		for (int row = 0; row < member.rows; row++)
+			for (int v = 0; v < variables.length; v++)
+				if (variables[v].isNumeric())
+					reserve(8).putLong(toIbm(variables[v].getValue(row)));
+				else
+					putBytes(variables[v].getBytes(row, charset), lengths[v]);
+		pad((long) member.rows * position);
+	}
+
+	// the length in bytes of the longest value, at least 1 and at most the longest allowed by the version
+	private int width(Variable variable, int rows)
+	{
+		int max = version == V5 ? 200 : 32767;
+		int width = 1;
+		byte[] last = null;
+		for (int row = 0; row < rows && width < max; row++)
+		{
+			byte[] bytes = variable.getBytes(row, charset);
+			if (bytes != null && bytes != last)
+			{
+				last = bytes;
+				width = Math.max(width, Math.min(bytes.length, max));
+			}
+		}
+		return width;
+	}
+
+	/**
+	 * Converts a double into the 8 bytes IBM floating point number used by the transport files: a sign bit, a base 16
+	 * exponent biased by 64 in 7 bits and a 56 bits fraction. NaN and the values out of range are written as missing,
+	 * those too small as 0.
+	 */
+	public static long toIbm(double value)
+	{
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			return MISSING;
+		long bits = Double.doubleToLongBits(value);
+		long sign = bits & 0x8000000000000000L;
+		int exponent = (int) (bits >>> 52) & 0x7FF;
+		// subnormal doubles are below the IBM range
+		if (exponent == 0)
+			return 0;
+
+		// value = fraction * 2^(exponent - 1075), with the 53 bits fraction shifted to a multiple of 4 bits
+		long fraction = bits & 0xFFFFFFFFFFFFFL | 0x10000000000000L;
+		int power = exponent - 1075 + 56;
+		int shift = (power % 4 + 4) % 4;
+		int ibmExponent = (power - shift) / 4 + 64;
+		if (ibmExponent > 127)
+			return MISSING;
+		if (ibmExponent < 0)
+			return 0;
+		return sign | (long) ibmExponent << 56 | fraction << shift;
+	}
+
+	/**
+	 * Changes an id into a valid and unique SAS name: letters, digits and underscores in upper case, not starting with
+	 * a digit.
+	 *
+	 * @param id an id
+	 * @param length the longest name
+	 * @param used the names already used, where the new one is added
+	 * @return the name
+	 */
+	public static String toSasName(String id, int length, Set<String> used)
+	{
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < id.length() && name.length() < length; i++)
+		{
+			char c = Character.toUpperCase(id.charAt(i));
+			name.append(c < 0x80 && (Character.isLetterOrDigit(c) || c == '_') ? c : '_');
+		}
+		if (name.length() == 0 || Character.isDigit(name.charAt(0)))
+			name.insert(0, '_');
+		name.setLength(Math.min(name.length(), length));
+
+		String base = name.toString();
+		for (int suffix = 2; used.contains(name.toString()); suffix++)
+		{
+			String end = Integer.toString(suffix);
+			name.setLength(0);
+			name.append(base, 0, Math.min(base.length(), length - end.length())).append(end);
+		}
+		used.add(name.toString());
+		return name.toString();
+	}
+
+	private static String truncate(String text, int length)
+	{
+		return text.length() > length ? text.substring(0, length) : text;
+	}
+
+	private void putHeader(String type, String numbers) throws IOException
+	{
+		putText(String.format(Locale.ROOT, "HEADER RECORD*******%-8sHEADER RECORD!!!!!!!%s", type, numbers), RECORD_LENGTH);
+	}
+
+	private void putText(String text, int width) throws IOException
+	{
+		byte[] bytes = text.getBytes(ASCII);
+		reserve(width).put(bytes, 0, Math.min(bytes.length, width));
+		for (int i = bytes.length; i < width; i++)
+			buffer.put((byte) ' ');
+	}
+
+	// puts the bytes truncated or padded with blanks to the width, without splitting a UTF-8 character
+	private void putBytes(byte[] bytes, int width) throws IOException
+	{
+		int length = bytes == null ? 0 : Math.min(bytes.length, width);
+		if (bytes != null && length < bytes.length && UTF8.equals(charset))
+			while (length > 0 && (bytes[length] & 0xC0) == 0x80)
+				length--;
+		for (int offset = 0; offset < width;)
+		{
+			ByteBuffer out = reserve(1);
+			int chunk = Math.min(width - offset, out.remaining());
+			int copied = Math.max(Math.min(length - offset, chunk), 0);
+			if (copied > 0)
+				out.put(bytes, offset, copied);
+			for (int i = copied; i < chunk; i++)
+				out.put((byte) ' ');
+			offset += chunk;
+		}
+	}
+
+	private void putZeros(int count)
+	{
+		for (int i = 0; i < count; i++)
+			buffer.put((byte) 0);
+	}
+
+	// pads a section of the given length with blanks to a whole number of records
+	private void pad(long length) throws IOException
+	{
+		int blanks = (int) ((RECORD_LENGTH - length % RECORD_LENGTH) % RECORD_LENGTH);
+		reserve(blanks);
+		for (int i = 0; i < blanks; i++)
+			buffer.put((byte) ' ');
+	}
+
+	private ByteBuffer reserve(int bytes) throws IOException
+	{
+		if (buffer.remaining() < bytes)
+			flush();
+		return buffer;
+	}
+
+	private void flush() throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+}
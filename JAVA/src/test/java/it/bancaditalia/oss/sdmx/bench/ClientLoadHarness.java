@@ -0,0 +1,194 @@
+package it.bancaditalia.oss.sdmx.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.client.SdmxClientHandler;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.util.Configuration;
+import it.bancaditalia.oss.sdmx.util.SdmxGenerator;
+
+/**
+ * Drives {@link SdmxClientHandler} with concurrent data queries against a {@link SdmxStubServer}, and reports the
+ * latency percentiles and the throughput. The messages are generated in a temporary directory, unless one is given.
+ * Options (default):
+ * <ul>
+ * <li>-t threads (8), -r requests per thread (50), -k distinct series keys queried (1)</li>
+ * <li>-n series (100), -o observations per series (100) of the generated data</li>
+ * <li>-l latency ms (0), -j jitter ms (0), -b bandwidth KB/s (unlimited), -z gzip (true)</li>
+ * <li>-e error rate (0), -d fixtures directory, -p property=value of the connector configuration, repeatable</li>
+ * </ul>
+ * For instance {@code -p http.cache=true -k 1} measures the HTTP cache of the connector against a slow provider.
+ */
+public class ClientLoadHarness
+{
+	private static final String	PROVIDER	= "STUB";
+
+	public static void main(String[] args) throws Exception
+	{
+		int threads = 8, requests = 50, keys = 1, series = 100, observations = 100, latency = 0, jitter = 0;
+		long bandwidth = 0;
+		boolean gzip = true;
+		double errorRate = 0;
+		File directory = null;
+
+		List<String> params = new ArrayList<>(Arrays.asList(args));
+		while (params.size() > 1 && params.get(0).matches("-[trknoljbzedp]"))
+		{
+			String option = params.remove(0);
+			String value = params.remove(0);
+			switch (option.charAt(1))
+			{
+				case 't':
+					threads = Integer.parseInt(value);
+					break;
+				case 'r':
+					requests = Integer.parseInt(value);
+					break;
+				case 'k':
+					keys = Integer.parseInt(value);
+					break;
+				case 'n':
+					series = Integer.parseInt(value);
+					break;
+				case 'o':
+					observations = Integer.parseInt(value);
+					break;
+				case 'l':
+					latency = Integer.parseInt(value);
+					break;
+				case 'j':
+					jitter = Integer.parseInt(value);
+					break;
+				case 'b':
+					bandwidth = Long.parseLong(value) * 1024;
+					break;
+				case 'z':
+					gzip = Boolean.parseBoolean(value);
+					break;
+				case 'e':
+					errorRate = Double.parseDouble(value);
+					break;
+				case 'd':
+					directory = new File(value);
+					break;
+				default:
+					String[] property = value.split("=", 2);
+					Configuration.getConfiguration().setProperty(property[0], property[1]);
+			}
+		}
+
+		SdmxGenerator generator = new SdmxGenerator().setSeries(series).setObservations(observations);
+		if (directory == null)
+		{
+			directory = Files.createTempDirectory("sdmx-stub").toFile();
+			generator.writeFiles(directory);
+		}
+
+		SdmxStubServer server = new SdmxStubServer(directory).setThreads(threads).setLatency(latency, jitter)
+				.setBandwidth(bandwidth).setGzip(gzip).setErrors(errorRate, 503).start();
+		try
+		{
+			SdmxClientHandler.addProvider(PROVIDER, server.getEndpoint().toString(), false, false, gzip, "Stub provider");
+			// the dataflow and the data structure are fetched once, and cached by the handler
+			for (int attempt = 1;; attempt++)
+				try
+				{
+					query(generator.getDataflow(), 0);
+					break;
+				}
+				catch (SdmxException e)
+				{
+					// an injected error
+					if (attempt == 10)
+						throw e;
+				}
+
+			long[] latencies = run(generator.getDataflow(), threads, requests, keys);
+			report(latencies, threads, server);
+		}
+		finally
+		{
+			server.stop();
+		}
+	}
+
+	private static long[] run(final String dataflow, int threads, final int requests, final int keys) throws Exception
+	{
+		final long[] latencies = new long[threads * requests];
+		final AtomicLong failed = new AtomicLong();
+		final AtomicLong observations = new AtomicLong();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Void>> futures = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int t = 0; t < threads; t++)
+		{
+			final int thread = t;
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call()
+				{
+					for (int r = 0; r < requests; r++)
+					{
+						int index = thread * requests + r;
+						long begin = System.nanoTime();
+						try
+						{
+							observations.addAndGet(query(dataflow, index % keys));
+						}
+						catch (SdmxException e)
+						{
+							failed.incrementAndGet();
+						}
+						latencies[index] = System.nanoTime() - begin;
+					}
+					return null;
+				}
+			}));
+		}
+		for (Future<Void> future : futures)
+			future.get();
+		long elapsed = System.nanoTime() - start;
+		executor.shutdown();
+
+		System.out.printf("%d requests in %.2f s: %.1f requests/s, %.0f observations/s, %d failed%n", latencies.length,
+				elapsed / 1e9, latencies.length / (elapsed / 1e9), observations.get() / (elapsed / 1e9), failed.get());
+		return latencies;
+	}
+
+	private static long query(String dataflow, int key) throws SdmxException
+	{
+		// the stub answers any key with the whole dataset, but distinct keys are distinct queries for the client
+		List<PortableTimeSeries<Double>> result = SdmxClientHandler.getTimeSeries(PROVIDER,
+				dataflow + "/" + (key == 0 ? SdmxGenerator.ALL_KEYS : "A..S" + key), null, null);
+		long observations = 0;
+		for (PortableTimeSeries<Double> ts : result)
+			observations += ts.size();
+		return observations;
+	}
+
+	private static void report(long[] latencies, int threads, SdmxStubServer server)
+	{
+		Arrays.sort(latencies);
+		System.out.printf("latency ms: p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n", percentile(latencies, 50),
+				percentile(latencies, 90), percentile(latencies, 99), latencies[latencies.length - 1] / 1e6);
+		System.out.printf("server: %d requests, %d injected errors, %d KB sent%n", server.getRequestCount(),
+				server.getErrorCount(), server.getBytesSent() / 1024);
+	}
+
+	// nearest rank percentile of sorted nanoseconds, in milliseconds
+	static double percentile(long[] sorted, double percentile)
+	{
+		int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+		return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)] / 1e6;
+	}
+}
@@ -0,0 +1,356 @@
+package it.bancaditalia.oss.sdmx.bench;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import it.bancaditalia.oss.sdmx.util.SdmxThreadFactory;
+
+/**
+ * An SDMX 2.1 REST endpoint on the JDK HTTP server, answering from a directory in the layout of the FILE provider, as
+ * written by {@code SdmxGenerator.writeFiles}. Files may also be stored gzipped, with a {@code .gz} suffix.
+ * <ul>
+ * <li>{@code /dataflow/...} returns {@code dataflow_<id>.xml}, or {@code dataflow_all.xml}</li>
+ * <li>{@code /datastructure/<agency>/<id>/...} returns {@code datastructure_<id>.xml}</li>
+ * <li>{@code /codelist/<agency>/<id>/...} returns {@code codelist_<id>.xml}</li>
+ * <li>{@code /data/<flow>/<key>} returns {@code data_<flow id>_<key>.xml}, or {@code data_<flow id>_all.xml} for any
+ * other key</li>
+ * </ul>
+ * Every response can be delayed, throttled, compressed when the client accepts gzip, or replaced by an error. Responses
+ * carry an ETag and honour If-None-Match, so that the HTTP cache of the client can be exercised too.
+ */
+public class SdmxStubServer implements HttpHandler
+{
+	private final File			directory;
+	private final Random		random			= new Random(42);
+	private final AtomicLong	requests		= new AtomicLong();
+	private final AtomicLong	errors			= new AtomicLong();
+	private final AtomicLong	bytes			= new AtomicLong();
+
+	private int					port			= 0;
+	private int					threads			= 16;
+	// the behaviour can be changed while the server runs
+	private volatile int		latency			= 0;
+	private volatile int		jitter			= 0;
+	private volatile long		bandwidth		= 0;
+	private volatile boolean	gzip			= true;
+	private volatile double		errorRate		= 0;
+	private volatile int		errorCode		= 503;
+
+	private HttpServer			server;
+	private ExecutorService		executor;
+
+	public SdmxStubServer(File directory)
+	{
+		this.directory = directory;
+	}
+
+	/**
+	 * @param port the port to listen to, on the loopback interface. 0, the default, picks a free port.
+	 */
+	public SdmxStubServer setPort(int port)
+	{
+		this.port = port;
+		return this;
+	}
+
+	/**
+	 * @param threads the number of requests served at the same time
+	 */
+	public SdmxStubServer setThreads(int threads)
+	{
+		this.threads = threads;
+		return this;
+	}
+
+	/**
+	 * @param latency the milliseconds waited before answering
+	 * @param jitter up to as many milliseconds added at random to the latency
+	 */
+	public SdmxStubServer setLatency(int latency, int jitter)
+	{
+		this.latency = latency;
+		this.jitter = jitter;
+		return this;
+	}
+
+	/**
+	 * @param bandwidth the bytes per second sent on each response, or 0 for no limit
+	 */
+	public SdmxStubServer setBandwidth(long bandwidth)
+	{
+		this.bandwidth = bandwidth;
+		return this;
+	}
+
+	/**
+	 * @param gzip whether the responses are compressed for clients that accept it
+	 */
+	public SdmxStubServer setGzip(boolean gzip)
+	{
+		this.gzip = gzip;
+		return this;
+	}
+
+	/**
+	 * @param errorRate the probability of answering a request with an error
+	 * @param errorCode the HTTP status of the errors
+	 */
+	public SdmxStubServer setErrors(double errorRate, int errorCode)
+	{
+		this.errorRate = errorRate;
+		this.errorCode = errorCode;
+		return this;
+	}
+
+	public SdmxStubServer start() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		executor = Executors.newFixedThreadPool(threads, new SdmxThreadFactory("stub"));
+		server.setExecutor(executor);
+		server.createContext("/", this);
+		server.start();
+		return this;
+	}
+
+	public void stop()
+	{
+		if (server != null)
+			server.stop(0);
+		if (executor != null)
+			executor.shutdownNow();
+	}
+
+	public URI getEndpoint()
+	{
+		return URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+	}
+
+	public long getRequestCount()
+	{
+		return requests.get();
+	}
+
+	public long getErrorCount()
+	{
+		return errors.get();
+	}
+
+	/**
+	 * @return the bytes sent in response bodies, after compression
+	 */
+	public long getBytesSent()
+	{
+		return bytes.get();
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException
+	{
+		requests.incrementAndGet();
+		try
+		{
+			boolean error;
+			int delay = latency;
+			synchronized (random)
+			{
+				error = errorRate > 0 && random.nextDouble() < errorRate;
+				if (jitter > 0)
+					delay += random.nextInt(jitter + 1);
+			}
+			if (delay > 0)
+				Thread.sleep(delay);
+
+			File file = "GET".equals(exchange.getRequestMethod()) ? resolve(exchange.getRequestURI().getPath()) : null;
+			if (error)
+			{
+				errors.incrementAndGet();
+				sendText(exchange, errorCode, "Injected error");
+			}
+			else if (!"GET".equals(exchange.getRequestMethod()))
+				sendText(exchange, 405, "Method not allowed");
+			else if (file == null)
+				sendText(exchange, 404, "No Results Found");
+			else
+				sendFile(exchange, file);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to answer");
+		}
+		finally
+		{
+			exchange.close();
+		}
+	}
+
+	// maps a REST path to a file of the directory, or null if there is none
+	private File resolve(String path)
+	{
+		String[] parts = path.replaceFirst("^/+", "").split("/");
+		String resource = parts[0];
+		if (resource.equals("dataflow"))
+		{
+			File file = parts.length > 2 ? find("dataflow_" + parts[2]) : null;
+			return file != null ? file : find("dataflow_all");
+		}
+		else if (parts.length < 3)
+			return null;
+		else if (resource.equals("datastructure") || resource.equals("codelist"))
+			return find(resource + "_" + parts[2]);
+		else if (resource.equals("data"))
+		{
+			// the flow is usually AGENCY,ID,VERSION
+			String[] flow = parts[1].split(",");
+			String id = flow.length == 3 ? flow[1] : flow[0];
+			File file = find("data_" + id + "_" + parts[2]);
+			return file != null ? file : find("data_" + id + "_all");
+		}
+		return null;
+	}
+
+	private File find(String name)
+	{
+		for (String candidate : new String[] { name + ".xml", name + ".xml.gz" })
+		{
+			File file = new File(directory, candidate);
+			if (file.isFile())
+				return file;
+		}
+		return null;
+	}
+
+	private void sendFile(HttpExchange exchange, File file) throws IOException
+	{
+		String etag = "\"" + Long.toHexString(file.lastModified()) + "-" + Long.toHexString(file.length()) + "\"";
+		exchange.getResponseHeaders().set("ETag", etag);
+		exchange.getResponseHeaders().set("Last-Modified", httpDate(file.lastModified()));
+		if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match")))
+		{
+			exchange.sendResponseHeaders(304, -1);
+			return;
+		}
+
+		String name = file.getName();
+		boolean zipped = name.endsWith(".gz");
+		String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+		boolean compress = gzip && accept != null && accept.contains("gzip");
+		exchange.getResponseHeaders().set("Content-Type", name.startsWith("data_")
+				? "application/vnd.sdmx.structurespecificdata+xml;version=2.1" : "application/vnd.sdmx.structure+xml;version=2.1");
+		if (compress)
+			exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+		// stored gzipped files are sent as they are to clients that accept gzip
+		exchange.sendResponseHeaders(200, compress == zipped ? file.length() : 0);
+
+		OutputStream out = new CountingOutputStream(exchange.getResponseBody(), bandwidth);
+		try (InputStream in = zipped && !compress ? new GZIPInputStream(new FileInputStream(file), 1 << 16)
+				: new FileInputStream(file))
+		{
+			if (compress && !zipped)
+				out = new GZIPOutputStream(out, 1 << 16);
+			byte[] buffer = new byte[1 << 16];
+			for (int read = in.read(buffer); read >= 0; read = in.read(buffer))
+				out.write(buffer, 0, read);
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	private static void sendText(HttpExchange exchange, int code, String text) throws IOException
+	{
+		byte[] body = text.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(code, body.length);
+		try (OutputStream out = exchange.getResponseBody())
+		{
+			out.write(body);
+		}
+	}
+
+	private static String httpDate(long time)
+	{
+		SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		return format.format(new Date(time));
+	}
+
+	/**
+	 * Counts the bytes sent and, if a bandwidth is set, sleeps as long as needed to keep the rate below it.
+	 */
+	private class CountingOutputStream extends FilterOutputStream
+	{
+		private static final int	CHUNK	= 8192;
+
+		private final long			bandwidth;
+		private final long			start	= System.nanoTime();
+		private long				sent	= 0;
+
+		private CountingOutputStream(OutputStream out, long bandwidth)
+		{
+			super(out);
+			this.bandwidth = bandwidth;
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			for (int chunk; len > 0; off += chunk, len -= chunk)
+			{
+				chunk = Math.min(len, CHUNK);
+				out.write(b, off, chunk);
+				sent += chunk;
+				bytes.addAndGet(chunk);
+				throttle();
+			}
+		}
+
+		private void throttle() throws InterruptedIOException
+		{
+			if (bandwidth <= 0)
+				return;
+			long due = start + sent * 1000000000L / bandwidth;
+			long wait = due - System.nanoTime();
+			if (wait > 0)
+				try
+				{
+					Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while throttling");
+				}
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
+import it.bancaditalia.oss.sdmx.api.Dataflow;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.bench.SdmxStubServer;
+import it.bancaditalia.oss.sdmx.client.RestSdmxClient;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.util.Configuration;
+import it.bancaditalia.oss.sdmx.util.SdmxGenerator;
+
+public class AsyncSDMXClientTest
+{
+	@Rule
+	public TemporaryFolder	folder	= new TemporaryFolder();
+
+	private SdmxStubServer	server;
+	private RestSdmxClient	client;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		File directory = folder.newFolder();
+		new SdmxGenerator().setSeries(3).setObservations(10).writeFiles(directory);
+		server = new SdmxStubServer(directory).setThreads(2).start();
+		client = new RestSdmxClient("ASYNC_TEST", server.getEndpoint(), false, false, true);
+	}
+
+	@After
+	public void tearDown()
+	{
+		server.stop();
+	}
+
+	@Test
+	public void testResult() throws Exception
+	{
+		Map<String, Dataflow> expected = client.getDataflows();
+		Map<String, Dataflow> dataflows = client.getDataflowsAsync().get(10, TimeUnit.SECONDS);
+		Assert.assertFalse(dataflows.isEmpty());
+		Assert.assertEquals(expected.keySet(), dataflows.keySet());
+		for (String id : expected.keySet())
+			Assert.assertEquals(expected.get(id).getDescription(), dataflows.get(id).getDescription());
+	}
+
+	@Test
+	public void testException() throws Exception
+	{
+		try
+		{
+			client.getCodesAsync("CL_MISSING", "BENCH", "1.0").get(10, TimeUnit.SECONDS);
+			Assert.fail("A missing codelist must fail");
+		}
+		catch (ExecutionException e)
+		{
+			Assert.assertTrue(e.getCause().toString(), e.getCause() instanceof SdmxException);
+		}
+	}
+
+	@Test
+	public void testExecutor() throws Exception
+	{
+		final AtomicInteger tasks = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>()) {
+			@Override
+			protected void beforeExecute(Thread t, Runnable r)
+			{
+				tasks.incrementAndGet();
+			}
+		};
+		try
+		{
+			client.setExecutor(executor);
+			Assert.assertSame(executor, client.getExecutor());
+			Assert.assertFalse(client.getDataflowsAsync().get(10, TimeUnit.SECONDS).isEmpty());
+			Assert.assertEquals(1, tasks.get());
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testChunkedQueryOnSingleThread() throws Exception
+	{
+		// the task waiting for the time windows must not hold the only thread they could run on
+		ExecutorService executor = Executors.newFixedThreadPool(1);
+		Configuration.getConfiguration().setProperty("ASYNC_TEST.chunk.periods", "2");
+		try
+		{
+			client.setExecutor(executor);
+			Dataflow dataflow = client.getDataflows().values().iterator().next();
+			DataFlowStructure dsd = client.getDataFlowStructure(dataflow.getDsdIdentifier(), true);
+			List<PortableTimeSeries<Double>> series = client
+					.getTimeSeriesAsync(dataflow, dsd, "A..", "1900", "1909", false, null, false).get(10, TimeUnit.SECONDS);
+			Assert.assertEquals(3, series.size());
+		}
+		finally
+		{
+			Configuration.getConfiguration().remove("ASYNC_TEST.chunk.periods");
+			executor.shutdownNow();
+		}
+	}
+}
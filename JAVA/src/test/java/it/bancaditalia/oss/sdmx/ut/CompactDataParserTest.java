@@ -0,0 +1,171 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import it.bancaditalia.oss.sdmx.api.BaseObservation;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.api.SeriesHandler;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.parser.v21.CompactDataParser;
+import it.bancaditalia.oss.sdmx.parser.v21.DataParsingResult;
+import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
+import it.bancaditalia.oss.sdmx.util.XmlStreams;
+
+public class CompactDataParserTest
+{
+	private static final String	XML	= "<message:StructureSpecificData xmlns:message=\"http://www.sdmx.org/resources/sdmxml/schemas/v2_1/message\">"
+			+ "<message:DataSet>"
+			+ "<Series FREQ=\"A\" CURRENCY=\"USD\">"
+			+ "<Obs TIME_PERIOD=\"2001\" OBS_VALUE=\"1.5\"/>"
+			+ "<Obs TIME_PERIOD=\"2000\" OBS_VALUE=\"1.25\"/>"
+			+ "</Series>"
+			+ "<Series FREQ=\"A\" CURRENCY=\"GBP\">"
+			+ "<Obs TIME_PERIOD=\"2000\" OBS_VALUE=\"0.75\"/>"
+			+ "</Series>"
+			+ "</message:DataSet></message:StructureSpecificData>";
+
+	@Test
+	public void testSorted() throws XMLStreamException, SdmxException
+	{
+		DataParsingResult result = parse(null);
+
+		Assert.assertEquals(2, result.size());
+		Assert.assertEquals(Arrays.asList("2000", "2001"), timeslots(result.get(0)));
+	}
+
+	@Test
+	public void testChunksSorted() throws XMLStreamException, SdmxException
+	{
+		// the observations of a series split in chunks are sorted once merged
+		String xml = "<message:StructureSpecificData xmlns:message=\"http://www.sdmx.org/resources/sdmxml/schemas/v2_1/message\">"
+				+ "<message:DataSet>"
+				+ "<Series FREQ=\"A\" CURRENCY=\"USD\"><Obs TIME_PERIOD=\"2002\" OBS_VALUE=\"3\"/><Obs TIME_PERIOD=\"2000\" OBS_VALUE=\"1\"/></Series>"
+				+ "<Series FREQ=\"A\" CURRENCY=\"GBP\"><Obs TIME_PERIOD=\"2001\" OBS_VALUE=\"5\"/></Series>"
+				+ "<Series FREQ=\"A\" CURRENCY=\"USD\"><Obs TIME_PERIOD=\"2001\" OBS_VALUE=\"2\"/></Series>"
+				+ "</message:DataSet></message:StructureSpecificData>";
+		DataParsingResult cursor = parser(null).parse(XmlStreams.createStreamReader(new StringReader(xml)),
+				LanguagePriorityList.ANY);
+		DataParsingResult events = parser(null).parse(XmlStreams.createEventReader(new StringReader(xml)),
+				LanguagePriorityList.ANY);
+
+		for (DataParsingResult result : Arrays.asList(cursor, events))
+		{
+			Assert.assertEquals(2, result.size());
+			Assert.assertEquals(Arrays.asList("2000", "2001", "2002"), timeslots(result.get(0)));
+			Assert.assertEquals(1.0, result.get(0).get(0).getValueAsDouble(), 0.0);
+			Assert.assertEquals(3.0, result.get(0).get(2).getValueAsDouble(), 0.0);
+		}
+	}
+
+	@Test
+	public void testSeriesHandler() throws XMLStreamException, SdmxException
+	{
+		final List<PortableTimeSeries<Double>> received = new ArrayList<>();
+		DataParsingResult result = parse(new SeriesHandler() {
+			@Override
+			public void onSeries(PortableTimeSeries<Double> series)
+			{
+				received.add(series);
+			}
+		});
+
+		Assert.assertTrue(result.isEmpty());
+		Assert.assertEquals(2, received.size());
+		Assert.assertEquals("EXR.A.USD", received.get(0).getName());
+		Assert.assertEquals(Arrays.asList("2000", "2001"), timeslots(received.get(0)));
+		Assert.assertEquals("EXR.A.GBP", received.get(1).getName());
+	}
+
+	@Test
+	public void testSeriesHandlerChunks() throws XMLStreamException, SdmxException
+	{
+		String xml = "<message:StructureSpecificData xmlns:message=\"http://www.sdmx.org/resources/sdmxml/schemas/v2_1/message\">"
+				+ "<message:DataSet>"
+				+ "<Series FREQ=\"A\" CURRENCY=\"USD\"><Obs TIME_PERIOD=\"2001\" OBS_VALUE=\"1.5\"/></Series>"
+				+ "<Series FREQ=\"A\" CURRENCY=\"USD\"><Obs TIME_PERIOD=\"2000\" OBS_VALUE=\"1.25\"/></Series>"
+				+ "<Series FREQ=\"A\" CURRENCY=\"GBP\"><Obs TIME_PERIOD=\"2000\" OBS_VALUE=\"0.75\"/></Series>"
+				+ "<Series FREQ=\"A\" CURRENCY=\"GBP\"/>"
+				+ "</message:DataSet></message:StructureSpecificData>";
+		final List<PortableTimeSeries<Double>> received = new ArrayList<>();
+		parser(new SeriesHandler() {
+			@Override
+			public void onSeries(PortableTimeSeries<Double> series)
+			{
+				received.add(series);
+			}
+		}).parse(XmlStreams.createStreamReader(new StringReader(xml)), LanguagePriorityList.ANY);
+
+		Assert.assertEquals(2, received.size());
+		Assert.assertEquals("EXR.A.USD", received.get(0).getName());
+		Assert.assertEquals(Arrays.asList("2000", "2001"), timeslots(received.get(0)));
+		Assert.assertEquals("EXR.A.GBP", received.get(1).getName());
+		Assert.assertEquals(Arrays.asList("2000"), timeslots(received.get(1)));
+	}
+
+	@Test
+	public void testCursorReader() throws XMLStreamException, SdmxException
+	{
+		String xml = "<message:StructureSpecificData xmlns:message=\"http://www.sdmx.org/resources/sdmxml/schemas/v2_1/message\""
+				+ " xmlns:common=\"http://www.sdmx.org/resources/sdmxml/schemas/v2_1/common\">"
+				+ "<message:DataSet action=\"Replace\">"
+				+ "<Series FREQ=\"A\" CURRENCY=\"USD\" TITLE=\"Dollar\">"
+				+ "<Obs TIME=\"2001\" OBS_VALUE=\"1.5\" OBS_STATUS=\"E\"/>"
+				+ "<Obs TIME_PERIOD=\"2000\" OBS_VALUE=\"x\" OBS_STATUS=\"A\" OBS_CONF=\"F\"/>"
+				+ "</Series>"
+				+ "</message:DataSet>"
+				+ "<message:Footer><footer:Message xmlns:footer=\"http://www.sdmx.org/resources/sdmxml/schemas/v2_1/message/footer\" code=\"413\" severity=\"Information\">"
+				+ "<common:Text xml:lang=\"en\">Truncated</common:Text></footer:Message></message:Footer>"
+				+ "</message:StructureSpecificData>";
+
+		DataParsingResult cursor = parser(null).parse(XmlStreams.createStreamReader(new StringReader(xml)),
+				LanguagePriorityList.ANY);
+		DataParsingResult events = parser(null).parse(XmlStreams.createEventReader(new StringReader(xml)),
+				LanguagePriorityList.ANY);
+
+		PortableTimeSeries<Double> ts = cursor.get(0);
+		Assert.assertEquals("EXR.A.USD", ts.getName());
+		Assert.assertEquals("Replace", ts.getAttribute("action"));
+		Assert.assertEquals("Dollar", ts.getAttribute("TITLE"));
+		Assert.assertEquals(Arrays.asList("2000", "2001"), timeslots(ts));
+		Assert.assertTrue(Double.isNaN(ts.get(0).getValueAsDouble()));
+		Assert.assertEquals(Arrays.asList("A", "E"), ts.getObsLevelAttributes("OBS_STATUS"));
+		Assert.assertEquals(Arrays.asList("F", null), ts.getObsLevelAttributes("OBS_CONF"));
+		Assert.assertFalse(ts.getObsLevelAttributesNames().contains("TIME"));
+		Assert.assertEquals("413", cursor.getMessage().getCode());
+		Assert.assertEquals(Arrays.asList("Truncated"), cursor.getMessage().getText());
+
+		PortableTimeSeries<Double> other = events.get(0);
+		Assert.assertEquals(ts.getAttributesMap(), other.getAttributesMap());
+		Assert.assertEquals(timeslots(ts), timeslots(other));
+		Assert.assertEquals(ts.getObsLevelAttributes("OBS_STATUS"), other.getObsLevelAttributes("OBS_STATUS"));
+		Assert.assertEquals(cursor.getMessage().getText(), events.getMessage().getText());
+	}
+
+	private static CompactDataParser parser(SeriesHandler handler)
+	{
+		return new CompactDataParser(ExrFixture.dsd(), ExrFixture.dataflow(), true, handler);
+	}
+
+	private static DataParsingResult parse(SeriesHandler handler) throws XMLStreamException, SdmxException
+	{
+		return parser(handler).parse(
+				XMLInputFactory.newFactory().createXMLEventReader(new StringReader(XML)), LanguagePriorityList.ANY);
+	}
+
+	private static List<String> timeslots(PortableTimeSeries<Double> ts)
+	{
+		List<String> timeslots = new ArrayList<>();
+		for (BaseObservation<? extends Double> obs : ts)
+			timeslots.add(obs.getTimeslot());
+		return timeslots;
+	}
+}
@@ -0,0 +1,112 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import it.bancaditalia.oss.sdmx.api.BaseObservation;
+import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.api.SdmxAttribute.AttachmentLevel;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.parser.v21.CompactDataParser;
+import it.bancaditalia.oss.sdmx.parser.v21.CsvDataParser;
+import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
+
+public class CsvDataParserTest
+{
+	private static final String	XML	= "<message:StructureSpecificData xmlns:message=\"http://www.sdmx.org/resources/sdmxml/schemas/v2_1/message\">"
+			+ "<message:DataSet>"
+			+ "<Series FREQ=\"A\" CURRENCY=\"USD\" TITLE=\"Dollar\">"
+			+ "<Obs TIME_PERIOD=\"2001\" OBS_VALUE=\"1.5\" OBS_STATUS=\"A\"/>"
+			+ "<Obs TIME_PERIOD=\"2000\" OBS_VALUE=\"1.25\"/>"
+			+ "</Series>"
+			+ "<Series FREQ=\"A\" CURRENCY=\"GBP\">"
+			+ "<Obs TIME_PERIOD=\"2000\" OBS_VALUE=\"NaN\" OBS_STATUS=\"M\"/>"
+			+ "</Series>"
+			+ "</message:DataSet></message:StructureSpecificData>";
+
+	private static final String	CSV	= "DATAFLOW,FREQ,CURRENCY,TIME_PERIOD,OBS_VALUE,OBS_STATUS,TITLE,UNIT_MULT\r\n"
+			+ "ECB:EXR(1.0),A,USD,2001,1.5,A,Dollar,0\r\n"
+			+ "ECB:EXR(1.0),A,GBP,2000,,M,,0\r\n"
+			+ "ECB:EXR(1.0),A,USD,2000,1.25,,\"Dollar\",0\r\n";
+
+	@Test
+	public void testSameAsCompactData() throws IOException, SdmxException, XMLStreamException
+	{
+		DataFlowStructure dsd = dsd();
+		List<PortableTimeSeries<Double>> expected = new CompactDataParser(dsd, ExrFixture.dataflow(), true).parse(
+				XMLInputFactory.newFactory().createXMLEventReader(new StringReader(XML)), LanguagePriorityList.ANY);
+		List<PortableTimeSeries<Double>> actual = new CsvDataParser(dsd, ExrFixture.dataflow(), true)
+				.parse(new BufferedReader(new StringReader(CSV)), LanguagePriorityList.ANY);
+
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++)
+		{
+			PortableTimeSeries<Double> e = expected.get(i), a = actual.get(i);
+			Assert.assertEquals(e.getName(), a.getName());
+			Assert.assertEquals(e.getFrequency(), a.getFrequency());
+			Assert.assertEquals(e.getDimensionsMap(), a.getDimensionsMap());
+			Assert.assertEquals(e.getAttributesMap(), a.getAttributesMap());
+			Assert.assertEquals(e.size(), a.size());
+			for (int j = 0; j < e.size(); j++)
+			{
+				BaseObservation<? extends Double> eo = e.get(j), ao = a.get(j);
+				Assert.assertEquals(eo.getTimeslot(), ao.getTimeslot());
+				Assert.assertEquals(eo.getValue(), ao.getValue());
+				Assert.assertEquals(eo.getAttributes(), ao.getAttributes());
+			}
+		}
+		Assert.assertEquals("EXR.A.USD", actual.get(0).getName());
+		Assert.assertEquals("Dollar", actual.get(0).getAttribute("TITLE"));
+		Assert.assertEquals("2000", actual.get(0).get(0).getTimeslot());
+	}
+
+	@Test
+	public void testQuotesAndLabels() throws IOException, SdmxException
+	{
+		String csv = "DATAFLOW;FREQ: Frequency;CURRENCY: Currency;TIME_PERIOD: Time;OBS_VALUE: Value;TITLE: Title\n"
+				+ "ECB:EXR(1.0): Exchange rates;A: Annual;USD: US dollar;2000;1;\"Dollar; \"\"US\"\"\n(spot)\"\n";
+		List<PortableTimeSeries<Double>> actual = new CsvDataParser(dsd(), ExrFixture.dataflow(), true)
+				.parse(new BufferedReader(new StringReader(csv)), LanguagePriorityList.ANY);
+
+		Assert.assertEquals(1, actual.size());
+		Assert.assertEquals("A", actual.get(0).getDimension("FREQ"));
+		Assert.assertEquals("USD", actual.get(0).getDimension("CURRENCY"));
+		Assert.assertEquals("Dollar; \"US\"\n(spot)", actual.get(0).getAttribute("TITLE"));
+		Assert.assertEquals(1.0, actual.get(0).get(0).getValue(), 0.0);
+	}
+
+	@Test
+	public void testAction() throws IOException, SdmxException, XMLStreamException
+	{
+		String xml = "<message:StructureSpecificData xmlns:message=\"http://www.sdmx.org/resources/sdmxml/schemas/v2_1/message\">"
+				+ "<message:DataSet action=\"Delete\"><Series FREQ=\"A\" CURRENCY=\"USD\"><Obs TIME_PERIOD=\"2000\"/></Series>"
+				+ "</message:DataSet></message:StructureSpecificData>";
+		String csv = "DATAFLOW,ACTION,FREQ,CURRENCY,TIME_PERIOD,OBS_VALUE\n" + "ECB:EXR(1.0),D,A,USD,2000,\n";
+		List<PortableTimeSeries<Double>> expected = new CompactDataParser(dsd(), ExrFixture.dataflow(), true).parse(
+				XMLInputFactory.newFactory().createXMLEventReader(new StringReader(xml)), LanguagePriorityList.ANY);
+		List<PortableTimeSeries<Double>> actual = new CsvDataParser(dsd(), ExrFixture.dataflow(), true)
+				.parse(new BufferedReader(new StringReader(csv)), LanguagePriorityList.ANY);
+
+		Assert.assertEquals(1, actual.size());
+		Assert.assertEquals("Delete", actual.get(0).getAttribute("action"));
+		Assert.assertEquals(expected.get(0).getAttributesMap(), actual.get(0).getAttributesMap());
+	}
+
+	private static DataFlowStructure dsd()
+	{
+		DataFlowStructure dsd = ExrFixture.dsd();
+		dsd.setAttribute(ExrFixture.attribute("TITLE", AttachmentLevel.SERIES, null));
+		dsd.setAttribute(ExrFixture.attribute("UNIT_MULT", AttachmentLevel.DATASET, null));
+		dsd.setAttribute(ExrFixture.attribute("OBS_STATUS", AttachmentLevel.OBSERVATION, ExrFixture.obsStatus()));
+		return dsd;
+	}
+}
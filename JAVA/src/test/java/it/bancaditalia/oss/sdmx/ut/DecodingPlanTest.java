@@ -0,0 +1,87 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import it.bancaditalia.oss.sdmx.api.Codelist;
+import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
+import it.bancaditalia.oss.sdmx.api.DoubleTimeSeries;
+import it.bancaditalia.oss.sdmx.api.SdmxAttribute.AttachmentLevel;
+import it.bancaditalia.oss.sdmx.parser.v21.DecodingPlan;
+import it.bancaditalia.oss.sdmx.parser.v21.DecodingPlan.Component;
+import it.bancaditalia.oss.sdmx.parser.v21.DecodingPlan.Kind;
+import it.bancaditalia.oss.sdmx.util.Configuration;
+
+public class DecodingPlanTest
+{
+	private static final String	POLICY	= "handle.sdmx.codes";
+
+	@Test
+	public void testComponents()
+	{
+		DataFlowStructure dsd = dsd();
+		DecodingPlan plan = DecodingPlan.of(dsd);
+		Assert.assertSame(plan, DecodingPlan.of(dsd));
+
+		Assert.assertEquals(2, plan.getDimensionCount());
+		Assert.assertEquals("CURRENCY", plan.getDimension(1).getId());
+		Assert.assertEquals(Kind.DIMENSION, plan.get("FREQ").getKind());
+		Assert.assertEquals(1, plan.get("CURRENCY").getSlot());
+		Assert.assertEquals(Kind.TIME, plan.get("TIME_PERIOD").getKind());
+		Assert.assertEquals(Kind.MEASURE, plan.get("OBS_VALUE").getKind());
+		Assert.assertEquals(AttachmentLevel.OBSERVATION, plan.get("OBS_STATUS").getAttachmentLevel());
+		Assert.assertNull(plan.get("OBS_CONF"));
+
+		DoubleTimeSeries ts = new DoubleTimeSeries();
+		plan.setDimensions(ts, new String[] { "A", "USD" });
+		Assert.assertEquals("A", ts.getFrequency());
+		Assert.assertEquals("A.USD", ts.getName());
+		Assert.assertEquals("USD", ts.getDimension("CURRENCY"));
+	}
+
+	@Test
+	public void testCodesPolicy()
+	{
+		DataFlowStructure dsd = dsd();
+		String policy = Configuration.getConfiguration().getProperty(POLICY);
+		try
+		{
+			Configuration.getConfiguration().setProperty(POLICY, Configuration.SDMX_CODES_POLICY_ID);
+			DecodingPlan plan = DecodingPlan.of(dsd);
+			Component status = plan.get("OBS_STATUS");
+			Assert.assertEquals("A", plan.decodeAttribute(status, "A", " "));
+
+			Configuration.getConfiguration().setProperty(POLICY, Configuration.SDMX_CODES_POLICY_BOTH);
+			plan = DecodingPlan.of(dsd);
+			Assert.assertEquals("A (Normal value)", plan.decodeAttribute(status, "A", " "));
+			Assert.assertEquals("B", plan.decodeAttribute(status, "B", " "));
+			Assert.assertEquals("X", plan.decodeAttribute(null, "X", " "));
+			// dimensions are decoded by setDimensions only
+			Assert.assertEquals("USD", plan.decodeAttribute(plan.get("CURRENCY"), "USD", " "));
+
+			Configuration.getConfiguration().setProperty(POLICY, Configuration.SDMX_CODES_POLICY_DESC);
+			plan = DecodingPlan.of(dsd);
+			Assert.assertEquals("Normal value", plan.decodeAttribute(status, "A", ""));
+			DoubleTimeSeries ts = new DoubleTimeSeries();
+			plan.setDimensions(ts, new String[] { "A", "USD" });
+			Assert.assertEquals("US dollar", ts.getDimensionsMap().get("CURRENCY"));
+		}
+		finally
+		{
+			if (policy != null)
+				Configuration.getConfiguration().setProperty(POLICY, policy);
+			else
+				Configuration.getConfiguration().remove(POLICY);
+		}
+	}
+
+	private static DataFlowStructure dsd()
+	{
+		DataFlowStructure dsd = ExrFixture.dsd();
+		Codelist currency = new Codelist("CL_CURRENCY", "ECB", "1.0");
+		currency.put("USD", "US dollar");
+		dsd.getDimension("CURRENCY").setCodeList(currency);
+		dsd.setAttribute(ExrFixture.attribute("OBS_STATUS", AttachmentLevel.OBSERVATION, ExrFixture.obsStatus()));
+		return dsd;
+	}
+}
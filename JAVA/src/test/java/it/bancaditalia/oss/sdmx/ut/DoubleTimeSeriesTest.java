@@ -0,0 +1,150 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import it.bancaditalia.oss.sdmx.api.BaseObservation;
+import it.bancaditalia.oss.sdmx.api.DoubleObservation;
+import it.bancaditalia.oss.sdmx.api.DoubleTimeSeries;
+import it.bancaditalia.oss.sdmx.util.Utils;
+
+public class DoubleTimeSeriesTest
+{
+	@Test
+	public void testPrimitiveAccess()
+	{
+		Map<String, String> attrs = new HashMap<>();
+		attrs.put("OBS_STATUS", "A");
+
+		DoubleTimeSeries ts = new DoubleTimeSeries();
+		ts.add("2001", 1.5, attrs);
+		ts.addMissing("2002", null);
+		ts.add(new DoubleObservation("2003", 3.0, null));
+
+		Assert.assertEquals(3, ts.size());
+		Assert.assertEquals(1.5, ts.getValueAt(0), 0);
+		Assert.assertTrue(ts.isMissing(1));
+		Assert.assertTrue(Double.isNaN(ts.getValueAt(1)));
+		Assert.assertFalse(ts.isMissing(2));
+		Assert.assertEquals("2003", ts.getTimeslotAt(2));
+		Assert.assertEquals("A", ts.getAttributesAt(0).get("OBS_STATUS"));
+		Assert.assertTrue(ts.getAttributesAt(1).isEmpty());
+		Assert.assertArrayEquals(new String[] { "2001", "2002", "2003" }, ts.getTimeslots());
+		Assert.assertArrayEquals(new double[] { 1.5, Double.NaN, 3.0 }, Utils.toDoubleArray(ts), 0);
+
+		// list view
+		BaseObservation<? extends Double> obs = ts.get(0);
+		Assert.assertEquals("2001", obs.getTimeslot());
+		Assert.assertEquals(1.5, obs.getValueAsDouble(), 0);
+		Assert.assertEquals("A", obs.getAttributeValue("OBS_STATUS"));
+		List<String> timeslots = new ArrayList<>();
+		for (BaseObservation<? extends Double> o : ts)
+			timeslots.add(o.getTimeslot());
+		Assert.assertEquals(Arrays.asList("2001", "2002", "2003"), timeslots);
+	}
+
+	@Test
+	public void testSortAndModify()
+	{
+		DoubleTimeSeries ts = new DoubleTimeSeries();
+		for (int i = 20; i > 0; i--)
+			if (i % 5 == 0)
+				ts.addMissing(String.format("%04d", 2000 + i), null);
+			else
+				ts.add(String.format("%04d", 2000 + i), i, null);
+
+		ts.sortByTime();
+		Assert.assertEquals("2001", ts.getTimeslotAt(0));
+		Assert.assertEquals(1.0, ts.getValueAt(0), 0);
+		Assert.assertTrue(ts.isMissing(4));
+		Assert.assertFalse(ts.isMissing(5));
+
+		DoubleTimeSeries copy = new DoubleTimeSeries();
+		for (int i = ts.size() - 1; i >= 0; i--)
+			copy.add(ts.get(i));
+		Collections.sort(copy);
+		Assert.assertArrayEquals(ts.getTimeslots(), copy.getTimeslots());
+		Assert.assertEquals(Double.NaN, copy.getValueAt(9), 0);
+
+		ts.remove(0);
+		Assert.assertEquals("2002", ts.getTimeslotAt(0));
+		Assert.assertTrue(ts.isMissing(3));
+		ts.add(0, new DoubleObservation("2001", 1.0, null));
+		Assert.assertEquals(20, ts.size());
+		Assert.assertTrue(ts.isMissing(4));
+		ts.clear();
+		Assert.assertTrue(ts.isEmpty());
+	}
+
+	@Test
+	public void testAttributes()
+	{
+		DoubleTimeSeries ts = new DoubleTimeSeries();
+		for (int i = 4; i > 0; i--)
+		{
+			ts.add("200" + i, i, null);
+			ts.setAttributeAt(ts.size() - 1, "OBS_STATUS", new String(i % 2 == 0 ? "A" : "E"));
+			if (i == 3)
+				ts.setAttributeAt(ts.size() - 1, "OBS_CONF", "F");
+		}
+		ts.sortByTime();
+
+		Assert.assertEquals(Arrays.asList("E", "A", "E", "A"), ts.getObsLevelAttributes("OBS_STATUS"));
+		Assert.assertEquals(Arrays.asList(null, null, "F", null), ts.getObsLevelAttributes("OBS_CONF"));
+		Assert.assertEquals(Arrays.asList(null, null, null, null), ts.getObsLevelAttributes("OBS_PRE_BREAK"));
+		Assert.assertEquals(new HashSet<>(Arrays.asList("OBS_STATUS", "OBS_CONF")), ts.getObsLevelAttributesNames());
+		// repeated values are stored once
+		Assert.assertSame(ts.getAttributeAt(0, "OBS_STATUS"), ts.getAttributeAt(2, "OBS_STATUS"));
+
+		BaseObservation<? extends Double> obs = ts.get(2);
+		Map<String, String> expected = new HashMap<>();
+		expected.put("OBS_STATUS", "E");
+		expected.put("OBS_CONF", "F");
+		Assert.assertEquals(expected, obs.getAttributes());
+		Assert.assertEquals("F", obs.getAttributeValue("OBS_CONF"));
+
+		// observations keep their attributes when the series changes
+		ts.remove(0);
+		ts.setAttributeAt(1, "OBS_CONF", null);
+		Assert.assertEquals(expected, obs.getAttributes());
+		Assert.assertEquals(Collections.singletonMap("OBS_STATUS", "E"), ts.getAttributesAt(1));
+		ts.set(0, obs);
+		Assert.assertEquals("F", ts.getAttributeAt(0, "OBS_CONF"));
+		Assert.assertNull(ts.getAttributeAt(2, "OBS_CONF"));
+	}
+
+	@Test
+	public void testCopy()
+	{
+		DoubleTimeSeries ts = new DoubleTimeSeries();
+		ts.setName("A.IT");
+		ts.addDimension("REF_AREA", "IT");
+		ts.add("2001", 1.5, Collections.singletonMap("OBS_STATUS", "A"));
+		ts.addMissing("2002", null);
+
+		DoubleTimeSeries copy = ts.copy();
+		Assert.assertEquals("A.IT", copy.getName());
+		Assert.assertEquals("IT", copy.getDimension("REF_AREA"));
+		Assert.assertArrayEquals(ts.getTimeslots(), copy.getTimeslots());
+		Assert.assertEquals("A", copy.getAttributeAt(0, "OBS_STATUS"));
+		Assert.assertTrue(copy.isMissing(1));
+
+		// the copy changes on its own
+		copy.reverse();
+		copy.setAttributeAt(0, "OBS_STATUS", "E");
+		copy.add("2003", 3, Collections.singletonMap("OBS_CONF", "F"));
+		Assert.assertEquals(2, ts.size());
+		Assert.assertEquals("2001", ts.getTimeslotAt(0));
+		Assert.assertEquals("A", ts.getAttributeAt(0, "OBS_STATUS"));
+		Assert.assertNull(ts.getAttributeAt(1, "OBS_STATUS"));
+		Assert.assertEquals(Collections.singleton("OBS_STATUS"), ts.getObsLevelAttributesNames());
+	}
+}
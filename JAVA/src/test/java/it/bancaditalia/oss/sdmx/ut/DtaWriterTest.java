@@ -0,0 +1,173 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.bancaditalia.oss.sdmx.api.DoubleTimeSeries;
+import it.bancaditalia.oss.sdmx.util.DtaWriter;
+import it.bancaditalia.oss.sdmx.util.StataColumns;
+
+public class DtaWriterTest
+{
+	private static final Charset	UTF8	= Charset.forName("UTF-8");
+
+	@Rule
+	public TemporaryFolder			folder	= new TemporaryFolder();
+
+	@Test
+	public void testFile() throws IOException
+	{
+		DoubleTimeSeries first = new DoubleTimeSeries();
+		first.addDimension("FREQ", "A");
+		first.addDimension("REF-AREA", "IT");
+		first.addAttribute("TITLE", "Prezzi à consumo");
+		first.add("2001", 1.5, Collections.singletonMap("OBS_STATUS", "A"));
+		first.addMissing("2002", null);
+		DoubleTimeSeries second = new DoubleTimeSeries();
+		second.addDimension("FREQ", "A");
+		second.addDimension("REF-AREA", "FR");
+		second.add("2001", -2, null);
+
+		File file = folder.newFile("test.dta");
+		Assert.assertEquals(3, new DtaWriter(true, true).setLabel("test").write(Arrays.asList(first, second), file));
+
+		ByteBuffer dta = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+		String header = "<stata_dta><header><release>118</release><byteorder>LSF</byteorder><K>";
+		Assert.assertEquals(header, string(dta, 0, header.length()));
+		int k = dta.getShort(header.length());
+		long n = dta.getLong(find(dta, "<N>") + 3);
+		Assert.assertEquals(7, k);
+		Assert.assertEquals(3, n);
+
+		int map = find(dta, "<map>") + 5;
+		long[] offsets = new long[14];
+		for (int i = 0; i < offsets.length; i++)
+			offsets[i] = dta.getLong(map + 8 * i);
+		Assert.assertEquals(0, offsets[0]);
+		Assert.assertEquals(dta.capacity(), offsets[13]);
+		Assert.assertEquals("</stata_dta>", string(dta, (int) offsets[12], 12));
+
+		int[] types = new int[k];
+		String[] names = new String[k];
+		String[] labels = new String[k];
+		for (int v = 0; v < k; v++)
+		{
+			types[v] = dta.getShort((int) offsets[2] + 16 + 2 * v) & 0xFFFF;
+			names[v] = string(dta, (int) offsets[3] + 10 + 129 * v, 129);
+			labels[v] = string(dta, (int) offsets[7] + 17 + 321 * v, 321);
+		}
+		Assert.assertArrayEquals(new String[] { "TSNAME", "DATE", "VALUE", "FREQ", "REF_AREA", "TITLE", "OBS_STATUS" }, names);
+		Assert.assertEquals("REF-AREA", labels[4]);
+		Assert.assertEquals(65526, types[2]);
+		// the width of a string is in UTF-8 bytes
+		Assert.assertEquals("Prezzi à consumo".getBytes(UTF8).length, types[5]);
+		Assert.assertEquals(4, types[1]);
+
+		int rowLength = 0;
+		for (int type : types)
+			rowLength += type == 65526 ? 8 : type;
+		int data = (int) offsets[9] + 6;
+		Assert.assertEquals(offsets[10], data + 3 * rowLength + 7);
+		Assert.assertEquals("A.IT", string(dta, data, types[0]));
+		Assert.assertEquals(1.5, dta.getDouble(data + types[0] + types[1]), 0);
+		Assert.assertEquals("Prezzi à consumo", string(dta, data + rowLength - types[6] - types[5], types[5]));
+		Assert.assertEquals("A", string(dta, data + rowLength - 1, 1));
+		// missing value and empty string
+		Assert.assertEquals(0x7FE0000000000000L, dta.getLong(data + rowLength + types[0] + types[1]));
+		Assert.assertEquals("", string(dta, data + 2 * rowLength - 1, 1));
+		Assert.assertEquals("A.FR", string(dta, data + 2 * rowLength, types[0]));
+		Assert.assertEquals(-2, dta.getDouble(data + 2 * rowLength + types[0] + types[1]), 0);
+	}
+
+	@Test
+	public void testMetadataOnly() throws IOException
+	{
+		// values of different widths, padded across the boundaries of the output buffer
+		char[] title = new char[300];
+		Arrays.fill(title, 'x');
+		DoubleTimeSeries longTitle = new DoubleTimeSeries();
+		longTitle.addDimension("FREQ", "M");
+		longTitle.addAttribute("TITLE", new String(title));
+		DoubleTimeSeries shortTitle = new DoubleTimeSeries();
+		shortTitle.addDimension("FREQ", "Q");
+		shortTitle.addAttribute("TITLE", "x");
+		List<DoubleTimeSeries> list = new ArrayList<>();
+		for (int i = 0; i < 1000; i++)
+			list.add(i % 2 == 0 ? longTitle : shortTitle);
+
+		File file = folder.newFile("meta.dta");
+		Assert.assertEquals(1000, new DtaWriter(false, true).write(list, file));
+		ByteBuffer dta = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+		Assert.assertEquals(3, dta.getShort(find(dta, "<K>") + 3));
+		Assert.assertEquals(1000, dta.getLong(find(dta, "<N>") + 3));
+		// TSNAME, FREQ and TITLE
+		int rowLength = 1 + 1 + 300;
+		int data = find(dta, "<data>") + 6;
+		Assert.assertEquals(data + 1000 * rowLength, find(dta, "</data>"));
+		Assert.assertEquals("Q", string(dta, data + 999 * rowLength + 1, 1));
+		Assert.assertEquals("x", string(dta, data + 999 * rowLength + 2, 300));
+		Assert.assertEquals(new String(title), string(dta, data + 998 * rowLength + 2, 300));
+	}
+
+	@Test
+	public void testNames()
+	{
+		Set<String> used = new HashSet<>();
+		Assert.assertEquals("OBS_VALUE", DtaWriter.toStataName("OBS_VALUE", used));
+		Assert.assertEquals("_1ST", DtaWriter.toStataName("1ST", used));
+		Assert.assertEquals("_in", DtaWriter.toStataName("in", used));
+		Assert.assertEquals("OBS_VALUE_2", DtaWriter.toStataName("OBS.VALUE", used));
+		Assert.assertEquals(32, DtaWriter.toStataName("A_VERY_LONG_ATTRIBUTE_IDENTIFIER_INDEED", used).length());
+	}
+
+	@Test
+	public void testWidth()
+	{
+		Assert.assertEquals(1, StataColumns.width(new String[] { null, "" }));
+		// 1, 2, 3 and 4 bytes per character
+		Assert.assertEquals(10, StataColumns.width(new String[] { "abc", "a\u00e9\u20ac\ud83d\ude00", null }));
+		char[] accents = new char[1500];
+		Arrays.fill(accents, '\u00e9');
+		Assert.assertEquals(StataColumns.MAX_WIDTH, StataColumns.width(new String[] { new String(accents) }));
+	}
+
+	private static String string(ByteBuffer buffer, int offset, int length)
+	{
+		int end = offset;
+		while (end < offset + length && buffer.get(end) != 0)
+			end++;
+		byte[] bytes = new byte[end - offset];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = buffer.get(offset + i);
+		return new String(bytes, UTF8);
+	}
+
+	private static int find(ByteBuffer buffer, String tag)
+	{
+		byte[] bytes = tag.getBytes(UTF8);
+		for (int i = 0; i + bytes.length <= buffer.capacity(); i++)
+		{
+			int j = 0;
+			while (j < bytes.length && buffer.get(i + j) == bytes[j])
+				j++;
+			if (j == bytes.length)
+				return i;
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,69 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import it.bancaditalia.oss.sdmx.api.Codelist;
+import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
+import it.bancaditalia.oss.sdmx.api.Dataflow;
+import it.bancaditalia.oss.sdmx.api.Dimension;
+import it.bancaditalia.oss.sdmx.api.SdmxAttribute;
+import it.bancaditalia.oss.sdmx.api.SdmxAttribute.AttachmentLevel;
+
+/**
+ * A cut-down ECB exchange rates structure shared by the parser tests: each test adds the attributes and codelists it
+ * needs to the bare dimensions.
+ */
+final class ExrFixture
+{
+	private ExrFixture()
+	{
+	}
+
+	/**
+	 * @return The ECB_EXR1 structure with the FREQ and CURRENCY dimensions, TIME_PERIOD and OBS_VALUE, and no
+	 *         attributes.
+	 */
+	static DataFlowStructure dsd()
+	{
+		DataFlowStructure dsd = new DataFlowStructure();
+		dsd.setId("ECB_EXR1");
+		dsd.setDimension(new Dimension("FREQ", 1, null));
+		dsd.setDimension(new Dimension("CURRENCY", 2, null));
+		dsd.setTimeDimension("TIME_PERIOD");
+		dsd.setMeasure("OBS_VALUE");
+		return dsd;
+	}
+
+	/**
+	 * @return The EXR dataflow.
+	 */
+	static Dataflow dataflow()
+	{
+		Dataflow dataflow = new Dataflow();
+		dataflow.setId("EXR");
+		return dataflow;
+	}
+
+	/**
+	 * @return The CL_OBS_STATUS codelist, with the code A only.
+	 */
+	static Codelist obsStatus()
+	{
+		Codelist status = new Codelist("CL_OBS_STATUS", "ECB", "1.0");
+		status.put("A", "Normal value");
+		return status;
+	}
+
+	/**
+	 * @param id the id of the attribute
+	 * @param level the attachment level, null if unknown
+	 * @param codelist the codelist of the attribute, nullable
+	 * @return A new attribute.
+	 */
+	static SdmxAttribute attribute(String id, AttachmentLevel level, Codelist codelist)
+	{
+		SdmxAttribute attribute = new SdmxAttribute();
+		attribute.setId(id);
+		attribute.setCodeList(codelist);
+		attribute.setAttachmentLevel(level);
+		return attribute;
+	}
+}
@@ -0,0 +1,113 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.bancaditalia.oss.sdmx.client.HttpResponseCache;
+
+public class HttpResponseCacheTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testStoreAndGet() throws IOException
+	{
+		HttpResponseCache cache = new HttpResponseCache(folder.getRoot(), 1024 * 1024);
+		String key = HttpResponseCache.key("ECB", "http://host/codelist", null);
+		Assert.assertNull(cache.get(key));
+
+		HttpResponseCache.CachingInputStream stream = cache.store(key, "\"v1\"", null, "application/xml", body("<xml/>  "));
+		Assert.assertEquals('<', stream.read());
+		stream.complete();
+		stream.close();
+
+		HttpResponseCache.Entry entry = cache.get(key);
+		Assert.assertNotNull(entry);
+		Assert.assertEquals("\"v1\"", entry.getEtag());
+		Assert.assertNull(entry.getLastModified());
+		Assert.assertEquals("application/xml", entry.getContentType());
+		Assert.assertTrue(entry.hasValidators());
+		Assert.assertTrue(entry.isFresh(60000));
+		Assert.assertFalse(entry.isFresh(0));
+		Assert.assertEquals("<xml/>  ", read(entry.open()));
+	}
+
+	@Test
+	public void testIncompleteNotStored() throws IOException
+	{
+		HttpResponseCache cache = new HttpResponseCache(folder.getRoot(), 1024 * 1024);
+		String key = HttpResponseCache.key("ECB", "http://host/data");
+		read(cache.store(key, null, "Mon, 01 Jan 2018 00:00:00 GMT", null, body("<xml/>")));
+		Assert.assertNull(cache.get(key));
+		Assert.assertEquals(0, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void testEviction() throws IOException
+	{
+		HttpResponseCache cache = new HttpResponseCache(folder.getRoot(), 1500);
+		String[] keys = { HttpResponseCache.key("a"), HttpResponseCache.key("b"), HttpResponseCache.key("c") };
+		for (int i = 0; i < keys.length; i++)
+		{
+			HttpResponseCache.CachingInputStream stream = cache.store(keys[i], "e" + i, null, null, body(new String(new char[600])));
+			stream.complete();
+			read(stream);
+			new File(folder.getRoot(), keys[i] + ".cache").setLastModified(1000000000000L + i * 10000L);
+		}
+		Assert.assertNull(cache.get(keys[0]));
+		Assert.assertNotNull(cache.get(keys[2]));
+	}
+
+	@Test
+	public void testHeaderTooLong() throws IOException
+	{
+		HttpResponseCache cache = new HttpResponseCache(folder.getRoot(), 1024 * 1024);
+		try
+		{
+			cache.store(HttpResponseCache.key("big"), new String(new char[70000]).replace('\0', 'e'), null, null, body("<xml/>"));
+			Assert.fail("An ETag over 64 KB cannot be stored");
+		}
+		catch (IOException e)
+		{
+			Assert.assertEquals(0, folder.getRoot().list().length);
+		}
+	}
+
+	@Test
+	public void testLeftoverTempDeleted() throws IOException
+	{
+		File leftover = folder.newFile("0123456789abcdef.tmp");
+		File entry = folder.newFile("0123456789abcdef.cache");
+		new HttpResponseCache(folder.getRoot(), 1024 * 1024);
+		Assert.assertFalse(leftover.exists());
+		Assert.assertTrue(entry.exists());
+	}
+
+	private static InputStream body(String content)
+	{
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(InputStream stream) throws IOException
+	{
+		try (InputStream in = stream)
+		{
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[256];
+			int i;
+			while ((i = in.read(buf)) >= 0)
+				out.write(buf, 0, i);
+			return new String(out.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+}
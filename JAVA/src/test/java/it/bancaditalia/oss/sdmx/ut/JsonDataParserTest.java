@@ -0,0 +1,137 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.parser.v21.CompactDataParser;
+import it.bancaditalia.oss.sdmx.parser.v21.JsonDataParser;
+import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
+
+public class JsonDataParserTest
+{
+	private static final String	XML			= "<message:StructureSpecificData xmlns:message=\"http://www.sdmx.org/resources/sdmxml/schemas/v2_1/message\">"
+			+ "<message:DataSet>"
+			+ "<Series FREQ=\"A\" CURRENCY=\"USD\" TITLE=\"Dollar &quot;US&quot;\">"
+			+ "<Obs TIME_PERIOD=\"2001\" OBS_VALUE=\"1.5\" OBS_STATUS=\"A\"/>"
+			+ "<Obs TIME_PERIOD=\"2000\" OBS_VALUE=\"1.25\"/>"
+			+ "</Series>"
+			+ "<Series FREQ=\"A\" CURRENCY=\"GBP\">"
+			+ "<Obs TIME_PERIOD=\"2000\" OBS_VALUE=\"NaN\" OBS_STATUS=\"M\"/>"
+			+ "</Series>"
+			+ "</message:DataSet></message:StructureSpecificData>";
+
+	// SDMX-JSON 1.0, with the structure after the datasets
+	private static final String	JSON_1_0	= "{\"header\": {\"id\": \"1\", \"test\": false},"
+			+ "\"dataSets\": [{\"series\": {"
+			+ "\"0:0\": {\"attributes\": [0], \"observations\": {\"1\": [1.5, 0], \"0\": [1.25, null]}},"
+			+ "\"0:1\": {\"attributes\": [null], \"observations\": {\"0\": [null, 1]}}}}],"
+			+ "\"structure\": {\"name\": \"Exchange rates\","
+			+ "\"dimensions\": {\"dataset\": [], \"series\": ["
+			+ "{\"id\": \"FREQ\", \"keyPosition\": 0, \"values\": [{\"id\": \"A\", \"name\": \"Annual\"}]},"
+			+ "{\"id\": \"CURRENCY\", \"keyPosition\": 1, \"values\": [{\"id\": \"USD\"}, {\"id\": \"GBP\"}]}],"
+			+ "\"observation\": [{\"id\": \"TIME_PERIOD\", \"role\": \"time\", \"values\": [{\"id\": \"2000\"}, {\"id\": \"2001\"}]}]},"
+			+ "\"attributes\": {\"dataSet\": [], "
+			+ "\"series\": [{\"id\": \"TITLE\", \"values\": [{\"name\": \"Dollar \\\"US\\\"\"}]}],"
+			+ "\"observation\": [{\"id\": \"OBS_STATUS\", \"values\": [{\"id\": \"A\"}, {\"id\": \"M\"}]}]}}}";
+
+	// SDMX-JSON 2.0, with the dimensions at observation level
+	private static final String	JSON_2_0	= "{\"meta\": {\"schema\": \"x\"}, \"data\": {"
+			+ "\"structures\": [{\"dimensions\": {\"dataSet\": [{\"id\": \"FREQ\", \"values\": [{\"id\": \"A\"}]}], \"series\": [],"
+			+ "\"observation\": [{\"id\": \"CURRENCY\", \"values\": [{\"id\": \"USD\"}, {\"id\": \"GBP\"}]},"
+			+ "{\"id\": \"TIME_PERIOD\", \"roles\": [\"TIME_PERIOD\"], \"values\": [{\"value\": \"2000\"}, {\"value\": \"2001\"}]}]},"
+			+ "\"attributes\": {\"observation\": [{\"id\": \"OBS_STATUS\", \"values\": [{\"id\": \"A\"}, {\"id\": \"M\"}]}]}}],"
+			+ "\"dataSets\": [{\"structure\": 0, \"observations\": {\"0:1\": [\"1.5\", 0], \"1:0\": [3], \"0:0\": [1.25]}}]}}";
+
+	// SDMX-JSON 1.0, with two datasets before the structure
+	private static final String	DATASETS	= "{\"dataSets\": ["
+			+ "{\"action\": \"Replace\", \"validFrom\": \"2020-01-01\", \"series\": {\"0:0\": {\"observations\": {\"0\": [1.5]}}}},"
+			+ "{\"action\": \"Delete\", \"series\": {\"0:1\": {\"observations\": {\"0\": [2.5]}}}}],"
+			+ "\"structure\": {\"dimensions\": {\"series\": ["
+			+ "{\"id\": \"FREQ\", \"keyPosition\": 0, \"values\": [{\"id\": \"A\"}]},"
+			+ "{\"id\": \"CURRENCY\", \"keyPosition\": 1, \"values\": [{\"id\": \"USD\"}, {\"id\": \"GBP\"}]}],"
+			+ "\"observation\": [{\"id\": \"TIME_PERIOD\", \"role\": \"time\", \"values\": [{\"id\": \"2000\"}]}]}}}";
+
+	@Test
+	public void testSameAsCompactData() throws IOException, SdmxException, XMLStreamException
+	{
+		DataFlowStructure dsd = dsd();
+		List<PortableTimeSeries<Double>> expected = new CompactDataParser(dsd, ExrFixture.dataflow(), true).parse(
+				XMLInputFactory.newFactory().createXMLEventReader(new StringReader(XML)), LanguagePriorityList.ANY);
+		List<PortableTimeSeries<Double>> actual = parse(JSON_1_0);
+
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++)
+		{
+			PortableTimeSeries<Double> e = expected.get(i), a = actual.get(i);
+			Assert.assertEquals(e.getName(), a.getName());
+			Assert.assertEquals(e.getFrequency(), a.getFrequency());
+			Assert.assertEquals(e.getDimensionsMap(), a.getDimensionsMap());
+			Assert.assertEquals(e.getAttributesMap(), a.getAttributesMap());
+			Assert.assertEquals(e.size(), a.size());
+			for (int j = 0; j < e.size(); j++)
+			{
+				Assert.assertEquals(e.get(j).getTimeslot(), a.get(j).getTimeslot());
+				Assert.assertEquals(e.get(j).getValue(), a.get(j).getValue());
+				Assert.assertEquals(e.get(j).getAttributes(), a.get(j).getAttributes());
+			}
+		}
+		Assert.assertEquals("Dollar \"US\"", actual.get(0).getAttribute("TITLE"));
+	}
+
+	@Test
+	public void testFlatObservations() throws IOException, SdmxException
+	{
+		List<PortableTimeSeries<Double>> actual = parse(JSON_2_0);
+
+		Assert.assertEquals(2, actual.size());
+		Assert.assertEquals("EXR.A.USD", actual.get(0).getName());
+		Assert.assertEquals("A", actual.get(0).getFrequency());
+		Assert.assertEquals(2, actual.get(0).size());
+		Assert.assertEquals("2000", actual.get(0).get(0).getTimeslot());
+		Assert.assertEquals(1.5, actual.get(0).get(1).getValue(), 0.0);
+		Assert.assertEquals("A", actual.get(0).get(1).getAttributeValue("OBS_STATUS"));
+		Assert.assertEquals("EXR.A.GBP", actual.get(1).getName());
+		Assert.assertEquals(3.0, actual.get(1).get(0).getValue(), 0.0);
+	}
+
+	@Test
+	public void testDataSets() throws IOException, SdmxException
+	{
+		List<PortableTimeSeries<Double>> actual = parse(DATASETS);
+
+		// each series keeps the properties of its own dataset
+		Assert.assertEquals(2, actual.size());
+		Assert.assertEquals("EXR.A.USD", actual.get(0).getName());
+		Assert.assertEquals("Replace", actual.get(0).getAttribute("action"));
+		Assert.assertEquals("2020-01-01", actual.get(0).getAttribute("validFromDate"));
+		Assert.assertEquals("EXR.A.GBP", actual.get(1).getName());
+		Assert.assertEquals("Delete", actual.get(1).getAttribute("action"));
+		Assert.assertNull(actual.get(1).getAttribute("validFromDate"));
+	}
+
+	private static List<PortableTimeSeries<Double>> parse(String json) throws IOException, SdmxException
+	{
+		return new JsonDataParser(dsd(), ExrFixture.dataflow(), true).parse(new BufferedReader(new StringReader(json)),
+				LanguagePriorityList.ANY);
+	}
+
+	private static DataFlowStructure dsd()
+	{
+		// no attachment levels: the message declares them
+		DataFlowStructure dsd = ExrFixture.dsd();
+		dsd.setAttribute(ExrFixture.attribute("TITLE", null, null));
+		dsd.setAttribute(ExrFixture.attribute("OBS_STATUS", null, ExrFixture.obsStatus()));
+		return dsd;
+	}
+}
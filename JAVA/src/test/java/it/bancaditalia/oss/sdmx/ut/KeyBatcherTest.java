@@ -0,0 +1,86 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import it.bancaditalia.oss.sdmx.api.Dimension;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.client.KeyBatcher;
+
+public class KeyBatcherTest
+{
+	private static final List<Dimension> DIMENSIONS = Arrays.asList(new Dimension("FREQ", 1, null),
+			new Dimension("CURRENCY", 2, null), new Dimension("CURRENCY_DENOM", 3, null),
+			new Dimension("EXR_TYPE", 4, null), new Dimension("EXR_SUFFIX", 5, null));
+
+	@Test
+	public void testMerge()
+	{
+		List<String> keys = Arrays.asList("A.USD.EUR.SP00.A", "A.GBP.EUR.SP00.A", "M.USD.EUR.SP00.A",
+				"M.GBP.EUR.SP00.A", "D.JPY.EUR.SP00.A");
+		List<KeyBatcher.Batch> batches = new KeyBatcher(DIMENSIONS, keys, 2000).batch();
+
+		Assert.assertEquals(2, batches.size());
+		Assert.assertEquals("A+M.USD+GBP.EUR.SP00.A", batches.get(0).getResource(keys));
+		Assert.assertEquals(Arrays.asList(0, 1, 2, 3), batches.get(0).getKeys());
+		Assert.assertEquals("D.JPY.EUR.SP00.A", batches.get(1).getResource(keys));
+		Assert.assertEquals(Arrays.asList(4), batches.get(1).getKeys());
+	}
+
+	@Test
+	public void testWildcardsAndInvalidKeys()
+	{
+		List<String> keys = Arrays.asList("A..EUR.SP00.A", "A.USD.EUR.SP00.A", "A.USD", "A.CHF.EUR.SP00.A");
+		List<KeyBatcher.Batch> batches = new KeyBatcher(DIMENSIONS, keys, 2000).batch();
+
+		Assert.assertEquals(2, batches.size());
+		Assert.assertEquals("A..EUR.SP00.A", batches.get(0).getResource(keys));
+		Assert.assertEquals(Arrays.asList(0, 1, 3), batches.get(0).getKeys());
+		Assert.assertEquals("A.USD", batches.get(1).getResource(keys));
+	}
+
+	@Test
+	public void testMaxLength()
+	{
+		List<String> keys = new ArrayList<>();
+		for (String currency : new String[] { "USD", "GBP", "JPY", "CHF", "CAD", "AUD" })
+			keys.add("D." + currency + ".EUR.SP00.A");
+		List<KeyBatcher.Batch> batches = new KeyBatcher(DIMENSIONS, keys, 22).batch();
+
+		Assert.assertEquals(3, batches.size());
+		for (KeyBatcher.Batch batch : batches)
+			Assert.assertTrue(batch.getResource(keys).replace("+", "%2B").length() <= 22);
+		Assert.assertEquals("D.USD+GBP.EUR.SP00.A", batches.get(0).getResource(keys));
+	}
+
+	@Test
+	public void testEncodedLength()
+	{
+		// D.USD+GBP.EUR.SP00.A has 20 characters, but 22 once the + is encoded as %2B
+		List<String> keys = Arrays.asList("D.USD.EUR.SP00.A", "D.GBP.EUR.SP00.A");
+		Assert.assertEquals(2, new KeyBatcher(DIMENSIONS, keys, 21).batch().size());
+		Assert.assertEquals(1, new KeyBatcher(DIMENSIONS, keys, 22).batch().size());
+	}
+
+	@Test
+	public void testMatches()
+	{
+		List<String> keys = Arrays.asList("A.USD.EUR.SP00.A", "A.GBP+JPY.EUR.SP00.A", "A..EUR.SP00.A");
+		KeyBatcher batcher = new KeyBatcher(DIMENSIONS, keys, 2000);
+
+		PortableTimeSeries<Double> ts = new PortableTimeSeries<>();
+		ts.addDimension("FREQ", "A");
+		ts.addDimension("CURRENCY", "JPY");
+		ts.addDimension("CURRENCY_DENOM", "EUR");
+		ts.addDimension("EXR_TYPE", "SP00");
+		ts.addDimension("EXR_SUFFIX", "A");
+
+		Assert.assertFalse(batcher.matches(0, ts));
+		Assert.assertTrue(batcher.matches(1, ts));
+		Assert.assertTrue(batcher.matches(2, ts));
+	}
+}
@@ -0,0 +1,224 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import it.bancaditalia.oss.sdmx.client.PooledHttpTransport;
+
+public class PooledHttpTransportTest
+{
+	private static final int	BIG		= 1 << 20;
+
+	private HttpServer			server;
+	private final AtomicInteger	requests	= new AtomicInteger();
+
+	@Before
+	public void setUp() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				requests.incrementAndGet();
+				String path = exchange.getRequestURI().getPath();
+				if (path.equals("/ok"))
+					send(exchange, 200, "<ok/>".getBytes("UTF-8"));
+				else if (path.equals("/big"))
+				{
+					byte[] body = new byte[BIG];
+					Arrays.fill(body, (byte) 'x');
+					send(exchange, 200, body);
+				}
+				else if (path.equals("/redirect"))
+				{
+					exchange.getResponseHeaders().set("Location", "/ok");
+					send(exchange, 302, "moved".getBytes("UTF-8"));
+				}
+				else if (path.equals("/notmodified"))
+				{
+					exchange.sendResponseHeaders(304, -1);
+					exchange.close();
+				}
+				else
+					send(exchange, 500, "failed".getBytes("UTF-8"));
+			}
+		});
+		server.start();
+	}
+
+	@After
+	public void tearDown()
+	{
+		server.stop(0);
+	}
+
+	@Test
+	public void testPermits() throws IOException
+	{
+		PooledHttpTransport transport = new PooledHttpTransport("POOL_TEST", 2);
+		Assert.assertEquals(2, transport.availableConnections());
+
+		// a body handed out and read to the end
+		HttpURLConnection conn = open(transport, "/ok");
+		Assert.assertEquals(1, transport.availableConnections());
+		Assert.assertEquals(200, conn.getResponseCode());
+		try (InputStream in = transport.body(conn))
+		{
+			Assert.assertEquals("<ok/>", read(in, 100));
+		}
+		transport.release(conn);
+		Assert.assertEquals(2, transport.availableConnections());
+
+		// responses whose body is never handed out
+		for (String path : new String[] { "/error", "/redirect", "/notmodified" })
+		{
+			conn = open(transport, path);
+			int code = conn.getResponseCode();
+			Assert.assertTrue(path, code == 500 || code == 302 || code == 304);
+			transport.release(conn);
+			Assert.assertEquals(path, 2, transport.availableConnections());
+		}
+
+		// releasing twice does not give back more permits
+		transport.release(conn);
+		Assert.assertEquals(2, transport.availableConnections());
+	}
+
+	@Test
+	public void testPartialBody() throws IOException
+	{
+		PooledHttpTransport transport = new PooledHttpTransport("POOL_TEST", 1);
+		HttpURLConnection conn = open(transport, "/big");
+		Assert.assertEquals(200, conn.getResponseCode());
+		try (InputStream in = transport.body(conn))
+		{
+			Assert.assertEquals("xxxxxxxxxx", read(in, 10));
+		}
+		transport.release(conn);
+		Assert.assertEquals(1, transport.availableConnections());
+
+		// the next request is answered, on the same socket or on a new one
+		conn = open(transport, "/ok");
+		Assert.assertEquals(200, conn.getResponseCode());
+		try (InputStream in = transport.body(conn))
+		{
+			Assert.assertEquals("<ok/>", read(in, 100));
+		}
+		transport.release(conn);
+		Assert.assertEquals(1, transport.availableConnections());
+		Assert.assertEquals(2, requests.get());
+	}
+
+	@Test
+	public void testWait() throws Exception
+	{
+		final PooledHttpTransport transport = new PooledHttpTransport("POOL_TEST", 1);
+		HttpURLConnection first = open(transport, "/ok");
+		Assert.assertEquals(0, transport.availableConnections());
+
+		final CountDownLatch opened = new CountDownLatch(1);
+		final URLConnection[] second = new URLConnection[1];
+		Thread waiter = new Thread() {
+			@Override
+			public void run()
+			{
+				try
+				{
+					second[0] = transport.open(url("/ok"), Proxy.NO_PROXY, 0);
+					opened.countDown();
+				}
+				catch (IOException e)
+				{
+					// the latch is never counted down
+				}
+			}
+		};
+		waiter.start();
+
+		// the second caller waits until the first connection is released
+		Assert.assertFalse(opened.await(200, TimeUnit.MILLISECONDS));
+		first.getResponseCode();
+		transport.release(first);
+		Assert.assertTrue(opened.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals(0, transport.availableConnections());
+		transport.release(second[0]);
+		Assert.assertEquals(1, transport.availableConnections());
+		waiter.join();
+	}
+
+	@Test
+	public void testTimeout() throws IOException
+	{
+		PooledHttpTransport transport = new PooledHttpTransport("POOL_TEST", 1);
+		HttpURLConnection first = open(transport, "/ok");
+		try
+		{
+			transport.open(url("/ok"), Proxy.NO_PROXY, 200);
+			Assert.fail("No connection can be opened while the only one is in use");
+		}
+		catch (SocketTimeoutException e)
+		{
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("POOL_TEST"));
+		}
+		first.getResponseCode();
+		transport.release(first);
+		Assert.assertEquals(1, transport.availableConnections());
+	}
+
+	private HttpURLConnection open(PooledHttpTransport transport, String path) throws IOException
+	{
+		HttpURLConnection conn = (HttpURLConnection) transport.open(url(path), Proxy.NO_PROXY, 0);
+		conn.setInstanceFollowRedirects(false);
+		return conn;
+	}
+
+	private URL url(String path) throws IOException
+	{
+		return new URL("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + path);
+	}
+
+	private static void send(HttpExchange exchange, int code, byte[] body) throws IOException
+	{
+		exchange.sendResponseHeaders(code, body.length);
+		try (OutputStream out = exchange.getResponseBody())
+		{
+			out.write(body);
+		}
+		catch (IOException e)
+		{
+			// the client closed the socket before reading the whole body
+		}
+	}
+
+	private static String read(InputStream in, int max) throws IOException
+	{
+		byte[] buf = new byte[max];
+		int length = 0;
+		int i;
+		while (length < max && (i = in.read(buf, length, max - length)) >= 0)
+			length += i;
+		return new String(buf, 0, length, "UTF-8");
+	}
+}
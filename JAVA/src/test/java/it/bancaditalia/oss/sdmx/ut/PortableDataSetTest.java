@@ -0,0 +1,122 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import it.bancaditalia.oss.sdmx.api.DoubleObservation;
+import it.bancaditalia.oss.sdmx.api.DoubleTimeSeries;
+import it.bancaditalia.oss.sdmx.api.PortableDataSet;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.client.SdmxClientHandler;
+import it.bancaditalia.oss.sdmx.exceptions.DataStructureException;
+
+public class PortableDataSetTest
+{
+	@Test
+	public void testTimeSeries() throws DataStructureException
+	{
+		Map<String, String> status = new HashMap<>();
+		status.put("OBS_STATUS", "E");
+
+		DoubleTimeSeries usd = new DoubleTimeSeries();
+		usd.setName("EXR.A.USD");
+		usd.addDimension("CURRENCY", "USD");
+		usd.addAttribute("UNIT", "USD");
+		usd.add("2001", 1.0, null);
+		usd.add("2002", 2.0, status);
+
+		PortableTimeSeries<Double> gbp = new PortableTimeSeries<>();
+		gbp.setName("EXR.A.GBP");
+		gbp.addDimension("CURRENCY", "GBP");
+		gbp.add(new DoubleObservation("2001", 3.0, null));
+
+		List<PortableTimeSeries<Double>> series = Arrays.asList((PortableTimeSeries<Double>) usd, gbp);
+		PortableDataSet<Double> ds = new PortableDataSet<>(series);
+
+		Assert.assertEquals(3, ds.getRowCount());
+		Assert.assertArrayEquals(new String[] { "TIME_PERIOD", "OBS_VALUE", "ID", "OBS_STATUS", "CURRENCY", "UNIT" },
+				columnNames(ds));
+		Assert.assertArrayEquals(new String[] { "2001", "2002", "2001" }, ds.getTimeStamps());
+		Assert.assertArrayEquals(new Object[] { 1.0, 2.0, 3.0 }, ds.getObservations());
+		Assert.assertArrayEquals(new String[] { "EXR.A.USD", "EXR.A.USD", "EXR.A.GBP" }, ds.getMetadata("ID"));
+		Assert.assertArrayEquals(new String[] { "USD", "USD", "GBP" }, ds.getMetadata("CURRENCY"));
+		Assert.assertArrayEquals(new String[] { "USD", "USD", null }, ds.getMetadata("UNIT"));
+		Assert.assertArrayEquals(new String[] { null, "E", null }, ds.getMetadata("OBS_STATUS"));
+		Assert.assertEquals(0, ds.getMetadata("MISSING").length);
+		Assert.assertArrayEquals(new String[] { "ID", "OBS_STATUS", "CURRENCY", "UNIT" }, ds.getMetadataNames());
+
+		Assert.assertEquals(Arrays.<Object> asList("2001", 3.0, "EXR.A.GBP", null, "GBP", null), ds.rowsView().get(2));
+		Assert.assertEquals(Arrays.<Object> asList("USD", "USD", "GBP"), ds.columnsView().get(4));
+		Assert.assertEquals("EXR.A.USD", ds.getValueAt(1, ds.getColumnIndex("ID")));
+	}
+
+	@Test
+	public void testAddValue() throws DataStructureException
+	{
+		PortableDataSet<Object> ds = new PortableDataSet<>();
+		ds.addValue(1, "A", "x");
+		ds.addValue(0, "B", 1.0);
+		ds.addValue(2, "A", "y");
+		ds.addValue(0, "A", "z");
+
+		Assert.assertEquals(3, ds.getRowCount());
+		Assert.assertEquals(2, ds.getColumnCount());
+		Assert.assertEquals("A;B\nz;1.0\nx;null\ny;null", ds.toString());
+
+		try
+		{
+			ds.getColumnIndex("C");
+			Assert.fail("Expected an exception");
+		}
+		catch (DataStructureException e)
+		{
+			// expected
+		}
+	}
+
+	@Test
+	public void testWriteTo() throws DataStructureException, IOException
+	{
+		DoubleTimeSeries usd = new DoubleTimeSeries();
+		usd.setName("A.USD");
+		usd.add("2001", 1.25, null);
+		usd.addMissing("2002", null);
+		PortableTimeSeries<Double> gbp = new PortableTimeSeries<>();
+		gbp.setName("A.GBP");
+		gbp.add(new DoubleObservation("2001", 3.0, null));
+		List<PortableTimeSeries<Double>> series = Arrays.asList((PortableTimeSeries<Double>) usd, gbp);
+
+		NumberFormat format = new DecimalFormat("0.0", DecimalFormatSymbols.getInstance(Locale.ROOT));
+		PortableDataSet<Double> ds = new PortableDataSet<>(series);
+		StringWriter out = new StringWriter();
+		ds.writeTo(out, "\t", format);
+		Assert.assertEquals("TIME_PERIOD\tOBS_VALUE\tID\n2001\t1.2\tA.USD\n2002\tNaN\tA.USD\n2001\t3.0\tA.GBP",
+				out.toString());
+		Assert.assertEquals(out.toString().replace('\t', ';').replace("1.2", "1.25"), ds.toString());
+
+		Assert.assertEquals(";A.USD;;A.GBP\n2001;1.25;2001;3.0\n2002;NaN;;\n",
+				SdmxClientHandler.dumpTimeSeriesList(series));
+		out = new StringWriter();
+		SdmxClientHandler.dumpTimeSeriesList(series, out, ",", format);
+		Assert.assertEquals(",A.USD,,A.GBP\n2001,1.2,2001,3.0\n2002,NaN,,\n", out.toString());
+	}
+
+	private static String[] columnNames(PortableDataSet<?> ds) throws DataStructureException
+	{
+		String[] names = new String[ds.getColumnCount()];
+		for (int i = 0; i < names.length; i++)
+			names[i] = ds.getColumnName(i);
+		return names;
+	}
+}
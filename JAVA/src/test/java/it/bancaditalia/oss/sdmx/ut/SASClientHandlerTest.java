@@ -0,0 +1,107 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.client.SASClientHandler;
+import it.bancaditalia.oss.sdmx.client.SdmxClientHandler;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.util.SdmxGenerator;
+import it.bancaditalia.oss.sdmx.util.TimePeriod;
+
+public class SASClientHandlerTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testTables() throws IOException, SdmxException
+	{
+		new SdmxGenerator().setSeries(5).setObservations(40).setAttributeDensity(1).writeFiles(folder.getRoot());
+		SdmxClientHandler.addLocalProvider("SAS_TEST", folder.getRoot().getPath(), "Synthetic messages");
+		List<PortableTimeSeries<Double>> expected = SdmxClientHandler.getTimeSeries("SAS_TEST", "BENCH/all", null, null);
+
+		Assert.assertEquals(5, SASClientHandler.makeGetTimeSeries("SAS_TEST", "BENCH/all", null, null));
+		Assert.assertEquals(200, SASClientHandler.getNumberOfData());
+		PortableTimeSeries<Double> last = expected.get(4);
+		Assert.assertEquals(last.getName(), SASClientHandler.getDataName(199));
+		Assert.assertEquals(last.get(39).getTimeslot(), SASClientHandler.getDataTimestamp(199));
+		Assert.assertEquals(last.get(39).getValueAsDouble(), SASClientHandler.getDataObservation(199), 0);
+		int meta = 0, obsMeta = 0;
+		for (PortableTimeSeries<Double> ts : expected)
+		{
+			meta += ts.getDimensionsMap().size() + ts.getAttributesMap().size();
+			obsMeta += ts.getObsLevelAttributesNamesArray().length * ts.size();
+		}
+		Assert.assertEquals(meta, SASClientHandler.getNumberOfMeta());
+		Assert.assertEquals("DIMENSION", SASClientHandler.getMetaType(0));
+		Assert.assertEquals(obsMeta, SASClientHandler.getNumberOfObsMeta());
+		Assert.assertEquals(expected.get(0).get(0).getTimeslot(), SASClientHandler.getObsMetaDate(0));
+
+		// the blocks hold the same rows
+		String block = SASClientHandler.getDataBlock(198, 10);
+		String[] rows = block.split("\n");
+		Assert.assertEquals(2, rows.length);
+		Assert.assertTrue(block.endsWith("\n"));
+		String[] fields = rows[1].split("\t", -1);
+		Assert.assertEquals(SASClientHandler.getDataName(199), fields[0]);
+		Assert.assertEquals(SASClientHandler.getDataTimestamp(199), fields[1]);
+		Assert.assertEquals(SASClientHandler.getDataObservation(199), Double.parseDouble(fields[2]), 0);
+		Assert.assertEquals(TimePeriod.toIsoDate(fields[1]), fields[3]);
+		Assert.assertEquals(TimePeriod.toIsoDate(fields[1]), SASClientHandler.getDataDate(199));
+		fields = SASClientHandler.getMetaBlock(0, 1).split("\t", -1);
+		Assert.assertEquals(SASClientHandler.getMetaKey(0), fields[1]);
+		Assert.assertEquals(SASClientHandler.getMetaValue(0), fields[2]);
+		Assert.assertEquals("DIMENSION\n", fields[3]);
+		fields = SASClientHandler.getObsMetaBlock(0, 1).split("\t", -1);
+		Assert.assertEquals(SASClientHandler.getObsMetaKey(0), fields[1]);
+		Assert.assertEquals(SASClientHandler.getObsMetaDate(0) + "\n", fields[3]);
+		Assert.assertTrue(SASClientHandler.getObsMetaBlock(0, obsMeta).length() <= SASClientHandler.MAX_BLOCK_LENGTH);
+	}
+
+	@Test
+	public void testPages() throws IOException, SdmxException
+	{
+		new SdmxGenerator().setSeries(5).setObservations(40).setAttributeDensity(1).writeFiles(folder.getRoot());
+		SdmxClientHandler.addLocalProvider("SAS_PAGES", folder.getRoot().getPath(), "Synthetic messages");
+		Assert.assertEquals(5, SASClientHandler.makeGetTimeSeries("SAS_PAGES", "BENCH/all", null, null));
+		int meta = SASClientHandler.getNumberOfMeta();
+		int obsMeta = SASClientHandler.getNumberOfObsMeta();
+		String last = SASClientHandler.getDataBlock(199, 1);
+
+		Assert.assertEquals(0, SASClientHandler.openTimeSeries("SAS_PAGES", "BENCH/all", null, null));
+		int pages = 0, data = 0;
+		String block = null;
+		for (int series = SASClientHandler.fetchPage(30); series != 0; series = SASClientHandler.fetchPage(30))
+		{
+			Assert.assertTrue(series > 0);
+			Assert.assertTrue(SASClientHandler.getNumberOfData() <= 30);
+			pages++;
+			data += SASClientHandler.getNumberOfData();
+			meta -= SASClientHandler.getNumberOfMeta();
+			obsMeta -= SASClientHandler.getNumberOfObsMeta();
+			block = SASClientHandler.getDataBlock(SASClientHandler.getNumberOfData() - 1, 1);
+		}
+		Assert.assertEquals(7, pages);
+		Assert.assertEquals(200, data);
+		Assert.assertEquals(0, meta);
+		Assert.assertEquals(0, obsMeta);
+		Assert.assertEquals(last, block);
+		Assert.assertEquals(-1, SASClientHandler.fetchPage(30));
+	}
+
+	@Test(expected = SdmxException.class)
+	public void testIndex() throws IOException, SdmxException
+	{
+		new SdmxGenerator().setSeries(1).setObservations(3).writeFiles(folder.getRoot());
+		SdmxClientHandler.addLocalProvider("SAS_INDEX", folder.getRoot().getPath(), "Synthetic messages");
+		Assert.assertEquals(1, SASClientHandler.makeGetTimeSeries("SAS_INDEX", "BENCH/all", null, null));
+		SASClientHandler.getDataName(3);
+	}
+}
@@ -0,0 +1,273 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.bench.SdmxStubServer;
+import it.bancaditalia.oss.sdmx.client.SdmxClientHandler;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxPartialResultException;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxResponseException;
+import it.bancaditalia.oss.sdmx.util.Configuration;
+import it.bancaditalia.oss.sdmx.util.SdmxGenerator;
+
+public class SdmxClientHandlerTest
+{
+	private static final String		PROVIDER	= "MULTI_TEST";
+
+	@ClassRule
+	public static TemporaryFolder	folder		= new TemporaryFolder();
+
+	@BeforeClass
+	public static void setUp() throws IOException, SdmxException
+	{
+		// the key Kn has n series of 10 * n observations
+		File directory = folder.newFolder();
+		new SdmxGenerator().writeFiles(directory);
+		for (int n = 1; n <= 3; n++)
+			try (Writer out = SdmxGenerator.open(new File(directory, "data_BENCH_K" + n + ".xml")))
+			{
+				new SdmxGenerator().setSeries(n).setObservations(10 * n).setFrequencies("A").writeData(out);
+			}
+		Configuration.getConfiguration().setProperty(PROVIDER + ".batch.queries", "false");
+		Configuration.getConfiguration().setProperty(PROVIDER + ".parallel.queries", "3");
+		SdmxClientHandler.addLocalProvider(PROVIDER, directory.getPath(), "Synthetic messages");
+	}
+
+	@AfterClass
+	public static void tearDown()
+	{
+		Configuration.getConfiguration().remove(PROVIDER + ".batch.queries");
+		Configuration.getConfiguration().remove(PROVIDER + ".parallel.queries");
+	}
+
+	@Test
+	public void testOrder() throws SdmxException
+	{
+		List<PortableTimeSeries<Double>> series = SdmxClientHandler.getTimeSeries(PROVIDER, "BENCH/K3;BENCH/K1;BENCH/K2",
+				null, null);
+		Assert.assertEquals(Arrays.asList(30, 30, 30, 10, 20, 20), sizes(series));
+	}
+
+	@Test
+	public void testPartialResult() throws SdmxException
+	{
+		try
+		{
+			SdmxClientHandler.getTimeSeries(PROVIDER, "BENCH/K2;BENCH/M1;BENCH/K1;BENCH/M2", null, null);
+			Assert.fail("The missing keys must fail");
+		}
+		catch (SdmxPartialResultException e)
+		{
+			Assert.assertEquals(Arrays.asList("BENCH/M1", "BENCH/M2"), new ArrayList<>(e.getFailures().keySet()));
+			Assert.assertSame(e.getFailures().get("BENCH/M1"), e.getCause());
+			Assert.assertEquals(Arrays.asList(20, 20, 10), sizes(e.getPartialResult()));
+		}
+	}
+
+	@Test
+	public void testSingleFailure() throws SdmxException
+	{
+		SdmxException expected = null;
+		try
+		{
+			SdmxClientHandler.getTimeSeries(PROVIDER, "BENCH/M1", null, null);
+		}
+		catch (SdmxException e)
+		{
+			expected = e;
+		}
+		Assert.assertNotNull(expected);
+
+		// the same error as the key queried on its own
+		try
+		{
+			SdmxClientHandler.getTimeSeries(PROVIDER, "BENCH/K1;BENCH/M1", null, null);
+			Assert.fail("The missing key must fail");
+		}
+		catch (SdmxException e)
+		{
+			Assert.assertFalse(e instanceof SdmxPartialResultException);
+			Assert.assertEquals(expected.getClass(), e.getClass());
+		}
+	}
+
+	@Test
+	public void testWarn() throws SdmxException
+	{
+		Configuration.getConfiguration().setProperty(PROVIDER + ".partial.failure", "warn");
+		try
+		{
+			List<PortableTimeSeries<Double>> series = SdmxClientHandler.getTimeSeries(PROVIDER,
+					"BENCH/M1;BENCH/K1;BENCH/M2;BENCH/K2", null, null);
+			Assert.assertEquals(Arrays.asList(10, 20, 20), sizes(series));
+
+			// nothing to return
+			try
+			{
+				SdmxClientHandler.getTimeSeries(PROVIDER, "BENCH/M1;BENCH/M2", null, null);
+				Assert.fail("The missing keys must fail");
+			}
+			catch (SdmxPartialResultException e)
+			{
+				Assert.assertTrue(e.getPartialResult().isEmpty());
+			}
+		}
+		finally
+		{
+			Configuration.getConfiguration().remove(PROVIDER + ".partial.failure");
+		}
+	}
+
+	@Test
+	public void testInterrupt() throws Exception
+	{
+		File directory = folder.newFolder();
+		new SdmxGenerator().setSeries(2).setObservations(10).writeFiles(directory);
+		SdmxStubServer server = new SdmxStubServer(directory).setLatency(3000, 0).start();
+		try
+		{
+			Configuration.getConfiguration().setProperty("INTERRUPT_TEST.batch.queries", "false");
+			SdmxClientHandler.addProvider("INTERRUPT_TEST", server.getEndpoint().toString(), false, false, true,
+					"Stub provider");
+			final Object[] outcome = new Object[2];
+			Thread caller = new Thread() {
+				@Override
+				public void run()
+				{
+					try
+					{
+						outcome[0] = SdmxClientHandler.getTimeSeries("INTERRUPT_TEST", "BENCH/A..;BENCH/Q..", null, null);
+					}
+					catch (SdmxException e)
+					{
+						outcome[0] = e;
+					}
+					outcome[1] = isInterrupted();
+				}
+			};
+			long start = System.nanoTime();
+			caller.start();
+			Thread.sleep(300);
+			caller.interrupt();
+			caller.join(10000);
+
+			// the caller does not wait for the downloads
+			Assert.assertFalse(caller.isAlive());
+			Assert.assertTrue(System.nanoTime() - start < 3000000000L);
+			Assert.assertTrue(String.valueOf(outcome[0]), outcome[0] instanceof SdmxException);
+			Assert.assertTrue(((SdmxException) outcome[0]).getCause() instanceof InterruptedIOException);
+			Assert.assertEquals(Boolean.TRUE, outcome[1]);
+		}
+		finally
+		{
+			Configuration.getConfiguration().remove("INTERRUPT_TEST.batch.queries");
+			server.stop();
+		}
+	}
+
+	@Test
+	public void testBatchSplit() throws Exception
+	{
+		// no message for the merged key, nor for all the series
+		File directory = folder.newFolder();
+		new SdmxGenerator().writeFiles(directory);
+		Assert.assertTrue(new File(directory, "data_BENCH_all.xml").delete());
+		for (int n = 1; n <= 3; n++)
+			try (Writer out = SdmxGenerator.open(new File(directory, "data_BENCH_A.K" + n + ".S.xml")))
+			{
+				new SdmxGenerator().setSeries(n).setObservations(10).setFrequencies("A").writeData(out);
+			}
+		SdmxStubServer server = new SdmxStubServer(directory).start();
+		try
+		{
+			SdmxClientHandler.addProvider("BATCH_TEST", server.getEndpoint().toString(), false, false, true,
+					"Stub provider");
+			SdmxClientHandler.getDataFlowStructure("BATCH_TEST", "BENCH");
+			long before = server.getRequestCount();
+
+			List<PortableTimeSeries<Double>> series = SdmxClientHandler.getTimeSeries("BATCH_TEST",
+					"BENCH/A.K3.S;BENCH/A.K1.S;BENCH/A.K2.S", null, null);
+			Assert.assertEquals(Arrays.asList(10, 10, 10, 10, 10, 10), sizes(series));
+			Assert.assertEquals("Series 0", series.get(0).getAttribute("TITLE"));
+			Assert.assertEquals("Series 2", series.get(2).getAttribute("TITLE"));
+			Assert.assertEquals("Series 0", series.get(3).getAttribute("TITLE"));
+			// the rejected batch, then each key on its own
+			Assert.assertEquals(4, server.getRequestCount() - before);
+		}
+		finally
+		{
+			server.stop();
+		}
+	}
+
+	@Test
+	public void testBatchUnmatchedKey() throws Exception
+	{
+		// the merged key finds the series of A00 only, A01 has no message
+		File directory = folder.newFolder();
+		new SdmxGenerator().writeFiles(directory);
+		Assert.assertTrue(new File(directory, "data_BENCH_all.xml").delete());
+		try (Writer out = SdmxGenerator.open(new File(directory, "data_BENCH_A.A00+A01.S00000.xml")))
+		{
+			new SdmxGenerator().setSeries(1).setObservations(10).setFrequencies("A").writeData(out);
+		}
+		SdmxStubServer server = new SdmxStubServer(directory).start();
+		try
+		{
+			SdmxClientHandler.addProvider("UNMATCHED_TEST", server.getEndpoint().toString(), false, false, true,
+					"Stub provider");
+			SdmxException expected = null;
+			try
+			{
+				SdmxClientHandler.getTimeSeries("UNMATCHED_TEST", "BENCH/A.A01.S00000", null, null);
+			}
+			catch (SdmxException e)
+			{
+				expected = e;
+			}
+			Assert.assertTrue(String.valueOf(expected), expected instanceof SdmxResponseException);
+
+			// the same error as the key queried on its own
+			long before = server.getRequestCount();
+			try
+			{
+				SdmxClientHandler.getTimeSeries("UNMATCHED_TEST", "BENCH/A.A00.S00000;BENCH/A.A01.S00000", null, null);
+				Assert.fail("The missing key must fail");
+			}
+			catch (SdmxException e)
+			{
+				Assert.assertEquals(expected.getClass(), e.getClass());
+				Assert.assertEquals(((SdmxResponseException) expected).getResponseCode(),
+						((SdmxResponseException) e).getResponseCode());
+			}
+			// the batch, then the unmatched key on its own
+			Assert.assertEquals(2, server.getRequestCount() - before);
+		}
+		finally
+		{
+			server.stop();
+		}
+	}
+
+	private static List<Integer> sizes(List<PortableTimeSeries<Double>> series)
+	{
+		List<Integer> sizes = new ArrayList<>();
+		for (PortableTimeSeries<Double> ts : series)
+			sizes.add(ts.size());
+		return sizes;
+	}
+}
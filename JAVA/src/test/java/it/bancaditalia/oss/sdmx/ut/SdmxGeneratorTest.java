@@ -0,0 +1,107 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.bancaditalia.oss.sdmx.api.Codelist;
+import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
+import it.bancaditalia.oss.sdmx.api.Dataflow;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.client.SdmxClientHandler;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.parser.v21.CodelistParser;
+import it.bancaditalia.oss.sdmx.parser.v21.CompactDataParser;
+import it.bancaditalia.oss.sdmx.parser.v21.DataParsingResult;
+import it.bancaditalia.oss.sdmx.parser.v21.DataStructureParser;
+import it.bancaditalia.oss.sdmx.parser.v21.DataflowParser;
+import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
+import it.bancaditalia.oss.sdmx.util.SdmxGenerator;
+import it.bancaditalia.oss.sdmx.util.XmlStreams;
+
+public class SdmxGeneratorTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testDeterministic() throws IOException
+	{
+		Assert.assertEquals(data(new SdmxGenerator().setSeed(7)), data(new SdmxGenerator().setSeed(7)));
+		Assert.assertNotEquals(data(new SdmxGenerator().setSeed(7)), data(new SdmxGenerator().setSeed(8)));
+	}
+
+	@Test
+	public void testMessages() throws IOException, XMLStreamException, SdmxException
+	{
+		SdmxGenerator generator = new SdmxGenerator().setSeries(25).setObservations(367).setCodes(2)
+				.setFrequencies("D", "W", "S").setStartYear(2000).setAttributeDensity(1).setDataflows(3);
+
+		StringWriter structure = new StringWriter();
+		generator.writeStructure(structure);
+		DataFlowStructure dsd = new DataStructureParser().parse(
+				XmlStreams.createStreamReader(new StringReader(structure.toString())), LanguagePriorityList.ANY).get(0);
+		Assert.assertEquals(SdmxGenerator.DSD, dsd.getId());
+		Assert.assertEquals(3, dsd.getDimensions().size());
+		Assert.assertEquals("Series 1", dsd.getDimension("SERIES").getCodeList().get("S00001"));
+		// the areas grow so that the keys are unique
+		Assert.assertEquals(13, dsd.getDimension("REF_AREA").getCodeList().size());
+
+		DataParsingResult result = new CompactDataParser(dsd, new Dataflow(), true).parse(
+				XmlStreams.createStreamReader(new StringReader(data(generator))), LanguagePriorityList.ANY);
+		Assert.assertEquals(25, result.size());
+		Assert.assertEquals(generator.getObservationCount(), 25 * result.get(0).size());
+		PortableTimeSeries<Double> daily = result.get(0);
+		Assert.assertEquals("D.A00.S00000", daily.getName());
+		Assert.assertEquals("2000-02-29", daily.get(59).getTimeslot());
+		Assert.assertEquals("2000-12-31", daily.get(365).getTimeslot());
+		Assert.assertEquals("2001-01-01", daily.get(366).getTimeslot());
+		Assert.assertEquals("2000-W52", result.get(1).get(51).getTimeslot());
+		Assert.assertEquals("2001-S2", result.get(2).get(3).getTimeslot());
+		Assert.assertEquals("Series 1", result.get(1).getAttribute("TITLE"));
+		Assert.assertNotNull(daily.get(0).getAttributeValue("OBS_STATUS"));
+
+		StringWriter codelist = new StringWriter();
+		generator.writeCodelist("CL_FREQ", codelist);
+		Codelist freq = new CodelistParser().parse(XmlStreams.createStreamReader(new StringReader(codelist.toString())),
+				LanguagePriorityList.ANY);
+		Assert.assertEquals("Daily", freq.get("D"));
+
+		StringWriter dataflows = new StringWriter();
+		generator.writeDataflows(dataflows);
+		List<Dataflow> flows = new DataflowParser().parse(XmlStreams.createStreamReader(new StringReader(dataflows.toString())),
+				LanguagePriorityList.ANY);
+		Assert.assertEquals(3, flows.size());
+		Assert.assertEquals("BENCH_2", flows.get(2).getId());
+	}
+
+	@Test
+	public void testFileProvider() throws IOException, SdmxException
+	{
+		File directory = folder.newFolder();
+		new SdmxGenerator().setDataflow("SYNTH").setSeries(4).setObservations(12).writeFiles(directory);
+
+		SdmxClientHandler.addLocalProvider("SYNTHETIC", directory.getPath(), "Synthetic messages");
+		List<PortableTimeSeries<Double>> series = SdmxClientHandler.getTimeSeries("SYNTHETIC",
+				"SYNTH/" + SdmxGenerator.ALL_KEYS, null, null);
+		Assert.assertEquals(4, series.size());
+		Assert.assertEquals(12, series.get(3).size());
+		Assert.assertEquals("SYNTH.A.A00.S00003", series.get(3).getName());
+	}
+
+	private static String data(SdmxGenerator generator) throws IOException
+	{
+		StringWriter out = new StringWriter();
+		generator.writeData(out);
+		return out.toString();
+	}
+}
@@ -0,0 +1,97 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.bench.SdmxStubServer;
+import it.bancaditalia.oss.sdmx.client.SdmxClientHandler;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.util.SdmxGenerator;
+
+public class SdmxStubServerTest
+{
+	@Rule
+	public TemporaryFolder	folder	= new TemporaryFolder();
+
+	private SdmxStubServer	server;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		File directory = folder.newFolder();
+		new SdmxGenerator().setSeries(3).setObservations(10).writeFiles(directory);
+		server = new SdmxStubServer(directory).setThreads(2).start();
+	}
+
+	@After
+	public void tearDown()
+	{
+		server.stop();
+	}
+
+	@Test
+	public void testPaths() throws IOException
+	{
+		Assert.assertEquals(200, get("/dataflow/all/BENCH/latest", false).getResponseCode());
+		Assert.assertEquals(200, get("/datastructure/BENCH/BENCH_DSD/1.0?references=children", false).getResponseCode());
+		Assert.assertEquals(200, get("/codelist/BENCH/CL_FREQ/1.0", false).getResponseCode());
+		Assert.assertEquals(200, get("/data/BENCH%2CBENCH%2C1.0/A.A00.S00001", false).getResponseCode());
+		Assert.assertEquals(404, get("/codelist/BENCH/CL_MISSING/1.0", false).getResponseCode());
+
+		HttpURLConnection conn = get("/data/BENCH/all", true);
+		Assert.assertEquals("gzip", conn.getContentEncoding());
+		try (InputStream in = new GZIPInputStream(conn.getInputStream()))
+		{
+			Assert.assertEquals('<', in.read());
+		}
+
+		// a conditional request is answered without a body
+		conn = get("/data/BENCH/all", false);
+		String etag = conn.getHeaderField("ETag");
+		conn.getInputStream().close();
+		conn = get("/data/BENCH/all", false);
+		conn.setRequestProperty("If-None-Match", etag);
+		Assert.assertEquals(304, conn.getResponseCode());
+	}
+
+	@Test
+	public void testInjection() throws IOException
+	{
+		server.setLatency(50, 0).setErrors(1, 503);
+		long start = System.nanoTime();
+		Assert.assertEquals(503, get("/data/BENCH/all", false).getResponseCode());
+		Assert.assertTrue(System.nanoTime() - start >= 50000000L);
+		Assert.assertEquals(1, server.getErrorCount());
+	}
+
+	@Test
+	public void testClient() throws SdmxException
+	{
+		SdmxClientHandler.addProvider("STUB_TEST", server.getEndpoint().toString(), false, false, true, "Stub provider");
+		List<PortableTimeSeries<Double>> series = SdmxClientHandler.getTimeSeries("STUB_TEST", "BENCH/A..", null, null);
+		Assert.assertEquals(3, series.size());
+		Assert.assertEquals(10, series.get(0).size());
+		Assert.assertTrue(server.getBytesSent() > 0);
+	}
+
+	private HttpURLConnection get(String path, boolean gzip) throws IOException
+	{
+		HttpURLConnection conn = (HttpURLConnection) new URL(server.getEndpoint() + path).openConnection();
+		if (gzip)
+			conn.setRequestProperty("Accept-Encoding", "gzip");
+		return conn;
+	}
+}
@@ -0,0 +1,64 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.client.SdmxClientHandler;
+import it.bancaditalia.oss.sdmx.client.SeriesCursor;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.util.SdmxGenerator;
+
+public class SeriesCursorTest
+{
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	@BeforeClass
+	public static void setUp() throws IOException, SdmxException
+	{
+		new SdmxGenerator().setSeries(6).setObservations(20).writeFiles(folder.getRoot());
+		SdmxClientHandler.addLocalProvider("CURSOR_TEST", folder.getRoot().getPath(), "Synthetic messages");
+	}
+
+	@Test
+	public void testSeries() throws SdmxException
+	{
+		List<PortableTimeSeries<Double>> expected = SdmxClientHandler.getTimeSeries("CURSOR_TEST", "BENCH/all", null, null);
+		try (SeriesCursor cursor = new SeriesCursor("CURSOR_TEST", "BENCH/all", null, null, 1))
+		{
+			for (PortableTimeSeries<Double> ts : expected)
+			{
+				PortableTimeSeries<Double> next = cursor.next();
+				Assert.assertEquals(ts.getName(), next.getName());
+				Assert.assertEquals(ts.size(), next.size());
+			}
+			Assert.assertNull(cursor.next());
+			Assert.assertNull(cursor.next());
+		}
+	}
+
+	@Test(expected = SdmxException.class)
+	public void testFailure() throws SdmxException
+	{
+		try (SeriesCursor cursor = new SeriesCursor("CURSOR_TEST", "BENCH/A.B.C", null, null, 2))
+		{
+			cursor.next();
+		}
+	}
+
+	@Test
+	public void testClose() throws SdmxException
+	{
+		SeriesCursor cursor = new SeriesCursor("CURSOR_TEST", "BENCH/all", null, null, 1);
+		Assert.assertNotNull(cursor.next());
+		cursor.close();
+		Assert.assertNull(cursor.next());
+	}
+}
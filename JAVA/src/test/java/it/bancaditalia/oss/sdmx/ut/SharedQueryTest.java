@@ -0,0 +1,102 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
+import it.bancaditalia.oss.sdmx.api.Dataflow;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.bench.SdmxStubServer;
+import it.bancaditalia.oss.sdmx.client.RestSdmxClient;
+import it.bancaditalia.oss.sdmx.parser.v21.DataParsingResult;
+import it.bancaditalia.oss.sdmx.util.SdmxGenerator;
+
+public class SharedQueryTest
+{
+	@Rule
+	public TemporaryFolder	folder	= new TemporaryFolder();
+
+	private SdmxStubServer	server;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		File directory = folder.newFolder();
+		new SdmxGenerator().setSeries(3).setObservations(20).setFrequencies("A").writeFiles(directory);
+		server = new SdmxStubServer(directory).setThreads(4).setLatency(500, 0).start();
+	}
+
+	@After
+	public void tearDown()
+	{
+		server.stop();
+	}
+
+	@Test
+	public void testPostProcess() throws Exception
+	{
+		// reverses the series it receives, as a provider sorting them would change them
+		final RestSdmxClient client = new RestSdmxClient("SHARED_TEST", server.getEndpoint(), false, false, true) {
+			@Override
+			protected List<PortableTimeSeries<Double>> postProcess(DataParsingResult result)
+			{
+				for (PortableTimeSeries<Double> ts : result)
+					Collections.reverse(ts);
+				return result;
+			}
+		};
+		final Dataflow dataflow = client.getDataflow("BENCH", SdmxGenerator.AGENCY, "1.0");
+		final DataFlowStructure dsd = client.getDataFlowStructure(dataflow.getDsdIdentifier(), true);
+		long before = server.getRequestCount();
+
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try
+		{
+			Callable<List<PortableTimeSeries<Double>>> query = new Callable<List<PortableTimeSeries<Double>>>() {
+				@Override
+				public List<PortableTimeSeries<Double>> call() throws Exception
+				{
+					start.await();
+					return client.getTimeSeries(dataflow, dsd, "A..", null, null, false, null, false);
+				}
+			};
+			Future<List<PortableTimeSeries<Double>>> first = executor.submit(query);
+			Future<List<PortableTimeSeries<Double>>> second = executor.submit(query);
+			start.countDown();
+
+			// each caller reversed its own series once
+			for (Future<List<PortableTimeSeries<Double>>> result : Arrays.asList(first, second))
+			{
+				List<PortableTimeSeries<Double>> series = result.get();
+				Assert.assertEquals(3, series.size());
+				for (PortableTimeSeries<Double> ts : series)
+				{
+					Assert.assertEquals(20, ts.size());
+					Assert.assertTrue(ts.get(0).getTimeslot().compareTo(ts.get(19).getTimeslot()) > 0);
+				}
+			}
+			Assert.assertNotSame(first.get().get(0), second.get().get(0));
+			Assert.assertEquals(1, server.getRequestCount() - before);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+}
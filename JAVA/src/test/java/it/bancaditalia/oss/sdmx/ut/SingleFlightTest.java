@@ -0,0 +1,180 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxXmlContentException;
+import it.bancaditalia.oss.sdmx.util.SingleFlight;
+
+public class SingleFlightTest
+{
+	@Test
+	public void testCoalescing() throws InterruptedException, ExecutionException
+	{
+		final SingleFlight flight = new SingleFlight();
+		final AtomicInteger calls = new AtomicInteger();
+		final CountDownLatch release = new CountDownLatch(1);
+		final Callable<Object> call = new Callable<Object>() {
+			@Override
+			public Object call() throws InterruptedException
+			{
+				calls.incrementAndGet();
+				release.await(10, TimeUnit.SECONDS);
+				return new Object();
+			}
+		};
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Object>> results = new ArrayList<>();
+		for (int i = 0; i < 4; i++)
+			results.add(executor.submit(new Callable<Object>() {
+				@Override
+				public Object call() throws SdmxException
+				{
+					return flight.execute("key", call);
+				}
+			}));
+		// wait until all the callers are waiting
+		while (calls.get() == 0)
+			Thread.sleep(10);
+		Thread.sleep(200);
+		release.countDown();
+
+		for (Future<Object> result : results)
+			Assert.assertSame(results.get(0).get(), result.get());
+		Assert.assertEquals(1, calls.get());
+		Assert.assertEquals(0, flight.size());
+		executor.shutdown();
+	}
+
+	@Test
+	public void testCopies() throws InterruptedException, ExecutionException
+	{
+		final SingleFlight flight = new SingleFlight();
+		final AtomicInteger calls = new AtomicInteger();
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<Integer> original = new ArrayList<>();
+		final Callable<List<Integer>> call = new Callable<List<Integer>>() {
+			@Override
+			public List<Integer> call() throws InterruptedException
+			{
+				calls.incrementAndGet();
+				release.await(10, TimeUnit.SECONDS);
+				original.add(1);
+				return original;
+			}
+		};
+		final SingleFlight.Copier<List<Integer>> copier = new SingleFlight.Copier<List<Integer>>() {
+			@Override
+			public List<Integer> copy(List<Integer> value)
+			{
+				return new ArrayList<>(value);
+			}
+		};
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<List<Integer>>> results = new ArrayList<>();
+		for (int i = 0; i < 4; i++)
+			results.add(executor.submit(new Callable<List<Integer>>() {
+				@Override
+				public List<Integer> call() throws SdmxException
+				{
+					List<Integer> result = flight.execute("key", call, copier);
+					// every caller changes its own list
+					result.add(2);
+					return result;
+				}
+			}));
+		while (calls.get() == 0)
+			Thread.sleep(10);
+		Thread.sleep(200);
+		release.countDown();
+
+		for (Future<List<Integer>> result : results)
+		{
+			Assert.assertNotSame(original, result.get());
+			Assert.assertEquals(Arrays.asList(1, 2), result.get());
+		}
+		Assert.assertEquals(1, calls.get());
+		Assert.assertEquals(Arrays.asList(1), original);
+		executor.shutdown();
+	}
+
+	@Test
+	public void testUnshared() throws SdmxException
+	{
+		final List<Integer> original = new ArrayList<>();
+		List<Integer> result = new SingleFlight().execute("key", new Callable<List<Integer>>() {
+			@Override
+			public List<Integer> call()
+			{
+				return original;
+			}
+		}, new SingleFlight.Copier<List<Integer>>() {
+			@Override
+			public List<Integer> copy(List<Integer> value)
+			{
+				throw new AssertionError("A result that is not shared must not be copied");
+			}
+		});
+		Assert.assertSame(original, result);
+	}
+
+	@Test
+	public void testFailure()
+	{
+		SingleFlight flight = new SingleFlight();
+		try
+		{
+			flight.execute("key", new Callable<Object>() {
+				@Override
+				public Object call() throws SdmxException
+				{
+					throw new SdmxXmlContentException("failed");
+				}
+			});
+			Assert.fail();
+		}
+		catch (SdmxException e)
+		{
+			Assert.assertEquals("failed", e.getMessage());
+		}
+		Assert.assertEquals(0, flight.size());
+	}
+
+	@Test
+	public void testRuntimeException() throws SdmxException
+	{
+		SingleFlight flight = new SingleFlight();
+		final IllegalStateException failure = new IllegalStateException("failed");
+		try
+		{
+			flight.execute("key", new Callable<Object>() {
+				@Override
+				public Object call()
+				{
+					throw failure;
+				}
+			});
+			Assert.fail();
+		}
+		catch (IllegalStateException e)
+		{
+			Assert.assertSame(failure, e);
+		}
+		Assert.assertEquals(0, flight.size());
+	}
+}
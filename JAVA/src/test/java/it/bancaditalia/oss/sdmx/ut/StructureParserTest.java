@@ -0,0 +1,133 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.io.StringReader;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import it.bancaditalia.oss.sdmx.api.Codelist;
+import it.bancaditalia.oss.sdmx.api.DataFlowStructure;
+import it.bancaditalia.oss.sdmx.api.Dataflow;
+import it.bancaditalia.oss.sdmx.api.SdmxAttribute;
+import it.bancaditalia.oss.sdmx.api.SdmxAttribute.AttachmentLevel;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxException;
+import it.bancaditalia.oss.sdmx.parser.v21.CodelistParser;
+import it.bancaditalia.oss.sdmx.parser.v21.DataStructureParser;
+import it.bancaditalia.oss.sdmx.parser.v21.DataflowParser;
+import it.bancaditalia.oss.sdmx.util.LanguagePriorityList;
+import it.bancaditalia.oss.sdmx.util.XmlStreams;
+
+public class StructureParserTest
+{
+	private static final String	HEADER		= "<mes:Structure xmlns:mes=\"http://www.sdmx.org/resources/sdmxml/schemas/v2_1/message\""
+			+ " xmlns:str=\"http://www.sdmx.org/resources/sdmxml/schemas/v2_1/structure\""
+			+ " xmlns:com=\"http://www.sdmx.org/resources/sdmxml/schemas/v2_1/common\"><mes:Structures>";
+	private static final String	FOOTER		= "</mes:Structures></mes:Structure>";
+
+	private static final String	CODELISTS	= "<str:Codelists>"
+			+ "<str:Codelist id=\"CL_FREQ\" agencyID=\"ECB\" version=\"1.0\"><com:Name xml:lang=\"en\">Frequency</com:Name>"
+			+ "<str:Code id=\"A\"><com:Name xml:lang=\"en\">Annual</com:Name><com:Name xml:lang=\"it\">Annuale</com:Name></str:Code>"
+			+ "<str:Code id=\"M\"><com:Name xml:lang=\"en\">Monthly</com:Name><str:Parent><Ref id=\"A\"/></str:Parent></str:Code>"
+			+ "</str:Codelist>"
+			+ "<str:Codelist id=\"CL_OBS_STATUS\" agencyID=\"ECB\" version=\"1.0\">"
+			+ "<str:Code id=\"A\"><com:Name xml:lang=\"en\">Normal value</com:Name></str:Code>"
+			+ "</str:Codelist></str:Codelists>";
+
+	private static final String	STRUCTURE	= HEADER + CODELISTS
+			+ "<str:Concepts><str:ConceptScheme id=\"ECB_CONCEPTS\" agencyID=\"ECB\" version=\"1.0\">"
+			+ "<str:Concept id=\"FREQ\"><com:Name xml:lang=\"en\">Frequency</com:Name></str:Concept>"
+			+ "<str:Concept id=\"OBS_STATUS\"><com:Name xml:lang=\"en\">Observation status</com:Name></str:Concept>"
+			+ "</str:ConceptScheme></str:Concepts>"
+			+ "<str:DataStructures><str:DataStructure id=\"ECB_EXR1\" agencyID=\"ECB\" version=\"1.0\">"
+			+ "<com:Name xml:lang=\"en\">Exchange rates</com:Name><str:DataStructureComponents>"
+			+ "<str:DimensionList id=\"DimensionDescriptor\">"
+			+ "<str:Dimension id=\"FREQ\" position=\"1\">"
+			+ "<str:ConceptIdentity><Ref id=\"FREQ\" maintainableParentID=\"ECB_CONCEPTS\" maintainableParentVersion=\"1.0\" agencyID=\"ECB\"/></str:ConceptIdentity>"
+			+ "<str:LocalRepresentation><str:Enumeration><Ref id=\"CL_FREQ\" version=\"1.0\" agencyID=\"ECB\"/></str:Enumeration></str:LocalRepresentation>"
+			+ "</str:Dimension>"
+			+ "<str:Dimension id=\"CURRENCY\" position=\"2\"/>"
+			+ "<str:TimeDimension id=\"TIME_PERIOD\" position=\"3\"/>"
+			+ "</str:DimensionList>"
+			+ "<str:AttributeList id=\"AttributeDescriptor\">"
+			+ "<str:Attribute id=\"OBS_STATUS\" assignmentStatus=\"Mandatory\">"
+			+ "<str:ConceptIdentity><Ref id=\"OBS_STATUS\" maintainableParentID=\"ECB_CONCEPTS\" maintainableParentVersion=\"1.0\" agencyID=\"ECB\"/></str:ConceptIdentity>"
+			+ "<str:LocalRepresentation><str:Enumeration><Ref id=\"CL_OBS_STATUS\" version=\"1.0\" agencyID=\"ECB\"/></str:Enumeration></str:LocalRepresentation>"
+			+ "<str:AttributeRelationship><str:PrimaryMeasure><Ref id=\"OBS_VALUE\"/></str:PrimaryMeasure></str:AttributeRelationship>"
+			+ "</str:Attribute>"
+			+ "</str:AttributeList>"
+			+ "<str:MeasureList id=\"MeasureDescriptor\"><str:PrimaryMeasure id=\"OBS_VALUE\"/></str:MeasureList>"
+			+ "</str:DataStructureComponents></str:DataStructure></str:DataStructures>" + FOOTER;
+
+	private static final String	DATAFLOWS	= HEADER + "<str:Dataflows>"
+			+ "<str:Dataflow id=\"EXR\" agencyID=\"ECB\" version=\"1.0\"><com:Name xml:lang=\"en\">Exchange Rates</com:Name>"
+			+ "<str:Structure><Ref id=\"ECB_EXR1\" version=\"1.0\" agencyID=\"ECB\"/></str:Structure></str:Dataflow>"
+			+ "<str:Dataflow id=\"ICP\" agencyID=\"ECB\" version=\"1.0\"><com:Name xml:lang=\"en\">Prices</com:Name>"
+			+ "<str:Structure><Ref id=\"ECB_ICP1\" version=\"1.0\" agencyID=\"ECB\"/></str:Structure></str:Dataflow>"
+			+ "</str:Dataflows>" + FOOTER;
+
+	@Test
+	public void testDataStructure() throws XMLStreamException, SdmxException
+	{
+		DataStructureParser parser = new DataStructureParser();
+		List<DataFlowStructure> structures = parser.parse(XmlStreams.createStreamReader(new StringReader(STRUCTURE)),
+				LanguagePriorityList.ANY);
+		Assert.assertEquals(1, structures.size());
+		DataFlowStructure dsd = structures.get(0);
+		Assert.assertEquals("ECB/ECB_EXR1/1.0", dsd.getFullIdentifier());
+		Assert.assertEquals("Exchange rates", dsd.getName());
+		Assert.assertEquals(2, dsd.getDimensions().size());
+		Assert.assertEquals("Frequency", dsd.getDimension("FREQ").getName());
+		Assert.assertEquals("Annual", dsd.getDimension("FREQ").getCodeList().get("A"));
+		Assert.assertEquals(2, dsd.getDimensionPosition("CURRENCY"));
+		Assert.assertEquals("TIME_PERIOD", dsd.getTimeDimension());
+		Assert.assertEquals("OBS_VALUE", dsd.getMeasure());
+		SdmxAttribute status = dsd.getAttribute("OBS_STATUS");
+		Assert.assertEquals("Observation status", status.getName());
+		Assert.assertEquals(AttachmentLevel.OBSERVATION, status.getAttachmentLevel());
+		Assert.assertEquals("Normal value", status.getCodeList().get("A"));
+
+		// the event reader gives the same result
+		List<DataFlowStructure> events = parser.parse(
+				XmlStreams.createEventReader(new StringReader(STRUCTURE)), LanguagePriorityList.ANY);
+		Assert.assertEquals(dsd.toString(), events.get(0).toString());
+	}
+
+	@Test
+	public void testCodelist() throws XMLStreamException, SdmxException
+	{
+		String message = HEADER + CODELISTS + FOOTER;
+		Codelist codes = new CodelistParser().parse(XmlStreams.createStreamReader(new StringReader(message)),
+				LanguagePriorityList.parse("it"));
+		Assert.assertEquals(2, codes.size());
+		Assert.assertEquals("Annuale", codes.get("A"));
+		Assert.assertEquals("Monthly", codes.get("M"));
+		Assert.assertEquals("A", codes.getParent("M"));
+
+		Codelist events = new CodelistParser().parse(XmlStreams.createEventReader(new StringReader(message)),
+				LanguagePriorityList.parse("it"));
+		Assert.assertEquals(codes, events);
+	}
+
+	@Test
+	public void testDataflows() throws XMLStreamException, SdmxException
+	{
+		List<Dataflow> dataflows = new DataflowParser().parse(
+				XmlStreams.createStreamReader(new StringReader(DATAFLOWS)), LanguagePriorityList.ANY);
+		Assert.assertEquals(2, dataflows.size());
+		Assert.assertEquals("ECB,EXR,1.0", dataflows.get(0).getFullIdentifier());
+		Assert.assertEquals("Exchange Rates", dataflows.get(0).getDescription());
+		Assert.assertEquals("ECB/ECB_ICP1/1.0", dataflows.get(1).getDsdIdentifier().getFullIdentifier());
+
+		List<Dataflow> events = new DataflowParser().parse(XmlStreams.createEventReader(new StringReader(DATAFLOWS)),
+				LanguagePriorityList.ANY);
+		Assert.assertEquals(2, events.size());
+		for (int i = 0; i < dataflows.size(); i++)
+		{
+			Assert.assertEquals(dataflows.get(i).getFullIdentifier(), events.get(i).getFullIdentifier());
+			Assert.assertEquals(dataflows.get(i).getDescription(), events.get(i).getDescription());
+		}
+	}
+}
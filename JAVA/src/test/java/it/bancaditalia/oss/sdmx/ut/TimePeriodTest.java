@@ -0,0 +1,108 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import it.bancaditalia.oss.sdmx.api.BaseObservation;
+import it.bancaditalia.oss.sdmx.api.DoubleObservation;
+import it.bancaditalia.oss.sdmx.api.DoubleTimeSeries;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.exceptions.SdmxInvalidParameterException;
+import it.bancaditalia.oss.sdmx.util.TimePeriod;
+import it.bancaditalia.oss.sdmx.util.TimePeriod.Frequency;
+import it.bancaditalia.oss.sdmx.util.WeekConverter;
+
+public class TimePeriodTest
+{
+	@Test
+	public void testEncode()
+	{
+		Assert.assertEquals(Frequency.ANNUAL, TimePeriod.getFrequency(TimePeriod.encode("2020")));
+		Assert.assertEquals(Frequency.ANNUAL, TimePeriod.getFrequency(TimePeriod.encode("2020-A1")));
+		Assert.assertEquals(Frequency.SEMESTER, TimePeriod.getFrequency(TimePeriod.encode("2020-S2")));
+		Assert.assertEquals(Frequency.TRIMESTER, TimePeriod.getFrequency(TimePeriod.encode("2020-T3")));
+		Assert.assertEquals(Frequency.QUARTER, TimePeriod.getFrequency(TimePeriod.encode("2020q3")));
+		Assert.assertEquals(Frequency.MONTH, TimePeriod.getFrequency(TimePeriod.encode("2020-M07")));
+		Assert.assertEquals(Frequency.WEEK, TimePeriod.getFrequency(TimePeriod.encode("2020-W07")));
+		Assert.assertEquals(Frequency.DAY, TimePeriod.getFrequency(TimePeriod.encode("2020-D366")));
+		Assert.assertEquals(Frequency.DATETIME, TimePeriod.getFrequency(TimePeriod.encode("2020-01-01T10:30:00Z")));
+
+		Assert.assertEquals(TimePeriod.encode("2020-07"), TimePeriod.encode("2020-M07"));
+		Assert.assertEquals(TimePeriod.encode("2020-12-31"), TimePeriod.encode("2020-D366"));
+		Assert.assertEquals(TimePeriod.encode("2020-01-01"), TimePeriod.encode("2020-01-01/P1D"));
+		Assert.assertEquals(0, TimePeriod.getStart(TimePeriod.encode("1970-01-01T00:00")));
+
+		Assert.assertEquals(50, TimePeriod.getOrdinal(TimePeriod.encode("2020")));
+		Assert.assertEquals(202, TimePeriod.getOrdinal(TimePeriod.encode("2020-Q3")));
+		Assert.assertEquals(-1, TimePeriod.getOrdinal(TimePeriod.encode("1969-12")));
+		Assert.assertEquals(0, TimePeriod.getOrdinal(TimePeriod.encode("1970-W01")));
+
+		for (String invalid : new String[] { null, "", "20", "abcd", "2020-Q5", "2021-D366", "2020-13", "2020-02-30",
+				"2020-W54", "2020-X1", "2020-01-01T25:00" })
+			Assert.assertEquals(invalid, TimePeriod.INVALID, TimePeriod.encode(invalid));
+	}
+
+	@Test
+	public void testCompare()
+	{
+		List<String> expected = Arrays.asList("2019-W52", "2020", "2020-S1", "2020-Q1", "2020-M01", "2020-01-01",
+				"2020-01-01T00:00:00", "2020-M2", "2020-W07", "2020-Q3", "2020-M10", "oops");
+		List<String> periods = new ArrayList<>(expected);
+		Collections.reverse(periods);
+
+		String[] array = periods.toArray(new String[periods.size()]);
+		int[] order = TimePeriod.sortOrder(array, array.length);
+		List<String> sorted = new ArrayList<>();
+		for (int index : order)
+			sorted.add(array[index]);
+		Assert.assertEquals(expected, sorted);
+		Assert.assertNull(TimePeriod.sortOrder(expected.toArray(new String[0]), expected.size()));
+
+		PortableTimeSeries<Double> ts = new PortableTimeSeries<>();
+		DoubleTimeSeries dts = new DoubleTimeSeries();
+		for (String period : periods)
+		{
+			ts.add(new DoubleObservation(period, 1.0, null));
+			dts.add(period, 1.0, null);
+		}
+		Collections.sort(ts);
+		dts.sortByTime();
+		Assert.assertEquals(expected, timeslots(ts));
+		Assert.assertEquals(expected, Arrays.asList(dts.getTimeslots()));
+	}
+
+	@Test
+	public void testIsoDates() throws SdmxInvalidParameterException
+	{
+		Assert.assertArrayEquals(
+				new String[] { "2020-12-31", "2020-06-30", "2020-08-31", "2020-03-31", "2020-02-29", "2020-02-29",
+						"2020-02-16", "2020-01-01", "2020-02-01", "bad" },
+				TimePeriod.toIsoDates(new String[] { "2020", "2020-S1", "2020-T2", "2020-Q1", "2020-M02", "2020-02",
+						"2020-W07", "2020-D001", "2020-02-01T12:00:00", "bad" }));
+
+		Assert.assertEquals("2010-08-15", WeekConverter.convert("2010-W32"));
+		Assert.assertEquals("2021-01-03", WeekConverter.convert("2020-W53"));
+		try
+		{
+			WeekConverter.convert("2010-08");
+			Assert.fail("Expected an exception");
+		}
+		catch (SdmxInvalidParameterException e)
+		{
+			// expected
+		}
+	}
+
+	private static List<String> timeslots(PortableTimeSeries<Double> ts)
+	{
+		List<String> timeslots = new ArrayList<>();
+		for (BaseObservation<? extends Double> obs : ts)
+			timeslots.add(obs.getTimeslot());
+		return timeslots;
+	}
+}
@@ -0,0 +1,71 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import it.bancaditalia.oss.sdmx.api.BaseObservation;
+import it.bancaditalia.oss.sdmx.api.DoubleObservation;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.client.TimeRangeChunker;
+
+public class TimeRangeChunkerTest
+{
+	@Test
+	public void testSplit()
+	{
+		List<String[]> windows = TimeRangeChunker.split("1999-01-04", "2004-06", "D", 1000);
+		Assert.assertEquals(3, windows.size());
+		Assert.assertArrayEquals(new String[] { "1999-01-04", "2000-12-31" }, windows.get(0));
+		Assert.assertArrayEquals(new String[] { "2001-01-01", "2002-12-31" }, windows.get(1));
+		Assert.assertArrayEquals(new String[] { "2003-01-01", "2004-06" }, windows.get(2));
+
+		// nothing to split
+		Assert.assertNull(TimeRangeChunker.split("1999", "2004", "M", 1000));
+		Assert.assertNull(TimeRangeChunker.split(null, "2004", "D", 1000));
+		Assert.assertNull(TimeRangeChunker.split("1999", "2004", "D", 0));
+		Assert.assertNull(TimeRangeChunker.split("last", "2004", "D", 1000));
+
+		windows = TimeRangeChunker.split("2015-Q1", "2020-Q4", "M", 24);
+		Assert.assertEquals(3, windows.size());
+		Assert.assertArrayEquals(new String[] { "2015-Q1", "2016-12-31" }, windows.get(0));
+		Assert.assertArrayEquals(new String[] { "2019-01-01", "2020-Q4" }, windows.get(2));
+	}
+
+	@Test
+	public void testStitch()
+	{
+		PortableTimeSeries<Double> first = series("EXR.D.USD", "2000-12-30", "2000-12-31", "2001-01-01");
+		PortableTimeSeries<Double> second = series("EXR.D.USD", "2001-01-01", "2001-01-02");
+		PortableTimeSeries<Double> other = series("EXR.D.GBP", "2001-01-02");
+
+		List<PortableTimeSeries<Double>> result = TimeRangeChunker
+				.stitch(Arrays.asList(Arrays.asList(first), Arrays.asList(other, second)));
+
+		Assert.assertEquals(2, result.size());
+		Assert.assertEquals("EXR.D.USD", result.get(0).getName());
+		Assert.assertEquals(Arrays.asList("2000-12-30", "2000-12-31", "2001-01-01", "2001-01-02"),
+				timeslots(result.get(0)));
+		Assert.assertEquals("EXR.D.GBP", result.get(1).getName());
+	}
+
+	private static PortableTimeSeries<Double> series(String name, String... timeslots)
+	{
+		PortableTimeSeries<Double> ts = new PortableTimeSeries<>();
+		ts.setName(name);
+		for (String timeslot : timeslots)
+			ts.add(new DoubleObservation(timeslot, 1.0, null));
+		return ts;
+	}
+
+	private static List<String> timeslots(PortableTimeSeries<Double> ts)
+	{
+		List<String> timeslots = new ArrayList<>();
+		for (BaseObservation<? extends Double> obs : ts)
+			timeslots.add(obs.getTimeslot());
+		return timeslots;
+	}
+}
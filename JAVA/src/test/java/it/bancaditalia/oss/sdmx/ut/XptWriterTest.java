@@ -0,0 +1,163 @@
+package it.bancaditalia.oss.sdmx.ut;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.bancaditalia.oss.sdmx.api.DoubleTimeSeries;
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.client.SASClientHandler;
+import it.bancaditalia.oss.sdmx.util.XptWriter;
+
+public class XptWriterTest
+{
+	private static final Charset	ASCII	= Charset.forName("US-ASCII");
+
+	@Rule
+	public TemporaryFolder			folder	= new TemporaryFolder();
+
+	@Test
+	public void testIbm()
+	{
+		Assert.assertEquals(0x4110000000000000L, XptWriter.toIbm(1));
+		Assert.assertEquals(0xC276A00000000000L, XptWriter.toIbm(-118.625));
+		Assert.assertEquals(0, XptWriter.toIbm(0));
+		Assert.assertEquals(0, XptWriter.toIbm(1e-300));
+		Assert.assertEquals(0x2E00000000000000L, XptWriter.toIbm(Double.NaN));
+		Assert.assertEquals(0x2E00000000000000L, XptWriter.toIbm(1e100));
+		for (double value : new double[] { 0.1, -2.5, 3, 123456.789, 1e-70, 7e75, Math.PI })
+			Assert.assertEquals(value, fromIbm(XptWriter.toIbm(value)), 0);
+	}
+
+	@Test
+	public void testFile() throws IOException
+	{
+		File file = folder.newFile("test.xpt");
+		Assert.assertEquals(2, SASClientHandler.writeTransport(series(), file, true, XptWriter.V5));
+		byte[] xpt = Files.readAllBytes(file.toPath());
+		Assert.assertEquals(0, xpt.length % 80);
+		Assert.assertEquals("HEADER RECORD*******LIBRARY HEADER RECORD!!!!!!!000000000000000000000000000000  ",
+				string(xpt, 0, 80));
+		Assert.assertEquals("SAS     SAS     SASLIB  ", string(xpt, 80, 24));
+
+		int member = find(xpt, "HEADER RECORD*******MEMBER  HEADER RECORD", 0);
+		Assert.assertEquals("SAS     SDMXDATASASDATA ", string(xpt, member + 160, 24));
+		int namestr = find(xpt, "HEADER RECORD*******NAMESTR HEADER RECORD", member);
+		Assert.assertEquals("0003", string(xpt, namestr + 54, 4));
+		ByteBuffer buffer = ByteBuffer.wrap(xpt);
+		int[] lengths = new int[3];
+		for (int v = 0; v < 3; v++)
+		{
+			int offset = namestr + 80 + 140 * v;
+			Assert.assertEquals(v == 2 ? 1 : 2, buffer.getShort(offset));
+			lengths[v] = buffer.getShort(offset + 4);
+			Assert.assertEquals(v + 1, buffer.getShort(offset + 6));
+		}
+		Assert.assertEquals("OBS_VALU", string(xpt, namestr + 80 + 280 + 8, 8));
+		Assert.assertEquals("OBS_VALUE", string(xpt, namestr + 80 + 280 + 16, 40).trim());
+		Assert.assertEquals(lengths[0] + lengths[1], buffer.getInt(namestr + 80 + 280 + 84));
+		Assert.assertEquals(4, lengths[0]);
+		Assert.assertEquals(4, lengths[1]);
+
+		// the rows follow the header of the observations
+		int obs = find(xpt, "HEADER RECORD*******OBS     HEADER RECORD", namestr) + 80;
+		int row = lengths[0] + lengths[1] + 8;
+		Assert.assertEquals("A.IT2001", string(xpt, obs, 8));
+		Assert.assertEquals(1.5, fromIbm(buffer.getLong(obs + 8)), 0);
+		Assert.assertEquals("A.IT2002", string(xpt, obs + row, 8));
+		Assert.assertEquals(0x2E00000000000000L, buffer.getLong(obs + row + 8));
+		Assert.assertEquals("A.FR2001", string(xpt, obs + 2 * row, 8));
+		Assert.assertEquals(-2, fromIbm(buffer.getLong(obs + 2 * row + 8)), 0);
+
+		// the metadata members, with their names cut to 8 characters
+		member = find(xpt, "HEADER RECORD*******MEMBER  HEADER RECORD", obs);
+		Assert.assertEquals("SDMXMETA", string(xpt, member + 168, 8));
+		obs = find(xpt, "HEADER RECORD*******OBS     HEADER RECORD", member) + 80;
+		Assert.assertTrue(find(xpt, "DIMENSION", obs) > 0);
+		member = find(xpt, "HEADER RECORD*******MEMBER  HEADER RECORD", obs);
+		Assert.assertEquals("SDMXOBSE", string(xpt, member + 168, 8));
+		obs = find(xpt, "HEADER RECORD*******OBS     HEADER RECORD", member) + 80;
+		Assert.assertEquals("A.ITOBS_STATUSA2001", string(xpt, obs, 19));
+	}
+
+	@Test
+	public void testVersion8() throws IOException
+	{
+		File file = folder.newFile("test8.xpt");
+		SASClientHandler.writeTransport(series(), file, false, XptWriter.V8);
+		byte[] xpt = Files.readAllBytes(file.toPath());
+		Assert.assertEquals(0, xpt.length % 80);
+		Assert.assertTrue(string(xpt, 0, 80).startsWith("HEADER RECORD*******LIBV8   HEADER RECORD"));
+		int member = find(xpt, "HEADER RECORD*******MEMBV8  HEADER RECORD", 0);
+		Assert.assertEquals("SDMXDATA", string(xpt, member + 168, 32).trim());
+		int namestr = find(xpt, "HEADER RECORD*******NAMSTV8 HEADER RECORD", member);
+		// the long name follows the fields of the version 5
+		Assert.assertEquals("OBS_VALUE", string(xpt, namestr + 80 + 280 + 88, 32).trim());
+		Assert.assertEquals(-1, find(xpt, "HEADER RECORD*******MEMBV8  HEADER RECORD", namestr));
+	}
+
+	@Test
+	public void testNames()
+	{
+		Set<String> used = new HashSet<>();
+		Assert.assertEquals("OBS_VALU", XptWriter.toSasName("OBS_VALUE", 8, used));
+		Assert.assertEquals("OBS_VAL2", XptWriter.toSasName("OBS_VALUES", 8, used));
+		Assert.assertEquals("REF_AREA", XptWriter.toSasName("ref-area", 8, used));
+		Assert.assertEquals("_1ST", XptWriter.toSasName("1st", 8, used));
+		Assert.assertEquals("OBS_VALUE", XptWriter.toSasName("OBS_VALUE", 32, used));
+	}
+
+	private static List<PortableTimeSeries<Double>> series()
+	{
+		DoubleTimeSeries first = new DoubleTimeSeries();
+		first.setName("A.IT");
+		first.addDimension("FREQ", "A");
+		first.addDimension("REF_AREA", "IT");
+		first.add("2001", 1.5, Collections.singletonMap("OBS_STATUS", "A"));
+		first.addMissing("2002", null);
+		DoubleTimeSeries second = new DoubleTimeSeries();
+		second.setName("A.FR");
+		second.addDimension("FREQ", "A");
+		second.addDimension("REF_AREA", "FR");
+		second.add("2001", -2, null);
+		return Arrays.<PortableTimeSeries<Double>> asList(first, second);
+	}
+
+	private static double fromIbm(long ibm)
+	{
+		double fraction = (ibm & 0x00FFFFFFFFFFFFFFL) / Math.pow(2, 56);
+		int exponent = (int) (ibm >>> 56 & 0x7F) - 64;
+		return (ibm < 0 ? -1 : 1) * fraction * Math.pow(16, exponent);
+	}
+
+	private static String string(byte[] bytes, int offset, int length)
+	{
+		return new String(bytes, offset, length, ASCII);
+	}
+
+	private static int find(byte[] bytes, String text, int from)
+	{
+		byte[] pattern = text.getBytes(ASCII);
+		for (int i = from; i <= bytes.length - pattern.length; i++)
+		{
+			int j = 0;
+			while (j < pattern.length && bytes[i + j] == pattern[j])
+				j++;
+			if (j == pattern.length)
+				return i;
+		}
+		return -1;
+	}
+}
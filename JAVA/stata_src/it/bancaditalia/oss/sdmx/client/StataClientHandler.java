@@ -21,18 +21,18 @@
 
 package it.bancaditalia.oss.sdmx.client;
 
+import java.io.File;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.stata.sfi.Data;
+import com.stata.sfi.Macro;
 import com.stata.sfi.SFIToolkit;
 
-import it.bancaditalia.oss.sdmx.api.BaseObservation;
 import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
 import it.bancaditalia.oss.sdmx.helper.SDMXHelper;
 import it.bancaditalia.oss.sdmx.util.Configuration;
+import it.bancaditalia.oss.sdmx.util.DtaWriter;
 
 /**
  * <p>
@@ -48,6 +48,20 @@ public class StataClientHandler
 
 	protected static Logger logger = Configuration.getSdmxLogger();
 
+	private static final int	DATA				= 0;
+	private static final int	DATA_AND_METADATA	= 1;
+	private static final int	METADATA			= 2;
+	private static final int	DEFAULT_PAGE		= 10000;
+	// the parsed series waiting to be paged
+	private static final int	QUEUED_SERIES		= 4;
+
+	// the state of the query read a page at a time
+	private static SeriesCursor					cursor		= null;
+	private static PortableTimeSeries<Double>	current		= null;
+	private static int							offset		= 0;
+	private static boolean						pageData	= true;
+	private static StataDatasetWriter			writer		= null;
+
 	static
 	{
 		logger.addHandler(new StataLogHandler());
@@ -65,49 +79,12 @@ public class StataClientHandler
 		}
 		String provider = args[0];
 		String tsKey = args[1];
-		String start = "";
-		String end = "";
-
-		String meta = "0"; // only data
-		boolean processMeta = false;
-		boolean processData = true;
-
-		if (args.length >= 3 && !args[2].isEmpty())
-		{
-			start = args[2];
-		}
-		if (args.length >= 4 && !args[3].isEmpty())
-		{
-			end = args[3];
-		}
-		if (args.length >= 5)
-		{
-			meta = args[4];
-			if (meta.equalsIgnoreCase(""))
-			{
-				meta = "0";
-			}
+		String start = args.length >= 3 ? args[2] : "";
+		String end = args.length >= 4 ? args[3] : "";
+		int meta = getMetaMode(args);
+		boolean processMeta = meta != DATA;
+		boolean processData = meta != METADATA;
 
-			if (meta.equalsIgnoreCase("0"))
-			{
-				SFIToolkit.displayln("METADATA is disabled.");
-			}
-			else if (meta.equalsIgnoreCase("1"))
-			{
-				SFIToolkit.displayln("METADATA is enabled.");
-				processMeta = true;
-			}
-			else if (meta.equalsIgnoreCase("2"))
-			{
-				SFIToolkit.displayln("Only METADATA is enabled.");
-				processMeta = true;
-				processData = false;
-			}
-			else
-			{
-				SFIToolkit.displayln("Metadata parameter not valid: " + meta);
-			}
-		}
 		try
 		{
 			int dataLength = 0;
@@ -128,13 +105,6 @@ public class StataClientHandler
 
 			if (dataLength > 0)
 			{
-				int name = 0;
-				int date = 0;
-				int val = 0;
-				Data.setObsTotal(dataLength);
-				Data.addVarStr("TSNAME", 10);
-				name = Data.getVarIndex("TSNAME");
-				int lastPos = name;
 				boolean allNumeric = true;
 				for (PortableTimeSeries<?> ts: tslist)
 					if (!ts.isNumeric())
@@ -143,115 +113,12 @@ public class StataClientHandler
 						break;
 					}
 				if (processData)
-				{
 					SFIToolkit.displayln("The query returned " + dataLength + " observations.");
-					Data.addVarStr("DATE", 5);
-					if (allNumeric)
-						Data.addVarDouble("VALUE");
-					else
-						Data.addVarStr("VALUE", 40);
-					date = Data.getVarIndex("DATE");
-					val = Data.getVarIndex("VALUE");
-					lastPos = val;
-				}
 
-				long i = 0; // time series counter
-				long rowOffset = 0; // row counter
+				StataDatasetWriter writer = new StataDatasetWriter(processData, processMeta, allNumeric);
 				for (PortableTimeSeries<?> ts: tslist)
-				{
-					String tsname = ts.getName();
-					if (processData)
-					{
-						int j = 0; // observation counter
-						for (BaseObservation<?> obs : ts)
-						{
-							Data.storeStr(name, rowOffset + j + 1, tsname);
-							if (allNumeric)
-								Data.storeNum(val, rowOffset + j + 1,
-										obs.getValueAsDouble() == Double.NaN ? Data.getMissingValue()
-												: obs.getValueAsDouble());
-							else
-								Data.storeStr(val, rowOffset + j + 1, obs.getValueAsString());
-							
-							Data.storeStr(date, rowOffset + j + 1, obs.getTimeslot());
-							if (processMeta)
-							{
-								for (Entry<String, String> dim : ts.getDimensionsMap().entrySet())
-								{
-									String key = dim.getKey();
-									String value = dim.getValue();
-									int attrPos = Data.getVarIndex(key);
-									if (attrPos > lastPos)
-									{
-										lastPos = attrPos;
-										// not set yet
-										Data.addVarStr(key, value.length());
-									}
-									Data.storeStr(attrPos, rowOffset + j + 1, value);
-								}
-								
-								for (Entry<String, String> attr : ts.getAttributesMap().entrySet())
-								{
-									String key = attr.getKey();
-									String value = attr.getValue();
-									int attrPos = Data.getVarIndex(key);
-									if (attrPos > lastPos)
-									{
-										lastPos = attrPos;
-										// not set yet
-										Data.addVarStr(key, value.length());
-									}
-									Data.storeStr(attrPos, rowOffset + j + 1, value);
-								}
-
-								// Set obs-level attribute values 
-								for (String attrName: ts.getObsLevelAttributesNames())
-								{
-									int attrPos = Data.getVarIndex(attrName);
-									if (attrPos > lastPos)
-									{
-										lastPos = attrPos;
-										// not set yet
-										Data.addVarStr(attrName, 1);
-									}
-								}
-							}
-							j++;
-						}
-						rowOffset += j;
-					}
-					else
-					{
-						Data.storeStr(name, i + 1, tsname);
-						for (Entry<String, String> dim : ts.getDimensionsMap().entrySet())
-						{
-							String key = dim.getKey();
-							String value = dim.getValue();
-							int attrPos = Data.getVarIndex(key);
-							if (attrPos > lastPos)
-							{
-								lastPos = attrPos;
-								// not set yet
-								Data.addVarStr(key, value.length());
-							}
-							Data.storeStr(attrPos, rowOffset + i + 1, value);
-						}
-						for (Entry<String, String> attr : ts.getAttributesMap().entrySet())
-						{
-							String key = attr.getKey();
-							String value = attr.getValue();
-							int attrPos = Data.getVarIndex(key);
-							if (attrPos > lastPos)
-							{
-								lastPos = attrPos;
-								// not set yet
-								Data.addVarStr(key, value.length());
-							}
-							Data.storeStr(attrPos, rowOffset + i + 1, value);
-						}
-					}
-					i++;
-				}
+					writer.add(ts, 0, ts.size());
+				writer.write();
 			}
 			else
 			{
@@ -269,6 +136,152 @@ public class StataClientHandler
 
 	}
 
+	/**
+	 * Writes the result of a query to a Stata dataset file, which Stata then loads with use. The first arguments are
+	 * the same as {@link #getTimeSeries(String[])}, followed by the name of the file.
+	 */
+	@SuppressWarnings("javadoc")
+	public static int exportTimeSeries(String[] args)
+	{
+		if (args.length < 6 || args[5].isEmpty())
+		{
+			SFIToolkit.displayln("The provider name, time series key and file name are required.");
+			return -1;
+		}
+		int meta = getMetaMode(args);
+		try
+		{
+			List<PortableTimeSeries<Double>> tslist = SdmxClientHandler.getTimeSeries(args[0], args[1], args[2], args[3]);
+			int rows = new DtaWriter(meta != METADATA, meta != DATA).setLabel(args[1]).write(tslist, new File(args[5]));
+			SFIToolkit.displayln("The query returned " + tslist.size() + " time series, written in " + rows + " rows.");
+			return 0;
+		}
+		catch (Exception e)
+		{
+			SFIToolkit.displayln("Exception. Class: " + e.getClass().getName() + " .Message: " + e.getMessage());
+			logger.log(Level.FINER, "", e);
+			return -1;
+		}
+	}
+
+	/**
+	 * Starts a query whose series are appended to the dataset a page at a time by {@link #fetchPage(String[])}, while
+	 * they are downloaded. The java heap then holds one page only, however large the result. The arguments are the
+	 * same as {@link #getTimeSeries(String[])}.
+	 */
+	@SuppressWarnings("javadoc")
+	public static int openTimeSeries(String[] args)
+	{
+		closeTimeSeries(args);
+		if (args.length < 2)
+		{
+			SFIToolkit.displayln("The provider name and time series key are required.");
+			return -1;
+		}
+		int meta = getMetaMode(args);
+		pageData = meta != METADATA;
+		try
+		{
+			cursor = new SeriesCursor(args[0], args[1], args.length >= 3 ? args[2] : "", args.length >= 4 ? args[3] : "",
+					QUEUED_SERIES);
+			writer = new StataDatasetWriter(pageData, meta != DATA, true);
+		}
+		catch (Exception e)
+		{
+			SFIToolkit.displayln("Exception. Class: " + e.getClass().getName() + " .Message: " + e.getMessage());
+			logger.log(Level.FINER, "", e);
+			closeTimeSeries(args);
+			return -1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Appends the next page of the query started by {@link #openTimeSeries(String[])} to the dataset, and sets the
+	 * local macro rows to the number of rows appended, 0 at the end of the query. The argument is the number of rows
+	 * of a page: observations, or series if only the metadata is requested. A long series is split across pages.
+	 */
+	@SuppressWarnings("javadoc")
+	public static int fetchPage(String[] args)
+	{
+		if (cursor == null)
+		{
+			SFIToolkit.displayln("No query is open: call openTimeSeries first.");
+			return -1;
+		}
+		try
+		{
+			int size = args.length >= 1 && !args[0].isEmpty() ? Math.max(Integer.parseInt(args[0]), 1) : DEFAULT_PAGE;
+			while (writer.getRows() < size)
+			{
+				if (current == null)
+				{
+					current = cursor.next();
+					if (current == null)
+						break;
+					offset = 0;
+				}
+				int to = pageData ? (int) Math.min(current.size(), (long) offset + size - writer.getRows()) : 0;
+				writer.add(current, offset, to);
+				if (to < current.size() && pageData)
+					offset = to;
+				else
+					current = null;
+			}
+
+			int rows = writer.write();
+			if (rows == 0)
+				closeTimeSeries(args);
+			Macro.setLocal("rows", Integer.toString(rows));
+			return 0;
+		}
+		catch (Exception e)
+		{
+			SFIToolkit.displayln("Exception. Class: " + e.getClass().getName() + " .Message: " + e.getMessage());
+			logger.log(Level.FINER, "", e);
+			closeTimeSeries(args);
+			return -1;
+		}
+	}
+
+	/**
+	 * Ends the query started by {@link #openTimeSeries(String[])}, stopping the download if it is still running.
+	 */
+	@SuppressWarnings("javadoc")
+	public static int closeTimeSeries(String[] args)
+	{
+		if (cursor != null)
+			cursor.close();
+		cursor = null;
+		current = null;
+		writer = null;
+		return 0;
+	}
+
+	// 0: only data, 1: data and metadata, 2: only metadata
+	private static int getMetaMode(String[] args)
+	{
+		String meta = args.length >= 5 ? args[4] : "";
+		if (meta.equalsIgnoreCase("") || meta.equalsIgnoreCase("0"))
+		{
+			if (args.length >= 5)
+				SFIToolkit.displayln("METADATA is disabled.");
+			return DATA;
+		}
+		else if (meta.equalsIgnoreCase("1"))
+		{
+			SFIToolkit.displayln("METADATA is enabled.");
+			return DATA_AND_METADATA;
+		}
+		else if (meta.equalsIgnoreCase("2"))
+		{
+			SFIToolkit.displayln("Only METADATA is enabled.");
+			return METADATA;
+		}
+		SFIToolkit.displayln("Metadata parameter not valid: " + meta);
+		return DATA;
+	}
+
 	@SuppressWarnings("javadoc")
 	public static int sdmxHelper(String[] args)
 	{
@@ -0,0 +1,145 @@
+/* Copyright 2010,2014 Bank Of Italy
+*
+* Licensed under the EUPL, Version 1.1 or - as soon they
+* will be approved by the European Commission - subsequent
+* versions of the EUPL (the "Licence");
+* You may not use this work except in compliance with the
+* Licence.
+* You may obtain a copy of the Licence at:
+*
+*
+* http://ec.europa.eu/idabc/eupl
+*
+* Unless required by applicable law or agreed to in
+* writing, software distributed under the Licence is
+* distributed on an "AS IS" basis,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+* express or implied.
+* See the Licence for the specific language governing
+* permissions and limitations under the Licence.
+*/
+
+package it.bancaditalia.oss.sdmx.client;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.stata.sfi.Data;
+import com.stata.sfi.SFIToolkit;
+
+import it.bancaditalia.oss.sdmx.api.PortableTimeSeries;
+import it.bancaditalia.oss.sdmx.util.StataColumns;
+
+/**
+ * Appends time series to the current Stata dataset, in the layout of {@link StataColumns}. The rows are first
+ * materialized column by column, so that the width of each variable is known before it is declared; then each column
+ * is stored with the index of its variable, looked up only once.
+ */
+class StataDatasetWriter
+{
+	private final StataColumns			columns;
+	// the variables declared by this writer: their index and width
+	private final Map<String, int[]>	variables	= new HashMap<>();
+
+	/**
+	 * @param data if false, only the metadata of the series is stored
+	 * @param metadata if true, the dimensions and the attributes are stored in a variable each
+	 * @param numeric if true, the values are stored in a numeric variable, otherwise in a string one
+	 */
+	StataDatasetWriter(boolean data, boolean metadata, boolean numeric)
+	{
+		columns = new StataColumns(data, metadata, numeric);
+	}
+
+	/**
+	 * Adds the observations from..to of a series to the rows to be written.
+	 */
+	void add(PortableTimeSeries<?> ts, int from, int to)
+	{
+		columns.add(ts, from, to);
+	}
+
+	/**
+	 * @return the number of rows to be written
+	 */
+	int getRows()
+	{
+		return columns.getRows();
+	}
+
+	/**
+	 * Appends the rows added so far at the end of the dataset.
+	 * 
+	 * @return the number of rows written
+	 */
+	int write()
+	{
+		int size = columns.fill();
+		if (size > 0)
+		{
+			long first = Data.getObsTotal() + 1;
+			Data.setObsTotal(first - 1 + size);
+			store(declare(StataColumns.NAME, columns.getNames()), first, columns.getNames());
+			if (columns.hasData())
+			{
+				store(declare(StataColumns.DATE, columns.getDates()), first, columns.getDates());
+				if (columns.isNumeric())
+					store(declare(StataColumns.VALUE), first, columns.getValues());
+				else
+					store(declare(StataColumns.VALUE, columns.getStrings()), first, columns.getStrings());
+			}
+			for (Entry<String, String[]> column : columns.getMetadata().entrySet())
+				store(declare(column.getKey(), column.getValue()), first, column.getValue());
+		}
+		return size;
+	}
+
+	// the index of a string variable wide enough for the column, declared or widened if needed
+	private int declare(String name, String[] column)
+	{
+		int width = StataColumns.width(column);
+
+		int[] variable = variables.get(name);
+		if (variable == null)
+		{
+			Data.addVarStr(name, width);
+			variable = new int[] { Data.getVarIndex(name), width };
+			variables.put(name, variable);
+		}
+		else if (width > variable[1])
+		{
+			// a later page holds longer values
+			SFIToolkit.executeCommand("quietly recast str" + width + " " + name, false);
+			variable[1] = width;
+		}
+		return variable[0];
+	}
+
+	// the index of a numeric variable
+	private int declare(String name)
+	{
+		int[] variable = variables.get(name);
+		if (variable == null)
+		{
+			Data.addVarDouble(name);
+			variable = new int[] { Data.getVarIndex(name), 0 };
+			variables.put(name, variable);
+		}
+		return variable[0];
+	}
+
+	private static void store(int index, long first, String[] column)
+	{
+		for (int row = 0; row < column.length; row++)
+			if (column[row] != null)
+				Data.storeStr(index, first + row, column[row]);
+	}
+
+	private static void store(int index, long first, double[] column)
+	{
+		double missing = Data.getMissingValue();
+		for (int row = 0; row < column.length; row++)
+			Data.storeNum(index, first + row, Double.isNaN(column[row]) ? missing : column[row]);
+	}
+}